@@ -0,0 +1,46 @@
+package com.jsmart.yoda.shortener.api;
+
+import org.springframework.http.ResponseEntity;
+
+import com.jsmart.yoda.shortener.core.model.CacheMetrics;
+import com.jsmart.yoda.shortener.core.model.ExpiryMetrics;
+import com.jsmart.yoda.shortener.core.model.GeneratorMetrics;
+import com.jsmart.yoda.shortener.core.model.HotKeyMetrics;
+import com.jsmart.yoda.shortener.core.model.KeyFilterMetrics;
+import com.jsmart.yoda.shortener.core.model.KeyPoolMetrics;
+import com.jsmart.yoda.shortener.core.model.MigrationReport;
+import com.jsmart.yoda.shortener.core.model.ReplicaMetrics;
+import com.jsmart.yoda.shortener.core.model.ShardMetrics;
+import com.jsmart.yoda.shortener.core.model.WriteBehindMetrics;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public interface AdminController {
+
+	public ResponseEntity<KeyPoolMetrics> getKeyPoolMetrics();
+
+	public ResponseEntity<GeneratorMetrics> getGeneratorMetrics();
+
+	public ResponseEntity<CacheMetrics> getCacheMetrics();
+
+	public ResponseEntity<KeyFilterMetrics> getKeyFilterMetrics();
+
+	public ResponseEntity<HotKeyMetrics> getHotKeyMetrics();
+
+	public ResponseEntity<WriteBehindMetrics> getWriteBehindMetrics();
+
+	public ResponseEntity<ExpiryMetrics> getExpiryMetrics();
+
+	public ResponseEntity<MigrationReport> migrateStorage();
+
+	public ResponseEntity<MigrationReport> migrateSerialization();
+
+	public ResponseEntity<ShardMetrics> getShardMetrics();
+
+	public ResponseEntity<MigrationReport> addShard(String endpoint);
+
+	public ResponseEntity<ReplicaMetrics> getReplicaMetrics();
+
+}
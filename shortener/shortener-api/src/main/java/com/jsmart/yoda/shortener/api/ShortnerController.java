@@ -3,9 +3,14 @@ package com.jsmart.yoda.shortener.api;
 import java.util.List;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.jsmart.yoda.shortener.base.PurgeJob;
 import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlBatchItem;
+import com.jsmart.yoda.shortener.base.UrlPage;
 
 /**
  * @author Nick Koretskyy
@@ -13,11 +18,19 @@ import com.jsmart.yoda.shortener.base.Url;
  */
 public interface ShortnerController {
 
-	public ResponseEntity<Url> get(String shortUrl);
+	public DeferredResult<ResponseEntity<Url>> get(String shortUrl);
 
 	public ResponseEntity<List<Url>> getAll();
 
-	public ResponseEntity<Url> create(String longUrl, UriComponentsBuilder ucBuilder);
+	public DeferredResult<ResponseEntity<List<Url>>> getAll(List<String> shortUrls);
+
+	public ResponseEntity<UrlPage> getPage(String cursor, int limit);
+
+	public ResponseEntity<StreamingResponseBody> stream();
+
+	public ResponseEntity<Url> create(String longUrl, long ttl, long maxClicks, UriComponentsBuilder ucBuilder);
+
+	public ResponseEntity<List<UrlBatchItem>> createAll(List<String> longUrls);
 
 	public ResponseEntity<Url> update(String shortUrl, String longUrl);
 
@@ -25,4 +38,8 @@ public interface ShortnerController {
 
 	public ResponseEntity<Void> removeAll();
 
+	public ResponseEntity<PurgeJob> removeAllAsync(UriComponentsBuilder ucBuilder);
+
+	public ResponseEntity<PurgeJob> getPurgeJob(String id);
+
 }
@@ -0,0 +1,295 @@
+package com.jsmart.yoda.shortener.api.rest;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.jsmart.yoda.shortener.api.AdminController;
+import com.jsmart.yoda.shortener.core.cache.UrlNearCache;
+import com.jsmart.yoda.shortener.core.expiry.UrlExpiryWheel;
+import com.jsmart.yoda.shortener.core.filter.UrlKeyFilter;
+import com.jsmart.yoda.shortener.core.generator.ShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.generator.ShortUrlKeyPool;
+import com.jsmart.yoda.shortener.core.hotkey.HotUrlPinner;
+import com.jsmart.yoda.shortener.core.migration.BucketMigrator;
+import com.jsmart.yoda.shortener.core.migration.SerializationMigrator;
+import com.jsmart.yoda.shortener.core.model.CacheMetrics;
+import com.jsmart.yoda.shortener.core.model.ExpiryMetrics;
+import com.jsmart.yoda.shortener.core.model.GeneratorMetrics;
+import com.jsmart.yoda.shortener.core.model.HotKeyMetrics;
+import com.jsmart.yoda.shortener.core.model.KeyFilterMetrics;
+import com.jsmart.yoda.shortener.core.model.KeyPoolMetrics;
+import com.jsmart.yoda.shortener.core.model.MigrationReport;
+import com.jsmart.yoda.shortener.core.model.ReplicaMetrics;
+import com.jsmart.yoda.shortener.core.model.ShardMetrics;
+import com.jsmart.yoda.shortener.core.replica.ReplicaReadShortnerDao;
+import com.jsmart.yoda.shortener.core.shard.ShardedShortnerDao;
+import com.jsmart.yoda.shortener.core.model.WriteBehindMetrics;
+import com.jsmart.yoda.shortener.core.writebehind.WriteBehindBuffer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         This class covers REST API for shortener monitoring and maintenance.
+ */
+@RestController
+@RequestMapping(value = "/admin")
+public class RestAdminController implements AdminController {
+
+	@Autowired
+	private ShortUrlGenerator shortUrlGenerator;
+
+	@Autowired(required = false)
+	private ShortUrlKeyPool shortUrlKeyPool;
+
+	@Autowired(required = false)
+	private UrlNearCache urlNearCache;
+
+	@Autowired(required = false)
+	private UrlKeyFilter urlKeyFilter;
+
+	@Autowired(required = false)
+	private HotUrlPinner hotUrlPinner;
+
+	@Autowired(required = false)
+	private BucketMigrator bucketMigrator;
+
+	@Autowired(required = false)
+	private WriteBehindBuffer writeBehindBuffer;
+
+	@Autowired(required = false)
+	private UrlExpiryWheel urlExpiryWheel;
+
+	@Autowired(required = false)
+	private ShardedShortnerDao shardedShortnerDao;
+
+	@Autowired(required = false)
+	private ReplicaReadShortnerDao replicaReadShortnerDao;
+
+	@Autowired
+	private SerializationMigrator serializationMigrator;
+
+	/**
+	 * This method creates JSON response on http GET /admin/keypool request and
+	 * returns state of pre-generated key pool.
+	 *
+	 * @return JSON HTTP ResponseEntity with pool metrics and HttpStatus OK or
+	 *         HttpStatus NOT_FOUND if pool is disabled.
+	 */
+	@Override
+	@RequestMapping(value = "/keypool", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<KeyPoolMetrics> getKeyPoolMetrics() {
+		if (Optional.ofNullable(shortUrlKeyPool).isPresent()) {
+			return new ResponseEntity<KeyPoolMetrics>(shortUrlKeyPool.getMetrics(), new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<KeyPoolMetrics>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * This method creates JSON response on http GET /admin/generator request
+	 * and returns key length, collision rate and estimated keyspace occupancy
+	 * of short url generator.
+	 *
+	 * @return JSON HTTP ResponseEntity with generator metrics and HttpStatus
+	 *         OK.
+	 */
+	@Override
+	@RequestMapping(value = "/generator", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<GeneratorMetrics> getGeneratorMetrics() {
+		return new ResponseEntity<GeneratorMetrics>(shortUrlGenerator.getMetrics(), new HttpHeaders(), HttpStatus.OK);
+	}
+
+	/**
+	 * This method creates JSON response on http GET /admin/cache request and
+	 * returns hit ratio, eviction and load latency statistics of redirect near
+	 * cache.
+	 *
+	 * @return JSON HTTP ResponseEntity with cache metrics and HttpStatus OK or
+	 *         HttpStatus NOT_FOUND if cache is disabled.
+	 */
+	@Override
+	@RequestMapping(value = "/cache", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<CacheMetrics> getCacheMetrics() {
+		if (Optional.ofNullable(urlNearCache).isPresent()) {
+			return new ResponseEntity<CacheMetrics>(urlNearCache.getMetrics(), new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<CacheMetrics>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * This method creates JSON response on http GET /admin/keyfilter request
+	 * and returns state of negative lookup filter of short urls.
+	 *
+	 * @return JSON HTTP ResponseEntity with filter metrics and HttpStatus OK
+	 *         or HttpStatus NOT_FOUND if filter is disabled.
+	 */
+	@Override
+	@RequestMapping(value = "/keyfilter", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<KeyFilterMetrics> getKeyFilterMetrics() {
+		if (Optional.ofNullable(urlKeyFilter).isPresent()) {
+			return new ResponseEntity<KeyFilterMetrics>(urlKeyFilter.getMetrics(), new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<KeyFilterMetrics>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * This method creates JSON response on http GET /admin/hotkeys request and
+	 * returns current heavy hitters with their estimated request counts and
+	 * pinning state.
+	 *
+	 * @return JSON HTTP ResponseEntity with hot key metrics and HttpStatus OK
+	 *         or HttpStatus NOT_FOUND if hot keys tracking is disabled.
+	 */
+	@Override
+	@RequestMapping(value = "/hotkeys", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<HotKeyMetrics> getHotKeyMetrics() {
+		if (Optional.ofNullable(hotUrlPinner).isPresent()) {
+			return new ResponseEntity<HotKeyMetrics>(hotUrlPinner.getMetrics(), new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<HotKeyMetrics>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * This method creates JSON response on http GET /admin/writebehind request
+	 * and returns state of write-behind buffer.
+	 *
+	 * @return JSON HTTP ResponseEntity with write-behind metrics and HttpStatus
+	 *         OK or HttpStatus NOT_FOUND if write-behind is disabled.
+	 */
+	@Override
+	@RequestMapping(value = "/writebehind", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<WriteBehindMetrics> getWriteBehindMetrics() {
+		if (Optional.ofNullable(writeBehindBuffer).isPresent()) {
+			return new ResponseEntity<WriteBehindMetrics>(writeBehindBuffer.getMetrics(), new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<WriteBehindMetrics>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * This method creates JSON response on http GET /admin/expiry request and
+	 * returns state of the wheel evicting expiring Urls from local caches.
+	 *
+	 * @return JSON HTTP ResponseEntity with expiry metrics and HttpStatus OK
+	 *         or HttpStatus NOT_FOUND if expiry is disabled.
+	 */
+	@Override
+	@RequestMapping(value = "/expiry", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<ExpiryMetrics> getExpiryMetrics() {
+		if (Optional.ofNullable(urlExpiryWheel).isPresent()) {
+			return new ResponseEntity<ExpiryMetrics>(urlExpiryWheel.getMetrics(), new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<ExpiryMetrics>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * This method creates JSON response on http POST /admin/storage/migrate
+	 * request and moves Urls stored as top-level keys into buckets.
+	 *
+	 * @return JSON HTTP ResponseEntity with amounts of moved and conflicting
+	 *         Urls and HttpStatus OK or HttpStatus NOT_FOUND if bucket storage
+	 *         is not enabled.
+	 */
+	@Override
+	@RequestMapping(value = "/storage/migrate", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<MigrationReport> migrateStorage() {
+		if (Optional.ofNullable(bucketMigrator).isPresent()) {
+			return new ResponseEntity<MigrationReport>(bucketMigrator.migrate(), new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<MigrationReport>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * This method creates JSON response on http POST
+	 * /admin/serialization/migrate request and rewrites Urls stored with JDK
+	 * serialization of keys and values.
+	 *
+	 * @return JSON HTTP ResponseEntity with amounts of rewritten Urls and of
+	 *         ones left in place and HttpStatus OK.
+	 */
+	@Override
+	@RequestMapping(value = "/serialization/migrate", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<MigrationReport> migrateSerialization() {
+		return new ResponseEntity<MigrationReport>(serializationMigrator.migrate(), new HttpHeaders(), HttpStatus.OK);
+	}
+
+	/**
+	 * This method creates JSON response on http GET /admin/shards request and
+	 * returns share of keys owned by every shard of sharded storage.
+	 *
+	 * @return JSON HTTP ResponseEntity with shard metrics and HttpStatus OK or
+	 *         HttpStatus NOT_FOUND if storage is not sharded.
+	 */
+	@Override
+	@RequestMapping(value = "/shards", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<ShardMetrics> getShardMetrics() {
+		if (Optional.ofNullable(shardedShortnerDao).isPresent()) {
+			return new ResponseEntity<ShardMetrics>(shardedShortnerDao.getMetrics(), new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<ShardMetrics>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * This method creates JSON response on http POST /admin/shards request,
+	 * adds shard with endpoint given by the body to sharded storage and moves
+	 * its Urls from other shards.
+	 *
+	 * @param endpoint
+	 *            host:port/database of new shard.
+	 *
+	 * @return JSON HTTP ResponseEntity with amounts of moved and conflicting
+	 *         Urls and HttpStatus OK, HttpStatus BAD_REQUEST if endpoint is
+	 *         illegal or already added, HttpStatus CONFLICT if rebalancing
+	 *         onto another shard is not finished or HttpStatus NOT_FOUND if
+	 *         storage is not sharded.
+	 */
+	@Override
+	@RequestMapping(value = "/shards", method = RequestMethod.POST, consumes = MediaType.TEXT_PLAIN_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<MigrationReport> addShard(@RequestBody String endpoint) {
+		if (!Optional.ofNullable(shardedShortnerDao).isPresent()) {
+			return new ResponseEntity<MigrationReport>(HttpStatus.NOT_FOUND);
+		}
+		try {
+			return new ResponseEntity<MigrationReport>(shardedShortnerDao.addShard(endpoint.trim()), new HttpHeaders(),
+					HttpStatus.OK);
+		} catch (IllegalArgumentException iae) {
+			return new ResponseEntity<MigrationReport>(HttpStatus.BAD_REQUEST);
+		} catch (IllegalStateException ise) {
+			return new ResponseEntity<MigrationReport>(HttpStatus.CONFLICT);
+		}
+	}
+
+	/**
+	 * This method creates JSON response on http GET /admin/replicas request
+	 * and returns counts of replica and primary reads, hedged reads and
+	 * replica latency.
+	 *
+	 * @return JSON HTTP ResponseEntity with replica metrics and HttpStatus OK
+	 *         or HttpStatus NOT_FOUND if replicas are disabled.
+	 */
+	@Override
+	@RequestMapping(value = "/replicas", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<ReplicaMetrics> getReplicaMetrics() {
+		if (Optional.ofNullable(replicaReadShortnerDao).isPresent()) {
+			return new ResponseEntity<ReplicaMetrics>(replicaReadShortnerDao.getMetrics(), new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<ReplicaMetrics>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+}
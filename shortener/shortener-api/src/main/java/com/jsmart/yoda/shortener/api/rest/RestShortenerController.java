@@ -1,8 +1,14 @@
 package com.jsmart.yoda.shortener.api.rest;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -14,10 +20,17 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jsmart.yoda.shortener.api.ShortnerController;
+import com.jsmart.yoda.shortener.base.PurgeJob;
 import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlBatchItem;
+import com.jsmart.yoda.shortener.base.UrlPage;
 import com.jsmart.yoda.shortener.base.service.ShortnerService;
 
 /**
@@ -29,9 +42,21 @@ import com.jsmart.yoda.shortener.base.service.ShortnerService;
 @RequestMapping(value = "/api")
 public class RestShortenerController implements ShortnerController {
 
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	static final int MAX_PAGE_LIMIT = 1000;
+
+	static final int MAX_BATCH_SIZE = 10000;
+
+	static final int MAX_LOOKUP_SIZE = 1000;
+
+	static final int STREAM_FLUSH_EVERY = 1000;
+
 	@Autowired
 	private ShortnerService urlShortnerService;
 
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
 	/**
 	 * This method creates JSON response on http GET /api/{shortUrl} request with
 	 * short url in the path and return stored Url.
@@ -42,17 +67,20 @@ public class RestShortenerController implements ShortnerController {
 	 * @return JSON HTTP ResponseEntity with stored Url in the body and
 	 *         HttpStatus OK status in successes case. In other case return JSON
 	 *         HTTP ResponseEntity with stored Url in the body and HttpStatus
-	 *         NOT_FOUND.
+	 *         NOT_FOUND. Request thread is released while storage answers,
+	 *         lookup answered at once (near cache, pinned Url or synchronous
+	 *         storage) completes the result before it is returned.
 	 */
 	@Override
 	@RequestMapping(value = "/{shortUrl}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-	public ResponseEntity<Url> get(@PathVariable("shortUrl") String shortUrl) {
-		Url url = urlShortnerService.get(shortUrl);
-		if (Optional.ofNullable(url).isPresent()) {
-			return new ResponseEntity<Url>(url, new HttpHeaders(), HttpStatus.OK);
-		} else {
-			return new ResponseEntity<Url>(HttpStatus.NOT_FOUND);
-		}
+	public DeferredResult<ResponseEntity<Url>> get(@PathVariable("shortUrl") String shortUrl) {
+		return respond(urlShortnerService.getAsync(shortUrl).thenApply((url) -> {
+			if (Optional.ofNullable(url).isPresent()) {
+				return new ResponseEntity<Url>(url, new HttpHeaders(), HttpStatus.OK);
+			} else {
+				return new ResponseEntity<Url>(HttpStatus.NOT_FOUND);
+			}
+		}));
 	}
 
 	/**
@@ -75,23 +103,124 @@ public class RestShortenerController implements ShortnerController {
 		}
 	}
 
+	/**
+	 * This method creates JSON response on http Post /api/lookup request with
+	 * JSON array of short urls in the body and resolves all of them at once.
+	 *
+	 * @param shortUrls
+	 *            short urls, up to MAX_LOOKUP_SIZE.
+	 *
+	 * @return JSON HTTP ResponseEntity with found Urls in the order of short
+	 *         urls and HttpStatus OK, not found ones are left out. In case of
+	 *         empty or too large list return HttpStatus BAD_REQUEST. Request
+	 *         thread is released while storage answers.
+	 */
+	@Override
+	@RequestMapping(value = "/lookup", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public DeferredResult<ResponseEntity<List<Url>>> getAll(@RequestBody List<String> shortUrls) {
+		if (shortUrls.isEmpty() || shortUrls.size() > MAX_LOOKUP_SIZE) {
+			return respond(CompletableFuture.completedFuture(new ResponseEntity<List<Url>>(HttpStatus.BAD_REQUEST)));
+		}
+		return respond(urlShortnerService.getAllAsync(shortUrls).thenApply((found) -> {
+			List<Url> urls = found.stream()
+					.filter(Objects::nonNull)
+					.collect(Collectors.toList());
+			return new ResponseEntity<List<Url>>(urls, new HttpHeaders(), HttpStatus.OK);
+		}));
+	}
+
+	/**
+	 * This method creates JSON response on http GET /api?cursor={cursor}
+	 * request and returns one page of stored Urls. Listing starts from cursor
+	 * 0 and is complete when returned cursor is 0 again. Amount of Urls per
+	 * page is close to limit but not exact.
+	 *
+	 * @param cursor
+	 *            cursor returned with previous page, 0 for the first page.
+	 *
+	 * @param limit
+	 *            desired amount of Urls in the page, up to 1000.
+	 *
+	 * @return JSON HTTP ResponseEntity with page of Urls and cursor of the
+	 *         next page and HttpStatus OK in successes case. In case of
+	 *         malformed cursor or limit return HttpStatus BAD_REQUEST.
+	 */
+	@Override
+	@RequestMapping(method = RequestMethod.GET, params = "cursor", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<UrlPage> getPage(@RequestParam("cursor") String cursor,
+			@RequestParam(value = "limit", defaultValue = "100") int limit) {
+		if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+			return new ResponseEntity<UrlPage>(HttpStatus.BAD_REQUEST);
+		}
+		try {
+			return new ResponseEntity<UrlPage>(urlShortnerService.getPage(cursor, limit), new HttpHeaders(),
+					HttpStatus.OK);
+		} catch (IllegalArgumentException iae) {
+			return new ResponseEntity<UrlPage>(HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	/**
+	 * This method creates newline delimited JSON response on http GET /api
+	 * request with Accept: application/x-ndjson header. Urls are written one
+	 * per line as they are read from storage, so memory use doesn't depend on
+	 * amount of stored Urls.
+	 *
+	 * @return HTTP ResponseEntity with streamed Urls and HttpStatus OK.
+	 */
+	@Override
+	@RequestMapping(method = RequestMethod.GET, produces = APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> stream() {
+		StreamingResponseBody body = (out) -> {
+			try (Stream<Url> urls = urlShortnerService.stream()) {
+				Iterator<Url> iterator = urls.iterator();
+				int written = 0;
+				while (iterator.hasNext()) {
+					out.write(objectMapper.writeValueAsBytes(iterator.next()));
+					out.write('\n');
+					if (++written % STREAM_FLUSH_EVERY == 0) {
+						out.flush();
+					}
+				}
+			}
+		};
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE));
+		return new ResponseEntity<StreamingResponseBody>(body, headers, HttpStatus.OK);
+	}
+
 	/**
 	 * This method creates JSON response on http POST /api request with long url
-	 * in the text body to be paired with short one.
+	 * in the text body to be paired with short one. Optional ttl and maxClicks
+	 * parameters make Url expire after given seconds or redirects.
 	 *
 	 * @param longUrl
 	 *            String url representation.
 	 *
+	 * @param ttl
+	 *            seconds Url lives, 0 for no time limit.
+	 *
+	 * @param maxClicks
+	 *            amount of redirects Url serves, 0 for no limit.
+	 *
 	 * @return JSON HTTP ResponseEntity with new instance of Url in the body and
 	 *         HttpStatus CREATED in successes case. In other case return
-	 *         HttpStatus INTERNAL_SERVER_ERROR / BAD_REQUEST.
+	 *         HttpStatus INTERNAL_SERVER_ERROR / BAD_REQUEST, or
+	 *         NOT_IMPLEMENTED for limits expiry or storage doesn't support.
 	 */
 	@Override
 	@RequestMapping(method = RequestMethod.POST, consumes = MediaType.TEXT_PLAIN_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-	public ResponseEntity<Url> create(@RequestBody String longUrl, UriComponentsBuilder ucBuilder) {
+	public ResponseEntity<Url> create(@RequestBody String longUrl,
+			@RequestParam(value = "ttl", defaultValue = "0") long ttl,
+			@RequestParam(value = "maxClicks", defaultValue = "0") long maxClicks, UriComponentsBuilder ucBuilder) {
 
-		if (longUrl != "") {
-			Url url = urlShortnerService.create(longUrl);
+		if (longUrl != "" && ttl >= 0 && maxClicks >= 0) {
+			Url url;
+			try {
+				url = urlShortnerService.create(longUrl, ttl, maxClicks);
+			} catch (UnsupportedOperationException uoe) {
+				return new ResponseEntity<Url>(HttpStatus.NOT_IMPLEMENTED);
+			}
 			HttpHeaders headers = new HttpHeaders();
 			if (Optional.ofNullable(url).isPresent())  {
 				headers.setLocation(ucBuilder.path("/api/{shortUrl}").buildAndExpand(url.getShortUrl()).toUri());
@@ -105,6 +234,28 @@ public class RestShortenerController implements ShortnerController {
 
 	}
 
+	/**
+	 * This method creates JSON response on http Post /api/batch request with
+	 * JSON array of long urls in the body and creates Url for every of them
+	 * in one go.
+	 *
+	 * @param longUrls
+	 *            String urls representation, up to MAX_BATCH_SIZE.
+	 *
+	 * @return JSON HTTP ResponseEntity with result for every long url in the
+	 *         same order and HttpStatus OK. In case of empty or too large
+	 *         batch return HttpStatus BAD_REQUEST.
+	 */
+	@Override
+	@RequestMapping(value = "/batch", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<List<UrlBatchItem>> createAll(@RequestBody List<String> longUrls) {
+		if (longUrls.isEmpty() || longUrls.size() > MAX_BATCH_SIZE) {
+			return new ResponseEntity<List<UrlBatchItem>>(HttpStatus.BAD_REQUEST);
+		}
+		return new ResponseEntity<List<UrlBatchItem>>(urlShortnerService.createAll(longUrls), new HttpHeaders(),
+				HttpStatus.OK);
+	}
+
 	/**
 	 * This method creates JSON response on http Put /api/{shortUrl} request with
 	 * short url in the path, long url in text body and try to update Url object
@@ -176,4 +327,62 @@ public class RestShortenerController implements ShortnerController {
 		}
 	}
 
+	/**
+	 * This method creates JSON response on http Delete /api?async=true request
+	 * and starts removal of all stored Urls in background. Removal goes in
+	 * SCAN batches, so Redis is not blocked for the time of whole keyspace.
+	 *
+	 * @return JSON HTTP ResponseEntity with started (or already running) purge
+	 *         job in the body, its location in the header and HttpStatus
+	 *         ACCEPTED.
+	 */
+	@Override
+	@RequestMapping(method = RequestMethod.DELETE, params = "async=true", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<PurgeJob> removeAllAsync(UriComponentsBuilder ucBuilder) {
+		PurgeJob job = urlShortnerService.removeAllAsync();
+		HttpHeaders headers = new HttpHeaders();
+		headers.setLocation(ucBuilder.path("/api/purges/{id}").buildAndExpand(job.getId()).toUri());
+		return new ResponseEntity<PurgeJob>(job, headers, HttpStatus.ACCEPTED);
+	}
+
+	/**
+	 * This method creates JSON response on http Get /api/purges/{id} request
+	 * with state of background removal of all Urls.
+	 *
+	 * @param id
+	 *            purge job id.
+	 *
+	 * @return JSON HTTP ResponseEntity with purge job in the body and
+	 *         HttpStatus OK in successes case. In other case return HttpStatus
+	 *         NOT_FOUND.
+	 */
+	@Override
+	@RequestMapping(value = "/purges/{id}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public ResponseEntity<PurgeJob> getPurgeJob(@PathVariable("id") String id) {
+		PurgeJob job = urlShortnerService.getPurgeJob(id);
+		if (Optional.ofNullable(job).isPresent()) {
+			return new ResponseEntity<PurgeJob>(job, new HttpHeaders(), HttpStatus.OK);
+		} else {
+			return new ResponseEntity<PurgeJob>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/**
+	 * This method completes DeferredResult with the lookup, in caller thread
+	 * if lookup is already done.
+	 *
+	 * @return DeferredResult completed with the lookup.
+	 */
+	private static <T> DeferredResult<ResponseEntity<T>> respond(CompletableFuture<ResponseEntity<T>> lookup) {
+		DeferredResult<ResponseEntity<T>> result = new DeferredResult<ResponseEntity<T>>();
+		lookup.whenComplete((entity, failure) -> {
+			if (failure != null) {
+				result.setErrorResult(failure instanceof CompletionException ? failure.getCause() : failure);
+			} else {
+				result.setResult(entity);
+			}
+		});
+		return result;
+	}
+
 }
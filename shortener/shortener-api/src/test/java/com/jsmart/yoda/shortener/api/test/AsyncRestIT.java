@@ -0,0 +1,122 @@
+package com.jsmart.yoda.shortener.api.test;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jsmart.yoda.shortener.api.config.TestApiConfiguration;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = TestApiConfiguration.class)
+@TestPropertySource(properties = { "spring.redis.database=1", "shorturl.async.enabled=true",
+		"shorturl.expiry.enabled=true", "shorturl.cache.enabled=false", "shorturl.key-filter.enabled=false",
+		"shorturl.hot-keys.enabled=false" })
+@WebAppConfiguration
+@SpringBootApplication
+public class AsyncRestIT {
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final String apiUri = "/api";
+
+	private final String serviceUri = "/service";
+
+	private String create(String query) throws Exception {
+		String location = mockMvc.perform(post(apiUri + query)
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content("http://ua.fm"))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		return location.substring(location.lastIndexOf('/') + 1);
+	}
+
+	// lookups and redirects always complete a DeferredResult
+	private ResultActions perform(RequestBuilder request) throws Exception {
+		return mockMvc.perform(asyncDispatch(mockMvc.perform(request).andReturn()));
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+		mockMvc.perform(delete(apiUri));
+	}
+
+	@Test
+	public void testGetAndLookupSuccess() throws Exception {
+
+		redisTemplate.opsForValue().set("async1", "http://ua.fm");
+
+		perform(get(apiUri + "/async1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.shortUrl", is("async1")))
+				.andExpect(jsonPath("$.longUrl", is("http://ua.fm")))
+				;
+
+		perform(get(apiUri + "/async2"))
+				.andExpect(status().isNotFound())
+				;
+
+		perform(post(apiUri + "/lookup")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content(objectMapper.writeValueAsString(Arrays.asList("async2", "async1"))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(jsonPath("$[0].longUrl", is("http://ua.fm")))
+				;
+	}
+
+	@Test
+	public void testClickLimitedRedirectSuccess() throws Exception {
+
+		String shortUrl = create("?maxClicks=1");
+
+		perform(get(serviceUri + "/" + shortUrl))
+				.andExpect(status().isSeeOther())
+				.andExpect(header().string("Location", is("http://ua.fm")))
+				;
+
+		perform(get(serviceUri + "/" + shortUrl))
+				.andExpect(status().isNotFound())
+				;
+	}
+
+}
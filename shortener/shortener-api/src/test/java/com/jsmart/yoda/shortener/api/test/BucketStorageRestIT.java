@@ -0,0 +1,147 @@
+package com.jsmart.yoda.shortener.api.test;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jsmart.yoda.shortener.api.config.TestApiConfiguration;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = TestApiConfiguration.class)
+@TestPropertySource(properties = { "spring.redis.database=1", "shorturl.storage=buckets",
+		"shorturl.storage.bucket-count=16" })
+@WebAppConfiguration
+@SpringBootApplication
+public class BucketStorageRestIT {
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	private final String apiUri = "/api";
+
+	private String create(String longUrl) throws Exception {
+
+		String location = mockMvc.perform(post(apiUri)
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content(longUrl))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		return location.substring(location.lastIndexOf('/') + 1);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+		mockMvc.perform(delete(apiUri));
+		redisTemplate.delete(redisTemplate.keys("legacy*"));
+	}
+
+	@Test
+	public void testUrlRoutineSuccess() throws Exception {
+
+		String shortUrl = create("http://ua.fm");
+		create("http://google.com");
+
+		Assert.assertFalse(redisTemplate.hasKey(shortUrl));
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://ua.fm")))
+				;
+
+		mockMvc.perform(put(apiUri + "/" + shortUrl)
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content("http://yahoo.com"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://yahoo.com")))
+				;
+
+		mockMvc.perform(get(apiUri))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				;
+
+		mockMvc.perform(get(apiUri).param("cursor", "0").param("limit", "1000"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.urls", hasSize(2)))
+				;
+
+		mockMvc.perform(delete(apiUri + "/" + shortUrl))
+				.andExpect(status().isNoContent())
+				;
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isNotFound())
+				;
+	}
+
+	@Test
+	public void testMigrateStorageSuccess() throws Exception {
+
+		redisTemplate.opsForValue().set("legacy1", "http://ua.fm");
+		redisTemplate.opsForValue().set("legacy2", "http://google.com");
+
+		mockMvc.perform(post("/admin/storage/migrate"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.migrated", is(2)))
+				.andExpect(jsonPath("$.conflicts", is(0)))
+				;
+
+		Assert.assertFalse(redisTemplate.hasKey("legacy1"));
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/legacy1")).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://ua.fm")))
+				;
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(post(apiUri + "/lookup")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content("[\"legacy2\", \"legacy1\"]")).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].longUrl", is("http://google.com")))
+				.andExpect(jsonPath("$[1].longUrl", is("http://ua.fm")))
+				;
+
+		mockMvc.perform(delete(apiUri))
+				.andExpect(status().isNoContent())
+				;
+
+		mockMvc.perform(get(apiUri))
+				.andExpect(content().string("[]"))
+				;
+	}
+
+}
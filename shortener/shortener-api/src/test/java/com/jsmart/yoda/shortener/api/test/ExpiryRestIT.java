@@ -0,0 +1,145 @@
+package com.jsmart.yoda.shortener.api.test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jsmart.yoda.shortener.api.config.TestApiConfiguration;
+import com.jsmart.yoda.shortener.base.service.ShortnerService;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = TestApiConfiguration.class)
+@TestPropertySource(properties = { "spring.redis.database=1", "shorturl.expiry.enabled=true",
+		"shorturl.expiry.tick=10", "shorturl.cache.enabled=true" })
+@WebAppConfiguration
+@SpringBootApplication
+public class ExpiryRestIT {
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	@Autowired
+	private ShortnerService urlShortnerService;
+
+	private final String apiUri = "/api";
+
+	private String create(String query) throws Exception {
+		String location = mockMvc.perform(post(apiUri + query)
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content("http://ua.fm"))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		return location.substring(location.lastIndexOf('/') + 1);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+		mockMvc.perform(delete(apiUri));
+	}
+
+	@Test
+	public void testTimeLimitedUrlRoutineSuccess() throws Exception {
+
+		String shortUrl = create("?ttl=1");
+
+		Assert.assertTrue(redisTemplate.getExpire(shortUrl, TimeUnit.MILLISECONDS) > 0);
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.expiresAt", notNullValue()))
+				;
+
+		Thread.sleep(1100);
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isNotFound())
+				;
+		Assert.assertFalse(redisTemplate.hasKey(shortUrl));
+		mockMvc.perform(get("/admin/expiry"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.expired", is(1)))
+				;
+	}
+
+	@Test
+	public void testClickLimitedUrlRoutineSuccess() throws Exception {
+
+		String shortUrl = create("?maxClicks=2&ttl=60");
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.clicksLeft", is(2)))
+				;
+		Assert.assertTrue(redisTemplate.getExpire(RedisKeys.clicksKey(shortUrl), TimeUnit.MILLISECONDS) > 0);
+
+		Assert.assertNotNull(urlShortnerService.redirect(shortUrl));
+		Assert.assertNotNull(urlShortnerService.redirect(shortUrl));
+		Assert.assertNull(urlShortnerService.redirect(shortUrl));
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isNotFound())
+				;
+		Assert.assertFalse(redisTemplate.hasKey(RedisKeys.clicksKey(shortUrl)));
+	}
+
+	@Test
+	public void testUpdateKeepsLimits() throws Exception {
+
+		String shortUrl = create("?maxClicks=2&ttl=60");
+
+		mockMvc.perform(put(apiUri + "/" + shortUrl)
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content("http://yahoo.com"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://yahoo.com")))
+				.andExpect(jsonPath("$.expiresAt", notNullValue()))
+				.andExpect(jsonPath("$.clicksLeft", is(2)))
+				;
+		Assert.assertTrue(redisTemplate.getExpire(shortUrl, TimeUnit.MILLISECONDS) > 0);
+	}
+
+	@Test
+	public void testCreateWithIllegalLimitsNotSuccess() throws Exception {
+		mockMvc.perform(post(apiUri + "?ttl=-1")
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content("http://ua.fm"))
+				.andExpect(status().isBadRequest())
+				;
+	}
+
+}
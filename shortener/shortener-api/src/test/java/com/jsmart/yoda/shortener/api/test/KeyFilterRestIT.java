@@ -0,0 +1,95 @@
+package com.jsmart.yoda.shortener.api.test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jsmart.yoda.shortener.api.config.TestApiConfiguration;
+import com.jsmart.yoda.shortener.core.filter.UrlKeyFilter;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = TestApiConfiguration.class)
+@TestPropertySource(properties = { "spring.redis.database=1", "shorturl.key-filter.enabled=true",
+		"shorturl.key-filter.settle-window=0", "shorturl.cache.enabled=false", "shorturl.hot-keys.enabled=false" })
+@WebAppConfiguration
+@SpringBootApplication
+public class KeyFilterRestIT {
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	private UrlKeyFilter urlKeyFilter;
+
+	private final String apiUri = "/api";
+
+	@Before
+	public void setUp() throws Exception {
+		mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+		urlKeyFilter = webApplicationContext.getBean(UrlKeyFilter.class);
+
+		mockMvc.perform(delete(apiUri));
+	}
+
+	// Urls left in db 1 would be migrated by bucket storage tests
+	@After
+	public void tearDown() throws Exception {
+		mockMvc.perform(delete(apiUri));
+	}
+
+	@Test
+	public void testFilterIsLoadedAndRejectsUnknownKeys() throws Exception {
+
+		for (int i = 0; i < 100 && !urlKeyFilter.getMetrics().isReady(); i++) {
+			Thread.sleep(100);
+		}
+		assertTrue(urlKeyFilter.getMetrics().isReady());
+
+		String location = mockMvc.perform(post(apiUri)
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content("http://ua.fm"))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		String shortUrl = location.substring(location.lastIndexOf('/') + 1);
+
+		long rejected = urlKeyFilter.getMetrics().getRejected();
+		assertFalse(urlKeyFilter.mightContain("filtered-unknown"));
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/filtered-unknown")).andReturn()))
+				.andExpect(status().isNotFound())
+				;
+		assertEquals(urlKeyFilter.getMetrics().getRejected(), rejected + 2);
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://ua.fm")))
+				;
+	}
+
+}
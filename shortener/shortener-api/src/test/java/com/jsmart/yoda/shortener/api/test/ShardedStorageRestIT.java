@@ -0,0 +1,207 @@
+package com.jsmart.yoda.shortener.api.test;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jsmart.yoda.shortener.api.config.TestApiConfiguration;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Shards are databases 2 and 3 of local Redis, database 4 is added
+ *         online.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = TestApiConfiguration.class)
+@TestPropertySource(properties = { "spring.redis.database=1", "shorturl.storage=sharded",
+		"shorturl.storage.shards=localhost:6379/2, localhost:6379/3" })
+@WebAppConfiguration
+@SpringBootApplication
+public class ShardedStorageRestIT {
+
+	private static final String ADDED_SHARD = "localhost:6379/4";
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final String apiUri = "/api";
+
+	/**
+	 * This method forgets shard added by previous run before the ring is
+	 * built.
+	 */
+	@BeforeClass
+	public static void forgetAddedShard() {
+		try (Jedis jedis = new Jedis("localhost", 6379)) {
+			jedis.select(1);
+			jedis.del(RedisKeys.SHARDS, RedisKeys.SHARDS_REBALANCING);
+			jedis.select(4);
+			jedis.flushDB();
+		}
+	}
+
+	private String create(String longUrl) throws Exception {
+
+		String location = mockMvc.perform(post(apiUri)
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content(longUrl))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		return location.substring(location.lastIndexOf('/') + 1);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+		mockMvc.perform(delete(apiUri));
+	}
+
+	@Test
+	public void testUrlRoutineSuccess() throws Exception {
+
+		String shortUrl = create("http://ua.fm");
+		create("http://google.com");
+
+		Assert.assertFalse(redisTemplate.hasKey(shortUrl));
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://ua.fm")))
+				;
+
+		mockMvc.perform(put(apiUri + "/" + shortUrl)
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content("http://yahoo.com"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://yahoo.com")))
+				;
+
+		mockMvc.perform(get(apiUri))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				;
+
+		Assert.assertEquals(listPageByPage(), 2);
+
+		mockMvc.perform(delete(apiUri + "/" + shortUrl))
+				.andExpect(status().isNoContent())
+				;
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isNotFound())
+				;
+	}
+
+	@Test
+	public void testAddShardSuccess() throws Exception {
+
+		List<String> shortUrls = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			shortUrls.add(create("http://ua.fm/" + i));
+		}
+
+		mockMvc.perform(get("/admin/shards"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.shares.*", hasSize(2)))
+				;
+
+		String report = mockMvc.perform(post("/admin/shards")
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content(ADDED_SHARD))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.conflicts", is(0)))
+				.andReturn().getResponse().getContentAsString();
+		Assert.assertTrue(objectMapper.readTree(report).get("migrated").asLong() > 0);
+
+		mockMvc.perform(post("/admin/shards")
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content(ADDED_SHARD))
+				.andExpect(status().isBadRequest())
+				;
+
+		mockMvc.perform(get("/admin/shards"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.shares.*", hasSize(3)))
+				;
+
+		try (Jedis jedis = new Jedis("localhost", 6379)) {
+			jedis.select(4);
+			Assert.assertTrue(jedis.dbSize() > 0);
+		}
+
+		JsonNode urls = objectMapper.readTree(mockMvc.perform(asyncDispatch(mockMvc.perform(post(apiUri + "/lookup")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content(objectMapper.writeValueAsString(shortUrls))).andReturn()))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		for (int i = 0; i < shortUrls.size(); i++) {
+			Assert.assertEquals(urls.get(i).get("longUrl").asText(), "http://ua.fm/" + i);
+		}
+
+		Assert.assertEquals(listPageByPage(), shortUrls.size());
+	}
+
+	@Test
+	public void testAddIllegalShard() throws Exception {
+
+		mockMvc.perform(post("/admin/shards")
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content("localhost"))
+				.andExpect(status().isBadRequest())
+				;
+	}
+
+	private int listPageByPage() throws Exception {
+		int listed = 0;
+		String cursor = "0";
+		do {
+			JsonNode page = objectMapper.readTree(mockMvc.perform(get(apiUri).param("cursor", cursor).param("limit", "1000"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString());
+			listed += page.get("urls").size();
+			cursor = page.get("cursor").asText();
+		} while (!"0".equals(cursor));
+		return listed;
+	}
+
+}
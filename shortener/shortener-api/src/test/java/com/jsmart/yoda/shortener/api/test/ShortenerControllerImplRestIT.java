@@ -1,6 +1,9 @@
 package com.jsmart.yoda.shortener.api.test;
 
 import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
@@ -16,20 +19,27 @@ import org.junit.Rule;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.rules.SpringClassRule;
 import org.springframework.test.context.junit4.rules.SpringMethodRule;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import com.jayway.jsonpath.JsonPath;
 import com.jsmart.yoda.shortener.api.config.TestApiConfiguration;
+import com.jsmart.yoda.shortener.api.rest.RestShortenerController;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
@@ -38,6 +48,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.hasSize;
@@ -64,6 +75,9 @@ public class ShortenerControllerImplRestIT {
 	@Autowired
 	private WebApplicationContext webApplicationContext;
 
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
 	private final String preUri = "http://localhost";
 	private final String apiUri = "/api";
 
@@ -153,7 +167,7 @@ public class ShortenerControllerImplRestIT {
 
 		String longUrl = "http://ua.fm";
 		String shortUrl = create(longUrl);
-		mockMvc.perform(get(apiUri + "/" + shortUrl))
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType(responseContentType))
 				.andExpect(jsonPath("$.shortUrl", is(shortUrl)))
@@ -163,7 +177,7 @@ public class ShortenerControllerImplRestIT {
 
 	@Test
 	public void testGetNotSuccess() throws Exception {
-		mockMvc.perform(get(apiUri + "/asdas"))
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/asdas")).andReturn()))
 				.andExpect(status().isNotFound())
 				.andExpect(content().string(""))
 				;
@@ -192,6 +206,62 @@ public class ShortenerControllerImplRestIT {
 				;
 	}
 
+	@Test
+	public void testGetPageSuccess() throws Exception {
+
+		create("http://ua.fm");
+		create("http://google.com");
+		create("http://yandex.ua");
+		create("http://yahoo.com");
+
+		Set<String> shortUrls = new HashSet<String>();
+		String cursor = "0";
+		do {
+			String page = mockMvc.perform(get(apiUri).param("cursor", cursor).param("limit", "2"))
+					.andExpect(status().isOk())
+					.andExpect(content().contentType(responseContentType))
+					.andReturn().getResponse().getContentAsString();
+			List<String> pageShortUrls = JsonPath.read(page, "$.urls[*].shortUrl");
+			shortUrls.addAll(pageShortUrls);
+			cursor = JsonPath.read(page, "$.cursor");
+		} while (!"0".equals(cursor));
+
+		Assert.assertEquals(shortUrls.size(), 4);
+	}
+
+	@Test
+	public void testGetPageNotSuccessBadRequest() throws Exception {
+		mockMvc.perform(get(apiUri).param("cursor", "abc"))
+				.andExpect(status().isBadRequest())
+				;
+		mockMvc.perform(get(apiUri).param("cursor", "0").param("limit", "0"))
+				.andExpect(status().isBadRequest())
+				;
+	}
+
+	@Test
+	public void testStreamSuccess() throws Exception {
+
+		create("http://ua.fm");
+		create("http://google.com");
+		create("http://yandex.ua");
+
+		MvcResult result = mockMvc.perform(get(apiUri).accept(RestShortenerController.APPLICATION_NDJSON_VALUE))
+				.andExpect(request().asyncStarted())
+				.andExpect(content().contentType(RestShortenerController.APPLICATION_NDJSON_VALUE))
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				;
+
+		String body = result.getResponse().getContentAsString();
+
+		String[] lines = body.split("\n");
+		Assert.assertEquals(lines.length, 3);
+		Assert.assertThat((String) JsonPath.read(lines[0], "$.longUrl"), Matchers.startsWith("http://"));
+	}
+
 	@Test
 	@Parameters
 	public void testCreateSuccess(String postLongUrl, String respondLongUrl) throws Exception {
@@ -212,6 +282,15 @@ public class ShortenerControllerImplRestIT {
 				;
 	}
 
+	@Test
+	public void testCreateExpiringNotImplemented() throws Exception {
+		mockMvc.perform(post(apiUri + "?ttl=60")
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content("http://ua.fm"))
+				.andExpect(status().isNotImplemented())
+				;
+	}
+
 /*
   	@Test
 	public void testCreateSuccess() throws Exception {
@@ -280,6 +359,67 @@ public class ShortenerControllerImplRestIT {
 				;
 	}
 
+	@Test
+	public void testCreateBatchSuccess() throws Exception {
+
+		MvcResult result = mockMvc.perform(post(apiUri + "/batch")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content("[\"http://ua.fm\", \"\", \"google.com\"]"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+				.andExpect(jsonPath("$", hasSize(3)))
+				.andExpect(jsonPath("$[0].status", is("CREATED")))
+				.andExpect(jsonPath("$[0].longUrl", is("http://ua.fm")))
+				.andExpect(jsonPath("$[1].status", is("INVALID")))
+				.andExpect(jsonPath("$[2].status", is("CREATED")))
+				.andExpect(jsonPath("$[2].longUrl", is("http://google.com")))
+				.andReturn();
+
+		String shortUrl = JsonPath.read(result.getResponse().getContentAsString(), "$[2].shortUrl");
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://google.com")))
+				;
+	}
+
+	@Test
+	public void testCreateBatchNotSuccessBadRequest() throws Exception {
+
+		mockMvc.perform(post(apiUri + "/batch")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content("[]"))
+				.andExpect(status().isBadRequest())
+				;
+	}
+
+	@Test
+	public void testLookupSuccess() throws Exception {
+
+		String shortUrl1 = create("http://ua.fm");
+		String shortUrl2 = create("http://google.com");
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(post(apiUri + "/lookup")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content("[\"" + shortUrl2 + "\", \"missing\", \"" + shortUrl1 + "\"]")).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+				.andExpect(jsonPath("$", hasSize(2)))
+				.andExpect(jsonPath("$[0].shortUrl", is(shortUrl2)))
+				.andExpect(jsonPath("$[0].longUrl", is("http://google.com")))
+				.andExpect(jsonPath("$[1].shortUrl", is(shortUrl1)))
+				;
+	}
+
+	@Test
+	public void testLookupNotSuccessBadRequest() throws Exception {
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(post(apiUri + "/lookup")
+				.contentType(MediaType.APPLICATION_JSON_VALUE)
+				.content("[]")).andReturn()))
+				.andExpect(status().isBadRequest())
+				;
+	}
+
 	@Test
 	public void testUpdateSuccess() throws Exception {
 		String shortUrl = create("ua.fm");
@@ -292,7 +432,7 @@ public class ShortenerControllerImplRestIT {
 				.andExpect(jsonPath("$.longUrl", is("http://google.com")))
 				;
 
-		mockMvc.perform(get(apiUri + "/" + shortUrl))
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
 				.andExpect(jsonPath("$.shortUrl", is(shortUrl)))
 				.andExpect(jsonPath("$.longUrl", is("http://google.com")))
 				;
@@ -327,7 +467,7 @@ public class ShortenerControllerImplRestIT {
 				.andExpect(content().string(""))
 				;
 
-		mockMvc.perform(get(apiUri + "/" + shortUrl))
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
 				.andExpect(status().isNotFound())
 				.andExpect(content().string(""))
 				;
@@ -360,4 +500,72 @@ public class ShortenerControllerImplRestIT {
 				;
 	}
 
+	@Test
+	public void testDeleteAllAsyncSuccess() throws Exception {
+
+		create("http://ua.fm");
+		create("http://google.com");
+		create("http://yandex.ua");
+
+		String purge = mockMvc.perform(delete(apiUri).param("async", "true"))
+				.andExpect(status().isAccepted())
+				.andExpect(jsonPath("$.id", notNullValue()))
+				.andReturn().getResponse().getHeader("Location");
+
+		String state = "RUNNING";
+		for (int i = 0; i < 100 && "RUNNING".equals(state); i++) {
+			Thread.sleep(50);
+			state = JsonPath.read(mockMvc.perform(get(purge))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString(), "$.status");
+		}
+		Assert.assertEquals(state, "COMPLETED");
+
+		mockMvc.perform(get(purge))
+				.andExpect(jsonPath("$.removed", is(3)))
+				;
+
+		mockMvc.perform(get(apiUri))
+				.andExpect(status().isOk())
+				.andExpect(content().string("[]"))
+				;
+	}
+
+	@Test
+	public void testGetPurgeJobNotSuccessNotFound() throws Exception {
+
+		mockMvc.perform(get(apiUri + "/purges/0"))
+				.andExpect(status().isNotFound())
+				;
+	}
+
+	@Test
+	public void testMigrateSerializationSuccess() throws Exception {
+
+		JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+		redisTemplate.execute((RedisCallback<Void>) (connection) -> {
+			connection.set(jdkSerializer.serialize("legacy1"), jdkSerializer.serialize("http://ua.fm"));
+			return null;
+		});
+		create("http://google.com");
+
+		mockMvc.perform(post("/admin/serialization/migrate"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.migrated", is(1)))
+				.andExpect(jsonPath("$.conflicts", is(0)))
+				;
+
+		Assert.assertEquals(redisTemplate.opsForValue().get("legacy1"), "http://ua.fm");
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/legacy1")).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://ua.fm")))
+				;
+
+		mockMvc.perform(get(apiUri))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				;
+	}
+
 }
@@ -0,0 +1,100 @@
+package com.jsmart.yoda.shortener.api.test;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jsmart.yoda.shortener.api.config.TestApiConfiguration;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = TestApiConfiguration.class)
+@TestPropertySource(properties = { "spring.redis.database=1", "shorturl.codec.enabled=true",
+		"shorturl.cache.enabled=false", "shorturl.key-filter.enabled=false" })
+@WebAppConfiguration
+@SpringBootApplication
+public class UrlCodecRestIT {
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	private final String apiUri = "/api";
+
+	private byte[] rawValue(String key) {
+		return redisTemplate.execute((RedisCallback<byte[]>) (connection) -> connection
+				.get(key.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+		mockMvc.perform(delete(apiUri));
+	}
+
+	@Test
+	public void testEncodedUrlRoutineSuccess() throws Exception {
+
+		String longUrl = "https://www.google.com/search?q=yoda";
+		String location = mockMvc.perform(post(apiUri)
+				.contentType(MediaType.TEXT_PLAIN_VALUE)
+				.content(longUrl))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getHeader("Location");
+		String shortUrl = location.substring(location.lastIndexOf('/') + 1);
+
+		byte[] value = rawValue(shortUrl);
+		Assert.assertEquals(value[0] & 0xFF, 0xFF);
+		Assert.assertTrue(value.length < longUrl.length() - 10);
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/" + shortUrl)).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is(longUrl)))
+				;
+
+		redisTemplate.opsForValue().set("plain", "http://ua.fm");
+
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(apiUri + "/plain")).andReturn()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.longUrl", is("http://ua.fm")))
+				;
+
+		mockMvc.perform(get(apiUri))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2)))
+				;
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.jsmart.yoda.shortener.base;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         State of background removal of all stored Urls.
+ */
+public class PurgeJob {
+
+	public enum Status {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	private String id;
+	private volatile Status status;
+	private volatile long removed;
+	private long startedMillis;
+	private volatile long finishedMillis;
+	private volatile String error;
+
+	public PurgeJob() {
+		super();
+	}
+
+	public PurgeJob(String id, long startedMillis) {
+		super();
+		this.id = id;
+		this.status = Status.RUNNING;
+		this.startedMillis = startedMillis;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public long getRemoved() {
+		return removed;
+	}
+
+	public void setRemoved(long removed) {
+		this.removed = removed;
+	}
+
+	public long getStartedMillis() {
+		return startedMillis;
+	}
+
+	public void setStartedMillis(long startedMillis) {
+		this.startedMillis = startedMillis;
+	}
+
+	public long getFinishedMillis() {
+		return finishedMillis;
+	}
+
+	public void setFinishedMillis(long finishedMillis) {
+		this.finishedMillis = finishedMillis;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+}
@@ -3,11 +3,16 @@ package com.jsmart.yoda.shortener.base;
 /**
  * @author Nick Koretskyy
  *
+ *         Short url paired with long one. Expiring Url also carries the moment
+ *         it expires and/or amount of redirects it has left, permanent one has
+ *         both of them null.
  */
 public class Url {
 
 	private String shortUrl;
 	private String longUrl;
+	private Long expiresAt;
+	private Long clicksLeft;
 
 	public Url() {
 		super();
@@ -19,6 +24,14 @@ public class Url {
 		this.longUrl = longUrl;
 	}
 
+	public Url(String shortUrl, String longUrl, Long expiresAt, Long clicksLeft) {
+		super();
+		this.shortUrl = shortUrl;
+		this.longUrl = longUrl;
+		this.expiresAt = expiresAt;
+		this.clicksLeft = clicksLeft;
+	}
+
 	public Url(String longUrl) {
 		super();
 		this.longUrl = longUrl;
@@ -40,6 +53,44 @@ public class Url {
 		this.longUrl = longUrl;
 	}
 
+	/**
+	 * @return expiration time in epoch milliseconds or null if Url doesn't
+	 *         expire by time.
+	 */
+	public Long getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Long expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * @return amount of redirects Url has left or null if they aren't
+	 *         limited.
+	 */
+	public Long getClicksLeft() {
+		return clicksLeft;
+	}
+
+	public void setClicksLeft(Long clicksLeft) {
+		this.clicksLeft = clicksLeft;
+	}
+
+	/**
+	 * @return true if Url expires by time or by amount of redirects.
+	 */
+	public boolean expires() {
+		return expiresAt != null || clicksLeft != null;
+	}
+
+	/**
+	 * @return true if expiration time of Url has come.
+	 */
+	public boolean isExpiredAt(long nowMillis) {
+		return expiresAt != null && expiresAt <= nowMillis;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,54 @@
+package com.jsmart.yoda.shortener.base;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Result of one long url of batch create. Items follow the order of
+ *         submitted long urls.
+ */
+public class UrlBatchItem {
+
+	public enum Status {
+		CREATED, EXISTING, INVALID, FAILED
+	}
+
+	private Status status;
+	private String shortUrl;
+	private String longUrl;
+
+	public UrlBatchItem() {
+		super();
+	}
+
+	public UrlBatchItem(Status status, String shortUrl, String longUrl) {
+		super();
+		this.status = status;
+		this.shortUrl = shortUrl;
+		this.longUrl = longUrl;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public String getShortUrl() {
+		return shortUrl;
+	}
+
+	public void setShortUrl(String shortUrl) {
+		this.shortUrl = shortUrl;
+	}
+
+	public String getLongUrl() {
+		return longUrl;
+	}
+
+	public void setLongUrl(String longUrl) {
+		this.longUrl = longUrl;
+	}
+
+}
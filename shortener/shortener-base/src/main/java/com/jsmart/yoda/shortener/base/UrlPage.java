@@ -0,0 +1,44 @@
+package com.jsmart.yoda.shortener.base;
+
+import java.util.List;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         One page of stored Urls with cursor of the next page. Cursor "0"
+ *         means listing is complete.
+ */
+public class UrlPage {
+
+	public static final String FIRST = "0";
+
+	private List<Url> urls;
+	private String cursor;
+
+	public UrlPage() {
+		super();
+	}
+
+	public UrlPage(List<Url> urls, String cursor) {
+		super();
+		this.urls = urls;
+		this.cursor = cursor;
+	}
+
+	public List<Url> getUrls() {
+		return urls;
+	}
+
+	public void setUrls(List<Url> urls) {
+		this.urls = urls;
+	}
+
+	public String getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
+}
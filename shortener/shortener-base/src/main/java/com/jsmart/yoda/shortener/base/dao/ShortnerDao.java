@@ -1,8 +1,13 @@
 package com.jsmart.yoda.shortener.base.dao;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlPage;
 
 /**
  * @author Nick Koretskyy
@@ -14,12 +19,85 @@ public interface ShortnerDao {
 
 	public List<Url> getAll();
 
+	public List<Url> getAll(List<String> shortUrls);
+
+	public Stream<Url> stream();
+
+	public UrlPage getPage(String cursor, int limit);
+
+	public void forEachKey(Consumer<String> action);
+
 	public boolean create(Url url);
 
+	public void save(Url url);
+
+	public List<Boolean> createAll(List<Url> urls);
+
+	public void saveAll(List<Url> urls);
+
 	public Url update(String shortUrl, String longUrl);
 
 	public void remove(String shortUrl);
 
+	/**
+	 * This method replaces long url of stored short url atomically.
+	 *
+	 * @return previous Url or null if short url isn't stored, then nothing is
+	 *         written.
+	 */
+	public Url updateIfPresent(String shortUrl, String longUrl);
+
+	/**
+	 * This method removes stored Url atomically.
+	 *
+	 * @return removed Url or null if short url isn't stored.
+	 */
+	public Url removeIfPresent(String shortUrl);
+
+	/**
+	 * This method counts redirect of click limited Url, the last allowed one
+	 * removes it.
+	 *
+	 * @return amount of redirects left after this one, negative if none was
+	 *         left and redirect must not happen.
+	 */
+	public long click(String shortUrl);
+
 	public boolean removeAll();
 
+	public long removeAll(LongConsumer progress);
+
+	/**
+	 * This method fetches stored Url without holding caller thread while
+	 * storage answers. By default it is answered by get in caller thread,
+	 * storage with non-blocking client and decorators which can pass the
+	 * lookup on override it.
+	 *
+	 * @return future of stored Url or null if not found.
+	 */
+	public default CompletableFuture<Url> getAsync(String shortUrl) {
+		return CompletableFuture.completedFuture(get(shortUrl));
+	}
+
+	/**
+	 * This method is non-blocking counterpart of getAll by keys, answered by
+	 * getAll in caller thread by default.
+	 *
+	 * @return future of Urls in the order of keys, null for not found ones.
+	 */
+	public default CompletableFuture<List<Url>> getAllAsync(List<String> shortUrls) {
+		return CompletableFuture.completedFuture(getAll(shortUrls));
+	}
+
+	/**
+	 * This method is non-blocking counterpart of click, answered by click in
+	 * caller thread by default.
+	 *
+	 * @return future of amount of redirects left after this one, negative if
+	 *         none was left.
+	 */
+	public default CompletableFuture<Long> clickAsync(String shortUrl) {
+		return CompletableFuture.completedFuture(click(shortUrl));
+	}
+
 }
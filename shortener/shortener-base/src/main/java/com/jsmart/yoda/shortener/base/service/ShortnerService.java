@@ -1,8 +1,13 @@
 package com.jsmart.yoda.shortener.base.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
+import com.jsmart.yoda.shortener.base.PurgeJob;
 import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlBatchItem;
+import com.jsmart.yoda.shortener.base.UrlPage;
 
 /**
  * @author Nick Koretskyy
@@ -12,14 +17,36 @@ public interface ShortnerService {
 
 	public Url get(String shortUrl);
 
+	public Url redirect(String shortUrl);
+
+	public CompletableFuture<Url> getAsync(String shortUrl);
+
+	public CompletableFuture<Url> redirectAsync(String shortUrl);
+
 	public List<Url> getAll();
 
+	public List<Url> getAll(List<String> shortUrls);
+
+	public CompletableFuture<List<Url>> getAllAsync(List<String> shortUrls);
+
+	public UrlPage getPage(String cursor, int limit);
+
+	public Stream<Url> stream();
+
 	public Url create(String longUrl);
 
+	public Url create(String longUrl, long ttlSeconds, long maxClicks);
+
+	public List<UrlBatchItem> createAll(List<String> longUrls);
+
 	public Url update(String shortUrl, String longUrl);
 
 	public boolean remove(String shortUrl);
 
 	public boolean removeAll();
 
+	public PurgeJob removeAllAsync();
+
+	public PurgeJob getPurgeJob(String id);
+
 }
@@ -0,0 +1,107 @@
+package com.jsmart.yoda.shortener.benchmark;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.service.ShortnerService;
+import com.jsmart.yoda.shortener.core.controller.ApplicationController;
+import com.jsmart.yoda.shortener.core.service.ShortnerServiceImpl;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         This class compares redirect through ResponseEntity, which parses
+ *         long url to URI on every call, with redirect of ApplicationController
+ *         which sets stored long url as Location header as is. Both responses
+ *         are copied to servlet response as Spring does for HttpEntity return
+ *         values. Run with -prof gc to see allocation rate of both paths:
+ *
+ *         java -jar shortener-benchmark/target/benchmarks.jar Redirect -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedirectBenchmark {
+
+	private static final String SHORT_URL = "aB3x9";
+
+	private static final String LONG_URL = "https://www.example.com/path/to/some/page?query=value&lang=en";
+
+	private final ApplicationController controller = new ApplicationController();
+
+	private ShortnerService service;
+
+	private MockHttpServletResponse response;
+
+	@Setup
+	public void setUp() {
+		Url url = new Url(SHORT_URL, new ShortnerServiceImpl().fixLongUrl(LONG_URL));
+		service = new ShortnerServiceImpl() {
+			@Override
+			public Url get(String shortUrl) {
+				return url;
+			}
+
+			@Override
+			public CompletableFuture<Url> getAsync(String shortUrl) {
+				return CompletableFuture.completedFuture(url);
+			}
+		};
+		controller.setUrlShortnerService(service);
+		response = new MockHttpServletResponse();
+	}
+
+	/**
+	 * This method repeats redirect as it was done before Location header was
+	 * encoded on write: new HttpHeaders, URI and ResponseEntity per call.
+	 */
+	@Benchmark
+	public MockHttpServletResponse responseEntity() throws URISyntaxException {
+		Url url = service.get(SHORT_URL);
+		HttpHeaders responseHeaders = new HttpHeaders();
+		responseHeaders.setLocation(new URI(url.getLongUrl()));
+		return write(new ResponseEntity<Void>(responseHeaders, HttpStatus.SEE_OTHER));
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public MockHttpServletResponse precomputedLocation() {
+		// lookup is answered at once, so result is set before it is returned
+		return write((ResponseEntity<Void>) controller.getUrlForRedirect(SHORT_URL).getResult());
+	}
+
+	private MockHttpServletResponse write(ResponseEntity<Void> entity) {
+		response.reset();
+		response.setStatus(entity.getStatusCode().value());
+		for (Map.Entry<String, List<String>> header : entity.getHeaders().entrySet()) {
+			for (String value : header.getValue()) {
+				response.addHeader(header.getKey(), value);
+			}
+		}
+		return response;
+	}
+
+}
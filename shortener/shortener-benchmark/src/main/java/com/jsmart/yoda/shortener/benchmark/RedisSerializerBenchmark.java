@@ -0,0 +1,85 @@
+package com.jsmart.yoda.shortener.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.jsmart.yoda.shortener.core.codec.ShortenerRedisSerializer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         This class compares cost of writing and reading one stored Url, key
+ *         and value, with JDK serialization of default RedisTemplate, with
+ *         StringRedisSerializer and with ShortenerRedisSerializer. Bytes per
+ *         entry are printed at setup:
+ *
+ *         java -jar shortener-benchmark/target/benchmarks.jar RedisSerializer -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+	private static final String SHORT_URL = "aB3x9";
+
+	private static final String LONG_URL = "https://www.example.com/path/to/some/page?query=value&lang=en";
+
+	@Param({ "jdk", "string", "shortener" })
+	public String serializer;
+
+	private RedisSerializer<Object> keySerializer;
+
+	private RedisSerializer<Object> valueSerializer;
+
+	private byte[] key;
+
+	private byte[] value;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		RedisSerializer<?> redisSerializer;
+		if ("jdk".equals(serializer)) {
+			redisSerializer = new JdkSerializationRedisSerializer();
+		} else if ("string".equals(serializer)) {
+			redisSerializer = new StringRedisSerializer();
+		} else {
+			redisSerializer = new ShortenerRedisSerializer();
+		}
+		keySerializer = (RedisSerializer<Object>) redisSerializer;
+		valueSerializer = (RedisSerializer<Object>) redisSerializer;
+		key = keySerializer.serialize(SHORT_URL);
+		value = valueSerializer.serialize(LONG_URL);
+		System.out.println("\nBytes per entry: key " + key.length + ", value " + value.length);
+	}
+
+	@Benchmark
+	public byte[] serialize() {
+		keySerializer.serialize(SHORT_URL);
+		return valueSerializer.serialize(LONG_URL);
+	}
+
+	@Benchmark
+	public Object deserialize() {
+		keySerializer.deserialize(key);
+		return valueSerializer.deserialize(value);
+	}
+
+}
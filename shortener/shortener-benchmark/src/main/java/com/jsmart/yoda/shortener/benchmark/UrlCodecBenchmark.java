@@ -0,0 +1,124 @@
+package com.jsmart.yoda.shortener.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jsmart.yoda.shortener.core.codec.HostDictionary;
+import com.jsmart.yoda.shortener.core.codec.UrlValueCodec;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         This class measures decode cost per redirect of long urls stored
+ *         plain and with UrlValueCodec, on a sample of urls sharing a few
+ *         hundred hosts, half of them with tracking query. Bytes per stored
+ *         value of both encodings are printed at setup:
+ *
+ *         java -jar shortener-benchmark/target/benchmarks.jar UrlCodec -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlCodecBenchmark {
+
+	private static final int SAMPLE_SIZE = 4096;
+
+	private static final int HOSTS = 300;
+
+	/** Length of url rest from which it is deflated, 0 disables compression. */
+	@Param({ "0", "96" })
+	public int compressMinLength;
+
+	private byte[][] plainValues;
+
+	private byte[][] encodedValues;
+
+	private UrlValueCodec codec;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		codec = new UrlValueCodec(new LocalHostDictionary(), compressMinLength);
+		Random random = new Random(42);
+		plainValues = new byte[SAMPLE_SIZE][];
+		encodedValues = new byte[SAMPLE_SIZE][];
+		long plainBytes = 0;
+		long encodedBytes = 0;
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			String longUrl = longUrl(random);
+			plainValues[i] = longUrl.getBytes(StandardCharsets.UTF_8);
+			encodedValues[i] = codec.serialize(longUrl);
+			plainBytes += plainValues[i].length;
+			encodedBytes += encodedValues[i].length;
+		}
+		System.out.println("\nBytes per value: plain " + plainBytes / SAMPLE_SIZE + ", encoded "
+				+ encodedBytes / SAMPLE_SIZE + ", saved " + (plainBytes - encodedBytes) * 100 / plainBytes + "%");
+	}
+
+	@Benchmark
+	public String decodePlain() {
+		next = (next + 1) & (SAMPLE_SIZE - 1);
+		return new String(plainValues[next], StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public String decodeEncoded() {
+		next = (next + 1) & (SAMPLE_SIZE - 1);
+		return codec.deserialize(encodedValues[next]);
+	}
+
+	private static String longUrl(Random random) {
+		StringBuilder longUrl = new StringBuilder(random.nextInt(4) == 0 ? "http://" : "https://");
+		longUrl.append("www.site").append(random.nextInt(HOSTS)).append(".com");
+		for (int segments = 1 + random.nextInt(3); segments > 0; segments--) {
+			longUrl.append('/').append(Long.toString(random.nextLong() & 0xFFFFFFFFL, 36));
+		}
+		if (random.nextBoolean()) {
+			longUrl.append("/index.html?utm_source=newsletter&utm_medium=email&utm_campaign=spring")
+					.append(random.nextInt(10)).append("&utm_content=banner&utm_term=").append(random.nextInt(1000));
+		}
+		return longUrl.toString();
+	}
+
+	private static class LocalHostDictionary implements HostDictionary {
+
+		private final List<String> hosts = new ArrayList<String>();
+		private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+		@Override
+		public int idOf(String host) {
+			return ids.computeIfAbsent(host, (key) -> {
+				hosts.add(key);
+				return hosts.size() - 1;
+			});
+		}
+
+		@Override
+		public String hostOf(int id) {
+			return hosts.get(id);
+		}
+
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.jsmart.yoda.shortener.core.cache;
+
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.ForwardingShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         ShortnerDao decorator which serves lookups from near cache. Every
+ *         mutation invalidates local entry and publishes invalidation message
+ *         for the other nodes.
+ *
+ *         Invalidation of Url removed by asynchronous click is published on
+ *         blocking executor, since click completes on a thread which must not
+ *         block.
+ */
+public class CachingShortnerDao extends ForwardingShortnerDao {
+
+	private final UrlNearCache urlNearCache;
+	private final Consumer<String> invalidationPublisher;
+	private final Executor blockingExecutor;
+
+	/**
+	 * @param invalidationPublisher
+	 *            sends invalidation message (short url or
+	 *            UrlNearCache.INVALIDATE_ALL) to all nodes.
+	 */
+	public CachingShortnerDao(ShortnerDao delegate, UrlNearCache urlNearCache, Consumer<String> invalidationPublisher) {
+		this(delegate, urlNearCache, invalidationPublisher, Runnable::run);
+	}
+
+	/**
+	 * @param blockingExecutor
+	 *            publishes invalidations caused by asynchronous clicks.
+	 */
+	public CachingShortnerDao(ShortnerDao delegate, UrlNearCache urlNearCache, Consumer<String> invalidationPublisher,
+			Executor blockingExecutor) {
+		super(delegate);
+		this.urlNearCache = urlNearCache;
+		this.invalidationPublisher = invalidationPublisher;
+		this.blockingExecutor = blockingExecutor;
+	}
+
+	@Override
+	public Url get(String shortUrl) {
+		return urlNearCache.get(shortUrl, delegate::get);
+	}
+
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		return urlNearCache.getAll(shortUrls, delegate::getAll);
+	}
+
+	@Override
+	public CompletableFuture<Url> getAsync(String shortUrl) {
+		return urlNearCache.getAsync(shortUrl, delegate::getAsync);
+	}
+
+	@Override
+	public CompletableFuture<List<Url>> getAllAsync(List<String> shortUrls) {
+		return urlNearCache.getAllAsync(shortUrls, delegate::getAllAsync);
+	}
+
+	@Override
+	public boolean create(Url url) {
+		if (delegate.create(url)) {
+			urlNearCache.put(url);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void save(Url url) {
+		delegate.save(url);
+		urlNearCache.put(url);
+	}
+
+	@Override
+	public List<Boolean> createAll(List<Url> urls) {
+		List<Boolean> created = delegate.createAll(urls);
+		for (int i = 0; i < urls.size(); i++) {
+			if (created.get(i)) {
+				urlNearCache.put(urls.get(i));
+			}
+		}
+		return created;
+	}
+
+	/**
+	 * This method stores batch of Urls unconditionally, which may overwrite
+	 * Urls cached by other nodes, so they get one invalidation message with
+	 * all keys of the batch.
+	 */
+	@Override
+	public void saveAll(List<Url> urls) {
+		if (urls.isEmpty()) {
+			return;
+		}
+		delegate.saveAll(urls);
+		StringJoiner message = new StringJoiner(RedisKeys.KEY_SEPARATOR);
+		for (Url url : urls) {
+			urlNearCache.put(url);
+			message.add(url.getShortUrl());
+		}
+		invalidationPublisher.accept(message.toString());
+	}
+
+	@Override
+	public Url update(String shortUrl, String longUrl) {
+		Url url = delegate.update(shortUrl, longUrl);
+		invalidate(shortUrl);
+		return url;
+	}
+
+	@Override
+	public void remove(String shortUrl) {
+		delegate.remove(shortUrl);
+		invalidate(shortUrl);
+	}
+
+	@Override
+	public Url updateIfPresent(String shortUrl, String longUrl) {
+		Url previous = delegate.updateIfPresent(shortUrl, longUrl);
+		if (previous != null) {
+			invalidate(shortUrl);
+		}
+		return previous;
+	}
+
+	@Override
+	public Url removeIfPresent(String shortUrl) {
+		Url removed = delegate.removeIfPresent(shortUrl);
+		if (removed != null) {
+			invalidate(shortUrl);
+		}
+		return removed;
+	}
+
+	/**
+	 * This method counts redirect, Url removed by its last redirect is
+	 * invalidated on all nodes.
+	 */
+	@Override
+	public long click(String shortUrl) {
+		long left = delegate.click(shortUrl);
+		if (left <= 0) {
+			invalidate(shortUrl);
+		}
+		return left;
+	}
+
+	@Override
+	public CompletableFuture<Long> clickAsync(String shortUrl) {
+		return delegate.clickAsync(shortUrl).thenCompose((left) -> {
+			if (left > 0) {
+				return CompletableFuture.completedFuture(left);
+			}
+			return CompletableFuture.supplyAsync(() -> {
+				invalidate(shortUrl);
+				return left;
+			}, blockingExecutor);
+		});
+	}
+
+	@Override
+	public boolean removeAll() {
+		boolean removed = delegate.removeAll();
+		invalidate(UrlNearCache.INVALIDATE_ALL);
+		return removed;
+	}
+
+	@Override
+	public long removeAll(LongConsumer progress) {
+		long removed = delegate.removeAll(progress);
+		invalidate(UrlNearCache.INVALIDATE_ALL);
+		return removed;
+	}
+
+	private void invalidate(String message) {
+		urlNearCache.onInvalidation(message);
+		invalidationPublisher.accept(message);
+	}
+
+}
@@ -0,0 +1,251 @@
+package com.jsmart.yoda.shortener.core.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.expiry.UrlExpiryWheel;
+import com.jsmart.yoda.shortener.core.model.CacheMetrics;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Size bounded in-process cache of stored Urls. Eviction is frequency
+ *         aware (Window TinyLFU), so a burst of one-off lookups doesn't push
+ *         popular links out. Entries also expire after configured time as a
+ *         safety net for lost invalidation messages. Urls which expire by
+ *         time are dropped at their expiration time by UrlExpiryWheel, if it
+ *         is set.
+ */
+public class UrlNearCache {
+
+	/** Invalidation message which drops every cached entry. */
+	public static final String INVALIDATE_ALL = "*";
+
+	private final Cache<String, Url> cache;
+	private final long maximumSize;
+	private final LongAdder invalidationsReceived = new LongAdder();
+
+	// bumped before every removal, so a load started earlier doesn't cache stale Url
+	private final AtomicLong generation = new AtomicLong();
+
+	private UrlExpiryWheel urlExpiryWheel;
+
+	public UrlNearCache(long maximumSize, long expireAfterWriteSeconds) {
+		this.maximumSize = maximumSize;
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * This method makes cache drop expiring Urls at their expiration time.
+	 */
+	public void setUrlExpiryWheel(UrlExpiryWheel urlExpiryWheel) {
+		this.urlExpiryWheel = urlExpiryWheel;
+		urlExpiryWheel.addListener(this::expire);
+	}
+
+	/**
+	 * @param shortUrl
+	 *            key.
+	 *
+	 * @param loader
+	 *            source of Url on cache miss, may return null which is not
+	 *            cached.
+	 *
+	 * @return cached or loaded Url.
+	 */
+	public Url get(String shortUrl, Function<String, Url> loader) {
+		return cache.get(shortUrl, (key) -> scheduled(loader.apply(key)));
+	}
+
+	/**
+	 * @param shortUrls
+	 *            keys.
+	 *
+	 * @param loader
+	 *            bulk source of Urls missing in cache, returns Urls in the
+	 *            order of given keys with null for not found ones.
+	 *
+	 * @return cached or loaded Urls in the order of keys, null for not found
+	 *         ones.
+	 */
+	public List<Url> getAll(List<String> shortUrls, Function<List<String>, List<Url>> loader) {
+		List<Url> urls = new ArrayList<Url>(shortUrls.size());
+		List<String> misses = new ArrayList<String>();
+		for (String shortUrl : shortUrls) {
+			Url url = cache.getIfPresent(shortUrl);
+			if (url == null) {
+				misses.add(shortUrl);
+			}
+			urls.add(url);
+		}
+		if (misses.isEmpty()) {
+			return urls;
+		}
+		Map<String, Url> loaded = new HashMap<String, Url>();
+		for (Url url : loader.apply(misses)) {
+			if (url != null) {
+				cache.put(url.getShortUrl(), scheduled(url));
+				loaded.put(url.getShortUrl(), url);
+			}
+		}
+		for (int i = 0; i < urls.size(); i++) {
+			if (urls.get(i) == null) {
+				urls.set(i, loaded.get(shortUrls.get(i)));
+			}
+		}
+		return urls;
+	}
+
+	/**
+	 * This method is non-blocking counterpart of get. Loaded Url is cached
+	 * only if nothing was invalidated while it was loading, as invalidation
+	 * which came in between may be newer than loaded value.
+	 *
+	 * @param loader
+	 *            source of Url on cache miss, may complete with null which is
+	 *            not cached.
+	 *
+	 * @return future of cached or loaded Url, completed at once on hit.
+	 */
+	public CompletableFuture<Url> getAsync(String shortUrl, Function<String, CompletableFuture<Url>> loader) {
+		Url cached = cache.getIfPresent(shortUrl);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(cached);
+		}
+		long loadedAt = generation.get();
+		return loader.apply(shortUrl).thenApply((url) -> {
+			putIfNotInvalidated(url, loadedAt);
+			return url;
+		});
+	}
+
+	/**
+	 * This method is non-blocking counterpart of getAll, loaded Urls are
+	 * cached the way getAsync caches them.
+	 *
+	 * @return future of cached or loaded Urls in the order of keys, null for
+	 *         not found ones.
+	 */
+	public CompletableFuture<List<Url>> getAllAsync(List<String> shortUrls,
+			Function<List<String>, CompletableFuture<List<Url>>> loader) {
+		List<Url> urls = new ArrayList<Url>(shortUrls.size());
+		List<String> misses = new ArrayList<String>();
+		for (String shortUrl : shortUrls) {
+			Url url = cache.getIfPresent(shortUrl);
+			if (url == null) {
+				misses.add(shortUrl);
+			}
+			urls.add(url);
+		}
+		if (misses.isEmpty()) {
+			return CompletableFuture.completedFuture(urls);
+		}
+		long loadedAt = generation.get();
+		return loader.apply(misses).thenApply((loaded) -> {
+			Map<String, Url> found = new HashMap<String, Url>();
+			for (Url url : loaded) {
+				if (url != null) {
+					putIfNotInvalidated(url, loadedAt);
+					found.put(url.getShortUrl(), url);
+				}
+			}
+			for (int i = 0; i < urls.size(); i++) {
+				if (urls.get(i) == null) {
+					urls.set(i, found.get(shortUrls.get(i)));
+				}
+			}
+			return urls;
+		});
+	}
+
+	public Url getIfPresent(String shortUrl) {
+		return cache.getIfPresent(shortUrl);
+	}
+
+	public void put(Url url) {
+		cache.put(url.getShortUrl(), scheduled(url));
+	}
+
+	public void invalidate(String shortUrl) {
+		generation.incrementAndGet();
+		cache.invalidate(shortUrl);
+	}
+
+	/**
+	 * This method drops cached Url if its expiration time has come.
+	 */
+	public void expire(String shortUrl) {
+		long now = System.currentTimeMillis();
+		cache.asMap().computeIfPresent(shortUrl, (key, url) -> url.isExpiredAt(now) ? null : url);
+	}
+
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		cache.invalidateAll();
+	}
+
+	/**
+	 * This method applies invalidation message published by some node.
+	 *
+	 * @param message
+	 *            short url, short urls joined by RedisKeys.KEY_SEPARATOR or
+	 *            INVALIDATE_ALL.
+	 */
+	public void onInvalidation(String message) {
+		invalidationsReceived.increment();
+		if (INVALIDATE_ALL.equals(message)) {
+			invalidateAll();
+		} else {
+			for (String shortUrl : message.split(RedisKeys.KEY_SEPARATOR)) {
+				invalidate(shortUrl);
+			}
+		}
+	}
+
+	private void putIfNotInvalidated(Url url, long loadedAt) {
+		if (url == null) {
+			return;
+		}
+		cache.asMap().compute(url.getShortUrl(),
+				(key, cached) -> generation.get() == loadedAt ? scheduled(url) : cached);
+	}
+
+	private Url scheduled(Url url) {
+		if (urlExpiryWheel != null) {
+			urlExpiryWheel.schedule(url);
+		}
+		return url;
+	}
+
+	public CacheMetrics getMetrics() {
+		CacheStats stats = cache.stats();
+		CacheMetrics metrics = new CacheMetrics();
+		metrics.setSize(cache.estimatedSize());
+		metrics.setMaximumSize(maximumSize);
+		metrics.setHitCount(stats.hitCount());
+		metrics.setMissCount(stats.missCount());
+		metrics.setHitRate(stats.hitRate());
+		metrics.setEvictionCount(stats.evictionCount());
+		metrics.setLoadCount(stats.loadCount());
+		metrics.setAverageLoadMicros(TimeUnit.NANOSECONDS.toMicros((long) stats.averageLoadPenalty()));
+		metrics.setInvalidationsReceived(invalidationsReceived.sum());
+		return metrics;
+	}
+
+}
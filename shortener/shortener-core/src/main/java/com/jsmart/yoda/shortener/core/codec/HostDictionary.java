@@ -0,0 +1,33 @@
+package com.jsmart.yoda.shortener.core.codec;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Dictionary of long url hosts shared by all nodes. Ids are never
+ *         reassigned, so a value encoded by one node is decoded by any other.
+ */
+public interface HostDictionary {
+
+	/**
+	 * This method finds id of the host, assigning a new one if the host is
+	 * seen for the first time.
+	 *
+	 * @param host
+	 *            host of long url, with port if any.
+	 *
+	 * @return id of the host or -1 if dictionary is full.
+	 */
+	int idOf(String host);
+
+	/**
+	 * @param id
+	 *            id returned by idOf.
+	 *
+	 * @return host with the id.
+	 *
+	 * @throws IllegalStateException
+	 *             if there is no host with the id.
+	 */
+	String hostOf(int id);
+
+}
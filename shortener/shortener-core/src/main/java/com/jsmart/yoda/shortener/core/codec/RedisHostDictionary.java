@@ -0,0 +1,104 @@
+package com.jsmart.yoda.shortener.core.codec;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         HostDictionary kept in two Redis hashes: host to id and id to host.
+ *         Ids are dense and assigned by a script, so concurrent nodes meeting
+ *         the same new host agree on its id. Every node caches the dictionary,
+ *         it only grows, so cached entries never go stale and decode does not
+ *         touch Redis for known ids.
+ */
+public class RedisHostDictionary implements HostDictionary {
+
+	private static final RedisScript<Long> ASSIGN_ID = new DefaultRedisScript<Long>(
+			"local id = redis.call('HGET', KEYS[1], ARGV[1]) "
+					+ "if id then return tonumber(id) end "
+					+ "local size = redis.call('HLEN', KEYS[1]) "
+					+ "if size >= tonumber(ARGV[2]) then return -1 end "
+					+ "redis.call('HSET', KEYS[2], size, ARGV[1]) "
+					+ "redis.call('HSET', KEYS[1], ARGV[1], size) "
+					+ "return size",
+			Long.class);
+
+	private final RedisTemplate<String, String> redisTemplate;
+	private final int capacity;
+
+	private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private final AtomicReferenceArray<String> hosts;
+	private volatile boolean full;
+
+	/**
+	 * @param capacity
+	 *            maximum amount of hosts, hosts met after it is reached are
+	 *            stored literally.
+	 */
+	public RedisHostDictionary(RedisTemplate<String, String> redisTemplate, int capacity) {
+		this.redisTemplate = redisTemplate;
+		this.capacity = capacity;
+		this.hosts = new AtomicReferenceArray<String>(capacity);
+	}
+
+	/**
+	 * This method loads whole dictionary into local cache.
+	 */
+	public void load() {
+		Map<Object, Object> entries = redisTemplate.opsForHash().entries(RedisKeys.HOST_DICTIONARY_IDS);
+		entries.forEach((id, host) -> cache(Integer.parseInt((String) id), (String) host));
+		full = ids.size() >= capacity;
+	}
+
+	@Override
+	public int idOf(String host) {
+		Integer id = ids.get(host);
+		if (id != null) {
+			return id;
+		}
+		if (full) {
+			return -1;
+		}
+		long assigned = redisTemplate.execute(ASSIGN_ID,
+				Arrays.asList(RedisKeys.HOST_DICTIONARY, RedisKeys.HOST_DICTIONARY_IDS), host,
+				String.valueOf(capacity));
+		if (assigned < 0) {
+			full = true;
+			return -1;
+		}
+		cache((int) assigned, host);
+		return (int) assigned;
+	}
+
+	@Override
+	public String hostOf(int id) {
+		String host = id >= 0 && id < capacity ? hosts.get(id) : null;
+		if (host != null) {
+			return host;
+		}
+		host = (String) redisTemplate.opsForHash().get(RedisKeys.HOST_DICTIONARY_IDS, String.valueOf(id));
+		if (host == null) {
+			throw new IllegalStateException("Unknown host id " + id);
+		}
+		cache(id, host);
+		return host;
+	}
+
+	private void cache(int id, String host) {
+		if (id < capacity) {
+			hosts.set(id, host);
+		}
+		ids.put(host, id);
+	}
+
+}
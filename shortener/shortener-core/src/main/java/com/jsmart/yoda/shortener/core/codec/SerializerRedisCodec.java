@@ -0,0 +1,58 @@
+package com.jsmart.yoda.shortener.core.codec;
+
+import java.nio.ByteBuffer;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import io.lettuce.core.codec.RedisCodec;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Lettuce codec which reads and writes keys and values with serializers
+ *         of a RedisTemplate, so Lettuce connections see exactly the bytes
+ *         template users write, storage codec included.
+ */
+public class SerializerRedisCodec implements RedisCodec<String, String> {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final RedisSerializer<String> keySerializer;
+	private final RedisSerializer<String> valueSerializer;
+
+	public SerializerRedisCodec(RedisSerializer<String> keySerializer, RedisSerializer<String> valueSerializer) {
+		this.keySerializer = keySerializer;
+		this.valueSerializer = valueSerializer;
+	}
+
+	@Override
+	public String decodeKey(ByteBuffer bytes) {
+		return keySerializer.deserialize(toArray(bytes));
+	}
+
+	@Override
+	public String decodeValue(ByteBuffer bytes) {
+		return valueSerializer.deserialize(toArray(bytes));
+	}
+
+	@Override
+	public ByteBuffer encodeKey(String key) {
+		return toBuffer(keySerializer.serialize(key));
+	}
+
+	@Override
+	public ByteBuffer encodeValue(String value) {
+		return toBuffer(valueSerializer.serialize(value));
+	}
+
+	private static byte[] toArray(ByteBuffer bytes) {
+		byte[] array = new byte[bytes.remaining()];
+		bytes.get(array);
+		return array;
+	}
+
+	private static ByteBuffer toBuffer(byte[] bytes) {
+		return ByteBuffer.wrap(bytes != null ? bytes : EMPTY);
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.jsmart.yoda.shortener.core.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Serializer of shortener Redis keys and values. Strings are written
+ *         as bare UTF-8 bytes, byte for byte the same as StringRedisSerializer
+ *         writes them, but ASCII ones, which short urls and almost all long
+ *         urls are, take a single pass into exactly sized array instead of
+ *         charset encoder and decoder.
+ *
+ *         Strings written by JdkSerializationRedisSerializer are still read, so
+ *         entries stored with default template serialization can be listed and
+ *         migrated. Only serialized String form is parsed, no object stream is
+ *         ever opened on stored bytes.
+ */
+public class ShortenerRedisSerializer implements RedisSerializer<String> {
+
+	/** Stream magic, version and TC_STRING of a serialized String. */
+	private static final byte[] JDK_STRING_HEADER = { (byte) 0xAC, (byte) 0xED, 0x00, 0x05, 0x74 };
+
+	@Override
+	public byte[] serialize(String string) throws SerializationException {
+		if (string == null) {
+			return null;
+		}
+		int length = string.length();
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			char c = string.charAt(i);
+			if (c >= 0x80) {
+				return string.getBytes(StandardCharsets.UTF_8);
+			}
+			bytes[i] = (byte) c;
+		}
+		return bytes;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public String deserialize(byte[] bytes) throws SerializationException {
+		if (bytes == null) {
+			return null;
+		}
+		for (byte b : bytes) {
+			if (b < 0) {
+				return isJdkSerialized(bytes) ? readJdkString(bytes) : new String(bytes, StandardCharsets.UTF_8);
+			}
+		}
+		// ASCII bytes are chars as they are
+		return new String(bytes, 0, 0, bytes.length);
+	}
+
+	/**
+	 * @param bytes
+	 *            stored key or value.
+	 *
+	 * @return true if bytes were written by JDK serialization, UTF-8 text
+	 *         never starts with 0xAC.
+	 */
+	public static boolean isJdkSerialized(byte[] bytes) {
+		return bytes.length >= 2 && bytes[0] == JDK_STRING_HEADER[0] && bytes[1] == JDK_STRING_HEADER[1];
+	}
+
+	private static String readJdkString(byte[] bytes) {
+		for (int i = 0; i < JDK_STRING_HEADER.length; i++) {
+			if (bytes.length <= i || bytes[i] != JDK_STRING_HEADER[i]) {
+				throw new SerializationException("Serialized object is not a String");
+			}
+		}
+		int offset = JDK_STRING_HEADER.length;
+		try (DataInputStream input = new DataInputStream(
+				new ByteArrayInputStream(bytes, offset, bytes.length - offset))) {
+			String string = input.readUTF();
+			if (input.available() > 0) {
+				throw new SerializationException("Trailing bytes after serialized String");
+			}
+			return string;
+		} catch (IOException ioe) {
+			throw new SerializationException("Malformed serialized String", ioe);
+		}
+	}
+
+}
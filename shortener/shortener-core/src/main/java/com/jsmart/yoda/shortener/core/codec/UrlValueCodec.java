@@ -0,0 +1,226 @@
+package com.jsmart.yoda.shortener.core.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Storage codec of long urls. Scheme added by fixLongUrl is replaced
+ *         with two bits, host with its id in shared HostDictionary, and the
+ *         rest of a long url is deflated with preset dictionary of common path
+ *         and query tokens when it is long enough to get shorter.
+ *
+ *         Encoded value starts with 0xFF which never starts UTF-8 text, so
+ *         values written before the codec was enabled are still read as plain
+ *         strings, and values which would not get shorter are written plain.
+ *
+ *         Encoded value layout: 0xFF, flags, host id (varint, if flagged),
+ *         rest of url as UTF-8 or its length (varint) and deflated bytes.
+ */
+public class UrlValueCodec implements RedisSerializer<String> {
+
+	static final int MARKER = 0xFF;
+
+	static final int SCHEME_MASK = 0x03;
+	static final int HOST_ID = 0x04;
+	static final int DEFLATED = 0x08;
+
+	private static final String[] SCHEMES = { null, "http://", "https://" };
+
+	private static final byte[] PRESET_DICTIONARY = ("/index.html/index.php?id=&page=/search?q=/category/"
+			+ "/product/.html.php.aspx.jpg.png.pdf&lang=en&sort=&ref=&fbclid=&gclid="
+			+ "&utm_content=&utm_term=&utm_campaign=&utm_medium=&utm_source=").getBytes(StandardCharsets.UTF_8);
+
+	private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_COMPRESSION, true));
+	private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+	private final ShortenerRedisSerializer plainSerializer = new ShortenerRedisSerializer();
+
+	private final HostDictionary hostDictionary;
+	private final int compressMinLength;
+
+	/**
+	 * @param hostDictionary
+	 *            dictionary of hosts shared by all nodes.
+	 *
+	 * @param compressMinLength
+	 *            length of url rest after host from which it is deflated, 0
+	 *            disables compression.
+	 */
+	public UrlValueCodec(HostDictionary hostDictionary, int compressMinLength) {
+		this.hostDictionary = hostDictionary;
+		this.compressMinLength = compressMinLength;
+	}
+
+	/**
+	 * This method creates template which stores values, including hash ones,
+	 * with this codec, other settings are taken from given template.
+	 *
+	 * @param redisTemplate
+	 *            template of plain string values.
+	 *
+	 * @return template of encoded long urls.
+	 */
+	public RedisTemplate<String, String> template(RedisTemplate<String, String> redisTemplate) {
+		RedisTemplate<String, String> template = new RedisTemplate<String, String>();
+		template.setConnectionFactory(redisTemplate.getConnectionFactory());
+		template.setKeySerializer(redisTemplate.getKeySerializer());
+		template.setHashKeySerializer(redisTemplate.getHashKeySerializer());
+		template.setValueSerializer(this);
+		template.setHashValueSerializer(this);
+		template.afterPropertiesSet();
+		return template;
+	}
+
+	@Override
+	public byte[] serialize(String longUrl) throws SerializationException {
+		if (longUrl == null) {
+			return null;
+		}
+		int flags = 0;
+		int start = 0;
+		for (int scheme = 1; scheme < SCHEMES.length; scheme++) {
+			if (longUrl.startsWith(SCHEMES[scheme])) {
+				flags = scheme;
+				start = SCHEMES[scheme].length();
+			}
+		}
+		int hostId = -1;
+		if (flags != 0) {
+			int end = hostEnd(longUrl, start);
+			String host = longUrl.substring(start, end);
+			// credentials are never put into shared dictionary
+			if (!host.isEmpty() && host.indexOf('@') < 0) {
+				hostId = hostDictionary.idOf(host);
+			}
+			if (hostId >= 0) {
+				flags |= HOST_ID;
+				start = end;
+			}
+		}
+		byte[] rest = longUrl.substring(start).getBytes(StandardCharsets.UTF_8);
+		byte[] deflated = compressMinLength > 0 && rest.length >= compressMinLength ? deflate(rest) : null;
+		if (deflated != null) {
+			flags |= DEFLATED;
+		}
+		if (flags == 0) {
+			return plainSerializer.serialize(longUrl);
+		}
+		ByteArrayOutputStream value = new ByteArrayOutputStream(rest.length + 8);
+		value.write(MARKER);
+		value.write(flags);
+		if (hostId >= 0) {
+			writeVarint(value, hostId);
+		}
+		if (deflated != null) {
+			writeVarint(value, rest.length);
+			value.write(deflated, 0, deflated.length);
+		} else {
+			value.write(rest, 0, rest.length);
+		}
+		return value.toByteArray();
+	}
+
+	@Override
+	public String deserialize(byte[] value) throws SerializationException {
+		if (value == null) {
+			return null;
+		}
+		if (value.length < 2 || (value[0] & 0xFF) != MARKER) {
+			return plainSerializer.deserialize(value);
+		}
+		int flags = value[1];
+		int[] position = { 2 };
+		StringBuilder longUrl = new StringBuilder(value.length * 2);
+		if ((flags & SCHEME_MASK) != 0) {
+			longUrl.append(SCHEMES[flags & SCHEME_MASK]);
+		}
+		if ((flags & HOST_ID) != 0) {
+			longUrl.append(hostDictionary.hostOf(readVarint(value, position)));
+		}
+		if ((flags & DEFLATED) != 0) {
+			int length = readVarint(value, position);
+			longUrl.append(new String(inflate(value, position[0], length), StandardCharsets.UTF_8));
+		} else {
+			longUrl.append(new String(value, position[0], value.length - position[0], StandardCharsets.UTF_8));
+		}
+		return longUrl.toString();
+	}
+
+	private static int hostEnd(String longUrl, int start) {
+		for (int i = start; i < longUrl.length(); i++) {
+			char c = longUrl.charAt(i);
+			if (c == '/' || c == '?' || c == '#') {
+				return i;
+			}
+		}
+		return longUrl.length();
+	}
+
+	/**
+	 * @return deflated bytes or null if they are not shorter than input.
+	 */
+	private byte[] deflate(byte[] input) {
+		Deflater deflater = deflaters.get();
+		try {
+			deflater.setDictionary(PRESET_DICTIONARY);
+			deflater.setInput(input);
+			deflater.finish();
+			byte[] output = new byte[input.length];
+			int length = deflater.deflate(output);
+			return deflater.finished() && length + 3 < input.length ? Arrays.copyOf(output, length) : null;
+		} finally {
+			deflater.reset();
+		}
+	}
+
+	private byte[] inflate(byte[] value, int offset, int length) {
+		Inflater inflater = inflaters.get();
+		try {
+			inflater.setDictionary(PRESET_DICTIONARY);
+			inflater.setInput(value, offset, value.length - offset);
+			byte[] output = new byte[length];
+			if (inflater.inflate(output) != length) {
+				throw new SerializationException("Truncated long url value");
+			}
+			return output;
+		} catch (DataFormatException dfe) {
+			throw new SerializationException("Corrupted long url value", dfe);
+		} finally {
+			inflater.reset();
+		}
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarint(byte[] value, int[] position) {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (position[0] >= value.length) {
+				break;
+			}
+			byte b = value[position[0]++];
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new SerializationException("Malformed long url value");
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.jsmart.yoda.shortener.core.codec.SerializerRedisCodec;
+import com.jsmart.yoda.shortener.core.codec.UrlValueCodec;
+import com.jsmart.yoda.shortener.core.dao.LettuceUrlReader;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Non-blocking lookups of Urls stored as top-level keys, enabled by
+ *         shorturl.async.enabled. Lettuce connections go to the Redis of
+ *         spring.redis settings with its password and timeout, and read
+ *         values with serializers of shortener template. Blocking work
+ *         chained to lookups, like flushes and Jedis publishes of DAO layers,
+ *         runs on a bounded pool of blocking threads instead of Lettuce event
+ *         loop, work which finds the pool and its queue full is rejected.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.async.enabled", havingValue = "true")
+public class AsyncConfiguration {
+
+	@Value("${shorturl.async.connections}")
+	private int connections;
+
+	@Value("${shorturl.async.blocking-threads}")
+	private int blockingThreads;
+
+	@Value("${shorturl.async.blocking-queue-capacity}")
+	private int blockingQueueCapacity;
+
+	@Value("${shorturl.expiry.enabled}")
+	private boolean expiryEnabled;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	@Autowired(required = false)
+	private UrlValueCodec urlValueCodec;
+
+	private RedisClient redisClient;
+
+	@Bean(destroyMethod = "close")
+	@SuppressWarnings("unchecked")
+	LettuceUrlReader lettuceUrlReader() {
+		redisClient = RedisClient.create(redisUri());
+		SerializerRedisCodec codec = new SerializerRedisCodec(
+				(RedisSerializer<String>) redisTemplate.getKeySerializer(),
+				urlValueCodec != null ? urlValueCodec : (RedisSerializer<String>) redisTemplate.getValueSerializer());
+		List<StatefulRedisConnection<String, String>> shared = new ArrayList<StatefulRedisConnection<String, String>>();
+		for (int i = 0; i < Math.max(1, connections); i++) {
+			shared.add(redisClient.connect(codec));
+		}
+		return new LettuceUrlReader(shared, expiryEnabled);
+	}
+
+	/**
+	 * Executor is shut down with the context, which waits for blocking work
+	 * already started.
+	 */
+	@Bean
+	ThreadPoolTaskExecutor asyncBlockingExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(Math.max(1, blockingThreads));
+		executor.setMaxPoolSize(Math.max(1, blockingThreads));
+		executor.setQueueCapacity(Math.max(0, blockingQueueCapacity));
+		executor.setThreadNamePrefix("async-blocking-");
+		executor.setDaemon(true);
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		return executor;
+	}
+
+	/**
+	 * This method takes Redis endpoint of spring.redis settings from the
+	 * connection factory of shortener template.
+	 *
+	 * @throws IllegalStateException
+	 *             if template is not connected through Jedis, whose settings
+	 *             could not be read.
+	 */
+	private RedisURI redisUri() {
+		if (!(redisTemplate.getConnectionFactory() instanceof JedisConnectionFactory)) {
+			throw new IllegalStateException("Redis endpoint of non-blocking lookups is read from Jedis connection"
+					+ " factory, found " + redisTemplate.getConnectionFactory().getClass().getName());
+		}
+		JedisConnectionFactory main = (JedisConnectionFactory) redisTemplate.getConnectionFactory();
+		RedisURI redisUri = RedisURI.create(main.getHostName(), main.getPort());
+		redisUri.setDatabase(main.getDatabase());
+		if (main.getPassword() != null && !main.getPassword().isEmpty()) {
+			redisUri.setPassword(main.getPassword());
+		}
+		if (main.getTimeout() > 0) {
+			redisUri.setTimeout(Duration.ofMillis(main.getTimeout()));
+		}
+		return redisUri;
+	}
+
+	@PreDestroy
+	void disconnect() {
+		if (redisClient != null) {
+			redisClient.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.codec.UrlValueCodec;
+import com.jsmart.yoda.shortener.core.dao.BucketLayout;
+import com.jsmart.yoda.shortener.core.dao.BucketedShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.ShortnerDaoImpl;
+import com.jsmart.yoda.shortener.core.migration.BucketMigrator;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Storage of Urls packed into Redis hashes, enabled by
+ *         shorturl.storage=buckets, with migration of Urls stored as top-level
+ *         keys before.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.storage", havingValue = "buckets")
+public class BucketStorageConfiguration {
+
+	@Value("${shorturl.storage.namespace}")
+	private String namespace;
+
+	@Value("${shorturl.storage.bucket-count}")
+	private int bucketCount;
+
+	@Autowired(required = false)
+	private UrlValueCodec urlValueCodec;
+
+	@Bean
+	BucketedShortnerDao bucketedShortnerDao(RedisTemplate<String, String> redisTemplate) {
+		return new BucketedShortnerDao(urlValueCodec != null ? urlValueCodec.template(redisTemplate) : redisTemplate,
+				new BucketLayout(namespace, bucketCount));
+	}
+
+	@Bean
+	BucketMigrator bucketMigrator(ShortnerDaoImpl shortnerDaoImpl, ShortnerDao shortnerDao,
+			RedisTemplate<String, String> redisTemplate) {
+		return new BucketMigrator(shortnerDaoImpl, shortnerDao, redisTemplate);
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+
+import com.jsmart.yoda.shortener.core.dao.LongUrlIndexDao;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.dedup.LongUrlDeduplicator;
+import com.jsmart.yoda.shortener.core.messaging.ShortenerMessageListenerContainer;
+import com.jsmart.yoda.shortener.core.support.BloomFilter;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Long url deduplication, enabled by shorturl.dedup.enabled. Digests
+ *         registered by other nodes arrive through Redis pub/sub channel,
+ *         filter is rebuilt when the subscription is restored.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.dedup.enabled", havingValue = "true")
+public class DeduplicationConfiguration {
+
+	@Value("${shorturl.dedup.expected-urls}")
+	private long expectedUrls;
+
+	@Value("${shorturl.dedup.false-positive-rate}")
+	private double falsePositiveRate;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	@Bean(initMethod = "start")
+	LongUrlDeduplicator longUrlDeduplicator(ShortenerMessageListenerContainer shortenerMessageListenerContainer) {
+		LongUrlDeduplicator longUrlDeduplicator = new LongUrlDeduplicator(
+				new LongUrlIndexDao(redisTemplate, RedisKeys.DEDUP_INDEX), new BloomFilter(expectedUrls, falsePositiveRate),
+				(digests) -> redisTemplate.convertAndSend(RedisKeys.DEDUP_CHANNEL, digests));
+		shortenerMessageListenerContainer.addMessageListener(
+				(message, pattern) -> {
+					// batch registrations announce their digests in one message
+					for (String digest : new String(message.getBody(), StandardCharsets.UTF_8).split(RedisKeys.KEY_SEPARATOR)) {
+						longUrlDeduplicator.onAnnounced(digest);
+					}
+				},
+				new ChannelTopic(RedisKeys.DEDUP_CHANNEL));
+		shortenerMessageListenerContainer.addResubscribeListener(longUrlDeduplicator::onResubscribed);
+		return longUrlDeduplicator;
+	}
+
+}
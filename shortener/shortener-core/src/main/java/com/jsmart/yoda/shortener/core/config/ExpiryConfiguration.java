@@ -0,0 +1,34 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+import com.jsmart.yoda.shortener.core.expiry.UrlExpiryWheel;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Expiring links, enabled by shorturl.expiry.enabled. Storage keeps
+ *         expiration with native TTL, local caches get their expiring entries
+ *         evicted by the wheel.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.expiry.enabled", havingValue = "true")
+public class ExpiryConfiguration {
+
+	@Value("${shorturl.expiry.tick}")
+	private long tick;
+
+	@Value("${shorturl.expiry.wheel-size}")
+	private int wheelSize;
+
+	@Bean(initMethod = "start", destroyMethod = "close")
+	UrlExpiryWheel urlExpiryWheel() {
+		return new UrlExpiryWheel(tick, wheelSize);
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.cache.UrlNearCache;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.expiry.UrlExpiryWheel;
+import com.jsmart.yoda.shortener.core.hotkey.HeavyHitterTracker;
+import com.jsmart.yoda.shortener.core.hotkey.HotUrlPinner;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Heavy hitter detection and hot url pinning, enabled by
+ *         shorturl.hot-keys.enabled. Pins are dropped on invalidations
+ *         published by other nodes.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.hot-keys.enabled", havingValue = "true")
+public class HotKeyConfiguration {
+
+	@Value("${shorturl.hot-keys.top-k}")
+	private int topK;
+
+	@Value("${shorturl.hot-keys.min-hits}")
+	private long minHits;
+
+	@Value("${shorturl.hot-keys.refresh-interval}")
+	private long refreshInterval;
+
+	@Autowired(required = false)
+	private UrlExpiryWheel urlExpiryWheel;
+
+	@Bean(destroyMethod = "close")
+	HotUrlPinner hotUrlPinner(ShortnerDao shortnerDao, RedisMessageListenerContainer shortenerMessageListenerContainer) {
+		HotUrlPinner hotUrlPinner = new HotUrlPinner(new HeavyHitterTracker(topK), minHits);
+		shortenerMessageListenerContainer.addMessageListener((message, pattern) -> {
+			String shortUrls = new String(message.getBody(), StandardCharsets.UTF_8);
+			if (UrlNearCache.INVALIDATE_ALL.equals(shortUrls)) {
+				hotUrlPinner.clear();
+			} else {
+				for (String shortUrl : shortUrls.split(RedisKeys.KEY_SEPARATOR)) {
+					hotUrlPinner.unpin(shortUrl);
+				}
+			}
+		}, new ChannelTopic(RedisKeys.INVALIDATION_CHANNEL));
+		if (urlExpiryWheel != null) {
+			hotUrlPinner.setUrlExpiryWheel(urlExpiryWheel);
+		}
+		hotUrlPinner.start(shortnerDao::get, refreshInterval);
+		return hotUrlPinner;
+	}
+
+}
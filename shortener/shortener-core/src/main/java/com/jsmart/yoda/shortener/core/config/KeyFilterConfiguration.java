@@ -0,0 +1,53 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.listener.ChannelTopic;
+
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.filter.UrlKeyFilter;
+import com.jsmart.yoda.shortener.core.messaging.ShortenerMessageListenerContainer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Negative lookup filter of short urls, enabled by
+ *         shorturl.key-filter.enabled. Keys created by other nodes arrive
+ *         through Redis pub/sub creation channel, filter is rebuilt when the
+ *         subscription is restored.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.key-filter.enabled", havingValue = "true")
+public class KeyFilterConfiguration {
+
+	@Value("${shorturl.key-filter.expected-keys}")
+	private long expectedKeys;
+
+	@Value("${shorturl.key-filter.false-positive-rate}")
+	private double falsePositiveRate;
+
+	@Value("${shorturl.key-filter.settle-window}")
+	private long settleWindow;
+
+	@Bean(destroyMethod = "close")
+	UrlKeyFilter urlKeyFilter(ShortenerMessageListenerContainer shortenerMessageListenerContainer) {
+		UrlKeyFilter urlKeyFilter = new UrlKeyFilter(expectedKeys, falsePositiveRate, settleWindow);
+		shortenerMessageListenerContainer.addMessageListener(
+				(message, pattern) -> {
+					// batch creations announce their keys in one message
+					for (String shortUrl : new String(message.getBody(), StandardCharsets.UTF_8).split(RedisKeys.KEY_SEPARATOR)) {
+						urlKeyFilter.add(shortUrl);
+					}
+				},
+				new ChannelTopic(RedisKeys.CREATION_CHANNEL));
+		shortenerMessageListenerContainer.addResubscribeListener(urlKeyFilter::onResubscribed);
+		return urlKeyFilter;
+	}
+
+}
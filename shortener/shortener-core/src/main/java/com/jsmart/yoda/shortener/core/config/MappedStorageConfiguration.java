@@ -0,0 +1,42 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+import com.jsmart.yoda.shortener.core.mapped.MappedShortnerDao;
+import com.jsmart.yoda.shortener.core.mapped.MappedUrlStore;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Storage of Urls in embedded memory-mapped files of the node instead
+ *         of Redis, enabled by shorturl.storage=mapped.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.storage", havingValue = "mapped")
+public class MappedStorageConfiguration {
+
+	@Value("${shorturl.storage.directory}")
+	private String directory;
+
+	@Value("${shorturl.storage.sync-interval}")
+	private long syncInterval;
+
+	@Value("${shorturl.storage.compaction-garbage-ratio}")
+	private double compactionGarbageRatio;
+
+	@Bean(destroyMethod = "close")
+	MappedShortnerDao mappedShortnerDao() throws IOException {
+		MappedUrlStore store = MappedUrlStore.open(Paths.get(directory));
+		store.start(syncInterval, compactionGarbageRatio);
+		return new MappedShortnerDao(store);
+	}
+
+}
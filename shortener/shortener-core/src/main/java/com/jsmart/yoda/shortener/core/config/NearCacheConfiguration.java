@@ -0,0 +1,50 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.jsmart.yoda.shortener.core.cache.UrlNearCache;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.expiry.UrlExpiryWheel;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Redirect near cache, enabled by shorturl.cache.enabled. Nodes keep
+ *         their caches coherent through Redis pub/sub invalidation channel.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.cache.enabled", havingValue = "true")
+public class NearCacheConfiguration {
+
+	@Value("${shorturl.cache.maximum-size}")
+	private long maximumSize;
+
+	@Value("${shorturl.cache.expire-after-write}")
+	private long expireAfterWrite;
+
+	@Autowired(required = false)
+	private UrlExpiryWheel urlExpiryWheel;
+
+	@Bean
+	UrlNearCache urlNearCache(RedisMessageListenerContainer shortenerMessageListenerContainer) {
+		UrlNearCache urlNearCache = new UrlNearCache(maximumSize, expireAfterWrite);
+		shortenerMessageListenerContainer.addMessageListener(
+				(message, pattern) -> urlNearCache.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+				new ChannelTopic(RedisKeys.INVALIDATION_CHANNEL));
+		if (urlExpiryWheel != null) {
+			urlNearCache.setUrlExpiryWheel(urlExpiryWheel);
+		}
+		return urlNearCache;
+	}
+
+}
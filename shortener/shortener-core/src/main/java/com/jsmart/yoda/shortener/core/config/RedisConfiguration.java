@@ -0,0 +1,44 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.codec.ShortenerRedisSerializer;
+import com.jsmart.yoda.shortener.core.migration.SerializationMigrator;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         RedisTemplate used by every shortener feature. Keys, values, hash
+ *         fields and pub/sub messages are set to ShortenerRedisSerializer
+ *         explicitly instead of relying on the template Spring Boot happens to
+ *         pick, whose default is JDK serialization. Being named redisTemplate
+ *         it also replaces the default Spring Boot one.
+ */
+@Configuration
+public class RedisConfiguration {
+
+	@Bean
+	@Primary
+	RedisTemplate<String, String> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+		ShortenerRedisSerializer serializer = new ShortenerRedisSerializer();
+		RedisTemplate<String, String> redisTemplate = new RedisTemplate<String, String>();
+		redisTemplate.setConnectionFactory(redisConnectionFactory);
+		redisTemplate.setDefaultSerializer(serializer);
+		redisTemplate.setKeySerializer(serializer);
+		redisTemplate.setValueSerializer(serializer);
+		redisTemplate.setHashKeySerializer(serializer);
+		redisTemplate.setHashValueSerializer(serializer);
+		return redisTemplate;
+	}
+
+	@Bean
+	SerializationMigrator serializationMigrator(ShortnerDao shortnerDao, RedisTemplate<String, String> redisTemplate) {
+		return new SerializationMigrator(shortnerDao, redisTemplate);
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Connections to Redis endpoints other than the one of spring.redis
+ *         settings, such as shards and replicas. They take password, timeout
+ *         and pool settings of the main connection and serializers of the
+ *         main template.
+ */
+final class RedisEndpoints {
+
+	// host:port or host:port/database
+	private static final Pattern ENDPOINT = Pattern.compile("([^:/\\s]+):(\\d{1,5})(?:/(\\d{1,5}))?");
+
+	private RedisEndpoints() {
+	}
+
+	/**
+	 * @return endpoints of comma separated list.
+	 */
+	static List<String> parse(String endpoints) {
+		return Arrays.stream(endpoints.split(",")).map(String::trim).filter((endpoint) -> !endpoint.isEmpty())
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * This method connects to endpoint and checks it answers, so endpoint
+	 * which can't be reached is never used.
+	 *
+	 * @param endpoint
+	 *            host:port/database.
+	 *
+	 * @param redisTemplate
+	 *            main template.
+	 *
+	 * @return connection factory to be destroyed when no longer used.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if endpoint is illegal.
+	 */
+	static JedisConnectionFactory connect(String endpoint, RedisTemplate<String, String> redisTemplate) {
+		Matcher matcher = ENDPOINT.matcher(endpoint);
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("Illegal Redis endpoint " + endpoint + ", host:port/database expected");
+		}
+		JedisConnectionFactory connectionFactory = new JedisConnectionFactory();
+		if (redisTemplate.getConnectionFactory() instanceof JedisConnectionFactory) {
+			JedisConnectionFactory main = (JedisConnectionFactory) redisTemplate.getConnectionFactory();
+			connectionFactory.setPassword(main.getPassword());
+			connectionFactory.setTimeout(main.getTimeout());
+			connectionFactory.setPoolConfig(main.getPoolConfig());
+		}
+		connectionFactory.setHostName(matcher.group(1));
+		connectionFactory.setPort(Integer.parseInt(matcher.group(2)));
+		connectionFactory.setDatabase(matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : 0);
+		connectionFactory.afterPropertiesSet();
+		try {
+			RedisConnection connection = connectionFactory.getConnection();
+			try {
+				connection.ping();
+			} finally {
+				connection.close();
+			}
+		} catch (RuntimeException re) {
+			connectionFactory.destroy();
+			throw re;
+		}
+		return connectionFactory;
+	}
+
+	/**
+	 * @return template of the connection with serializers of main template.
+	 */
+	static RedisTemplate<String, String> template(JedisConnectionFactory connectionFactory,
+			RedisTemplate<String, String> redisTemplate) {
+		RedisTemplate<String, String> template = new RedisTemplate<String, String>();
+		template.setConnectionFactory(connectionFactory);
+		template.setDefaultSerializer(redisTemplate.getDefaultSerializer());
+		template.setKeySerializer(redisTemplate.getKeySerializer());
+		template.setValueSerializer(redisTemplate.getValueSerializer());
+		template.setHashKeySerializer(redisTemplate.getHashKeySerializer());
+		template.setHashValueSerializer(redisTemplate.getHashValueSerializer());
+		template.afterPropertiesSet();
+		return template;
+	}
+
+}
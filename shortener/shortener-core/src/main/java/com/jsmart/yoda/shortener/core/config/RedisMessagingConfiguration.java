@@ -0,0 +1,26 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import com.jsmart.yoda.shortener.core.messaging.ShortenerMessageListenerContainer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Single Redis pub/sub subscription shared by every shortener feature
+ *         which listens to messages of other nodes. Features are told when
+ *         the subscription is restored, to reload what they may have missed.
+ */
+@Configuration
+public class RedisMessagingConfiguration {
+
+	@Bean
+	ShortenerMessageListenerContainer shortenerMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+		ShortenerMessageListenerContainer container = new ShortenerMessageListenerContainer();
+		container.setConnectionFactory(redisConnectionFactory);
+		return container;
+	}
+
+}
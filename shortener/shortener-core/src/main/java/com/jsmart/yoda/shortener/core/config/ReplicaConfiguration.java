@@ -0,0 +1,89 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.codec.UrlValueCodec;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.dao.ShortnerDaoImpl;
+import com.jsmart.yoda.shortener.core.replica.ReplicaReadShortnerDao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Lookups of Urls stored as top-level keys served by Redis replicas,
+ *         enabled by shorturl.replicas.enabled. Keys written by other nodes
+ *         are learned from their write messages, and from creation and
+ *         invalidation messages of nodes without replicas.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.replicas.enabled", havingValue = "true")
+public class ReplicaConfiguration {
+
+	@Value("${shorturl.replicas.endpoints}")
+	private String endpoints;
+
+	@Value("${shorturl.replicas.read-your-writes-window}")
+	private long readYourWritesWindow;
+
+	@Value("${shorturl.replicas.hedged-reads}")
+	private boolean hedgedReads;
+
+	@Value("${shorturl.replicas.hedge-percentile}")
+	private double hedgePercentile;
+
+	@Value("${shorturl.expiry.enabled}")
+	private boolean expiryEnabled;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	@Autowired(required = false)
+	private UrlValueCodec urlValueCodec;
+
+	private final List<JedisConnectionFactory> connectionFactories = new ArrayList<JedisConnectionFactory>();
+
+	@Bean(destroyMethod = "close")
+	ReplicaReadShortnerDao replicaReadShortnerDao(ShortnerDaoImpl shortnerDaoImpl,
+			RedisMessageListenerContainer shortenerMessageListenerContainer) {
+		List<ShortnerDao> replicas = new ArrayList<ShortnerDao>();
+		for (String endpoint : RedisEndpoints.parse(endpoints)) {
+			JedisConnectionFactory connectionFactory = RedisEndpoints.connect(endpoint, redisTemplate);
+			connectionFactories.add(connectionFactory);
+			replicas.add(new ShortnerDaoImpl(RedisEndpoints.template(connectionFactory, redisTemplate), urlValueCodec,
+					expiryEnabled));
+		}
+		ReplicaReadShortnerDao replicaReadShortnerDao = new ReplicaReadShortnerDao(shortnerDaoImpl, replicas,
+				readYourWritesWindow, hedgedReads ? hedgePercentile : 0,
+				(message) -> redisTemplate.convertAndSend(RedisKeys.WRITE_CHANNEL, message));
+		MessageListener listener = (message, pattern) -> replicaReadShortnerDao
+				.onWritten(new String(message.getBody(), StandardCharsets.UTF_8));
+		shortenerMessageListenerContainer.addMessageListener(listener, new ChannelTopic(RedisKeys.WRITE_CHANNEL));
+		shortenerMessageListenerContainer.addMessageListener(listener, new ChannelTopic(RedisKeys.CREATION_CHANNEL));
+		shortenerMessageListenerContainer.addMessageListener(listener, new ChannelTopic(RedisKeys.INVALIDATION_CHANNEL));
+		return replicaReadShortnerDao;
+	}
+
+	@PreDestroy
+	void disconnect() {
+		connectionFactories.forEach(JedisConnectionFactory::destroy);
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+
+import com.jsmart.yoda.shortener.core.codec.UrlValueCodec;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.dao.ShortnerDaoImpl;
+import com.jsmart.yoda.shortener.core.messaging.ShortenerMessageListenerContainer;
+import com.jsmart.yoda.shortener.core.shard.ShardTopology;
+import com.jsmart.yoda.shortener.core.shard.ShardedShortnerDao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Storage of Urls spread over several Redis endpoints by consistent
+ *         hashing, enabled by shorturl.storage=sharded. Every shard keeps Urls
+ *         as top-level keys. Sequence, dictionaries and pub/sub stay on the
+ *         Redis of spring.redis settings, shard connections take its password
+ *         and pool settings. Shard changes are applied as announced, and
+ *         shards kept in Redis are reloaded every
+ *         shorturl.storage.topology-reload-interval seconds and after lost
+ *         pub/sub subscription is restored.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.storage", havingValue = "sharded")
+public class ShardedStorageConfiguration {
+
+	@Value("${shorturl.storage.shards}")
+	private String shards;
+
+	@Value("${shorturl.storage.virtual-nodes}")
+	private int virtualNodes;
+
+	@Value("${shorturl.storage.topology-reload-interval}")
+	private long topologyReloadInterval;
+
+	@Value("${shorturl.expiry.enabled}")
+	private boolean expiryEnabled;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	@Autowired(required = false)
+	private UrlValueCodec urlValueCodec;
+
+	private final List<JedisConnectionFactory> connectionFactories = new CopyOnWriteArrayList<JedisConnectionFactory>();
+
+	@Bean(destroyMethod = "close")
+	ShardedShortnerDao shardedShortnerDao(ShortenerMessageListenerContainer shortenerMessageListenerContainer) {
+		ShardedShortnerDao shardedShortnerDao = new ShardedShortnerDao(RedisEndpoints.parse(shards), virtualNodes,
+				new ShardTopology(redisTemplate), this::connect);
+		shortenerMessageListenerContainer.addMessageListener(
+				(message, pattern) -> shardedShortnerDao
+						.onTopologyChange(new String(message.getBody(), StandardCharsets.UTF_8)),
+				new ChannelTopic(RedisKeys.SHARD_CHANNEL));
+		shortenerMessageListenerContainer.addResubscribeListener(shardedShortnerDao::onResubscribed);
+		shardedShortnerDao.start(topologyReloadInterval);
+		return shardedShortnerDao;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if endpoint is illegal.
+	 */
+	private ShortnerDaoImpl connect(String endpoint) {
+		JedisConnectionFactory connectionFactory = RedisEndpoints.connect(endpoint, redisTemplate);
+		connectionFactories.add(connectionFactory);
+		return new ShortnerDaoImpl(RedisEndpoints.template(connectionFactory, redisTemplate), urlValueCodec,
+				expiryEnabled);
+	}
+
+	@PreDestroy
+	void disconnect() {
+		connectionFactories.forEach(JedisConnectionFactory::destroy);
+	}
+
+}
@@ -2,11 +2,22 @@ package com.jsmart.yoda.shortener.core.config;
 
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.data.redis.core.RedisTemplate;
 
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.generator.RandomShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.generator.SequenceShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.generator.ShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.generator.ShortUrlKeyPool;
+import com.jsmart.yoda.shortener.core.generator.SnowflakeShortUrlGenerator;
 import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorSettings;
+import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorType;
 
 /**
  * @author Nick Koretskyy
@@ -19,13 +30,83 @@ public class ShortUrlGeneratorConfiguration {
 	@Value("${shorturl.lenght}")
 	private int shorturlLenght;
 
+	@Value("${shorturl.generator}")
+	private String shorturlGenerator;
+
+	@Value("${shorturl.sequence.block-size}")
+	private int shorturlSequenceBlockSize;
+
+	@Value("${shorturl.create.max-attempts}")
+	private int shorturlCreateMaxAttempts;
+
+	@Value("${shorturl.random.max-occupancy}")
+	private double shorturlRandomMaxOccupancy;
+
+	@Value("${shorturl.snowflake.node-id}")
+	private long shorturlSnowflakeNodeId;
+
+	@Value("${shorturl.snowflake.node-bits}")
+	private int shorturlSnowflakeNodeBits;
+
+	@Value("${shorturl.snowflake.sequence-bits}")
+	private int shorturlSnowflakeSequenceBits;
+
+	@Value("${shorturl.pool.size}")
+	private int shorturlPoolSize;
+
+	@Value("${shorturl.pool.low-watermark}")
+	private int shorturlPoolLowWatermark;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
 	@Bean
 	ShortUrlGeneratorSettings shortUrlGeneratorConfig() {
 		ShortUrlGeneratorSettings shortUrlGeneratorSettings = new ShortUrlGeneratorSettings();
 		shortUrlGeneratorSettings.setShortUrlLenght(shorturlLenght);
+		shortUrlGeneratorSettings.setGeneratorType(ShortUrlGeneratorType.valueOf(shorturlGenerator.trim().toUpperCase()));
+		shortUrlGeneratorSettings.setSequenceBlockSize(shorturlSequenceBlockSize);
+		shortUrlGeneratorSettings.setMaxAttempts(shorturlCreateMaxAttempts);
+		shortUrlGeneratorSettings.setRandomMaxOccupancy(shorturlRandomMaxOccupancy);
+		shortUrlGeneratorSettings.setSnowflakeNodeId(shorturlSnowflakeNodeId);
+		shortUrlGeneratorSettings.setSnowflakeNodeBits(shorturlSnowflakeNodeBits);
+		shortUrlGeneratorSettings.setSnowflakeSequenceBits(shorturlSnowflakeSequenceBits);
+		shortUrlGeneratorSettings.setPoolSize(shorturlPoolSize);
+		shortUrlGeneratorSettings.setPoolLowWatermark(shorturlPoolLowWatermark);
 		return shortUrlGeneratorSettings;
 	}
 
+	@Bean
+	ShortUrlGenerator shortUrlGenerator(ShortUrlGeneratorSettings shortUrlGeneratorSettings) {
+		switch (shortUrlGeneratorSettings.getGeneratorType()) {
+		case SEQUENCE:
+			return new SequenceShortUrlGenerator(redisTemplate, RedisKeys.SEQUENCE,
+					shortUrlGeneratorSettings.getSequenceBlockSize(), shortUrlGeneratorSettings.getShortUrlLenght());
+		case SNOWFLAKE:
+			return new SnowflakeShortUrlGenerator(shortUrlGeneratorSettings.getSnowflakeNodeId(),
+					shortUrlGeneratorSettings.getSnowflakeNodeBits(), shortUrlGeneratorSettings.getSnowflakeSequenceBits());
+		default:
+			return new RandomShortUrlGenerator(shortUrlGeneratorSettings);
+		}
+	}
+
+	/**
+	 * Pool of pre-generated keys, enabled by positive shorturl.pool.size.
+	 * Random keys are checked against storage before they get into the pool,
+	 * sequence keys are reserved by their leased block already.
+	 */
+	@Bean(initMethod = "start", destroyMethod = "close")
+	@ConditionalOnExpression("${shorturl.pool.size} > 0")
+	ShortUrlKeyPool shortUrlKeyPool(ShortUrlGeneratorSettings shortUrlGeneratorSettings,
+			ShortUrlGenerator shortUrlGenerator, ShortnerDao shortnerDao) {
+		if (shortUrlGeneratorSettings.getGeneratorType() == ShortUrlGeneratorType.RANDOM) {
+			return new ShortUrlKeyPool(shortUrlGenerator, (key) -> shortnerDao.get(key) == null,
+					shortUrlGeneratorSettings.getPoolSize(), shortUrlGeneratorSettings.getPoolLowWatermark());
+		}
+		return new ShortUrlKeyPool(shortUrlGenerator, (key) -> true, shortUrlGeneratorSettings.getPoolSize(),
+				shortUrlGeneratorSettings.getPoolLowWatermark());
+	}
+
 	@Bean
 	public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
 	    return new PropertySourcesPlaceholderConfigurer();
@@ -0,0 +1,107 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.cache.CachingShortnerDao;
+import com.jsmart.yoda.shortener.core.cache.UrlNearCache;
+import com.jsmart.yoda.shortener.core.dao.BucketedShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.dao.ShortnerDaoImpl;
+import com.jsmart.yoda.shortener.core.filter.KeyFilterShortnerDao;
+import com.jsmart.yoda.shortener.core.filter.UrlKeyFilter;
+import com.jsmart.yoda.shortener.core.mapped.MappedShortnerDao;
+import com.jsmart.yoda.shortener.core.replica.ReplicaReadShortnerDao;
+import com.jsmart.yoda.shortener.core.shard.ShardedShortnerDao;
+import com.jsmart.yoda.shortener.core.writebehind.WriteBehindBuffer;
+import com.jsmart.yoda.shortener.core.writebehind.WriteBehindShortnerDao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Assembles ShortnerDao used by services: storage (top-level keys,
+ *         read from replicas if they are enabled, buckets, embedded mapped
+ *         files or sharded top-level keys) wrapped with the enabled optional
+ *         layers, innermost first: negative lookup filter, near cache,
+ *         write-behind buffer. Write-behind buffer is flushed when the
+ *         assembled DAO is destroyed, before storage it writes to. With
+ *         asynchronous lookups enabled layers do their blocking work of
+ *         asynchronous clicks on blocking executor.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+public class ShortnerDaoConfiguration {
+
+	@Autowired
+	private ShortnerDaoImpl shortnerDaoImpl;
+
+	@Autowired(required = false)
+	private BucketedShortnerDao bucketedShortnerDao;
+
+	@Autowired(required = false)
+	private MappedShortnerDao mappedShortnerDao;
+
+	@Autowired(required = false)
+	private ShardedShortnerDao shardedShortnerDao;
+
+	@Autowired(required = false)
+	private ReplicaReadShortnerDao replicaReadShortnerDao;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	@Autowired(required = false)
+	private UrlKeyFilter urlKeyFilter;
+
+	@Autowired(required = false)
+	private UrlNearCache urlNearCache;
+
+	@Autowired(required = false)
+	private WriteBehindBuffer writeBehindBuffer;
+
+	@Autowired(required = false)
+	@Qualifier("asyncBlockingExecutor")
+	private Executor asyncBlockingExecutor;
+
+	@Value("${shorturl.key-filter.rebuild-interval}")
+	private long keyFilterRebuildInterval;
+
+	@Bean
+	@Primary
+	ShortnerDao shortnerDao() {
+		ShortnerDao shortnerDao = replicaReadShortnerDao != null ? replicaReadShortnerDao : shortnerDaoImpl;
+		if (bucketedShortnerDao != null) {
+			shortnerDao = bucketedShortnerDao;
+		} else if (mappedShortnerDao != null) {
+			shortnerDao = mappedShortnerDao;
+		} else if (shardedShortnerDao != null) {
+			shortnerDao = shardedShortnerDao;
+		}
+		if (urlKeyFilter != null) {
+			urlKeyFilter.start(shortnerDao::forEachKey, keyFilterRebuildInterval);
+			shortnerDao = new KeyFilterShortnerDao(shortnerDao, urlKeyFilter,
+					(shortUrl) -> redisTemplate.convertAndSend(RedisKeys.CREATION_CHANNEL, shortUrl));
+		}
+		Executor blockingExecutor = asyncBlockingExecutor != null ? asyncBlockingExecutor : Runnable::run;
+		if (urlNearCache != null) {
+			shortnerDao = new CachingShortnerDao(shortnerDao, urlNearCache,
+					(message) -> redisTemplate.convertAndSend(RedisKeys.INVALIDATION_CHANNEL, message),
+					blockingExecutor);
+		}
+		if (writeBehindBuffer != null) {
+			writeBehindBuffer.start(shortnerDao::saveAll);
+			shortnerDao = new WriteBehindShortnerDao(shortnerDao, writeBehindBuffer, blockingExecutor);
+		}
+		return shortnerDao;
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.jsmart.yoda.shortener.core.codec.RedisHostDictionary;
+import com.jsmart.yoda.shortener.core.codec.UrlValueCodec;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Compact encoding of long urls stored in Redis, enabled by
+ *         shorturl.codec.enabled. Values written before are still read.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.codec.enabled", havingValue = "true")
+public class UrlCodecConfiguration {
+
+	@Value("${shorturl.codec.dictionary-size}")
+	private int dictionarySize;
+
+	@Value("${shorturl.codec.compress-min-length}")
+	private int compressMinLength;
+
+	@Bean(initMethod = "load")
+	RedisHostDictionary hostDictionary(RedisTemplate<String, String> redisTemplate) {
+		return new RedisHostDictionary(redisTemplate, dictionarySize);
+	}
+
+	@Bean
+	UrlValueCodec urlValueCodec(RedisHostDictionary hostDictionary) {
+		return new UrlValueCodec(hostDictionary, compressMinLength);
+	}
+
+}
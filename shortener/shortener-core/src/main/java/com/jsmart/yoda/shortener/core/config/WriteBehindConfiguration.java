@@ -0,0 +1,42 @@
+package com.jsmart.yoda.shortener.core.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+import com.jsmart.yoda.shortener.core.model.WriteDurability;
+import com.jsmart.yoda.shortener.core.writebehind.WriteBehindBuffer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Write-behind buffer of saves and updates, enabled by
+ *         shorturl.write-behind.enabled. Buffer is started and finally
+ *         flushed by ShortnerDao it is wrapped into.
+ */
+@Configuration
+@PropertySource("classpath:application.properties")
+@ConditionalOnProperty(name = "shorturl.write-behind.enabled", havingValue = "true")
+public class WriteBehindConfiguration {
+
+	@Value("${shorturl.write-behind.capacity}")
+	private int capacity;
+
+	@Value("${shorturl.write-behind.batch-size}")
+	private int batchSize;
+
+	@Value("${shorturl.write-behind.flush-interval}")
+	private long flushInterval;
+
+	@Value("${shorturl.write-behind.durability}")
+	private String durability;
+
+	@Bean(destroyMethod = "")
+	WriteBehindBuffer writeBehindBuffer() {
+		return new WriteBehindBuffer(capacity, batchSize, flushInterval,
+				WriteDurability.valueOf(durability.trim().toUpperCase()));
+	}
+
+}
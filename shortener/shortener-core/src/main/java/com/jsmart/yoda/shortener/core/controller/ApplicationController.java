@@ -1,9 +1,8 @@
 package com.jsmart.yoda.shortener.core.controller;
 
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -12,9 +11,11 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import com.jsmart.yoda.shortener.base.Url;
 import com.jsmart.yoda.shortener.base.service.ShortnerService;
+import com.jsmart.yoda.shortener.core.support.Locations;
 
 /**
  * @author Nick Koretskyy
@@ -30,34 +31,60 @@ public class ApplicationController {
 	@Autowired
 	private ShortnerService urlShortnerService;
 
-	private static final Logger log = Logger.getLogger(ApplicationController.class);
+	public void setUrlShortnerService(ShortnerService urlShortnerService) {
+		this.urlShortnerService = urlShortnerService;
+	}
 
 	/**
 	 * This is the main method which implements redirect from short to long URL
-	 * feature base on 301 HTTP SEE_OTHER status.
+	 * feature base on 303 HTTP SEE_OTHER status. Long urls are validated and
+	 * encoded when they are stored, so stored value is written as Location
+	 * header as is, without parsing it again on every redirect.
+	 * 
+	 * Request thread is released while storage answers, lookup answered at
+	 * once, e.g. from near cache, completes the result before it is returned.
 	 * 
 	 * @param shortUrl
 	 *            unique short 5 letter combined with decimal String that's
 	 *            equal to non - unique long url.
 	 * 
-	 * @return in success case HTTP response Entity with 301 see other status
-	 *         and url redirect to, in other case Not found.
+	 * @return result completed with 303 see other status and url redirect to
+	 *         in success case, in other case Not found.
 	 */
 	@RequestMapping(value = "/{shortUrl}", method = RequestMethod.GET)
-	public ResponseEntity<Void> getUrlForRedirect(@PathVariable("shortUrl") String shortUrl) {
+	public DeferredResult<ResponseEntity<Void>> getUrlForRedirect(@PathVariable("shortUrl") String shortUrl) {
 
-		Url url = urlShortnerService.get(shortUrl);
-		if (url == null) {
-			return new ResponseEntity<Void>(HttpStatus.NOT_FOUND);
-		}
+		CompletableFuture<Url> lookup = urlShortnerService.redirectAsync(shortUrl);
+		DeferredResult<ResponseEntity<Void>> redirect = new DeferredResult<ResponseEntity<Void>>();
+		lookup.whenComplete((url, failure) -> {
+			if (failure != null) {
+				redirect.setErrorResult(failure instanceof CompletionException ? failure.getCause() : failure);
+				return;
+			}
+			String location = location(url);
+			if (location == null) {
+				redirect.setResult(new ResponseEntity<Void>(HttpStatus.NOT_FOUND));
+				return;
+			}
+			HttpHeaders headers = new HttpHeaders();
+			headers.set(HttpHeaders.LOCATION, location);
+			redirect.setResult(new ResponseEntity<Void>(headers, HttpStatus.SEE_OTHER));
+		});
+		return redirect;
+	}
 
-		try {
-			HttpHeaders responseHeaders = new HttpHeaders();
-			responseHeaders.setLocation(new URI(url.getLongUrl()));
-			return new ResponseEntity<Void>(responseHeaders, HttpStatus.SEE_OTHER);
-		} catch (URISyntaxException urise) {
-			log.error("URISyntaxException: " + urise + " \n");
+	/**
+	 * @return Location header value of Url or null if it is not found.
+	 */
+	private static String location(Url url) {
+		if (url == null) {
 			return null;
 		}
+		String location = url.getLongUrl();
+		if (!Locations.isAscii(location)) {
+			// stored before long urls were encoded on write
+			location = Locations.encode(location);
+		}
+		return location;
 	}
 }
@@ -0,0 +1,64 @@
+package com.jsmart.yoda.shortener.core.dao;
+
+import java.nio.charset.StandardCharsets;
+
+import com.jsmart.yoda.shortener.core.support.Hashing;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Layout of Urls packed into small Redis hashes. Short url is spread
+ *         over a fixed amount of buckets by its hash, every bucket is a hash
+ *         named namespace:bucket holding short url fields with long url
+ *         values. A hash of up to hash-max-ziplist-entries (128 by default,
+ *         hash-max-listpack-entries since Redis 7) small fields is stored by
+ *         Redis as one flat ziplist, which takes two to three times less
+ *         memory per Url than top-level keys. Bucket count should therefore
+ *         be about expected amount of Urls divided by 100.
+ *
+ *         Bucket names contain ':' so they are never mistaken for stored Urls
+ *         of flat layout.
+ */
+public class BucketLayout {
+
+	private final String namespace;
+	private final int bucketCount;
+
+	public BucketLayout(String namespace, int bucketCount) {
+		if (namespace == null || namespace.isEmpty()) {
+			throw new IllegalArgumentException("Bucket namespace must not be empty");
+		}
+		if (bucketCount < 1) {
+			throw new IllegalArgumentException("Bucket count must be positive");
+		}
+		this.namespace = namespace;
+		this.bucketCount = bucketCount;
+	}
+
+	/**
+	 * @param shortUrl
+	 *            short url.
+	 *
+	 * @return name of the hash holding short url.
+	 */
+	public String bucketKey(String shortUrl) {
+		long hash = Hashing.murmur64(shortUrl.getBytes(StandardCharsets.UTF_8));
+		return namespace + ":" + Integer.toString((int) Math.floorMod(hash, (long) bucketCount), Character.MAX_RADIX);
+	}
+
+	/**
+	 * @return SCAN MATCH pattern of all buckets.
+	 */
+	public String pattern() {
+		return namespace + ":*";
+	}
+
+	public String getNamespace() {
+		return namespace;
+	}
+
+	public int getBucketCount() {
+		return bucketCount;
+	}
+
+}
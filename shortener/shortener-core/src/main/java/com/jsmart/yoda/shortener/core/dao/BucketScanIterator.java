@@ -0,0 +1,90 @@
+package com.jsmart.yoda.shortener.core.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.jsmart.yoda.shortener.base.Url;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Iterator over all Urls stored in buckets. Buckets are walked with
+ *         incremental SCAN MATCH and every batch of buckets is read with
+ *         HGETALL commands sent in one pipeline, so every batch costs a fixed
+ *         amount of round trips.
+ * 
+ *         Iterator owns the connection and releases it on close.
+ */
+class BucketScanIterator implements Iterator<Url>, Closeable {
+
+	private final RedisConnection connection;
+	private final Cursor<byte[]> cursor;
+	private final RedisSerializer<String> fieldSerializer;
+	private final RedisSerializer<String> valueSerializer;
+	private final int batchSize;
+
+	private final Deque<Url> batch = new ArrayDeque<Url>();
+
+	BucketScanIterator(RedisConnection connection, BucketLayout layout, RedisSerializer<String> fieldSerializer,
+			RedisSerializer<String> valueSerializer, int batchSize) {
+		this.connection = connection;
+		this.cursor = connection.scan(ScanOptions.scanOptions().match(layout.pattern()).count(batchSize).build());
+		this.fieldSerializer = fieldSerializer;
+		this.valueSerializer = valueSerializer;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (batch.isEmpty() && cursor.hasNext()) {
+			fetchBatch();
+		}
+		return !batch.isEmpty();
+	}
+
+	@Override
+	public Url next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return batch.poll();
+	}
+
+	@Override
+	public void close() {
+		try {
+			cursor.close();
+		} catch (IOException ioe) {
+			throw new IllegalStateException(ioe);
+		} finally {
+			connection.close();
+		}
+	}
+
+	private void fetchBatch() {
+		List<byte[]> buckets = new ArrayList<byte[]>(batchSize);
+		while (buckets.size() < batchSize && cursor.hasNext()) {
+			buckets.add(cursor.next());
+		}
+		if (buckets.isEmpty()) {
+			return;
+		}
+		for (Map<byte[], byte[]> fields : BucketedShortnerDao.readBuckets(connection, buckets)) {
+			fields.forEach((field, value) -> batch
+					.add(new Url(fieldSerializer.deserialize(field), valueSerializer.deserialize(value))));
+		}
+	}
+
+}
@@ -0,0 +1,456 @@
+package com.jsmart.yoda.shortener.core.dao;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlPage;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         ShortnerDao storing Urls packed into small Redis hashes under own
+ *         namespace instead of one top-level key per Url. Hash fields have no
+ *         TTL, so expiring Urls are rejected.
+ * 
+ * @see BucketLayout
+ */
+public class BucketedShortnerDao implements ShortnerDao {
+
+	/** Buckets read per SCAN step, every bucket holds up to ~100 Urls. */
+	static final int SCAN_BATCH = 100;
+
+	/** Expected amount of Urls per bucket, turns page limit into SCAN count. */
+	static final int PAGE_BUCKET_ENTRIES = 64;
+
+	private static final byte[] MATCH = "MATCH".getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] COUNT = "COUNT".getBytes(StandardCharsets.UTF_8);
+
+	private static final RedisScript<String> UPDATE_IF_PRESENT = new DefaultRedisScript<String>(
+			"local previous = redis.call('HGET', KEYS[1], ARGV[1]) "
+					+ "if previous then redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) end "
+					+ "return previous",
+			String.class);
+
+	private static final RedisScript<String> REMOVE_IF_PRESENT = new DefaultRedisScript<String>(
+			"local previous = redis.call('HGET', KEYS[1], ARGV[1]) "
+					+ "if previous then redis.call('HDEL', KEYS[1], ARGV[1]) end "
+					+ "return previous",
+			String.class);
+
+	private static final Pattern CURSOR_PATTERN = Pattern.compile("\\d{1,20}");
+
+	private static final Logger log = Logger.getLogger(BucketedShortnerDao.class);
+
+	private final RedisTemplate<String, String> redisTemplate;
+	private final BucketLayout layout;
+	private final KeyUnlinker keyUnlinker = new KeyUnlinker();
+
+	public BucketedShortnerDao(RedisTemplate<String, String> redisTemplate, BucketLayout layout) {
+		this.redisTemplate = redisTemplate;
+		this.layout = layout;
+	}
+
+	public BucketLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * This method fetches stored Url from its bucket with one HGET.
+	 *
+	 * @param shortUrl
+	 *            Unique short letter string.
+	 *
+	 * @return stored Url or null if not found.
+	 */
+	@Override
+	public Url get(String shortUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return null;
+		}
+		String longUrl = hashOperations().get(layout.bucketKey(shortUrl), shortUrl);
+		return longUrl == null ? null : new Url(shortUrl, longUrl);
+	}
+
+	/**
+	 * This method fetches stored Urls for many short urls with HGET commands
+	 * sent in one pipeline.
+	 *
+	 * @param shortUrls
+	 *            keys to fetch.
+	 *
+	 * @return Urls in the order of keys, null for not found ones.
+	 */
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		List<Url> urls = new ArrayList<Url>(Collections.nCopies(shortUrls.size(), (Url) null));
+		List<String> keys = shortUrls.stream().filter(RedisKeys::isUrlKey).distinct().collect(Collectors.toList());
+		if (keys.isEmpty()) {
+			return urls;
+		}
+		RedisSerializer<String> keySerializer = keySerializer();
+		RedisSerializer<String> fieldSerializer = fieldSerializer();
+		List<Object> longUrls = redisTemplate.executePipelined((RedisCallback<Object>) (connection) -> {
+			for (String key : keys) {
+				connection.hGet(keySerializer.serialize(layout.bucketKey(key)), fieldSerializer.serialize(key));
+			}
+			return null;
+		}, valueSerializer());
+		Map<String, String> found = new LinkedHashMap<String, String>();
+		for (int i = 0; i < keys.size(); i++) {
+			if (longUrls.get(i) != null) {
+				found.put(keys.get(i), (String) longUrls.get(i));
+			}
+		}
+		for (int i = 0; i < shortUrls.size(); i++) {
+			String longUrl = found.get(shortUrls.get(i));
+			if (longUrl != null) {
+				urls.set(i, new Url(shortUrls.get(i), longUrl));
+			}
+		}
+		return urls;
+	}
+
+	/**
+	 * This method fetches all stored Urls.
+	 *
+	 * @return list of stored Urls.
+	 */
+	@Override
+	public List<Url> getAll() {
+		try (Stream<Url> urls = stream()) {
+			return urls.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * This method streams all stored Urls bucket batch by bucket batch. Stream
+	 * holds a Redis connection until it is closed.
+	 *
+	 * @return stream of stored Urls, to be closed after use.
+	 */
+	@Override
+	public Stream<Url> stream() {
+		RedisConnection connection = redisTemplate.getConnectionFactory().getConnection();
+		BucketScanIterator iterator;
+		try {
+			iterator = new BucketScanIterator(connection, layout, fieldSerializer(), valueSerializer(), SCAN_BATCH);
+		} catch (RuntimeException | Error e) {
+			connection.close();
+			throw e;
+		}
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL | Spliterator.DISTINCT), false)
+				.onClose(iterator::close);
+	}
+
+	/**
+	 * This method fetches one page of stored Urls: buckets returned by one
+	 * SCAN step from the given cursor, read in one pipeline. Page size follows
+	 * limit only roughly, as buckets are not filled evenly.
+	 *
+	 * @param cursor
+	 *            SCAN cursor returned with previous page, "0" for the first
+	 *            page.
+	 *
+	 * @param limit
+	 *            desired amount of Urls in the page.
+	 *
+	 * @return page of Urls with cursor of the next page, "0" if there are no
+	 *         more pages.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public UrlPage getPage(String cursor, int limit) {
+		if (!CURSOR_PATTERN.matcher(cursor).matches()) {
+			throw new IllegalArgumentException("Illegal cursor " + cursor);
+		}
+		int count = Math.max(1, limit / PAGE_BUCKET_ENTRIES);
+		return redisTemplate.execute((RedisCallback<UrlPage>) (connection) -> {
+			List<Object> reply = (List<Object>) connection.execute("SCAN", cursor.getBytes(StandardCharsets.UTF_8),
+					MATCH, layout.pattern().getBytes(StandardCharsets.UTF_8), COUNT,
+					String.valueOf(count).getBytes(StandardCharsets.UTF_8));
+			String next = new String((byte[]) reply.get(0), StandardCharsets.UTF_8);
+			List<Url> urls = new ArrayList<Url>();
+			for (Map<byte[], byte[]> fields : readBuckets(connection, (List<byte[]>) reply.get(1))) {
+				fields.forEach((field, value) -> urls
+						.add(new Url(fieldSerializer().deserialize(field), valueSerializer().deserialize(value))));
+			}
+			return new UrlPage(urls, next);
+		});
+	}
+
+	/**
+	 * This method iterates over short urls of all buckets.
+	 *
+	 * @param action
+	 *            consumer of short urls.
+	 */
+	@Override
+	public void forEachKey(Consumer<String> action) {
+		try (Stream<Url> urls = stream()) {
+			urls.forEach((url) -> action.accept(url.getShortUrl()));
+		}
+	}
+
+	/**
+	 * This method stores new Url with HSETNX into its bucket.
+	 *
+	 * @return true if Url was stored, false if short url was taken.
+	 */
+	@Override
+	public boolean create(Url url) {
+		checkPermanent(url);
+		return hashOperations().putIfAbsent(layout.bucketKey(url.getShortUrl()), url.getShortUrl(), url.getLongUrl());
+	}
+
+	/**
+	 * This method stores Url with HSET into its bucket unconditionally.
+	 */
+	@Override
+	public void save(Url url) {
+		checkPermanent(url);
+		hashOperations().put(layout.bucketKey(url.getShortUrl()), url.getShortUrl(), url.getLongUrl());
+	}
+
+	/**
+	 * This method stores batch of new Urls with HSETNX commands sent in one
+	 * pipeline.
+	 *
+	 * @return for every Url in the same order true if it was stored or false
+	 *         if its short url was taken.
+	 */
+	@Override
+	public List<Boolean> createAll(List<Url> urls) {
+		if (urls.isEmpty()) {
+			return new ArrayList<Boolean>();
+		}
+		urls.forEach(BucketedShortnerDao::checkPermanent);
+		RedisSerializer<String> keySerializer = keySerializer();
+		RedisSerializer<String> fieldSerializer = fieldSerializer();
+		RedisSerializer<String> valueSerializer = valueSerializer();
+		List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) (connection) -> {
+			for (Url url : urls) {
+				connection.hSetNX(keySerializer.serialize(layout.bucketKey(url.getShortUrl())),
+						fieldSerializer.serialize(url.getShortUrl()), valueSerializer.serialize(url.getLongUrl()));
+			}
+			return null;
+		});
+		return replies.stream().map(Boolean.TRUE::equals).collect(Collectors.toList());
+	}
+
+	/**
+	 * This method stores batch of Urls unconditionally with one HMSET per
+	 * touched bucket, all sent in one pipeline.
+	 */
+	@Override
+	public void saveAll(List<Url> urls) {
+		if (urls.isEmpty()) {
+			return;
+		}
+		urls.forEach(BucketedShortnerDao::checkPermanent);
+		RedisSerializer<String> keySerializer = keySerializer();
+		RedisSerializer<String> fieldSerializer = fieldSerializer();
+		RedisSerializer<String> valueSerializer = valueSerializer();
+		Map<String, Map<byte[], byte[]>> buckets = new LinkedHashMap<String, Map<byte[], byte[]>>();
+		for (Url url : urls) {
+			buckets.computeIfAbsent(layout.bucketKey(url.getShortUrl()), (bucket) -> new LinkedHashMap<byte[], byte[]>())
+					.put(fieldSerializer.serialize(url.getShortUrl()), valueSerializer.serialize(url.getLongUrl()));
+		}
+		redisTemplate.executePipelined((RedisCallback<Object>) (connection) -> {
+			buckets.forEach((bucket, fields) -> connection.hMSet(keySerializer.serialize(bucket), fields));
+			return null;
+		});
+	}
+
+	/**
+	 * This method overwrites long url of stored Url.
+	 *
+	 * @return updated Url.
+	 */
+	@Override
+	public Url update(String shortUrl, String longUrl) {
+		hashOperations().put(layout.bucketKey(shortUrl), shortUrl, longUrl);
+		return get(shortUrl);
+	}
+
+	/**
+	 * This method removes Url from its bucket. Redis drops bucket by itself
+	 * when its last Url is removed.
+	 */
+	@Override
+	public void remove(String shortUrl) {
+		hashOperations().delete(layout.bucketKey(shortUrl), shortUrl);
+	}
+
+	/**
+	 * This method replaces long url of Url in its bucket with one script.
+	 *
+	 * @return previous Url or null if short url isn't stored, then nothing is
+	 *         written.
+	 */
+	@Override
+	public Url updateIfPresent(String shortUrl, String longUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return null;
+		}
+		// field and value have own serializers, so arguments go as bytes
+		String previous = redisTemplate.execute(UPDATE_IF_PRESENT, (RedisSerializer<?>) null, valueSerializer(),
+				Collections.singletonList(layout.bucketKey(shortUrl)), fieldSerializer().serialize(shortUrl),
+				valueSerializer().serialize(longUrl));
+		return previous == null ? null : new Url(shortUrl, previous);
+	}
+
+	/**
+	 * This method removes Url from its bucket with one script returning its
+	 * long url.
+	 *
+	 * @return removed Url or null if short url isn't stored.
+	 */
+	@Override
+	public Url removeIfPresent(String shortUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return null;
+		}
+		String previous = redisTemplate.execute(REMOVE_IF_PRESENT, (RedisSerializer<?>) null, valueSerializer(),
+				Collections.singletonList(layout.bucketKey(shortUrl)), fieldSerializer().serialize(shortUrl));
+		return previous == null ? null : new Url(shortUrl, previous);
+	}
+
+	/**
+	 * This method removes all stored Urls.
+	 *
+	 * @return true if any Url was removed.
+	 */
+	/**
+	 * @throws UnsupportedOperationException
+	 *             always, bucketed storage keeps no click limited Urls.
+	 */
+	@Override
+	public long click(String shortUrl) {
+		throw new UnsupportedOperationException("Bucketed storage keeps no expiring Urls");
+	}
+
+	@Override
+	public boolean removeAll() {
+		return removeAll((removed) -> {
+		}) > 0;
+	}
+
+	/**
+	 * This method removes all buckets batch by batch: buckets are walked with
+	 * incremental SCAN MATCH, counted with pipelined HLEN and dropped with one
+	 * multi-key UNLINK per batch.
+	 *
+	 * @param progress
+	 *            receives amount of removed Urls after every batch.
+	 *
+	 * @return amount of removed Urls.
+	 */
+	@Override
+	public long removeAll(LongConsumer progress) {
+		return redisTemplate.execute((RedisCallback<Long>) (connection) -> {
+			long removed = 0;
+			List<byte[]> batch = new ArrayList<byte[]>(SCAN_BATCH);
+			try (Cursor<byte[]> cursor = connection
+					.scan(ScanOptions.scanOptions().match(layout.pattern()).count(SCAN_BATCH).build())) {
+				while (cursor.hasNext()) {
+					batch.add(cursor.next());
+					if (batch.size() == SCAN_BATCH) {
+						removed += removeBuckets(connection, batch);
+						progress.accept(removed);
+						batch.clear();
+					}
+				}
+			} catch (IOException ioe) {
+				log.error("IOException: " + ioe + " \n");
+			}
+			if (!batch.isEmpty()) {
+				removed += removeBuckets(connection, batch);
+				progress.accept(removed);
+			}
+			return removed;
+		});
+	}
+
+	/**
+	 * This method reads batch of buckets with HGETALL commands sent in one
+	 * pipeline.
+	 *
+	 * @return fields of every bucket, empty for vanished ones.
+	 */
+	@SuppressWarnings("unchecked")
+	static List<Map<byte[], byte[]>> readBuckets(RedisConnection connection, List<byte[]> buckets) {
+		if (buckets.isEmpty()) {
+			return Collections.emptyList();
+		}
+		connection.openPipeline();
+		for (byte[] bucket : buckets) {
+			connection.hGetAll(bucket);
+		}
+		return connection.closePipeline().stream().map((fields) -> (Map<byte[], byte[]>) fields)
+				.collect(Collectors.toList());
+	}
+
+	private long removeBuckets(RedisConnection connection, List<byte[]> buckets) {
+		connection.openPipeline();
+		for (byte[] bucket : buckets) {
+			connection.hLen(bucket);
+		}
+		long urls = connection.closePipeline().stream().mapToLong((size) -> (Long) size).sum();
+		keyUnlinker.unlink(connection, buckets);
+		return urls;
+	}
+
+	private HashOperations<String, String, String> hashOperations() {
+		return redisTemplate.opsForHash();
+	}
+
+	private static void checkPermanent(Url url) {
+		if (url.expires()) {
+			throw new UnsupportedOperationException("Bucketed storage keeps no expiring Urls");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private RedisSerializer<String> keySerializer() {
+		return (RedisSerializer<String>) redisTemplate.getKeySerializer();
+	}
+
+	@SuppressWarnings("unchecked")
+	private RedisSerializer<String> fieldSerializer() {
+		return (RedisSerializer<String>) redisTemplate.getHashKeySerializer();
+	}
+
+	@SuppressWarnings("unchecked")
+	private RedisSerializer<String> valueSerializer() {
+		return (RedisSerializer<String>) redisTemplate.getHashValueSerializer();
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.jsmart.yoda.shortener.core.dao;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlPage;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Base of ShortnerDao decorators, forwards every call to underlying
+ *         DAO.
+ */
+public abstract class ForwardingShortnerDao implements ShortnerDao {
+
+	protected final ShortnerDao delegate;
+
+	protected ForwardingShortnerDao(ShortnerDao delegate) {
+		this.delegate = delegate;
+	}
+
+	public ShortnerDao getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public Url get(String shortUrl) {
+		return delegate.get(shortUrl);
+	}
+
+	@Override
+	public List<Url> getAll() {
+		return delegate.getAll();
+	}
+
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		return delegate.getAll(shortUrls);
+	}
+
+	@Override
+	public Stream<Url> stream() {
+		return delegate.stream();
+	}
+
+	@Override
+	public UrlPage getPage(String cursor, int limit) {
+		return delegate.getPage(cursor, limit);
+	}
+
+	@Override
+	public void forEachKey(Consumer<String> action) {
+		delegate.forEachKey(action);
+	}
+
+	@Override
+	public boolean create(Url url) {
+		return delegate.create(url);
+	}
+
+	@Override
+	public void save(Url url) {
+		delegate.save(url);
+	}
+
+	@Override
+	public List<Boolean> createAll(List<Url> urls) {
+		return delegate.createAll(urls);
+	}
+
+	@Override
+	public void saveAll(List<Url> urls) {
+		delegate.saveAll(urls);
+	}
+
+	@Override
+	public Url update(String shortUrl, String longUrl) {
+		return delegate.update(shortUrl, longUrl);
+	}
+
+	@Override
+	public void remove(String shortUrl) {
+		delegate.remove(shortUrl);
+	}
+
+	@Override
+	public Url updateIfPresent(String shortUrl, String longUrl) {
+		return delegate.updateIfPresent(shortUrl, longUrl);
+	}
+
+	@Override
+	public Url removeIfPresent(String shortUrl) {
+		return delegate.removeIfPresent(shortUrl);
+	}
+
+	@Override
+	public long click(String shortUrl) {
+		return delegate.click(shortUrl);
+	}
+
+	@Override
+	public boolean removeAll() {
+		return delegate.removeAll();
+	}
+
+	@Override
+	public long removeAll(LongConsumer progress) {
+		return delegate.removeAll(progress);
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.jsmart.yoda.shortener.core.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Drops batches of keys with one multi-key UNLINK, which frees memory
+ *         in background on Redis side. Jedis 2.8 can't send UNLINK as a plain
+ *         command, so it goes through a script. Redis older than 4.0 has no
+ *         UNLINK at all and gets DEL instead.
+ */
+class KeyUnlinker {
+
+	private static final byte[] UNLINK_SCRIPT = "return redis.call('UNLINK', unpack(KEYS))"
+			.getBytes(StandardCharsets.UTF_8);
+
+	private static final Logger log = Logger.getLogger(KeyUnlinker.class);
+
+	private volatile boolean unlinkSupported = true;
+
+	/**
+	 * @return amount of removed keys.
+	 */
+	long unlink(RedisConnection connection, List<byte[]> keys) {
+		byte[][] rawKeys = keys.toArray(new byte[keys.size()][]);
+		if (unlinkSupported) {
+			try {
+				Long reply = connection.eval(UNLINK_SCRIPT, ReturnType.INTEGER, rawKeys.length, rawKeys);
+				return reply == null ? 0 : reply;
+			} catch (DataAccessException dae) {
+				log.warn("UNLINK is not available, falling back to DEL: " + dae);
+				unlinkSupported = false;
+			}
+		}
+		Long reply = connection.del(rawKeys);
+		return reply == null ? 0 : reply;
+	}
+
+}
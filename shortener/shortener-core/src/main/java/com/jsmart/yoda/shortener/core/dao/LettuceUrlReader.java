@@ -0,0 +1,171 @@
+package com.jsmart.yoda.shortener.core.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jsmart.yoda.shortener.base.Url;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Non-blocking lookups of Urls stored as top-level keys, in the same
+ *         layout ShortnerDaoImpl writes them. Commands of all callers are
+ *         multiplexed over a few shared Lettuce connections and written to
+ *         the socket as soon as they are issued, so many lookups are in
+ *         flight on one connection at once without holding a pooled
+ *         connection or a thread each.
+ *
+ *         Futures are completed in Lettuce event loop threads, so whatever is
+ *         chained to them must not block.
+ */
+public class LettuceUrlReader {
+
+	private final List<StatefulRedisConnection<String, String>> connections;
+	private final boolean expiryEnabled;
+	private final AtomicInteger next = new AtomicInteger();
+
+	/**
+	 * @param connections
+	 *            connections to Redis of stored Urls, values decoded the way
+	 *            ShortnerDaoImpl template decodes them.
+	 *
+	 * @param expiryEnabled
+	 *            whether Urls may expire.
+	 */
+	public LettuceUrlReader(List<StatefulRedisConnection<String, String>> connections, boolean expiryEnabled) {
+		if (connections.isEmpty()) {
+			throw new IllegalArgumentException("No connections to read from");
+		}
+		this.connections = new ArrayList<StatefulRedisConnection<String, String>>(connections);
+		this.expiryEnabled = expiryEnabled;
+	}
+
+	/**
+	 * @return future of stored Url or null if not found.
+	 */
+	public CompletableFuture<Url> get(String shortUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		RedisAsyncCommands<String, String> commands = commands();
+		if (expiryEnabled) {
+			return getExpiring(commands, shortUrl);
+		}
+		return commands.get(shortUrl).toCompletableFuture()
+				.thenApply((longUrl) -> longUrl != null ? new Url(shortUrl, longUrl) : null);
+	}
+
+	/**
+	 * This method fetches Urls with one MGET, or with GET, PTTL and GET of
+	 * clicks counter for every key when expiry is enabled, all sent at once.
+	 *
+	 * @return future of Urls in the order of keys, null for not found ones.
+	 */
+	public CompletableFuture<List<Url>> getAll(List<String> shortUrls) {
+		List<String> keys = new ArrayList<String>(shortUrls.size());
+		for (String shortUrl : shortUrls) {
+			if (RedisKeys.isUrlKey(shortUrl)) {
+				keys.add(shortUrl);
+			}
+		}
+		if (keys.isEmpty()) {
+			return CompletableFuture
+					.completedFuture(new ArrayList<Url>(Collections.nCopies(shortUrls.size(), (Url) null)));
+		}
+		RedisAsyncCommands<String, String> commands = commands();
+		if (expiryEnabled) {
+			List<CompletableFuture<Url>> lookups = new ArrayList<CompletableFuture<Url>>(shortUrls.size());
+			for (String shortUrl : shortUrls) {
+				lookups.add(RedisKeys.isUrlKey(shortUrl) ? getExpiring(commands, shortUrl)
+						: CompletableFuture.completedFuture(null));
+			}
+			return CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[lookups.size()]))
+					.thenApply((done) -> {
+						List<Url> urls = new ArrayList<Url>(lookups.size());
+						lookups.forEach((lookup) -> urls.add(lookup.join()));
+						return urls;
+					});
+		}
+		return commands.mget(keys.toArray(new String[keys.size()])).toCompletableFuture().thenApply((values) -> {
+			List<Url> urls = new ArrayList<Url>(shortUrls.size());
+			int value = 0;
+			for (String shortUrl : shortUrls) {
+				if (!RedisKeys.isUrlKey(shortUrl)) {
+					urls.add(null);
+					continue;
+				}
+				KeyValue<String, String> found = values.get(value++);
+				urls.add(found.hasValue() ? new Url(shortUrl, found.getValue()) : null);
+			}
+			return urls;
+		});
+	}
+
+	/**
+	 * This method counts redirect of click limited Url with the script
+	 * ShortnerDaoImpl runs, sent by its digest and loaded once Redis reports
+	 * it unknown.
+	 *
+	 * @return future of amount of redirects left after this one, negative if
+	 *         none was left.
+	 */
+	public CompletableFuture<Long> click(String shortUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return CompletableFuture.completedFuture(-1L);
+		}
+		RedisAsyncCommands<String, String> commands = commands();
+		String[] keys = { shortUrl, RedisKeys.clicksKey(shortUrl) };
+		CompletableFuture<Long> left = commands.<Long> evalsha(ShortnerDaoImpl.CLICK.getSha1(),
+				ScriptOutputType.INTEGER, keys).toCompletableFuture();
+		return left.handle((value, failure) -> {
+			if (failure == null) {
+				return CompletableFuture.completedFuture(value);
+			}
+			Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+			if (cause instanceof RedisNoScriptException) {
+				return commands.<Long> eval(ShortnerDaoImpl.CLICK.getScriptAsString(), ScriptOutputType.INTEGER,
+						keys).toCompletableFuture();
+			}
+			CompletableFuture<Long> failed = new CompletableFuture<Long>();
+			failed.completeExceptionally(cause);
+			return failed;
+		}).thenCompose((value) -> value).thenApply((value) -> value == null ? -1L : value);
+	}
+
+	/**
+	 * This method closes connections.
+	 */
+	public void close() {
+		connections.forEach(StatefulRedisConnection::close);
+	}
+
+	private CompletableFuture<Url> getExpiring(RedisAsyncCommands<String, String> commands, String shortUrl) {
+		long now = System.currentTimeMillis();
+		CompletableFuture<String> longUrl = commands.get(shortUrl).toCompletableFuture();
+		CompletableFuture<Long> ttl = commands.pttl(shortUrl).toCompletableFuture();
+		CompletableFuture<String> clicks = commands.get(RedisKeys.clicksKey(shortUrl)).toCompletableFuture();
+		return CompletableFuture.allOf(longUrl, ttl, clicks).thenApply((done) -> {
+			if (longUrl.join() == null) {
+				return null;
+			}
+			Long millis = ttl.join();
+			return new Url(shortUrl, longUrl.join(), millis != null && millis >= 0 ? now + millis : null,
+					clicks.join() != null ? Long.valueOf(clicks.join()) : null);
+		});
+	}
+
+	private RedisAsyncCommands<String, String> commands() {
+		return connections.get(Math.floorMod(next.getAndIncrement(), connections.size())).async();
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.jsmart.yoda.shortener.core.dao;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Reverse index from digest of normalized long url to its short url,
+ *         kept in a single Redis hash.
+ */
+public class LongUrlIndexDao {
+
+	private static final Logger log = Logger.getLogger(LongUrlIndexDao.class);
+
+	private final RedisTemplate<String, String> redisTemplate;
+	private final String indexKey;
+
+	public LongUrlIndexDao(RedisTemplate<String, String> redisTemplate, String indexKey) {
+		this.redisTemplate = redisTemplate;
+		this.indexKey = indexKey;
+	}
+
+	/**
+	 * @param digest
+	 *            digest of normalized long url.
+	 *
+	 * @return short url stored for digest or null.
+	 */
+	public String get(String digest) {
+		return hashOperations().get(indexKey, digest);
+	}
+
+	public void put(String digest, String shortUrl) {
+		hashOperations().put(indexKey, digest, shortUrl);
+	}
+
+	public void putAll(Map<String, String> shortUrls) {
+		hashOperations().putAll(indexKey, shortUrls);
+	}
+
+	public void remove(String digest) {
+		hashOperations().delete(indexKey, digest);
+	}
+
+	public void clear() {
+		redisTemplate.delete(indexKey);
+	}
+
+	/**
+	 * This method iterates over whole index with incremental HSCAN.
+	 *
+	 * @param action
+	 *            consumer of digest and short url pairs.
+	 */
+	public void forEach(BiConsumer<String, String> action) {
+		try (Cursor<Map.Entry<String, String>> cursor = hashOperations().scan(indexKey,
+				ScanOptions.scanOptions().count(1000).build())) {
+			while (cursor.hasNext()) {
+				Map.Entry<String, String> entry = cursor.next();
+				action.accept(entry.getKey(), entry.getValue());
+			}
+		} catch (IOException ioe) {
+			log.error("IOException: " + ioe + " \n");
+		}
+	}
+
+	private HashOperations<String, String, String> hashOperations() {
+		return redisTemplate.opsForHash();
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.jsmart.yoda.shortener.core.dao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Names of Redis keys used by shortener for its own bookkeeping. Short
+ *         urls never contain ':' so internal keys are easily told apart from
+ *         stored Urls.
+ */
+public final class RedisKeys {
+
+	public static final String PREFIX = "shortener:";
+
+	public static final String SEQUENCE = PREFIX + "sequence";
+
+	public static final String DEDUP_INDEX = PREFIX + "dedup";
+
+	public static final String HOST_DICTIONARY = PREFIX + "hosts";
+
+	public static final String HOST_DICTIONARY_IDS = PREFIX + "hosts:ids";
+
+	/** Prefix of counters of redirects left to click limited Urls. */
+	public static final String CLICKS = PREFIX + "clicks:";
+
+	/** List of shards added to sharded storage after startup. */
+	public static final String SHARDS = PREFIX + "shards";
+
+	/** Shard which sharded storage is rebalancing onto, if any. */
+	public static final String SHARDS_REBALANCING = PREFIX + "shards:rebalancing";
+
+	public static final String INVALIDATION_CHANNEL = PREFIX + "invalidations";
+
+	public static final String CREATION_CHANNEL = PREFIX + "creations";
+
+	public static final String SHARD_CHANNEL = PREFIX + "shard-changes";
+
+	/** Keys written through nodes which read from replicas. */
+	public static final String WRITE_CHANNEL = PREFIX + "writes";
+
+	/** Digests of long urls registered for deduplication. */
+	public static final String DEDUP_CHANNEL = PREFIX + "dedup-registrations";
+
+	/** Separator of short urls or digests sent in one pub/sub message. */
+	public static final String KEY_SEPARATOR = "\n";
+
+	private RedisKeys() {
+	}
+
+	/**
+	 * @param key
+	 *            Redis key.
+	 *
+	 * @return true if key holds a stored Url rather than shortener internal
+	 *         data.
+	 */
+	public static boolean isUrlKey(String key) {
+		return key != null && key.indexOf(':') < 0;
+	}
+
+	/**
+	 * @return key of redirects counter of click limited Url.
+	 */
+	public static String clicksKey(String shortUrl) {
+		return CLICKS + shortUrl;
+	}
+
+}
@@ -1,29 +1,177 @@
 package com.jsmart.yoda.shortener.core.dao;
 
+import javax.annotation.PostConstruct;
+
+import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Repository;
 
 import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlPage;
 import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.codec.ShortenerRedisSerializer;
+import com.jsmart.yoda.shortener.core.codec.UrlValueCodec;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Nick Koretskyy
  *
  *         This class implements Data Access Object interface to simplify Redis
  *         accesses.
+ *
+ *         Expiring Url is kept with native TTL, so Redis reclaims it by
+ *         itself, click limited one also has a counter of redirects left
+ *         under RedisKeys.clicksKey expiring together with it. With expiry
+ *         enabled lookups of single Urls fetch both in the same round trip,
+ *         listings return Urls without them.
  */
 @Repository
 public class ShortnerDaoImpl implements ShortnerDao {
 
+	static final int SCAN_BATCH = 1000;
+
+	private static final byte[] COUNT = "COUNT".getBytes(StandardCharsets.UTF_8);
+
+	private static final String CREATE = "NX";
+
+	// SET drops TTL, so expiring Url gets its remaining time back
+	private static final RedisScript<String> UPDATE_IF_PRESENT = new DefaultRedisScript<String>(
+			"local previous = redis.call('GET', KEYS[1]) "
+					+ "if previous then "
+					+ "local ttl = redis.call('PTTL', KEYS[1]) "
+					+ "redis.call('SET', KEYS[1], ARGV[1]) "
+					+ "if ttl > 0 then redis.call('PEXPIRE', KEYS[1], ttl) end "
+					+ "end "
+					+ "return previous",
+			String.class);
+
+	// KEYS: url, clicks; ARGV: long url; returns previous long url, its ttl and clicks or empty list
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static final RedisScript<List<Object>> UPDATE_EXPIRING_IF_PRESENT = new DefaultRedisScript<List<Object>>(
+			"local previous = redis.call('GET', KEYS[1]) "
+					+ "if not previous then return {} end "
+					+ "local ttl = redis.call('PTTL', KEYS[1]) "
+					+ "redis.call('SET', KEYS[1], ARGV[1]) "
+					+ "if ttl > 0 then redis.call('PEXPIRE', KEYS[1], ttl) end "
+					+ "return {previous, ttl, redis.call('GET', KEYS[2])}",
+			(Class) List.class);
+
+	private static final RedisScript<String> REMOVE_IF_PRESENT = new DefaultRedisScript<String>(
+			"local previous = redis.call('GET', KEYS[1]) "
+					+ "if previous then redis.call('DEL', KEYS[1], KEYS[2]) end "
+					+ "return previous",
+			String.class);
+
+	// KEYS: url, clicks; ARGV: long url as written now, long url as written before storage codec
+	private static final byte[] REMOVE_IF_UNCHANGED = ("local value = redis.call('GET', KEYS[1]) "
+			+ "if value == ARGV[1] or value == ARGV[2] then return redis.call('DEL', KEYS[1], KEYS[2]) end "
+			+ "return 0").getBytes(StandardCharsets.UTF_8);
+
+	// KEYS: url, clicks; ARGV: long url, expires at or '', clicks or '', NX or ''
+	private static final RedisScript<Long> WRITE_EXPIRING = new DefaultRedisScript<Long>(
+			"if ARGV[4] == 'NX' then "
+					+ "if not redis.call('SET', KEYS[1], ARGV[1], 'NX') then return 0 end "
+					+ "else redis.call('SET', KEYS[1], ARGV[1]) end "
+					+ "if ARGV[2] ~= '' then redis.call('PEXPIREAT', KEYS[1], ARGV[2]) end "
+					+ "redis.call('DEL', KEYS[2]) "
+					+ "if ARGV[3] ~= '' then "
+					+ "redis.call('SET', KEYS[2], ARGV[3]) "
+					+ "if ARGV[2] ~= '' then redis.call('PEXPIREAT', KEYS[2], ARGV[2]) end "
+					+ "end "
+					+ "return 1",
+			Long.class);
+
+	static final RedisScript<Long> CLICK = new DefaultRedisScript<Long>(
+			"if redis.call('EXISTS', KEYS[2]) == 0 then return -1 end "
+					+ "local left = redis.call('DECR', KEYS[2]) "
+					+ "if left <= 0 then redis.call('DEL', KEYS[1], KEYS[2]) end "
+					+ "return left",
+			Long.class);
+
+	private static final Pattern CURSOR_PATTERN = Pattern.compile("\\d{1,20}");
+
+	private static final Logger log = Logger.getLogger(ShortnerDaoImpl.class);
+
+	private final KeyUnlinker keyUnlinker = new KeyUnlinker();
+
+	private final ShortenerRedisSerializer plainSerializer = new ShortenerRedisSerializer();
+
 	@Autowired
 	private RedisTemplate<String, String> redisTemplate;
 
+	@Autowired(required = false)
+	private UrlValueCodec urlValueCodec;
+
+	@Autowired(required = false)
+	private LettuceUrlReader lettuceUrlReader;
+
+	@Value("${shorturl.expiry.enabled}")
+	private boolean expiryEnabled;
+
+	public ShortnerDaoImpl() {
+		super();
+	}
+
+	/**
+	 * @param redisTemplate
+	 *            template of Redis to keep Urls in, used for shards of sharded
+	 *            storage.
+	 *
+	 * @param urlValueCodec
+	 *            storage codec or null if it is disabled.
+	 *
+	 * @param expiryEnabled
+	 *            whether Urls may expire.
+	 */
+	public ShortnerDaoImpl(RedisTemplate<String, String> redisTemplate, UrlValueCodec urlValueCodec,
+			boolean expiryEnabled) {
+		this.redisTemplate = redisTemplate;
+		this.urlValueCodec = urlValueCodec;
+		this.expiryEnabled = expiryEnabled;
+		init();
+	}
+
+	/**
+	 * This method switches long url values to storage codec if it is enabled.
+	 * Values are decoded by the template, so every read below, including
+	 * scans, gets plain long urls.
+	 */
+	@PostConstruct
+	void init() {
+		if (Optional.ofNullable(urlValueCodec).isPresent()) {
+			redisTemplate = urlValueCodec.template(redisTemplate);
+		}
+	}
+
 	/**
 	 * This method fetches stored Url - base on key (short url) from redis base.
 	 *
@@ -36,6 +184,12 @@ public class ShortnerDaoImpl implements ShortnerDao {
 	 */
 	@Override
 	public Url get(String shortUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return null;
+		}
+		if (expiryEnabled) {
+			return getExpiring(Collections.singletonList(shortUrl)).get(0);
+		}
 		String longUrl = redisTemplate.opsForValue().get(shortUrl);
 		if (Optional.ofNullable(longUrl).isPresent()) {
 			return new Url(shortUrl, longUrl);
@@ -44,20 +198,193 @@ public class ShortnerDaoImpl implements ShortnerDao {
 	}
 
 	/**
-	 * This method fetches all stored Urls in redis base.
+	 * This method fetches stored Urls for many keys (short urls) with one
+	 * MGET.
+	 *
+	 * @param shortUrls
+	 *            keys to fetch.
+	 *
+	 * @return Urls in the order of keys, null for not found ones.
+	 */
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		List<Url> urls = new ArrayList<Url>(Collections.nCopies(shortUrls.size(), (Url) null));
+		List<String> keys = shortUrls.stream().filter(RedisKeys::isUrlKey).collect(Collectors.toList());
+		if (keys.isEmpty()) {
+			return urls;
+		}
+		Map<String, Url> found = new HashMap<String, Url>();
+		if (expiryEnabled) {
+			for (Url url : getExpiring(keys)) {
+				if (url != null) {
+					found.put(url.getShortUrl(), url);
+				}
+			}
+		} else {
+			List<String> longUrls = redisTemplate.opsForValue().multiGet(keys);
+			for (int i = 0; i < keys.size(); i++) {
+				if (longUrls.get(i) != null) {
+					found.put(keys.get(i), new Url(keys.get(i), longUrls.get(i)));
+				}
+			}
+		}
+		for (int i = 0; i < shortUrls.size(); i++) {
+			urls.set(i, found.get(shortUrls.get(i)));
+		}
+		return urls;
+	}
+
+	/**
+	 * This method fetches Urls with their expiration: GET, PTTL and GET of
+	 * clicks counter for every key sent in one pipeline.
+	 *
+	 * @return Urls in the order of keys, null for not found ones.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Url> getExpiring(List<String> keys) {
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+		long now = System.currentTimeMillis();
+		List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) (connection) -> {
+			for (String key : keys) {
+				byte[] rawKey = keySerializer.serialize(key);
+				connection.get(rawKey);
+				connection.pTtl(rawKey);
+				connection.get(keySerializer.serialize(RedisKeys.clicksKey(key)));
+			}
+			return null;
+		}, redisTemplate.getValueSerializer());
+		List<Url> urls = new ArrayList<Url>(keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			String longUrl = (String) replies.get(3 * i);
+			if (longUrl == null) {
+				urls.add(null);
+				continue;
+			}
+			urls.add(expiringUrl(keys.get(i), longUrl, (Long) replies.get(3 * i + 1),
+					(String) replies.get(3 * i + 2), now));
+		}
+		return urls;
+	}
+
+	private static Url expiringUrl(String shortUrl, String longUrl, Long ttl, String clicks, long now) {
+		return new Url(shortUrl, longUrl, ttl != null && ttl >= 0 ? now + ttl : null,
+				clicks != null ? Long.valueOf(clicks) : null);
+	}
+
+	/**
+	 * This method fetches all stored Urls in redis base. Shortener internal
+	 * keys are skipped.
 	 *
 	 * @see com.jsmart.yoda.shortener.base.Url.
 	 *
 	 * @return list of stored Urls.
 	 */
 	@Override
-	public List<Url> getAll() {// @formatter:off
-		Set<String> keys = redisTemplate.keys("*");
-		List<Url> urls = keys.stream()
-				.map((key) -> new Url(key, get(key).getLongUrl()))
-				.collect(Collectors.toList());
-		return urls;
-	}// @formatter:on
+	public List<Url> getAll() {
+		try (Stream<Url> urls = stream()) {
+			return urls.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * This method streams all stored Urls. Keys are walked with incremental
+	 * SCAN and values are fetched with one MGET per batch of keys, so Redis is
+	 * never blocked for the whole keyspace and memory use is bounded by the
+	 * batch. Stream holds a Redis connection until it is closed.
+	 *
+	 * @see com.jsmart.yoda.shortener.base.Url.
+	 *
+	 * @return stream of stored Urls, to be closed after use.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Stream<Url> stream() {
+		RedisConnection connection = redisTemplate.getConnectionFactory().getConnection();
+		UrlScanIterator iterator;
+		try {
+			iterator = new UrlScanIterator(connection, (RedisSerializer<String>) redisTemplate.getKeySerializer(),
+					(RedisSerializer<String>) redisTemplate.getValueSerializer(), SCAN_BATCH);
+		} catch (RuntimeException | Error e) {
+			connection.close();
+			throw e;
+		}
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL | Spliterator.DISTINCT), false)
+				.onClose(iterator::close);
+	}
+
+	/**
+	 * This method fetches one page of stored Urls: keys returned by one SCAN
+	 * step from the given cursor and their values fetched with one MGET. SCAN
+	 * count is a hint, so page may hold somewhat more or less Urls than
+	 * limit, even none while listing isn't complete.
+	 *
+	 * @param cursor
+	 *            SCAN cursor returned with previous page, "0" for the first
+	 *            page.
+	 *
+	 * @param limit
+	 *            desired amount of Urls in the page.
+	 *
+	 * @return page of Urls with cursor of the next page, "0" if there are no
+	 *         more pages.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public UrlPage getPage(String cursor, int limit) {
+		if (!CURSOR_PATTERN.matcher(cursor).matches()) {
+			throw new IllegalArgumentException("Illegal cursor " + cursor);
+		}
+		return redisTemplate.execute((RedisCallback<UrlPage>) (connection) -> {
+			List<Object> reply = (List<Object>) connection.execute("SCAN", cursor.getBytes(StandardCharsets.UTF_8),
+					COUNT, String.valueOf(limit).getBytes(StandardCharsets.UTF_8));
+			String next = new String((byte[]) reply.get(0), StandardCharsets.UTF_8);
+			List<String> keys = new ArrayList<String>();
+			List<byte[]> rawKeys = new ArrayList<byte[]>();
+			for (byte[] rawKey : (List<byte[]>) reply.get(1)) {
+				String key = (String) redisTemplate.getKeySerializer().deserialize(rawKey);
+				if (RedisKeys.isUrlKey(key)) {
+					keys.add(key);
+					rawKeys.add(rawKey);
+				}
+			}
+			List<Url> urls = new ArrayList<Url>(keys.size());
+			if (!rawKeys.isEmpty()) {
+				List<byte[]> rawValues = connection.mGet(rawKeys.toArray(new byte[rawKeys.size()][]));
+				for (int i = 0; i < keys.size(); i++) {
+					if (rawValues.get(i) != null) {
+						urls.add(new Url(keys.get(i), (String) redisTemplate.getValueSerializer().deserialize(rawValues.get(i))));
+					}
+				}
+			}
+			return new UrlPage(urls, next);
+		});
+	}
+
+	/**
+	 * This method iterates over keys of all stored Urls with incremental SCAN,
+	 * so Redis is never blocked for the whole keyspace. Shortener internal
+	 * keys are skipped.
+	 *
+	 * @param action
+	 *            consumer of short urls.
+	 */
+	@Override
+	public void forEachKey(Consumer<String> action) {
+		redisTemplate.execute((RedisCallback<Void>) (connection) -> {
+			try (Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().count(SCAN_BATCH).build())) {
+				while (cursor.hasNext()) {
+					String key = (String) redisTemplate.getKeySerializer().deserialize(cursor.next());
+					if (RedisKeys.isUrlKey(key)) {
+						action.accept(key);
+					}
+				}
+			} catch (IOException ioe) {
+				log.error("IOException: " + ioe + " \n");
+			}
+			return null;
+		});
+	}
 
 	/**
 	 * This method creates new key (short url) - value (long url) record in redis
@@ -73,9 +400,102 @@ public class ShortnerDaoImpl implements ShortnerDao {
 	 */
 	@Override
 	public boolean create(Url url) {
+		if (url.expires()) {
+			return writeExpiring(url, CREATE);
+		}
 		return redisTemplate.opsForValue().setIfAbsent(url.getShortUrl(), url.getLongUrl());
 	}
 
+	/**
+	 * This method writes key (short url) - value (long url) record in redis
+	 * unconditionally. Meant for keys which are unique by construction.
+	 *
+	 * @param com.jsmart.yoda.shortener.base.Url
+	 *            Instance of Url.
+	 *
+	 * @see com.jsmart.yoda.shortener.base.Url.
+	 */
+	@Override
+	public void save(Url url) {
+		if (url.expires()) {
+			writeExpiring(url, "");
+			return;
+		}
+		redisTemplate.opsForValue().set(url.getShortUrl(), url.getLongUrl());
+	}
+
+	/**
+	 * This method writes expiring Url together with its clicks counter with
+	 * one script.
+	 *
+	 * @param mode
+	 *            CREATE to write only absent Url, empty to overwrite.
+	 *
+	 * @return true if Url was written.
+	 */
+	private boolean writeExpiring(Url url, String mode) {
+		Long written = redisTemplate.execute(WRITE_EXPIRING,
+				Arrays.asList(url.getShortUrl(), RedisKeys.clicksKey(url.getShortUrl())), url.getLongUrl(),
+				url.getExpiresAt() != null ? String.valueOf(url.getExpiresAt()) : "",
+				url.getClicksLeft() != null ? String.valueOf(url.getClicksLeft()) : "", mode);
+		return written != null && written > 0;
+	}
+
+	/**
+	 * This method creates records for batch of new Urls with SETNX commands
+	 * sent in one pipeline, so the whole batch takes one round trip.
+	 *
+	 * @param urls
+	 *            new Urls.
+	 *
+	 * @return for every Url in the same order true if record was created or
+	 *         false if its key was taken.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Boolean> createAll(List<Url> urls) {
+		if (urls.isEmpty()) {
+			return new ArrayList<Boolean>();
+		}
+		if (urls.stream().anyMatch(Url::expires)) {
+			return urls.stream().map(this::create).collect(Collectors.toList());
+		}
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+		RedisSerializer<String> valueSerializer = (RedisSerializer<String>) redisTemplate.getValueSerializer();
+		List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) (connection) -> {
+			for (Url url : urls) {
+				connection.setNX(keySerializer.serialize(url.getShortUrl()), valueSerializer.serialize(url.getLongUrl()));
+			}
+			return null;
+		});
+		return replies.stream().map(Boolean.TRUE::equals).collect(Collectors.toList());
+	}
+
+	/**
+	 * This method writes records for batch of Urls unconditionally with one
+	 * MSET. Meant for keys which are unique by construction.
+	 *
+	 * @param urls
+	 *            Urls to write.
+	 */
+	@Override
+	public void saveAll(List<Url> urls) {
+		if (urls.isEmpty()) {
+			return;
+		}
+		Map<String, String> records = new LinkedHashMap<String, String>();
+		for (Url url : urls) {
+			if (url.expires()) {
+				save(url);
+			} else {
+				records.put(url.getShortUrl(), url.getLongUrl());
+			}
+		}
+		if (!records.isEmpty()) {
+			redisTemplate.opsForValue().multiSet(records);
+		}
+	}
+
 	/**
 	 * This method updates stored Url - key (short url) / value (long url) record
 	 * in redis base on Url fields.
@@ -105,23 +525,197 @@ public class ShortnerDaoImpl implements ShortnerDao {
 	 */
 	@Override
 	public void remove(String shortUrl) {
-		redisTemplate.delete(shortUrl);
+		redisTemplate.delete(Arrays.asList(shortUrl, RedisKeys.clicksKey(shortUrl)));
+	}
+
+	/**
+	 * This method replaces long url of stored short url with one script, so
+	 * existence check and write take one round trip and nothing can remove
+	 * the Url in between.
+	 *
+	 * @param shortUrl
+	 *            Unique string with short url to update.
+	 *
+	 * @param longUrl
+	 *            New long url.
+	 *
+	 * @return previous Url with its expiration when expiry is enabled or null
+	 *         if short url isn't stored, then nothing is written.
+	 */
+	@Override
+	public Url updateIfPresent(String shortUrl, String longUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return null;
+		}
+		if (expiryEnabled) {
+			long now = System.currentTimeMillis();
+			List<Object> previous = redisTemplate.execute(UPDATE_EXPIRING_IF_PRESENT,
+					Arrays.asList(shortUrl, RedisKeys.clicksKey(shortUrl)), longUrl);
+			if (previous == null || previous.isEmpty()) {
+				return null;
+			}
+			return expiringUrl(shortUrl, (String) previous.get(0), (Long) previous.get(1), (String) previous.get(2),
+					now);
+		}
+		String previous = redisTemplate.execute(UPDATE_IF_PRESENT, Collections.singletonList(shortUrl), longUrl);
+		return previous == null ? null : new Url(shortUrl, previous);
+	}
+
+	/**
+	 * This method removes stored Url with one script returning its long url,
+	 * so caller learns what was removed in the same round trip.
+	 *
+	 * @param shortUrl
+	 *            Unique string with short url to delete.
+	 *
+	 * @return removed Url or null if short url isn't stored.
+	 */
+	@Override
+	public Url removeIfPresent(String shortUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return null;
+		}
+		String previous = redisTemplate.execute(REMOVE_IF_PRESENT,
+				Arrays.asList(shortUrl, RedisKeys.clicksKey(shortUrl)));
+		return previous == null ? null : new Url(shortUrl, previous);
+	}
+
+	/**
+	 * This method removes stored Url with one script only if its long url is
+	 * still the given one, so a Url changed since it was read is kept. Long
+	 * url is compared both encoded and plain, values written before storage
+	 * codec was enabled are matched too.
+	 *
+	 * @param url
+	 *            Url as it was read.
+	 *
+	 * @return true if Url was removed.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean removeIfUnchanged(Url url) {
+		if (!RedisKeys.isUrlKey(url.getShortUrl())) {
+			return false;
+		}
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+		RedisSerializer<String> valueSerializer = (RedisSerializer<String>) redisTemplate.getValueSerializer();
+		byte[][] keysAndArgs = { keySerializer.serialize(url.getShortUrl()),
+				keySerializer.serialize(RedisKeys.clicksKey(url.getShortUrl())),
+				valueSerializer.serialize(url.getLongUrl()), plainSerializer.serialize(url.getLongUrl()) };
+		Long removed = redisTemplate.execute((RedisCallback<Long>) (connection) -> connection
+				.eval(REMOVE_IF_UNCHANGED, ReturnType.INTEGER, 2, keysAndArgs));
+		return removed != null && removed > 0;
+	}
+
+	/**
+	 * This method decrements clicks counter of Url with one script, which also
+	 * removes Url and counter when the last allowed redirect is counted.
+	 *
+	 * @param shortUrl
+	 *            short url of click limited Url.
+	 *
+	 * @return amount of redirects left after this one, negative if none was
+	 *         left.
+	 */
+	@Override
+	public long click(String shortUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return -1;
+		}
+		Long left = redisTemplate.execute(CLICK, Arrays.asList(shortUrl, RedisKeys.clicksKey(shortUrl)));
+		return left == null ? -1 : left;
 	}
 
 	/**
-	 * This method removes stored Urls in Redis base on getAll list.
+	 * This method fetches stored Url with non-blocking client if async
+	 * lookups are enabled, otherwise in caller thread.
+	 */
+	@Override
+	public CompletableFuture<Url> getAsync(String shortUrl) {
+		if (lettuceUrlReader == null) {
+			return CompletableFuture.completedFuture(get(shortUrl));
+		}
+		return lettuceUrlReader.get(shortUrl);
+	}
+
+	@Override
+	public CompletableFuture<List<Url>> getAllAsync(List<String> shortUrls) {
+		if (lettuceUrlReader == null) {
+			return CompletableFuture.completedFuture(getAll(shortUrls));
+		}
+		return lettuceUrlReader.getAll(shortUrls);
+	}
+
+	@Override
+	public CompletableFuture<Long> clickAsync(String shortUrl) {
+		if (lettuceUrlReader == null) {
+			return CompletableFuture.completedFuture(click(shortUrl));
+		}
+		return lettuceUrlReader.click(shortUrl);
+	}
+
+	/**
+	 * This method removes all stored Urls in Redis. Shortener internal keys
+	 * are kept.
 	 *
 	 * @return boolean, in successes case - when all records removed true else
 	 *         false.
 	 */
 	@Override
 	public boolean removeAll() {
-		List<Url> urls = this.getAll();
-		if (!urls.isEmpty()) {
-			urls.forEach((url) -> redisTemplate.delete(url.getShortUrl()));
-			return true;
-		}
-		return false;
+		return removeAll((removed) -> {
+		}) > 0;
+	}
+
+	/**
+	 * This method removes all stored Urls in Redis batch by batch: keys are
+	 * walked with incremental SCAN and every batch is dropped with one
+	 * multi-key UNLINK, which frees memory in background on Redis side. Redis
+	 * is never blocked for the whole keyspace and the purge takes one round
+	 * trip per batch. Clicks counters are dropped along, they are not
+	 * counted.
+	 *
+	 * @param progress
+	 *            receives amount of removed Urls after every batch.
+	 *
+	 * @return amount of removed Urls.
+	 */
+	@Override
+	public long removeAll(LongConsumer progress) {
+		return redisTemplate.execute((RedisCallback<Long>) (connection) -> {
+			long removed = 0;
+			List<byte[]> batch = new ArrayList<byte[]>(SCAN_BATCH);
+			List<byte[]> counters = new ArrayList<byte[]>();
+			try (Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().count(SCAN_BATCH).build())) {
+				while (cursor.hasNext()) {
+					byte[] rawKey = cursor.next();
+					String key = (String) redisTemplate.getKeySerializer().deserialize(rawKey);
+					if (RedisKeys.isUrlKey(key)) {
+						batch.add(rawKey);
+					} else if (key != null && key.startsWith(RedisKeys.CLICKS)) {
+						counters.add(rawKey);
+					}
+					if (batch.size() == SCAN_BATCH) {
+						removed += keyUnlinker.unlink(connection, batch);
+						progress.accept(removed);
+						batch.clear();
+					}
+					if (counters.size() == SCAN_BATCH) {
+						keyUnlinker.unlink(connection, counters);
+						counters.clear();
+					}
+				}
+			} catch (IOException ioe) {
+				log.error("IOException: " + ioe + " \n");
+			}
+			if (!batch.isEmpty()) {
+				removed += keyUnlinker.unlink(connection, batch);
+				progress.accept(removed);
+			}
+			if (!counters.isEmpty()) {
+				keyUnlinker.unlink(connection, counters);
+			}
+			return removed;
+		});
 	}
 
 }
@@ -0,0 +1,100 @@
+package com.jsmart.yoda.shortener.core.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.jsmart.yoda.shortener.base.Url;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Iterator over all stored Urls. Keys are walked with incremental SCAN
+ *         and values of every batch of keys are fetched with a single MGET, so
+ *         at most one batch is held in memory and every batch costs a fixed
+ *         amount of round trips. Internal shortener keys are skipped, keys
+ *         removed between SCAN and MGET are dropped.
+ * 
+ *         Iterator owns the connection and releases it on close.
+ */
+class UrlScanIterator implements Iterator<Url>, Closeable {
+
+	private final RedisConnection connection;
+	private final Cursor<byte[]> cursor;
+	private final RedisSerializer<String> keySerializer;
+	private final RedisSerializer<String> valueSerializer;
+	private final int batchSize;
+
+	private final Deque<Url> batch;
+
+	UrlScanIterator(RedisConnection connection, RedisSerializer<String> keySerializer,
+			RedisSerializer<String> valueSerializer, int batchSize) {
+		this.connection = connection;
+		this.cursor = connection.scan(ScanOptions.scanOptions().count(batchSize).build());
+		this.keySerializer = keySerializer;
+		this.valueSerializer = valueSerializer;
+		this.batchSize = batchSize;
+		this.batch = new ArrayDeque<Url>(batchSize);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (batch.isEmpty() && cursor.hasNext()) {
+			fetchBatch();
+		}
+		return !batch.isEmpty();
+	}
+
+	@Override
+	public Url next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return batch.poll();
+	}
+
+	@Override
+	public void close() {
+		try {
+			cursor.close();
+		} catch (IOException ioe) {
+			throw new IllegalStateException(ioe);
+		} finally {
+			connection.close();
+		}
+	}
+
+	private void fetchBatch() {
+		List<String> keys = new ArrayList<String>(batchSize);
+		List<byte[]> rawKeys = new ArrayList<byte[]>(batchSize);
+		while (rawKeys.size() < batchSize && cursor.hasNext()) {
+			byte[] rawKey = cursor.next();
+			String key = keySerializer.deserialize(rawKey);
+			if (RedisKeys.isUrlKey(key)) {
+				keys.add(key);
+				rawKeys.add(rawKey);
+			}
+		}
+		if (rawKeys.isEmpty()) {
+			return;
+		}
+		List<byte[]> rawValues = connection.mGet(rawKeys.toArray(new byte[rawKeys.size()][]));
+		for (int i = 0; i < keys.size(); i++) {
+			byte[] rawValue = rawValues.get(i);
+			if (rawValue != null) {
+				batch.add(new Url(keys.get(i), valueSerializer.deserialize(rawValue)));
+			}
+		}
+	}
+
+}
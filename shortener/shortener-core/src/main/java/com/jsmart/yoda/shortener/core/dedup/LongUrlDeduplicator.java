@@ -0,0 +1,212 @@
+package com.jsmart.yoda.shortener.core.dedup;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.dao.LongUrlIndexDao;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.support.BloomFilter;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Finds short urls already stored for a long url. Long urls are
+ *         normalized and hashed, digests are kept in a reverse index with a
+ *         Bloom filter in front of it, so never seen urls skip the index
+ *         lookup.
+ * 
+ *         Digests registered by this node are announced to other nodes, so
+ *         their filters learn urls shortened meanwhile. Announcements are lost
+ *         while subscription is down, so filter is rebuilt when it is
+ *         restored. A url whose announcement was missed may be stored once
+ *         more, which costs a duplicate key but never a wrong one.
+ */
+public class LongUrlDeduplicator {
+
+	private static final Logger log = Logger.getLogger(LongUrlDeduplicator.class);
+
+	private static final int DIGEST_BYTES = 16;
+
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException(nsae);
+		}
+	});
+
+	private final LongUrlIndexDao longUrlIndexDao;
+	private final BloomFilter bloomFilter;
+	private final Consumer<String> announcer;
+	private volatile boolean filterReady;
+
+	public LongUrlDeduplicator(LongUrlIndexDao longUrlIndexDao, BloomFilter bloomFilter) {
+		this(longUrlIndexDao, bloomFilter, (digests) -> {
+		});
+	}
+
+	/**
+	 * @param announcer
+	 *            publishes registered digests, separated by
+	 *            RedisKeys.KEY_SEPARATOR, to other nodes.
+	 */
+	public LongUrlDeduplicator(LongUrlIndexDao longUrlIndexDao, BloomFilter bloomFilter, Consumer<String> announcer) {
+		this.longUrlIndexDao = longUrlIndexDao;
+		this.bloomFilter = bloomFilter;
+		this.announcer = announcer;
+	}
+
+	/**
+	 * This method loads digests of stored urls into the filter. Until it's
+	 * done every lookup goes to the index.
+	 */
+	public synchronized void rebuild() {
+		filterReady = false;
+		bloomFilter.clear();
+		long started = System.currentTimeMillis();
+		long[] loaded = new long[1];
+		longUrlIndexDao.forEach((digest, shortUrl) -> {
+			bloomFilter.put(digest);
+			loaded[0]++;
+		});
+		filterReady = true;
+		log.info("Deduplication filter loaded with " + loaded[0] + " urls in "
+				+ (System.currentTimeMillis() - started) + " ms");
+	}
+
+	/**
+	 * This method starts filter rebuild in background.
+	 */
+	public void start() {
+		Thread thread = new Thread(this::rebuild, "long-url-dedup-loader");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @param longUrl
+	 *            fixed long url.
+	 *
+	 * @return short url stored for the same normalized long url or null.
+	 */
+	public String find(String longUrl) {
+		String digest = digest(longUrl);
+		if (filterReady && !bloomFilter.mightContain(digest)) {
+			return null;
+		}
+		return longUrlIndexDao.get(digest);
+	}
+
+	public void register(String longUrl, String shortUrl) {
+		String digest = digest(longUrl);
+		longUrlIndexDao.put(digest, shortUrl);
+		bloomFilter.put(digest);
+		announcer.accept(digest);
+	}
+
+	/**
+	 * This method registers batch of created Urls with one index write.
+	 */
+	public void registerAll(List<Url> urls) {
+		if (urls.isEmpty()) {
+			return;
+		}
+		Map<String, String> shortUrls = new HashMap<String, String>();
+		urls.forEach((url) -> shortUrls.put(digest(url.getLongUrl()), url.getShortUrl()));
+		longUrlIndexDao.putAll(shortUrls);
+		shortUrls.keySet().forEach(bloomFilter::put);
+		announcer.accept(String.join(RedisKeys.KEY_SEPARATOR, shortUrls.keySet()));
+	}
+
+	/**
+	 * This method adds digest announced by other node to the filter.
+	 */
+	public void onAnnounced(String digest) {
+		bloomFilter.put(digest);
+	}
+
+	/**
+	 * This method rebuilds filter in background, since announcements may
+	 * have been missed while subscription was down.
+	 */
+	public void onResubscribed() {
+		log.warn("Deduplication announcements may have been missed, filter is rebuilt");
+		start();
+	}
+
+	/**
+	 * This method drops index entry of long url if it still points to given
+	 * short url.
+	 */
+	public void forget(String longUrl, String shortUrl) {
+		String digest = digest(longUrl);
+		if (shortUrl.equals(longUrlIndexDao.get(digest))) {
+			longUrlIndexDao.remove(digest);
+		}
+	}
+
+	public void clear() {
+		longUrlIndexDao.clear();
+		bloomFilter.clear();
+	}
+
+	/**
+	 * This method brings equivalent urls to the same form: lower case scheme
+	 * and host, no default port and no empty path.
+	 *
+	 * @param longUrl
+	 *            long url.
+	 *
+	 * @return normalized url, or url itself if it can't be parsed.
+	 */
+	public static String normalize(String longUrl) {
+		try {
+			URI uri = new URI(longUrl.trim());
+			if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+				return longUrl.trim();
+			}
+			String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+			StringBuilder normalized = new StringBuilder(longUrl.length()).append(scheme).append("://");
+			if (uri.getRawUserInfo() != null) {
+				normalized.append(uri.getRawUserInfo()).append('@');
+			}
+			normalized.append(uri.getHost() == null ? uri.getRawAuthority() : uri.getHost().toLowerCase(Locale.ROOT));
+			int port = uri.getPort();
+			if (port != -1 && !(port == 80 && "http".equals(scheme)) && !(port == 443 && "https".equals(scheme))) {
+				normalized.append(':').append(port);
+			}
+			String path = uri.getRawPath();
+			normalized.append(path == null || path.isEmpty() ? "/" : path);
+			if (uri.getRawQuery() != null) {
+				normalized.append('?').append(uri.getRawQuery());
+			}
+			if (uri.getRawFragment() != null) {
+				normalized.append('#').append(uri.getRawFragment());
+			}
+			return normalized.toString();
+		} catch (URISyntaxException urise) {
+			return longUrl.trim();
+		}
+	}
+
+	static String digest(String longUrl) {
+		MessageDigest sha256 = SHA256.get();
+		byte[] hash = sha256.digest(normalize(longUrl).getBytes(StandardCharsets.UTF_8));
+		byte[] truncated = new byte[DIGEST_BYTES];
+		System.arraycopy(hash, 0, truncated, 0, DIGEST_BYTES);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(truncated);
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.jsmart.yoda.shortener.core.expiry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.model.ExpiryMetrics;
+import com.jsmart.yoda.shortener.core.support.TimingWheel;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Evicts expiring Urls from local caches when their time comes. Local
+ *         caches schedule every expiring Url they take and listeners get its
+ *         short url from hierarchical timing wheel ticking in background, so
+ *         nothing is ever scanned for expired entries. Storage drops expired
+ *         Urls itself.
+ *
+ *         Url scheduled again with another deadline fires only with the
+ *         latest one.
+ */
+public class UrlExpiryWheel {
+
+	private static final Logger log = Logger.getLogger(UrlExpiryWheel.class);
+
+	private static final int LEVELS = 4;
+
+	private final TimingWheel<String> wheel;
+
+	// latest deadline per short url, guarded by wheel
+	private final Map<String, Long> deadlines = new HashMap<String, Long>();
+
+	private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<Consumer<String>>();
+
+	private final LongAdder scheduled = new LongAdder();
+	private final LongAdder expired = new LongAdder();
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param tickMillis
+	 *            resolution of eviction.
+	 *
+	 * @param wheelSize
+	 *            slots per wheel level.
+	 */
+	public UrlExpiryWheel(long tickMillis, int wheelSize) {
+		this.wheel = new TimingWheel<String>(tickMillis, wheelSize, LEVELS, System.currentTimeMillis());
+	}
+
+	/**
+	 * @param listener
+	 *            drops short url from a local cache, checking that cached Url
+	 *            is still expired.
+	 */
+	public void addListener(Consumer<String> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * This method schedules eviction of Url which expires by time, other Urls
+	 * are ignored.
+	 */
+	public void schedule(Url url) {
+		if (url == null || url.getExpiresAt() == null) {
+			return;
+		}
+		synchronized (wheel) {
+			Long previous = deadlines.put(url.getShortUrl(), url.getExpiresAt());
+			if (url.getExpiresAt().equals(previous)) {
+				return;
+			}
+			wheel.schedule(url.getShortUrl(), url.getExpiresAt());
+		}
+		scheduled.increment();
+	}
+
+	/**
+	 * This method moves the wheel up to given time and notifies listeners of
+	 * due short urls.
+	 */
+	public void advance(long nowMillis) {
+		List<String> due = new ArrayList<String>();
+		synchronized (wheel) {
+			wheel.advance(nowMillis, (shortUrl, deadlineMillis) -> {
+				if (deadlines.remove(shortUrl, deadlineMillis)) {
+					due.add(shortUrl);
+				}
+			});
+		}
+		for (String shortUrl : due) {
+			listeners.forEach((listener) -> listener.accept(shortUrl));
+		}
+		expired.add(due.size());
+	}
+
+	/**
+	 * This method starts background ticks.
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "url-expiry-wheel");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long tickMillis = wheel.getTickMillis();
+		scheduler.scheduleAtFixedRate(() -> {
+			try {
+				advance(System.currentTimeMillis());
+			} catch (RuntimeException re) {
+				log.error("Unable to evict expired urls: " + re);
+			}
+		}, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	public ExpiryMetrics getMetrics() {
+		ExpiryMetrics metrics = new ExpiryMetrics();
+		metrics.setTickMillis(wheel.getTickMillis());
+		synchronized (wheel) {
+			metrics.setPending(deadlines.size());
+		}
+		metrics.setScheduled(scheduled.sum());
+		metrics.setExpired(expired.sum());
+		return metrics;
+	}
+
+}
@@ -0,0 +1,170 @@
+package com.jsmart.yoda.shortener.core.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.ForwardingShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         ShortnerDao decorator which answers lookups of unknown keys from the
+ *         key filter. New keys are added to the local filter and announced to
+ *         other nodes.
+ */
+public class KeyFilterShortnerDao extends ForwardingShortnerDao {
+
+	private final UrlKeyFilter urlKeyFilter;
+	private final Consumer<String> creationPublisher;
+
+	/**
+	 * @param creationPublisher
+	 *            announces newly stored short url to all nodes.
+	 */
+	public KeyFilterShortnerDao(ShortnerDao delegate, UrlKeyFilter urlKeyFilter, Consumer<String> creationPublisher) {
+		super(delegate);
+		this.urlKeyFilter = urlKeyFilter;
+		this.creationPublisher = creationPublisher;
+	}
+
+	@Override
+	public Url get(String shortUrl) {
+		if (!urlKeyFilter.mightContain(shortUrl)) {
+			return null;
+		}
+		Url url = delegate.get(shortUrl);
+		if (url == null) {
+			urlKeyFilter.onFalsePositive();
+		}
+		return url;
+	}
+
+	/**
+	 * Only keys which might be stored are fetched from underlying DAO.
+	 */
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		List<String> candidates = candidates(shortUrls);
+		if (candidates.isEmpty()) {
+			return new ArrayList<Url>(Collections.nCopies(shortUrls.size(), (Url) null));
+		}
+		return found(shortUrls, candidates, delegate.getAll(candidates));
+	}
+
+	@Override
+	public CompletableFuture<Url> getAsync(String shortUrl) {
+		if (!urlKeyFilter.mightContain(shortUrl)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return delegate.getAsync(shortUrl).thenApply((url) -> {
+			if (url == null) {
+				urlKeyFilter.onFalsePositive();
+			}
+			return url;
+		});
+	}
+
+	@Override
+	public CompletableFuture<List<Url>> getAllAsync(List<String> shortUrls) {
+		List<String> candidates = candidates(shortUrls);
+		if (candidates.isEmpty()) {
+			return CompletableFuture
+					.completedFuture(new ArrayList<Url>(Collections.nCopies(shortUrls.size(), (Url) null)));
+		}
+		return delegate.getAllAsync(candidates).thenApply((loaded) -> found(shortUrls, candidates, loaded));
+	}
+
+	@Override
+	public CompletableFuture<Long> clickAsync(String shortUrl) {
+		return delegate.clickAsync(shortUrl);
+	}
+
+	@Override
+	public Url updateIfPresent(String shortUrl, String longUrl) {
+		return urlKeyFilter.mightContain(shortUrl) ? delegate.updateIfPresent(shortUrl, longUrl) : null;
+	}
+
+	@Override
+	public Url removeIfPresent(String shortUrl) {
+		return urlKeyFilter.mightContain(shortUrl) ? delegate.removeIfPresent(shortUrl) : null;
+	}
+
+	@Override
+	public boolean create(Url url) {
+		// key goes to filter before it becomes visible in storage
+		added(url.getShortUrl());
+		return delegate.create(url);
+	}
+
+	@Override
+	public void save(Url url) {
+		added(url.getShortUrl());
+		delegate.save(url);
+	}
+
+	@Override
+	public List<Boolean> createAll(List<Url> urls) {
+		added(urls);
+		return delegate.createAll(urls);
+	}
+
+	@Override
+	public void saveAll(List<Url> urls) {
+		added(urls);
+		delegate.saveAll(urls);
+	}
+
+	private List<String> candidates(List<String> shortUrls) {
+		return shortUrls.stream().distinct().filter(urlKeyFilter::mightContain).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return Urls loaded for candidates in the order of all keys, misses of
+	 *         candidates are counted as false positives.
+	 */
+	private List<Url> found(List<String> shortUrls, List<String> candidates, List<Url> loaded) {
+		Map<String, Url> found = new HashMap<String, Url>();
+		for (Url url : loaded) {
+			if (url != null) {
+				found.put(url.getShortUrl(), url);
+			}
+		}
+		List<Url> urls = new ArrayList<Url>(shortUrls.size());
+		for (String shortUrl : shortUrls) {
+			urls.add(found.get(shortUrl));
+		}
+		int falsePositives = candidates.size() - found.size();
+		for (int i = 0; i < falsePositives; i++) {
+			urlKeyFilter.onFalsePositive();
+		}
+		return urls;
+	}
+
+	private void added(String shortUrl) {
+		urlKeyFilter.add(shortUrl);
+		creationPublisher.accept(shortUrl);
+	}
+
+	private void added(List<Url> urls) {
+		if (urls.isEmpty()) {
+			return;
+		}
+		StringJoiner message = new StringJoiner(RedisKeys.KEY_SEPARATOR);
+		for (Url url : urls) {
+			urlKeyFilter.add(url.getShortUrl());
+			message.add(url.getShortUrl());
+		}
+		creationPublisher.accept(message.toString());
+	}
+
+}
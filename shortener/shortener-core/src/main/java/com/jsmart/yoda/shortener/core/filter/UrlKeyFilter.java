@@ -0,0 +1,217 @@
+package com.jsmart.yoda.shortener.core.filter;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.core.model.KeyFilterMetrics;
+import com.jsmart.yoda.shortener.core.support.ScalableBloomFilter;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Scalable Bloom filter of all stored short urls, which answers most
+ *         lookups of unknown keys without touching storage.
+ * 
+ *         Bloom filters can't forget, so removed keys stay in the filter until
+ *         the next rebuild from storage. Rebuild fills a fresh filter off to
+ *         the side while keys added meanwhile go to both filters, then swaps
+ *         them. Adds and the swap are serialized, so a key added during the
+ *         swap can't end up in the discarded filter only.
+ *
+ *         Keys created by other nodes arrive as pub/sub messages, which are
+ *         lost while subscription is down. Filter answer "not stored" is not
+ *         trusted for settle window after a rebuild, nor after subscription
+ *         is restored until a rebuild started after that completes; lookups
+ *         go to storage meanwhile.
+ */
+public class UrlKeyFilter {
+
+	private static final Logger log = Logger.getLogger(UrlKeyFilter.class);
+
+	private final long initialCapacity;
+	private final double falsePositiveRate;
+
+	private volatile ScalableBloomFilter filter;
+	private volatile ScalableBloomFilter building;
+	private volatile boolean ready;
+
+	private final long settleMillis;
+	private final Object swapLock = new Object();
+	// "not stored" answers are trusted from this moment on
+	private volatile long trustedFrom;
+	private long resubscriptions;
+
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder passed = new LongAdder();
+	private final LongAdder falsePositives = new LongAdder();
+	private final AtomicLong rebuilds = new AtomicLong();
+	private volatile long lastRebuildMillis;
+
+	private volatile ScheduledExecutorService scheduler;
+	private volatile Runnable loadTask;
+
+	public UrlKeyFilter(long initialCapacity, double falsePositiveRate) {
+		this(initialCapacity, falsePositiveRate, 0);
+	}
+
+	/**
+	 * @param settleMillis
+	 *            milliseconds after rebuild during which lookups rejected by
+	 *            filter are still sent to storage.
+	 */
+	public UrlKeyFilter(long initialCapacity, double falsePositiveRate, long settleMillis) {
+		this.initialCapacity = initialCapacity;
+		this.falsePositiveRate = falsePositiveRate;
+		this.settleMillis = settleMillis;
+		this.filter = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+	}
+
+	/**
+	 * @param shortUrl
+	 *            key to look up.
+	 *
+	 * @return false if key is definitely not stored, true if storage has to be
+	 *         asked. Every key may exist until filter is loaded and settled.
+	 */
+	public boolean mightContain(String shortUrl) {
+		if (!ready || filter.mightContain(shortUrl) || System.currentTimeMillis() < trustedFrom) {
+			passed.increment();
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	public void add(String shortUrl) {
+		synchronized (swapLock) {
+			filter.put(shortUrl);
+			ScalableBloomFilter next = building;
+			if (next != null) {
+				next.put(shortUrl);
+			}
+		}
+	}
+
+	/**
+	 * This method records that a key let through by the filter wasn't found in
+	 * storage.
+	 */
+	public void onFalsePositive() {
+		falsePositives.increment();
+	}
+
+	/**
+	 * This method stops trusting filter until the next rebuild, which is
+	 * started at once, since creation messages may have been missed while
+	 * subscription was down.
+	 */
+	public void onResubscribed() {
+		synchronized (swapLock) {
+			resubscriptions++;
+			trustedFrom = Long.MAX_VALUE;
+		}
+		ScheduledExecutorService current = scheduler;
+		if (current != null) {
+			current.execute(loadTask);
+		}
+		log.warn("Creation messages may have been missed, short url filter is rebuilt");
+	}
+
+	/**
+	 * This method loads filter in background and schedules its periodic
+	 * rebuild.
+	 *
+	 * @param keySource
+	 *            iterates over all stored keys.
+	 *
+	 * @param rebuildIntervalSeconds
+	 *            period of rebuilds, 0 loads filter once.
+	 */
+	public synchronized void start(Consumer<Consumer<String>> keySource, long rebuildIntervalSeconds) {
+		if (scheduler != null) {
+			return;
+		}
+		ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "short-url-filter-loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// an escaping Error would silently cancel periodic rebuilds
+		loadTask = () -> {
+			try {
+				rebuild(keySource);
+			} catch (Throwable t) {
+				log.error("Unable to load short url filter: " + t, t);
+			}
+		};
+		scheduler = loader;
+		if (rebuildIntervalSeconds > 0) {
+			loader.scheduleWithFixedDelay(loadTask, 0, rebuildIntervalSeconds, TimeUnit.SECONDS);
+		} else {
+			loader.execute(loadTask);
+		}
+	}
+
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * This method loads all stored keys into a new filter and replaces the
+	 * current one with it.
+	 *
+	 * @param keySource
+	 *            iterates over all stored keys.
+	 */
+	public synchronized void rebuild(Consumer<Consumer<String>> keySource) {
+		long started = System.currentTimeMillis();
+		ScalableBloomFilter next = new ScalableBloomFilter(Math.max(initialCapacity, filter.getInsertions()),
+				falsePositiveRate);
+		long resubscribed;
+		synchronized (swapLock) {
+			building = next;
+			resubscribed = resubscriptions;
+		}
+		try {
+			keySource.accept(next::put);
+			synchronized (swapLock) {
+				filter = next;
+				ready = true;
+				if (resubscriptions == resubscribed) {
+					trustedFrom = System.currentTimeMillis() + settleMillis;
+				}
+			}
+		} finally {
+			synchronized (swapLock) {
+				building = null;
+			}
+		}
+		lastRebuildMillis = System.currentTimeMillis() - started;
+		rebuilds.incrementAndGet();
+		log.info("Short url filter loaded with " + next.getInsertions() + " keys in " + lastRebuildMillis + " ms");
+	}
+
+	public KeyFilterMetrics getMetrics() {
+		KeyFilterMetrics metrics = new KeyFilterMetrics();
+		ScalableBloomFilter current = filter;
+		metrics.setReady(ready);
+		metrics.setKeys(current.getInsertions());
+		metrics.setStages(current.getStages());
+		metrics.setRejected(rejected.sum());
+		metrics.setPassed(passed.sum());
+		metrics.setFalsePositives(falsePositives.sum());
+		metrics.setRebuilds(rebuilds.get());
+		metrics.setLastRebuildMillis(lastRebuildMillis);
+		return metrics;
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.jsmart.yoda.shortener.core.generator;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.core.model.GeneratorMetrics;
+import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorSettings;
+import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorType;
+import com.jsmart.yoda.shortener.core.support.Base62;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Generates random base62 short url keys. Keys are not guaranteed to be
+ *         unique, storage has to reject duplicates and report them back as
+ *         collisions.
+ * 
+ *         For uniformly random keys the probability of a collision equals the
+ *         share of taken keys, so collision rate smoothed over windows of
+ *         attempts is used as estimated occupancy of the current key length.
+ *         Once it crosses configured threshold keys grow by one character.
+ */
+public class RandomShortUrlGenerator implements ShortUrlGenerator {
+
+	static final int WINDOW = 100;
+
+	static final double SMOOTHING = 0.3;
+
+	private static final Logger log = Logger.getLogger(RandomShortUrlGenerator.class);
+
+	private final double maxOccupancy;
+	private final AtomicInteger length;
+
+	private final LongAdder attempts = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+	private final AtomicLong windowAttempts = new AtomicLong();
+	private final AtomicLong windowCollisions = new AtomicLong();
+	private volatile double estimatedOccupancy;
+
+	public RandomShortUrlGenerator(ShortUrlGeneratorSettings shortUrlGeneratorSettings) {
+		this.maxOccupancy = shortUrlGeneratorSettings.getRandomMaxOccupancy();
+		this.length = new AtomicInteger(shortUrlGeneratorSettings.getShortUrlLenght());
+		if (length.get() < 1 || length.get() > Base62.MAX_LENGTH) {
+			throw new IllegalArgumentException("Short url length must be between 1 and " + Base62.MAX_LENGTH);
+		}
+	}
+
+	@Override
+	public String next() {
+		int keyLength = length.get();
+		return Base62.encode(ThreadLocalRandom.current().nextLong(Base62.keyspace(keyLength)), keyLength);
+	}
+
+	@Override
+	public void onCreated(String shortUrl) {
+		record(shortUrl, false);
+	}
+
+	@Override
+	public void onCollision(String shortUrl) {
+		collisions.increment();
+		record(shortUrl, true);
+	}
+
+	public int getLength() {
+		return length.get();
+	}
+
+	@Override
+	public GeneratorMetrics getMetrics() {
+		GeneratorMetrics metrics = new GeneratorMetrics();
+		long attemptCount = attempts.sum();
+		long collisionCount = collisions.sum();
+		metrics.setGeneratorType(ShortUrlGeneratorType.RANDOM.name());
+		metrics.setKeyLength(length.get());
+		metrics.setAttempts(attemptCount);
+		metrics.setCollisions(collisionCount);
+		metrics.setCollisionRate(attemptCount == 0 ? 0 : (double) collisionCount / attemptCount);
+		metrics.setEstimatedOccupancy(estimatedOccupancy);
+		return metrics;
+	}
+
+	private void record(String shortUrl, boolean collision) {
+		attempts.increment();
+		if (shortUrl.length() != length.get()) {
+			// outcome of a key generated before length grew
+			return;
+		}
+		if (collision) {
+			windowCollisions.incrementAndGet();
+		}
+		if (windowAttempts.incrementAndGet() == WINDOW) {
+			closeWindow();
+		}
+	}
+
+	/**
+	 * This method folds finished window into occupancy estimate. Only the
+	 * thread which completed the window gets here.
+	 */
+	private synchronized void closeWindow() {
+		double rate = (double) windowCollisions.getAndSet(0) / WINDOW;
+		windowAttempts.set(0);
+		estimatedOccupancy = SMOOTHING * rate + (1 - SMOOTHING) * estimatedOccupancy;
+		if (estimatedOccupancy > maxOccupancy && length.get() < Base62.MAX_LENGTH) {
+			int grown = length.incrementAndGet();
+			log.info("Estimated keyspace occupancy " + estimatedOccupancy + " exceeds " + maxOccupancy
+					+ ", short url length grows to " + grown);
+			estimatedOccupancy = 0;
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.jsmart.yoda.shortener.core.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.jsmart.yoda.shortener.core.model.GeneratorMetrics;
+import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorType;
+import com.jsmart.yoda.shortener.core.support.Base62;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Generates collision-free short url keys from a cluster wide sequence.
+ *         Every node leases a block of sequence numbers with a single Redis
+ *         INCRBY and hands them out from memory without locking. Sequence
+ *         numbers are scrambled by a modular multiplication (a bijection on the
+ *         keyspace of the current length), so neighbouring keys do not look
+ *         alike, and encoded as base62.
+ */
+public class SequenceShortUrlGenerator implements ShortUrlGenerator {
+
+	/**
+	 * Multiplier coprime to 62, so that multiplication modulo 62^n is a
+	 * bijection for every n.
+	 */
+	static final long SCRAMBLE_MULTIPLIER = 1_580_030_173L;
+
+	private static final Logger log = Logger.getLogger(SequenceShortUrlGenerator.class);
+
+	private final RedisTemplate<String, String> redisTemplate;
+	private final String sequenceKey;
+	private final int blockSize;
+	private final int length;
+
+	private volatile Block block = new Block(0, 0);
+
+	private final LongAdder issued = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+
+	public SequenceShortUrlGenerator(RedisTemplate<String, String> redisTemplate, String sequenceKey, int blockSize,
+			int length) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Sequence block size must be positive");
+		}
+		if (length < 1 || length > Base62.MAX_LENGTH) {
+			throw new IllegalArgumentException("Short url length must be between 1 and " + Base62.MAX_LENGTH);
+		}
+		this.redisTemplate = redisTemplate;
+		this.sequenceKey = sequenceKey;
+		this.blockSize = blockSize;
+		this.length = length;
+	}
+
+	@Override
+	public String next() {
+		while (true) {
+			Block current = block;
+			long value = current.next();
+			if (value >= 0) {
+				issued.increment();
+				return encode(value);
+			}
+			lease(current);
+		}
+	}
+
+	/**
+	 * Batch larger than a block gets its own range of the sequence leased with
+	 * one INCRBY, smaller ones are served from the current block.
+	 */
+	@Override
+	public List<String> next(int count) {
+		if (count < blockSize) {
+			return ShortUrlGenerator.super.next(count);
+		}
+		Long end = redisTemplate.opsForValue().increment(sequenceKey, count);
+		List<String> keys = new ArrayList<String>(count);
+		for (long value = end - count; value < end; value++) {
+			keys.add(encode(value));
+		}
+		issued.add(count);
+		log.info("Leased sequence range [" + (end - count) + ", " + end + ") for batch");
+		return keys;
+	}
+
+	/**
+	 * Sequence keys can only collide with keys stored by other strategies
+	 * before.
+	 */
+	@Override
+	public void onCollision(String shortUrl) {
+		collisions.increment();
+	}
+
+	/**
+	 * Occupancy of sequence keys is exact: the share of keyspace below the
+	 * current block.
+	 */
+	@Override
+	public GeneratorMetrics getMetrics() {
+		GeneratorMetrics metrics = new GeneratorMetrics();
+		long attemptCount = issued.sum();
+		long collisionCount = collisions.sum();
+		long position = Math.max(0, block.end - 1);
+		int keyLength = encode(position).length();
+		metrics.setGeneratorType(ShortUrlGeneratorType.SEQUENCE.name());
+		metrics.setKeyLength(keyLength);
+		metrics.setAttempts(attemptCount);
+		metrics.setCollisions(collisionCount);
+		metrics.setCollisionRate(attemptCount == 0 ? 0 : (double) collisionCount / attemptCount);
+		metrics.setEstimatedOccupancy(keyLength > Base62.MAX_LENGTH ? 1 : (double) position / Base62.keyspace(keyLength));
+		return metrics;
+	}
+
+	/**
+	 * This method leases next block unless some other thread has already
+	 * replaced exhausted one.
+	 */
+	private synchronized void lease(Block exhausted) {
+		if (block != exhausted) {
+			return;
+		}
+		Long end = redisTemplate.opsForValue().increment(sequenceKey, blockSize);
+		block = new Block(end - blockSize, end);
+		log.info("Leased sequence block [" + (end - blockSize) + ", " + end + ")");
+	}
+
+	/**
+	 * This method maps sequence number onto key. Numbers that do not fit into
+	 * keyspace of configured length are encoded with longer keys, every length
+	 * having its own bijection, so keys never repeat.
+	 */
+	String encode(long value) {
+		int keyLength = length;
+		while (keyLength < Base62.MAX_LENGTH && value >= Base62.keyspace(keyLength)) {
+			keyLength++;
+		}
+		if (value >= Base62.keyspace(keyLength)) {
+			return Base62.encode(value, keyLength);
+		}
+		return Base62.encode(mulMod(value, SCRAMBLE_MULTIPLIER, Base62.keyspace(keyLength)), keyLength);
+	}
+
+	/**
+	 * Overflow safe (a * b) mod m for m below 2^62.
+	 */
+	static long mulMod(long a, long b, long m) {
+		long result = 0;
+		a %= m;
+		b %= m;
+		while (b > 0) {
+			if ((b & 1) == 1) {
+				result = (result + a) % m;
+			}
+			a = (a << 1) % m;
+			b >>= 1;
+		}
+		return result;
+	}
+
+	private static final class Block {
+
+		private final AtomicLong cursor;
+		private final long end;
+
+		private Block(long start, long end) {
+			this.cursor = new AtomicLong(start);
+			this.end = end;
+		}
+
+		/**
+		 * @return next sequence number of this block or -1 if block is
+		 *         exhausted.
+		 */
+		private long next() {
+			if (cursor.get() >= end) {
+				return -1;
+			}
+			long value = cursor.getAndIncrement();
+			return value < end ? value : -1;
+		}
+	}
+
+}
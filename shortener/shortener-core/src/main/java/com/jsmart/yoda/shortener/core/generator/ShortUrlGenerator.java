@@ -0,0 +1,71 @@
+package com.jsmart.yoda.shortener.core.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jsmart.yoda.shortener.core.model.GeneratorMetrics;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Strategy of short url (key) generation.
+ */
+public interface ShortUrlGenerator {
+
+	/**
+	 * This method returns next short url key. Implementations must be thread
+	 * safe.
+	 *
+	 * @return new short url key.
+	 */
+	public String next();
+
+	/**
+	 * This method returns batch of next short url keys.
+	 *
+	 * @param count
+	 *            amount of keys.
+	 *
+	 * @return list of new short url keys.
+	 */
+	public default List<String> next(int count) {
+		List<String> keys = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			keys.add(next());
+		}
+		return keys;
+	}
+
+	/**
+	 * This method is called when generated key was stored successfully.
+	 *
+	 * @param shortUrl
+	 *            stored key.
+	 */
+	public default void onCreated(String shortUrl) {
+	}
+
+	/**
+	 * This method is called when generated key was already taken.
+	 *
+	 * @param shortUrl
+	 *            rejected key.
+	 */
+	public default void onCollision(String shortUrl) {
+	}
+
+	/**
+	 * @return true if generated keys are unique by construction, so they may
+	 *         be stored without checking for a taken key.
+	 */
+	public default boolean isUnique() {
+		return false;
+	}
+
+	public default GeneratorMetrics getMetrics() {
+		GeneratorMetrics metrics = new GeneratorMetrics();
+		metrics.setGeneratorType(getClass().getSimpleName());
+		return metrics;
+	}
+
+}
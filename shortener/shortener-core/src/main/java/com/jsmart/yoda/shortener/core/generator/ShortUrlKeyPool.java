@@ -0,0 +1,184 @@
+package com.jsmart.yoda.shortener.core.generator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.core.model.KeyPoolMetrics;
+import com.jsmart.yoda.shortener.core.support.RingBuffer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Pool of pre-generated short url keys. A background thread fills a
+ *         lock-free ring buffer with keys that are already generated and
+ *         checked for availability, so creating an Url only has to pop a key
+ *         and write it. Pool is refilled up to its capacity every time its
+ *         depth drops to the low watermark.
+ *
+ *         Outcome of every availability check is reported to the generator,
+ *         so random keys grow as the keyspace fills even though creates
+ *         rarely hit a taken key. Keys served from the pool are not reported
+ *         once more when they are stored.
+ */
+public class ShortUrlKeyPool {
+
+	private static final Logger log = Logger.getLogger(ShortUrlKeyPool.class);
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final ShortUrlGenerator shortUrlGenerator;
+	private final Predicate<String> availability;
+	private final RingBuffer<String> keys;
+	private final int lowWatermark;
+
+	private final AtomicBoolean running = new AtomicBoolean();
+	private final AtomicBoolean refillRequested = new AtomicBoolean();
+	private volatile Thread refiller;
+
+	private final LongAdder served = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final AtomicLong refills = new AtomicLong();
+	private final AtomicLong totalRefillNanos = new AtomicLong();
+	private volatile long lastRefillNanos;
+	private volatile long maxRefillNanos;
+
+	/**
+	 * @param shortUrlGenerator
+	 *            source of keys.
+	 *
+	 * @param availability
+	 *            check whether generated key is still free, keys failing it
+	 *            are reported as collisions and dropped.
+	 *
+	 * @param capacity
+	 *            pool size.
+	 *
+	 * @param lowWatermark
+	 *            depth at which pool is refilled.
+	 */
+	public ShortUrlKeyPool(ShortUrlGenerator shortUrlGenerator, Predicate<String> availability, int capacity,
+			int lowWatermark) {
+		this.shortUrlGenerator = shortUrlGenerator;
+		this.availability = availability;
+		this.keys = new RingBuffer<>(capacity);
+		this.lowWatermark = Math.max(0, Math.min(lowWatermark, keys.capacity() - 1));
+	}
+
+	/**
+	 * This method starts background refill thread.
+	 */
+	public void start() {
+		if (running.compareAndSet(false, true)) {
+			Thread thread = new Thread(this::refillLoop, "short-url-key-pool");
+			thread.setDaemon(true);
+			refiller = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * This method stops background refill thread. Keys left in the pool are
+	 * dropped.
+	 */
+	public void close() {
+		if (running.compareAndSet(true, false)) {
+			Thread thread = refiller;
+			LockSupport.unpark(thread);
+			try {
+				thread.join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * This method takes pre-generated key from the pool.
+	 *
+	 * @return key or null if pool is drained, caller should then generate key
+	 *         itself.
+	 */
+	public String poll() {
+		String key = keys.poll();
+		if (key == null) {
+			misses.increment();
+		} else {
+			served.increment();
+		}
+		if (keys.size() <= lowWatermark && refillRequested.compareAndSet(false, true)) {
+			LockSupport.unpark(refiller);
+		}
+		return key;
+	}
+
+	/**
+	 * This method fills the pool up to its capacity.
+	 *
+	 * @return amount of keys added.
+	 */
+	public int refill() {
+		long started = System.nanoTime();
+		int added = 0;
+		while (keys.size() < keys.capacity()) {
+			String key = shortUrlGenerator.next();
+			if (!availability.test(key)) {
+				shortUrlGenerator.onCollision(key);
+				continue;
+			}
+			if (!keys.offer(key)) {
+				break;
+			}
+			shortUrlGenerator.onCreated(key);
+			added++;
+		}
+		long elapsed = System.nanoTime() - started;
+		refills.incrementAndGet();
+		totalRefillNanos.addAndGet(elapsed);
+		lastRefillNanos = elapsed;
+		if (elapsed > maxRefillNanos) {
+			maxRefillNanos = elapsed;
+		}
+		return added;
+	}
+
+	public KeyPoolMetrics getMetrics() {
+		KeyPoolMetrics metrics = new KeyPoolMetrics();
+		long refillCount = refills.get();
+		metrics.setDepth(keys.size());
+		metrics.setCapacity(keys.capacity());
+		metrics.setLowWatermark(lowWatermark);
+		metrics.setServed(served.sum());
+		metrics.setMisses(misses.sum());
+		metrics.setRefills(refillCount);
+		metrics.setLastRefillMicros(TimeUnit.NANOSECONDS.toMicros(lastRefillNanos));
+		metrics.setAverageRefillMicros(
+				refillCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalRefillNanos.get() / refillCount));
+		metrics.setMaxRefillMicros(TimeUnit.NANOSECONDS.toMicros(maxRefillNanos));
+		return metrics;
+	}
+
+	private void refillLoop() {
+		while (running.get()) {
+			if (keys.size() <= lowWatermark) {
+				try {
+					int added = refill();
+					log.debug("Short url key pool refilled with " + added + " keys");
+				} catch (RuntimeException re) {
+					log.error("Unable to refill short url key pool: " + re);
+					LockSupport.parkNanos(IDLE_PARK_NANOS);
+				}
+			}
+			refillRequested.set(false);
+			if (keys.size() > lowWatermark) {
+				LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+			}
+		}
+	}
+
+}
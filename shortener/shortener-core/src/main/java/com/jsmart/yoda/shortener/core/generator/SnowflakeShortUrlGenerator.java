@@ -0,0 +1,141 @@
+package com.jsmart.yoda.shortener.core.generator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.core.model.GeneratorMetrics;
+import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorType;
+import com.jsmart.yoda.shortener.core.support.Base62;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Generates unique short url keys without any shared state. Every key
+ *         is a number made of seconds since shortener epoch, id of the node and
+ *         a per second sequence, encoded as fixed width base62. As long as
+ *         every node has its own id keys never repeat, so they may be written
+ *         without a conditional SETNX.
+ * 
+ *         Width of keys depends on the layout only (9 characters for default
+ *         31 time, 8 node and 10 sequence bits), which keeps them apart from
+ *         shorter random and sequence keys.
+ */
+public class SnowflakeShortUrlGenerator implements ShortUrlGenerator {
+
+	/** 2026-01-01T00:00:00Z */
+	public static final long EPOCH_SECONDS = 1767225600L;
+
+	public static final int TIME_BITS = 31;
+
+	/** Largest clock step back the generator waits out instead of failing. */
+	static final long MAX_CLOCK_DRIFT_SECONDS = 5;
+
+	private static final Logger log = Logger.getLogger(SnowflakeShortUrlGenerator.class);
+
+	private final long nodeId;
+	private final int nodeBits;
+	private final int sequenceBits;
+	private final long maxSequence;
+	private final int width;
+	private final LongSupplier clock;
+
+	private long lastSecond = -1;
+	private long sequence;
+
+	private final LongAdder issued = new LongAdder();
+	private final LongAdder waits = new LongAdder();
+
+	public SnowflakeShortUrlGenerator(long nodeId, int nodeBits, int sequenceBits) {
+		this(nodeId, nodeBits, sequenceBits, System::currentTimeMillis);
+	}
+
+	/**
+	 * @param clock
+	 *            source of current time in milliseconds.
+	 */
+	public SnowflakeShortUrlGenerator(long nodeId, int nodeBits, int sequenceBits, LongSupplier clock) {
+		if (nodeBits < 0 || sequenceBits < 1 || TIME_BITS + nodeBits + sequenceBits > 62) {
+			throw new IllegalArgumentException("Illegal snowflake layout");
+		}
+		if (nodeId < 0 || nodeId >= (1L << nodeBits)) {
+			throw new IllegalArgumentException("Node id " + nodeId + " doesn't fit into " + nodeBits + " bits");
+		}
+		this.nodeId = nodeId;
+		this.nodeBits = nodeBits;
+		this.sequenceBits = sequenceBits;
+		this.maxSequence = (1L << sequenceBits) - 1;
+		this.width = Base62.encode((1L << (TIME_BITS + nodeBits + sequenceBits)) - 1, 1).length();
+		this.clock = clock;
+	}
+
+	@Override
+	public synchronized String next() {
+		long second = currentSecond();
+		if (second < lastSecond) {
+			if (lastSecond - second > MAX_CLOCK_DRIFT_SECONDS) {
+				throw new IllegalStateException("Clock moved back by " + (lastSecond - second) + " seconds");
+			}
+			second = waitFor(lastSecond);
+		}
+		if (second == lastSecond) {
+			if (sequence == maxSequence) {
+				second = waitFor(lastSecond + 1);
+				sequence = 0;
+			} else {
+				sequence++;
+			}
+		} else {
+			sequence = 0;
+		}
+		lastSecond = second;
+		issued.increment();
+		long value = (second << (nodeBits + sequenceBits)) | (nodeId << sequenceBits) | sequence;
+		return Base62.encode(value, width);
+	}
+
+	@Override
+	public boolean isUnique() {
+		return true;
+	}
+
+	@Override
+	public GeneratorMetrics getMetrics() {
+		GeneratorMetrics metrics = new GeneratorMetrics();
+		metrics.setGeneratorType(ShortUrlGeneratorType.SNOWFLAKE.name());
+		metrics.setKeyLength(width);
+		metrics.setAttempts(issued.sum());
+		metrics.setEstimatedOccupancy((double) Math.max(0, currentSecond()) / (1L << TIME_BITS));
+		return metrics;
+	}
+
+	/**
+	 * @return amount of times sequence was exhausted or clock went back and
+	 *         generator had to wait.
+	 */
+	public long getWaits() {
+		return waits.sum();
+	}
+
+	private long currentSecond() {
+		return TimeUnit.MILLISECONDS.toSeconds(clock.getAsLong()) - EPOCH_SECONDS;
+	}
+
+	private long waitFor(long second) {
+		waits.increment();
+		long current;
+		while ((current = currentSecond()) < second) {
+			try {
+				Thread.sleep(Math.max(1, 1000 - clock.getAsLong() % 1000));
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for next second", ie);
+			}
+		}
+		log.debug("Snowflake sequence exhausted, waited for second " + current);
+		return current;
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.jsmart.yoda.shortener.core.hotkey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.jsmart.yoda.shortener.core.model.HeavyHitter;
+import com.jsmart.yoda.shortener.core.support.CountMinSketch;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Streaming top-K of requested short urls. Every request is counted in
+ *         a Count-Min sketch, and a Space-Saving style candidate set keeps the
+ *         K keys with highest estimates: a key not yet tracked replaces the
+ *         weakest candidate once its estimate beats it.
+ * 
+ *         Requests to keys already tracked, i.e. to hot keys, only touch the
+ *         sketch and a read of the candidate map, so the hottest keys never
+ *         contend on a lock.
+ */
+public class HeavyHitterTracker {
+
+	static final int SKETCH_DEPTH = 4;
+	static final int SKETCH_WIDTH_PER_CANDIDATE = 256;
+
+	private final int capacity;
+	private final CountMinSketch sketch;
+	private final Map<String, Boolean> candidates;
+
+	// estimate a key has to beat to become a candidate, 0 until set is full
+	private volatile long admissionThreshold;
+
+	/**
+	 * @param capacity
+	 *            amount of heavy hitters to track.
+	 */
+	public HeavyHitterTracker(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Heavy hitter capacity must be positive");
+		}
+		this.capacity = capacity;
+		this.sketch = new CountMinSketch(SKETCH_DEPTH, capacity * SKETCH_WIDTH_PER_CANDIDATE);
+		this.candidates = new ConcurrentHashMap<String, Boolean>(capacity * 2);
+	}
+
+	/**
+	 * This method counts one request of short url.
+	 *
+	 * @param shortUrl
+	 *            requested key.
+	 */
+	public void record(String shortUrl) {
+		long estimate = sketch.add(shortUrl);
+		if (estimate > admissionThreshold && !candidates.containsKey(shortUrl)) {
+			admit(shortUrl, estimate);
+		}
+	}
+
+	/**
+	 * @return tracked keys with their estimated counts, most requested first.
+	 */
+	public List<HeavyHitter> getHeavyHitters() {
+		List<HeavyHitter> heavyHitters = new ArrayList<HeavyHitter>(capacity);
+		for (String shortUrl : candidates.keySet()) {
+			heavyHitters.add(new HeavyHitter(shortUrl, sketch.estimate(shortUrl)));
+		}
+		Collections.sort(heavyHitters, Comparator.comparingLong(HeavyHitter::getCount).reversed());
+		return heavyHitters;
+	}
+
+	/**
+	 * This method halves all counts, so that keys which cooled down are
+	 * replaced by currently hot ones.
+	 */
+	public synchronized void decay() {
+		sketch.halve();
+		admissionThreshold = candidates.size() < capacity ? 0 : sketch.estimate(weakest());
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	private synchronized void admit(String shortUrl, long estimate) {
+		if (candidates.containsKey(shortUrl)) {
+			return;
+		}
+		if (candidates.size() < capacity) {
+			candidates.put(shortUrl, Boolean.TRUE);
+		} else {
+			String weakest = weakest();
+			long weakestCount = sketch.estimate(weakest);
+			if (weakestCount >= estimate) {
+				admissionThreshold = weakestCount;
+				return;
+			}
+			candidates.remove(weakest);
+			candidates.put(shortUrl, Boolean.TRUE);
+		}
+		if (candidates.size() == capacity) {
+			admissionThreshold = sketch.estimate(weakest());
+		}
+	}
+
+	private String weakest() {
+		String weakest = null;
+		long weakestCount = Long.MAX_VALUE;
+		for (String candidate : candidates.keySet()) {
+			long count = sketch.estimate(candidate);
+			if (count < weakestCount) {
+				weakest = candidate;
+				weakestCount = count;
+			}
+		}
+		return weakest;
+	}
+
+}
@@ -0,0 +1,195 @@
+package com.jsmart.yoda.shortener.core.hotkey;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.expiry.UrlExpiryWheel;
+import com.jsmart.yoda.shortener.core.model.HeavyHitter;
+import com.jsmart.yoda.shortener.core.model.HotKeyMetrics;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Keeps Urls of heavy hitters in process memory, so that redirects of
+ *         viral links are served by every application node instead of
+ *         hammering the one Redis shard which owns the key.
+ * 
+ *         Pinned Urls are reloaded from storage on every refresh, which bounds
+ *         staleness of a change made on another node by refresh interval.
+ *         Changes made through this node unpin the key at once, Urls which
+ *         expire by time are unpinned at their expiration time by
+ *         UrlExpiryWheel, if it is set.
+ */
+public class HotUrlPinner {
+
+	private static final Logger log = Logger.getLogger(HotUrlPinner.class);
+
+	private final HeavyHitterTracker tracker;
+	private final long minHits;
+
+	// replaced as a whole, so that lookups never lock
+	private volatile Map<String, Url> pinned = Collections.emptyMap();
+
+	private final LongAdder pinnedHits = new LongAdder();
+	private final AtomicLong refreshes = new AtomicLong();
+	private volatile long lastRefreshMillis;
+
+	private ScheduledExecutorService scheduler;
+
+	private UrlExpiryWheel urlExpiryWheel;
+
+	/**
+	 * @param tracker
+	 *            top-K of requested short urls.
+	 *
+	 * @param minHits
+	 *            estimated amount of requests since previous refresh (older
+	 *            ones weigh half per refresh) which makes heavy hitter pinned.
+	 */
+	public HotUrlPinner(HeavyHitterTracker tracker, long minHits) {
+		this.tracker = tracker;
+		this.minHits = minHits;
+	}
+
+	/**
+	 * This method counts request of short url and returns its pinned Url.
+	 *
+	 * @param shortUrl
+	 *            requested key.
+	 *
+	 * @return pinned Url or null if key isn't hot.
+	 */
+	public Url get(String shortUrl) {
+		tracker.record(shortUrl);
+		Url url = pinned.get(shortUrl);
+		if (url != null) {
+			pinnedHits.increment();
+		}
+		return url;
+	}
+
+	/**
+	 * This method makes pinner unpin expiring Urls at their expiration time.
+	 */
+	public void setUrlExpiryWheel(UrlExpiryWheel urlExpiryWheel) {
+		this.urlExpiryWheel = urlExpiryWheel;
+		urlExpiryWheel.addListener(this::expire);
+	}
+
+	/**
+	 * This method unpins Url if its expiration time has come.
+	 */
+	public void expire(String shortUrl) {
+		Url url = pinned.get(shortUrl);
+		if (url != null && url.isExpiredAt(System.currentTimeMillis())) {
+			unpin(shortUrl);
+		}
+	}
+
+	public synchronized void unpin(String shortUrl) {
+		if (pinned.containsKey(shortUrl)) {
+			Map<String, Url> next = new HashMap<String, Url>(pinned);
+			next.remove(shortUrl);
+			pinned = next;
+		}
+	}
+
+	public synchronized void clear() {
+		pinned = Collections.emptyMap();
+	}
+
+	/**
+	 * This method schedules periodic refresh of pinned Urls.
+	 *
+	 * @param loader
+	 *            reads Url from storage, returns null for missing key.
+	 *
+	 * @param refreshIntervalSeconds
+	 *            period of refreshes.
+	 */
+	public synchronized void start(Function<String, Url> loader, long refreshIntervalSeconds) {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "hot-url-pinner");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				refresh(loader);
+			} catch (RuntimeException re) {
+				log.error("Unable to refresh hot urls: " + re);
+			}
+		}, refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+	}
+
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * This method pins current heavy hitters, reloading their Urls, unpins
+	 * keys which cooled down and ages request counts.
+	 *
+	 * @param loader
+	 *            reads Url from storage, returns null for missing key.
+	 */
+	public void refresh(Function<String, Url> loader) {
+		Map<String, Url> next = new HashMap<String, Url>();
+		for (HeavyHitter heavyHitter : tracker.getHeavyHitters()) {
+			if (heavyHitter.getCount() < minHits) {
+				break;
+			}
+			Url url = loader.apply(heavyHitter.getShortUrl());
+			if (url != null) {
+				next.put(heavyHitter.getShortUrl(), url);
+				if (urlExpiryWheel != null) {
+					urlExpiryWheel.schedule(url);
+				}
+			}
+		}
+		synchronized (this) {
+			if (!next.keySet().equals(pinned.keySet())) {
+				log.info("Hot urls pinned: " + next.keySet());
+			}
+			pinned = next;
+		}
+		tracker.decay();
+		refreshes.incrementAndGet();
+		lastRefreshMillis = System.currentTimeMillis();
+	}
+
+	public HotKeyMetrics getMetrics() {
+		Map<String, Url> current = pinned;
+		List<HeavyHitter> heavyHitters = tracker.getHeavyHitters();
+		for (HeavyHitter heavyHitter : heavyHitters) {
+			heavyHitter.setPinned(current.containsKey(heavyHitter.getShortUrl()));
+		}
+		HotKeyMetrics metrics = new HotKeyMetrics();
+		metrics.setCapacity(tracker.getCapacity());
+		metrics.setMinHits(minHits);
+		metrics.setPinned(current.size());
+		metrics.setPinnedHits(pinnedHits.sum());
+		metrics.setRefreshes(refreshes.get());
+		metrics.setLastRefreshMillis(lastRefreshMillis);
+		metrics.setHeavyHitters(heavyHitters);
+		return metrics;
+	}
+
+}
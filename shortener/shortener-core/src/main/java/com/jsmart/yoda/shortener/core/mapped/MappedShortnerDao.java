@@ -0,0 +1,218 @@
+package com.jsmart.yoda.shortener.core.mapped;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlPage;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         ShortnerDao keeping Urls in embedded memory-mapped store of the
+ *         node, for deployments without Redis. Store has no expiration, so
+ *         expiring Urls are rejected.
+ *
+ * @see MappedUrlStore
+ */
+public class MappedShortnerDao implements ShortnerDao {
+
+	/** Urls read per step of streams. */
+	static final int STREAM_BATCH = 1000;
+
+	private static final Pattern CURSOR_PATTERN = Pattern.compile("\\d{1,9}");
+
+	private final MappedUrlStore store;
+
+	public MappedShortnerDao(MappedUrlStore store) {
+		this.store = store;
+	}
+
+	public MappedUrlStore getStore() {
+		return store;
+	}
+
+	@Override
+	public Url get(String shortUrl) {
+		return store.get(shortUrl);
+	}
+
+	/**
+	 * This method fetches all stored Urls.
+	 *
+	 * @return list of stored Urls.
+	 */
+	@Override
+	public List<Url> getAll() {
+		try (Stream<Url> urls = stream()) {
+			return urls.collect(Collectors.toList());
+		}
+	}
+
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		return store.getAll(shortUrls);
+	}
+
+	/**
+	 * This method streams all stored Urls page by page, store is locked only
+	 * while a page is read.
+	 *
+	 * @return stream of stored Urls.
+	 */
+	@Override
+	public Stream<Url> stream() {
+		Iterator<Url> iterator = new Iterator<Url>() {
+
+			private final List<Url> page = new ArrayList<Url>(STREAM_BATCH);
+			private int index;
+			private int cursor = -1;
+
+			@Override
+			public boolean hasNext() {
+				while (index == page.size() && cursor != 0) {
+					page.clear();
+					index = 0;
+					cursor = store.page(Math.max(cursor, 0), STREAM_BATCH, page);
+				}
+				return index < page.size();
+			}
+
+			@Override
+			public Url next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return page.get(index++);
+			}
+		};
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL | Spliterator.DISTINCT), false);
+	}
+
+	/**
+	 * This method fetches one page of stored Urls.
+	 *
+	 * @param cursor
+	 *            cursor returned with previous page, "0" for the first page.
+	 *
+	 * @param limit
+	 *            maximum amount of Urls in the page.
+	 *
+	 * @return page of Urls with cursor of the next page, "0" if there are no
+	 *         more pages.
+	 */
+	@Override
+	public UrlPage getPage(String cursor, int limit) {
+		if (!CURSOR_PATTERN.matcher(cursor).matches()) {
+			throw new IllegalArgumentException("Illegal cursor " + cursor);
+		}
+		List<Url> urls = new ArrayList<Url>();
+		int next = store.page(Integer.parseInt(cursor), Math.max(1, limit), urls);
+		return new UrlPage(urls, String.valueOf(next));
+	}
+
+	@Override
+	public void forEachKey(Consumer<String> action) {
+		try (Stream<Url> urls = stream()) {
+			urls.forEach((url) -> action.accept(url.getShortUrl()));
+		}
+	}
+
+	@Override
+	public boolean create(Url url) {
+		checkPermanent(url);
+		return store.create(url);
+	}
+
+	@Override
+	public void save(Url url) {
+		checkPermanent(url);
+		store.save(url);
+	}
+
+	@Override
+	public List<Boolean> createAll(List<Url> urls) {
+		urls.forEach(MappedShortnerDao::checkPermanent);
+		return store.createAll(urls);
+	}
+
+	@Override
+	public void saveAll(List<Url> urls) {
+		urls.forEach(MappedShortnerDao::checkPermanent);
+		store.saveAll(urls);
+	}
+
+	@Override
+	public Url update(String shortUrl, String longUrl) {
+		store.save(new Url(shortUrl, longUrl));
+		return store.get(shortUrl);
+	}
+
+	@Override
+	public void remove(String shortUrl) {
+		store.remove(shortUrl);
+	}
+
+	@Override
+	public Url updateIfPresent(String shortUrl, String longUrl) {
+		return store.replace(new Url(shortUrl, longUrl));
+	}
+
+	@Override
+	public Url removeIfPresent(String shortUrl) {
+		return store.removeAndGet(shortUrl);
+	}
+
+	/**
+	 * @throws UnsupportedOperationException
+	 *             always, mapped storage keeps no click limited Urls.
+	 */
+	@Override
+	public long click(String shortUrl) {
+		throw new UnsupportedOperationException("Mapped storage keeps no expiring Urls");
+	}
+
+	@Override
+	public boolean removeAll() {
+		return store.clear() > 0;
+	}
+
+	/**
+	 * This method removes all Urls at once by switching store to an empty
+	 * log.
+	 *
+	 * @param progress
+	 *            receives amount of removed Urls.
+	 *
+	 * @return amount of removed Urls.
+	 */
+	@Override
+	public long removeAll(LongConsumer progress) {
+		long removed = store.clear();
+		progress.accept(removed);
+		return removed;
+	}
+
+	public void close() {
+		store.close();
+	}
+
+	private static void checkPermanent(Url url) {
+		if (url.expires()) {
+			throw new UnsupportedOperationException("Mapped storage keeps no expiring Urls");
+		}
+	}
+
+}
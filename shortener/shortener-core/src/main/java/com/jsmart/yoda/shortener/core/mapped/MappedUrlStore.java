@@ -0,0 +1,845 @@
+package com.jsmart.yoda.shortener.core.mapped;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.support.Hashing;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Embedded Url storage in two memory-mapped files of one directory.
+ *         Every change is appended as CRC checked record to the log urls.dat.
+ *         The index urls.idx is an open-addressing table of 8 byte slots, each
+ *         holding 32 bit hash of short url and log offset of its latest
+ *         record, so lookup is a few memory reads without any network hop.
+ *
+ *         Index is trusted at open only if it was closed cleanly together with
+ *         the same log generation, then start is a matter of mapping two
+ *         files. Otherwise index is rebuilt by replaying the log up to the
+ *         first torn or corrupted record, whatever follows it is dropped.
+ *         Replaced and removed records stay in the log as garbage until
+ *         compaction rewrites live records into a new log generation.
+ *
+ *         Readers share a lock. Writers are serialized, compaction blocks them
+ *         while copying, readers wait only for the swap of files. Directory is
+ *         locked by one process at a time.
+ */
+public class MappedUrlStore implements Closeable {
+
+	private static final String DATA_FILE = "urls.dat";
+	private static final String INDEX_FILE = "urls.idx";
+	private static final String LOCK_FILE = "urls.lock";
+	private static final String NEXT_SUFFIX = ".next";
+
+	private static final long DATA_MAGIC = 0x594f44414c4f4731L;
+	private static final long INDEX_MAGIC = 0x594f444149445831L;
+
+	// log header: magic, generation
+	private static final int DATA_HEADER = 16;
+
+	// index header: magic, generation, clean flag, capacity, log end, size,
+	// live bytes
+	private static final int INDEX_HEADER = 48;
+	private static final int GENERATION = 8;
+	private static final int CLEAN = 16;
+	private static final int CAPACITY = 20;
+	private static final int END = 24;
+	private static final int SIZE = 32;
+	private static final int LIVE_BYTES = 40;
+
+	private static final int SLOT = 8;
+
+	private static final byte PUT = 1;
+	private static final byte DELETE = 2;
+
+	// type, key length and value length precede key and value, CRC32 follows
+	private static final int RECORD_HEADER = 7;
+	private static final int RECORD_TRAILER = 4;
+
+	private static final int MIN_DATA_CAPACITY = 1 << 20;
+	private static final int MIN_INDEX_CAPACITY = 1 << 10;
+	private static final int MAX_INDEX_CAPACITY = 1 << 27;
+	private static final double MAX_LOAD = 0.7;
+	private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private static final Logger log = Logger.getLogger(MappedUrlStore.class);
+
+	private final Path directory;
+	private final FileChannel lockChannel;
+
+	// serializes writers and compaction, taken before the lock
+	private final Object writeMutex = new Object();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private FileChannel dataChannel;
+	private MappedByteBuffer data;
+	private MappedByteBuffer index;
+	private long generation;
+	private int capacity;
+	private int end;
+	private int size;
+	private long liveBytes;
+	private boolean closed;
+
+	private ScheduledExecutorService scheduler;
+
+	private MappedUrlStore(Path directory, FileChannel lockChannel) {
+		this.directory = directory;
+		this.lockChannel = lockChannel;
+	}
+
+	/**
+	 * This method opens store in the directory, creating it if necessary.
+	 *
+	 * @param directory
+	 *            directory of store files.
+	 *
+	 * @return opened store, to be closed after use.
+	 *
+	 * @throws IOException
+	 *             if files can't be mapped or directory is locked by another
+	 *             process.
+	 */
+	public static MappedUrlStore open(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), CREATE, WRITE);
+		try {
+			if (lockChannel.tryLock() == null) {
+				throw new IOException("Url store " + directory + " is used by another process");
+			}
+			MappedUrlStore store = new MappedUrlStore(directory, lockChannel);
+			store.load();
+			return store;
+		} catch (IOException | RuntimeException e) {
+			lockChannel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * This method schedules periodic flush of the log to disk and compaction
+	 * of the log when share of garbage in it reaches the ratio.
+	 *
+	 * @param syncIntervalMillis
+	 *            period of maintenance, bounds changes lost on power failure.
+	 *
+	 * @param compactionGarbageRatio
+	 *            share of replaced and removed records which triggers
+	 *            compaction.
+	 */
+	public synchronized void start(long syncIntervalMillis, double compactionGarbageRatio) {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "mapped-url-store");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				sync();
+				if (logSize() >= MIN_COMPACTION_BYTES && garbageRatio() >= compactionGarbageRatio) {
+					compact();
+				}
+			} catch (RuntimeException re) {
+				log.error("Unable to maintain url store " + directory + ": " + re);
+			}
+		}, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public Url get(String shortUrl) {
+		byte[] key = bytes(shortUrl);
+		return read(() -> {
+			int slot = find(key, hash(key));
+			return slot < 0 ? null : new Url(shortUrl, value(offset(slot)));
+		});
+	}
+
+	/**
+	 * This method fetches Urls of many short urls under one lock.
+	 *
+	 * @return Urls in the order of keys, null for not found ones.
+	 */
+	public List<Url> getAll(List<String> shortUrls) {
+		return read(() -> shortUrls.stream().map((shortUrl) -> {
+			byte[] key = bytes(shortUrl);
+			int slot = find(key, hash(key));
+			return slot < 0 ? null : new Url(shortUrl, value(offset(slot)));
+		}).collect(Collectors.toList()));
+	}
+
+	/**
+	 * This method reads Urls of index slots from the cursor on. Urls stored
+	 * or removed while paging may be missed or returned twice.
+	 *
+	 * @param cursor
+	 *            slot to start from, 0 for the first page.
+	 *
+	 * @param limit
+	 *            maximum amount of Urls to read.
+	 *
+	 * @param urls
+	 *            receives read Urls.
+	 *
+	 * @return cursor of the next page, 0 if there are no more pages.
+	 */
+	public int page(int cursor, int limit, List<Url> urls) {
+		return read(() -> {
+			int slot = cursor;
+			for (int read = 0; slot < capacity && read < limit; slot++) {
+				long entry = slot(slot);
+				if (entry != 0) {
+					urls.add(new Url(key((int) entry), value((int) entry)));
+					read++;
+				}
+			}
+			return slot >= capacity ? 0 : slot;
+		});
+	}
+
+	/**
+	 * @return true if Url was stored, false if short url was taken.
+	 */
+	public boolean create(Url url) {
+		return write(() -> put(url, false));
+	}
+
+	public void save(Url url) {
+		write(() -> put(url, true));
+	}
+
+	/**
+	 * @return for every Url in the same order true if it was stored or false
+	 *         if its short url was taken.
+	 */
+	public List<Boolean> createAll(List<Url> urls) {
+		return write(() -> urls.stream().map((url) -> put(url, false)).collect(Collectors.toList()));
+	}
+
+	public void saveAll(List<Url> urls) {
+		write(() -> {
+			urls.forEach((url) -> put(url, true));
+			return null;
+		});
+	}
+
+	/**
+	 * @return previous Url or null if short url wasn't stored, then nothing
+	 *         is written.
+	 */
+	public Url replace(Url url) {
+		return write(() -> {
+			byte[] key = bytes(url.getShortUrl());
+			int hash = hash(key);
+			int slot = find(key, hash);
+			if (slot < 0) {
+				return null;
+			}
+			Url previous = new Url(url.getShortUrl(), value(offset(slot)));
+			link(slot, hash, append(PUT, key, bytes(url.getLongUrl())));
+			return previous;
+		});
+	}
+
+	/**
+	 * @return true if Url was removed, false if it wasn't stored.
+	 */
+	public boolean remove(String shortUrl) {
+		return write(() -> delete(shortUrl)) != null;
+	}
+
+	/**
+	 * @return removed Url or null if it wasn't stored.
+	 */
+	public Url removeAndGet(String shortUrl) {
+		return write(() -> delete(shortUrl));
+	}
+
+	/**
+	 * This method removes all Urls by switching to a new empty log
+	 * generation.
+	 *
+	 * @return amount of removed Urls.
+	 */
+	public long clear() {
+		return rewrite(false);
+	}
+
+	/**
+	 * This method rewrites live records into a new log generation, dropping
+	 * replaced and removed ones.
+	 */
+	public void compact() {
+		rewrite(true);
+	}
+
+	/**
+	 * This method flushes changes of the log to disk. Changes survive crash
+	 * of the process without it, as they are in memory of operating system.
+	 */
+	public void sync() {
+		read(() -> {
+			data.force();
+			return null;
+		});
+	}
+
+	public int size() {
+		return read(() -> size);
+	}
+
+	/**
+	 * @return bytes of the log in use, including its header.
+	 */
+	public long logSize() {
+		return read(() -> (long) end);
+	}
+
+	/**
+	 * @return share of log bytes taken by replaced and removed records.
+	 */
+	public double garbageRatio() {
+		return read(() -> end == DATA_HEADER ? 0 : 1 - (double) liveBytes / (end - DATA_HEADER));
+	}
+
+	/**
+	 * This method stops maintenance, flushes both files and marks index
+	 * clean, so that next open skips replaying the log.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (scheduler != null) {
+				scheduler.shutdown();
+				try {
+					scheduler.awaitTermination(1, TimeUnit.MINUTES);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+				scheduler = null;
+			}
+		}
+		synchronized (writeMutex) {
+			lock.writeLock().lock();
+			try {
+				if (closed) {
+					return;
+				}
+				data.force();
+				index.putLong(END, end);
+				index.putLong(SIZE, size);
+				index.putLong(LIVE_BYTES, liveBytes);
+				index.force();
+				// flag goes to disk only after the slots it vouches for
+				index.putInt(CLEAN, 1);
+				index.force();
+				closed = true;
+				dataChannel.close();
+				lockChannel.close();
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	private void load() throws IOException {
+		Files.deleteIfExists(next(DATA_FILE));
+		Files.deleteIfExists(next(INDEX_FILE));
+		Path dataPath = directory.resolve(DATA_FILE);
+		dataChannel = FileChannel.open(dataPath, CREATE, READ, WRITE);
+		if (dataChannel.size() < DATA_HEADER) {
+			generation = ThreadLocalRandom.current().nextLong();
+			data = newLog(dataChannel, MIN_DATA_CAPACITY, generation);
+			end = DATA_HEADER;
+			index = newIndex(directory.resolve(INDEX_FILE), MIN_INDEX_CAPACITY, generation);
+			capacity = MIN_INDEX_CAPACITY;
+		} else {
+			if (dataChannel.size() > Integer.MAX_VALUE) {
+				throw new IOException(dataPath + " is too large to be mapped");
+			}
+			data = dataChannel.map(MapMode.READ_WRITE, 0, Math.max(dataChannel.size(), MIN_DATA_CAPACITY));
+			if (data.getLong(0) != DATA_MAGIC) {
+				throw new IOException(dataPath + " is not a url log");
+			}
+			generation = data.getLong(GENERATION);
+			if (!loadIndex()) {
+				recover();
+			}
+		}
+		// from now on index on disk may run ahead of or behind the log
+		index.putInt(CLEAN, 0);
+		index.force();
+	}
+
+	private boolean loadIndex() throws IOException {
+		Path indexPath = directory.resolve(INDEX_FILE);
+		if (!Files.exists(indexPath) || Files.size(indexPath) < INDEX_HEADER) {
+			return false;
+		}
+		MappedByteBuffer mapped = map(indexPath, Files.size(indexPath));
+		int slots = mapped.getInt(CAPACITY);
+		long mappedEnd = mapped.getLong(END);
+		if (mapped.getLong(0) != INDEX_MAGIC || mapped.getLong(GENERATION) != generation
+				|| mapped.getInt(CLEAN) != 1 || slots < MIN_INDEX_CAPACITY || Integer.bitCount(slots) != 1
+				|| mapped.capacity() != INDEX_HEADER + (long) slots * SLOT || mappedEnd < DATA_HEADER
+				|| mappedEnd > data.capacity()) {
+			return false;
+		}
+		index = mapped;
+		capacity = slots;
+		end = (int) mappedEnd;
+		size = (int) mapped.getLong(SIZE);
+		liveBytes = mapped.getLong(LIVE_BYTES);
+		return true;
+	}
+
+	private void recover() throws IOException {
+		log.warn("Url store " + directory + " was not closed cleanly, replaying its log");
+		index = newIndex(directory.resolve(INDEX_FILE), MIN_INDEX_CAPACITY, generation);
+		capacity = MIN_INDEX_CAPACITY;
+		int offset = DATA_HEADER;
+		int length;
+		while ((length = validLength(offset)) > 0) {
+			byte[] key = new byte[keyLength(offset)];
+			bytes(offset + RECORD_HEADER, key);
+			int hash = hash(key);
+			int slot = find(key, hash);
+			if (data.get(offset) == PUT) {
+				link(slot, hash, offset);
+			} else if (slot >= 0) {
+				unlink(slot);
+			}
+			offset += length;
+		}
+		end = offset;
+		// stale records behind a torn one must never be replayed after next
+		// appends fill the gap
+		ByteBuffer tail = data.duplicate();
+		tail.position(end);
+		byte[] zeros = new byte[1 << 16];
+		while (tail.hasRemaining()) {
+			tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+		}
+		log.info("Url store " + directory + " recovered " + size + " Urls from " + end + " log bytes");
+	}
+
+	private long rewrite(boolean keepLive) {
+		synchronized (writeMutex) {
+			Path dataNext = next(DATA_FILE);
+			Path indexNext = next(INDEX_FILE);
+			long nextGeneration = ThreadLocalRandom.current().nextLong();
+			FileChannel nextChannel = null;
+			try {
+				Files.deleteIfExists(dataNext);
+				nextChannel = FileChannel.open(dataNext, CREATE, READ, WRITE);
+				MappedByteBuffer nextData;
+				MappedByteBuffer nextIndex;
+				int nextCapacity;
+				int nextEnd = DATA_HEADER;
+				int nextSize;
+				int removed;
+				lock.readLock().lock();
+				try {
+					checkOpen();
+					nextSize = keepLive ? size : 0;
+					removed = size - nextSize;
+					nextCapacity = indexCapacity(nextSize);
+					nextData = newLog(nextChannel, (int) Math.max(MIN_DATA_CAPACITY, DATA_HEADER + (keepLive ? liveBytes : 0)),
+							nextGeneration);
+					nextIndex = newIndex(indexNext, nextCapacity, nextGeneration);
+					ByteBuffer target = nextData.duplicate();
+					target.position(DATA_HEADER);
+					for (int slot = 0; keepLive && slot < capacity; slot++) {
+						long entry = slot(slot);
+						if (entry != 0) {
+							int offset = (int) entry;
+							ByteBuffer record = data.duplicate();
+							record.limit(offset + recordLength(offset)).position(offset);
+							place(nextIndex, nextCapacity, (int) (entry >>> 32), target.position());
+							target.put(record);
+						}
+					}
+					nextEnd = target.position();
+				} finally {
+					lock.readLock().unlock();
+				}
+				nextData.force();
+				nextIndex.force();
+				// log of new generation invalidates old index, so a crash between
+				// moves ends with replaying new log
+				Files.move(dataNext, directory.resolve(DATA_FILE), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+				Files.move(indexNext, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+				syncDirectory();
+				lock.writeLock().lock();
+				try {
+					log.info("Url store " + directory + " rewrote " + (end - DATA_HEADER) + " log bytes into "
+							+ (nextEnd - DATA_HEADER));
+					dataChannel.close();
+					dataChannel = nextChannel;
+					nextChannel = null;
+					data = nextData;
+					index = nextIndex;
+					generation = nextGeneration;
+					capacity = nextCapacity;
+					end = nextEnd;
+					size = nextSize;
+					liveBytes = nextEnd - DATA_HEADER;
+				} finally {
+					lock.writeLock().unlock();
+				}
+				return removed;
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			} finally {
+				if (nextChannel != null) {
+					try {
+						nextChannel.close();
+					} catch (IOException ioe) {
+						log.error("IOException: " + ioe + " \n");
+					}
+				}
+			}
+		}
+	}
+
+	private boolean put(Url url, boolean replace) {
+		byte[] key = bytes(url.getShortUrl());
+		int hash = hash(key);
+		int slot = find(key, hash);
+		if (slot >= 0 && !replace) {
+			return false;
+		}
+		link(slot, hash, append(PUT, key, bytes(url.getLongUrl())));
+		return true;
+	}
+
+	private Url delete(String shortUrl) {
+		byte[] key = bytes(shortUrl);
+		int slot = find(key, hash(key));
+		if (slot < 0) {
+			return null;
+		}
+		Url removed = new Url(shortUrl, value(offset(slot)));
+		append(DELETE, key, EMPTY);
+		unlink(slot);
+		return removed;
+	}
+
+	private int append(byte type, byte[] key, byte[] value) {
+		if (key.length > 0xffff) {
+			throw new IllegalArgumentException("Short url is too long");
+		}
+		long length = (long) RECORD_HEADER + key.length + value.length + RECORD_TRAILER;
+		ensureCapacity(end + length);
+		int offset = end;
+		ByteBuffer record = data.duplicate();
+		record.position(offset);
+		record.put(type).putShort((short) key.length).putInt(value.length).put(key).put(value);
+		record.putInt(crc(offset, record.position() - offset));
+		end = record.position();
+		return offset;
+	}
+
+	private void ensureCapacity(long needed) {
+		if (needed <= data.capacity()) {
+			return;
+		}
+		if (needed > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Log of url store " + directory + " is full");
+		}
+		try {
+			data = dataChannel.map(MapMode.READ_WRITE, 0,
+					Math.min(Integer.MAX_VALUE, Math.max(needed, 2L * data.capacity())));
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * This method points slot found for the key to its new record, or takes
+	 * a free slot if key was not found.
+	 */
+	private void link(int slot, int hash, int offset) {
+		if (slot >= 0) {
+			liveBytes -= recordLength(offset(slot));
+			index.putLong(position(slot), entry(hash, offset));
+		} else {
+			if (size + 1 > capacity * MAX_LOAD) {
+				resize(capacity * 2);
+			}
+			place(index, capacity, hash, offset);
+			size++;
+		}
+		liveBytes += recordLength(offset);
+	}
+
+	/**
+	 * This method frees the slot by backward shift of the following entries
+	 * of its probe sequence, so that the table never needs tombstones.
+	 */
+	private void unlink(int slot) {
+		liveBytes -= recordLength(offset(slot));
+		int mask = capacity - 1;
+		int hole = slot;
+		for (int next = (slot + 1) & mask;; next = (next + 1) & mask) {
+			long entry = slot(next);
+			if (entry == 0) {
+				break;
+			}
+			int home = (int) (entry >>> 32) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				index.putLong(position(hole), entry);
+				hole = next;
+			}
+		}
+		index.putLong(position(hole), 0);
+		size--;
+	}
+
+	private void resize(int nextCapacity) {
+		if (nextCapacity > MAX_INDEX_CAPACITY) {
+			throw new IllegalStateException("Index of url store " + directory + " is full");
+		}
+		try {
+			Path indexNext = next(INDEX_FILE);
+			MappedByteBuffer nextIndex = newIndex(indexNext, nextCapacity, generation);
+			for (int slot = 0; slot < capacity; slot++) {
+				long entry = slot(slot);
+				if (entry != 0) {
+					place(nextIndex, nextCapacity, (int) (entry >>> 32), (int) entry);
+				}
+			}
+			Files.move(indexNext, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			index = nextIndex;
+			capacity = nextCapacity;
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * @return slot of the key or -1 if key is not stored.
+	 */
+	private int find(byte[] key, int hash) {
+		int mask = capacity - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			long entry = slot(slot);
+			if (entry == 0) {
+				return -1;
+			}
+			if ((int) (entry >>> 32) == hash && keyEquals((int) entry, key)) {
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * @return length of valid record at the offset or 0 if log ends there.
+	 */
+	private int validLength(int offset) {
+		if (offset > data.capacity() - RECORD_HEADER - RECORD_TRAILER) {
+			return 0;
+		}
+		byte type = data.get(offset);
+		int keyLength = keyLength(offset);
+		int valueLength = data.getInt(offset + 3);
+		if ((type != PUT && type != DELETE) || keyLength == 0 || valueLength < 0) {
+			return 0;
+		}
+		long length = (long) RECORD_HEADER + keyLength + valueLength + RECORD_TRAILER;
+		if (offset + length > data.capacity()) {
+			return 0;
+		}
+		int checked = (int) length - RECORD_TRAILER;
+		return crc(offset, checked) == data.getInt(offset + checked) ? (int) length : 0;
+	}
+
+	private int crc(int offset, int length) {
+		ByteBuffer checked = data.duplicate();
+		checked.limit(offset + length).position(offset);
+		CRC32 crc = new CRC32();
+		crc.update(checked);
+		return (int) crc.getValue();
+	}
+
+	private boolean keyEquals(int offset, byte[] key) {
+		if (keyLength(offset) != key.length) {
+			return false;
+		}
+		for (int i = 0; i < key.length; i++) {
+			if (data.get(offset + RECORD_HEADER + i) != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String key(int offset) {
+		byte[] key = new byte[keyLength(offset)];
+		bytes(offset + RECORD_HEADER, key);
+		return new String(key, StandardCharsets.UTF_8);
+	}
+
+	private String value(int offset) {
+		byte[] value = new byte[data.getInt(offset + 3)];
+		bytes(offset + RECORD_HEADER + keyLength(offset), value);
+		return new String(value, StandardCharsets.UTF_8);
+	}
+
+	private void bytes(int offset, byte[] target) {
+		ByteBuffer source = data.duplicate();
+		source.position(offset);
+		source.get(target);
+	}
+
+	private int keyLength(int offset) {
+		return data.getShort(offset + 1) & 0xffff;
+	}
+
+	private int recordLength(int offset) {
+		return RECORD_HEADER + keyLength(offset) + data.getInt(offset + 3) + RECORD_TRAILER;
+	}
+
+	private long slot(int slot) {
+		return index.getLong(position(slot));
+	}
+
+	private int offset(int slot) {
+		return (int) slot(slot);
+	}
+
+	private <T> T read(Supplier<T> operation) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			return operation.get();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private <T> T write(Supplier<T> operation) {
+		synchronized (writeMutex) {
+			lock.writeLock().lock();
+			try {
+				checkOpen();
+				return operation.get();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Url store " + directory + " is closed");
+		}
+	}
+
+	private Path next(String file) {
+		return directory.resolve(file + NEXT_SUFFIX);
+	}
+
+	private void syncDirectory() {
+		try (FileChannel channel = FileChannel.open(directory, READ)) {
+			channel.force(true);
+		} catch (IOException ioe) {
+			// not every platform can sync a directory, renames are durable
+			// there anyway or never
+			log.debug("Unable to sync directory " + directory + ": " + ioe);
+		}
+	}
+
+	private static void place(MappedByteBuffer index, int capacity, int hash, int offset) {
+		int mask = capacity - 1;
+		int slot = hash & mask;
+		while (index.getLong(position(slot)) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		index.putLong(position(slot), entry(hash, offset));
+	}
+
+	private static int position(int slot) {
+		return INDEX_HEADER + slot * SLOT;
+	}
+
+	// offsets are never 0, so an empty slot is all zeros
+	private static long entry(int hash, int offset) {
+		return ((long) hash << 32) | (offset & 0xffffffffL);
+	}
+
+	private static int hash(byte[] key) {
+		long hash = Hashing.murmur64(key);
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int indexCapacity(int entries) {
+		int capacity = MIN_INDEX_CAPACITY;
+		while (capacity * MAX_LOAD < entries + 1) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static MappedByteBuffer newLog(FileChannel channel, int capacity, long generation) throws IOException {
+		MappedByteBuffer log = channel.map(MapMode.READ_WRITE, 0, capacity);
+		log.putLong(0, DATA_MAGIC);
+		log.putLong(GENERATION, generation);
+		return log;
+	}
+
+	private static MappedByteBuffer newIndex(Path path, int capacity, long generation) throws IOException {
+		Files.deleteIfExists(path);
+		MappedByteBuffer index = map(path, INDEX_HEADER + (long) capacity * SLOT);
+		index.putLong(0, INDEX_MAGIC);
+		index.putLong(GENERATION, generation);
+		index.putInt(CAPACITY, capacity);
+		return index;
+	}
+
+	private static MappedByteBuffer map(Path path, long size) throws IOException {
+		// mapping stays valid after its channel is closed
+		try (FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE)) {
+			return channel.map(MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+}
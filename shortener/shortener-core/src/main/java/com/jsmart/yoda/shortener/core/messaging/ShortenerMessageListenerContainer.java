@@ -0,0 +1,47 @@
+package com.jsmart.yoda.shortener.core.messaging;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Redis pub/sub subscription which tells its users when it was lost
+ *         and is being restored. Messages published while the subscription was
+ *         down are never delivered, so users which keep state built from
+ *         messages reload it from Redis instead.
+ */
+public class ShortenerMessageListenerContainer extends RedisMessageListenerContainer {
+
+	private static final Logger log = Logger.getLogger(ShortenerMessageListenerContainer.class);
+
+	private final List<Runnable> resubscribeListeners = new CopyOnWriteArrayList<Runnable>();
+
+	/**
+	 * @param listener
+	 *            called after lost subscription is restarted, in subscription
+	 *            thread, so it must not block.
+	 */
+	public void addResubscribeListener(Runnable listener) {
+		resubscribeListeners.add(listener);
+	}
+
+	@Override
+	protected void handleSubscriptionException(Throwable ex) {
+		super.handleSubscriptionException(ex);
+		if (!isRunning()) {
+			return;
+		}
+		for (Runnable listener : resubscribeListeners) {
+			try {
+				listener.run();
+			} catch (RuntimeException re) {
+				log.error("Resubscribe listener failed: " + re);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.jsmart.yoda.shortener.core.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlPage;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.model.MigrationReport;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Moves Urls stored as top-level keys into buckets. Flat keys are read
+ *         page by page, written into buckets through the service DAO, so key
+ *         filter and near cache learn about them, and deleted once written.
+ *         Short url created in buckets meanwhile wins over the flat one, which
+ *         is then left in place and reported as conflict. Migration may be
+ *         interrupted and run again.
+ */
+public class BucketMigrator {
+
+	static final int BATCH = 1000;
+
+	private static final Logger log = Logger.getLogger(BucketMigrator.class);
+
+	private final ShortnerDao flatShortnerDao;
+	private final ShortnerDao bucketShortnerDao;
+	private final RedisTemplate<String, String> redisTemplate;
+
+	/**
+	 * @param flatShortnerDao
+	 *            DAO of flat layout to read from.
+	 *
+	 * @param bucketShortnerDao
+	 *            DAO of bucket layout to write to.
+	 *
+	 * @param redisTemplate
+	 *            used to delete migrated flat keys.
+	 */
+	public BucketMigrator(ShortnerDao flatShortnerDao, ShortnerDao bucketShortnerDao,
+			RedisTemplate<String, String> redisTemplate) {
+		this.flatShortnerDao = flatShortnerDao;
+		this.bucketShortnerDao = bucketShortnerDao;
+		this.redisTemplate = redisTemplate;
+	}
+
+	/**
+	 * This method moves all flat Urls into buckets.
+	 *
+	 * @return amount of moved Urls and of conflicting ones left in place.
+	 */
+	public synchronized MigrationReport migrate() {
+		log.info("Migrating Urls into buckets");
+		long started = System.currentTimeMillis();
+		MigrationReport report = new MigrationReport();
+		String cursor = UrlPage.FIRST;
+		do {
+			UrlPage page = flatShortnerDao.getPage(cursor, BATCH);
+			migrate(page.getUrls(), report);
+			cursor = page.getCursor();
+		} while (!UrlPage.FIRST.equals(cursor));
+		report.setElapsedMillis(System.currentTimeMillis() - started);
+		log.info("Migrated " + report.getMigrated() + " Urls into buckets, " + report.getConflicts() + " conflicts");
+		return report;
+	}
+
+	private void migrate(List<Url> urls, MigrationReport report) {
+		if (urls.isEmpty()) {
+			return;
+		}
+		List<Boolean> created = bucketShortnerDao.createAll(urls);
+		List<String> moved = new ArrayList<String>(urls.size());
+		List<Url> taken = new ArrayList<Url>();
+		for (int i = 0; i < urls.size(); i++) {
+			if (created.get(i)) {
+				moved.add(urls.get(i).getShortUrl());
+			} else {
+				taken.add(urls.get(i));
+			}
+		}
+		if (!taken.isEmpty()) {
+			// taken by earlier interrupted run unless long urls differ
+			List<String> shortUrls = new ArrayList<String>(taken.size());
+			taken.forEach((url) -> shortUrls.add(url.getShortUrl()));
+			List<Url> stored = bucketShortnerDao.getAll(shortUrls);
+			for (int i = 0; i < taken.size(); i++) {
+				if (taken.get(i).equals(stored.get(i))) {
+					moved.add(taken.get(i).getShortUrl());
+				} else {
+					log.warn("Short url " + taken.get(i).getShortUrl() + " is already used in buckets, left in place");
+					report.setConflicts(report.getConflicts() + 1);
+				}
+			}
+		}
+		if (!moved.isEmpty()) {
+			redisTemplate.delete(moved);
+			report.setMigrated(report.getMigrated() + moved.size());
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.jsmart.yoda.shortener.core.migration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlPage;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.codec.ShortenerRedisSerializer;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.model.MigrationReport;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Rewrites Urls stored with JDK serialization of keys and values by
+ *         default RedisTemplate. Keyspace is walked with incremental SCAN sent
+ *         as raw command, as scan of the connection decodes keys as UTF-8 text
+ *         and mangles serialized ones. Values of JDK serialized keys of every
+ *         SCAN step are read with one MGET, their Urls are created through
+ *         the service DAO, so key filter and near cache learn about them, and
+ *         old entries are deleted once written. Short url stored meanwhile
+ *         with another long url wins and the old entry is left in place and
+ *         reported as conflict, as are entries which are not serialized
+ *         Strings. Migration may be interrupted and run again.
+ */
+public class SerializationMigrator {
+
+	static final int BATCH = 1000;
+
+	private static final byte[] COUNT = "COUNT".getBytes(StandardCharsets.UTF_8);
+
+	private static final Logger log = Logger.getLogger(SerializationMigrator.class);
+
+	private final ShortenerRedisSerializer serializer = new ShortenerRedisSerializer();
+
+	private final ShortnerDao shortnerDao;
+	private final RedisTemplate<String, String> redisTemplate;
+
+	/**
+	 * @param shortnerDao
+	 *            DAO to write migrated Urls to.
+	 *
+	 * @param redisTemplate
+	 *            used to scan and delete old entries.
+	 */
+	public SerializationMigrator(ShortnerDao shortnerDao, RedisTemplate<String, String> redisTemplate) {
+		this.shortnerDao = shortnerDao;
+		this.redisTemplate = redisTemplate;
+	}
+
+	/**
+	 * This method rewrites all JDK serialized Urls.
+	 *
+	 * @return amount of rewritten Urls and of ones left in place.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized MigrationReport migrate() {
+		log.info("Migrating JDK serialized Urls");
+		long started = System.currentTimeMillis();
+		MigrationReport report = new MigrationReport();
+		redisTemplate.execute((RedisCallback<Void>) (connection) -> {
+			String cursor = UrlPage.FIRST;
+			do {
+				List<Object> reply = (List<Object>) connection.execute("SCAN", cursor.getBytes(StandardCharsets.UTF_8),
+						COUNT, String.valueOf(BATCH).getBytes(StandardCharsets.UTF_8));
+				cursor = new String((byte[]) reply.get(0), StandardCharsets.UTF_8);
+				List<byte[]> batch = new ArrayList<byte[]>();
+				for (byte[] rawKey : (List<byte[]>) reply.get(1)) {
+					if (ShortenerRedisSerializer.isJdkSerialized(rawKey)) {
+						batch.add(rawKey);
+					}
+				}
+				if (!batch.isEmpty()) {
+					migrate(connection, batch, report);
+				}
+			} while (!UrlPage.FIRST.equals(cursor));
+			return null;
+		});
+		report.setElapsedMillis(System.currentTimeMillis() - started);
+		log.info("Migrated " + report.getMigrated() + " JDK serialized Urls, " + report.getConflicts() + " conflicts");
+		return report;
+	}
+
+	private void migrate(RedisConnection connection, List<byte[]> rawKeys, MigrationReport report) {
+		List<byte[]> rawValues = connection.mGet(rawKeys.toArray(new byte[rawKeys.size()][]));
+		List<Url> urls = new ArrayList<Url>(rawKeys.size());
+		List<byte[]> urlKeys = new ArrayList<byte[]>(rawKeys.size());
+		for (int i = 0; i < rawKeys.size(); i++) {
+			if (rawValues.get(i) == null) {
+				// removed meanwhile or not a string
+				continue;
+			}
+			try {
+				String shortUrl = serializer.deserialize(rawKeys.get(i));
+				if (RedisKeys.isUrlKey(shortUrl)) {
+					urls.add(new Url(shortUrl, serializer.deserialize(rawValues.get(i))));
+					urlKeys.add(rawKeys.get(i));
+				}
+			} catch (SerializationException se) {
+				log.warn("Entry is not a serialized Url, left in place: " + se.getMessage());
+				report.setConflicts(report.getConflicts() + 1);
+			}
+		}
+		if (urls.isEmpty()) {
+			return;
+		}
+		List<Boolean> created = shortnerDao.createAll(urls);
+		List<byte[]> moved = new ArrayList<byte[]>(urls.size());
+		List<Integer> taken = new ArrayList<Integer>();
+		for (int i = 0; i < urls.size(); i++) {
+			if (created.get(i)) {
+				moved.add(urlKeys.get(i));
+			} else {
+				taken.add(i);
+			}
+		}
+		if (!taken.isEmpty()) {
+			// taken by earlier interrupted run unless long urls differ
+			List<String> shortUrls = new ArrayList<String>(taken.size());
+			taken.forEach((i) -> shortUrls.add(urls.get(i).getShortUrl()));
+			List<Url> stored = shortnerDao.getAll(shortUrls);
+			for (int i = 0; i < taken.size(); i++) {
+				Url url = urls.get(taken.get(i));
+				if (url.equals(stored.get(i))) {
+					moved.add(urlKeys.get(taken.get(i)));
+				} else {
+					log.warn("Short url " + url.getShortUrl() + " is already used, JDK serialized entry left in place");
+					report.setConflicts(report.getConflicts() + 1);
+				}
+			}
+		}
+		if (!moved.isEmpty()) {
+			connection.del(moved.toArray(new byte[moved.size()][]));
+			report.setMigrated(report.getMigrated() + moved.size());
+		}
+	}
+
+}
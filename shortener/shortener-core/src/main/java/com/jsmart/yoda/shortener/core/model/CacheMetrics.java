@@ -0,0 +1,92 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Snapshot of redirect near cache statistics.
+ */
+public class CacheMetrics {
+
+	private long size;
+	private long maximumSize;
+	private long hitCount;
+	private long missCount;
+	private double hitRate;
+	private long evictionCount;
+	private long loadCount;
+	private long averageLoadMicros;
+	private long invalidationsReceived;
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	public void setMaximumSize(long maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public void setHitCount(long hitCount) {
+		this.hitCount = hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public void setMissCount(long missCount) {
+		this.missCount = missCount;
+	}
+
+	public double getHitRate() {
+		return hitRate;
+	}
+
+	public void setHitRate(double hitRate) {
+		this.hitRate = hitRate;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public void setEvictionCount(long evictionCount) {
+		this.evictionCount = evictionCount;
+	}
+
+	public long getLoadCount() {
+		return loadCount;
+	}
+
+	public void setLoadCount(long loadCount) {
+		this.loadCount = loadCount;
+	}
+
+	public long getAverageLoadMicros() {
+		return averageLoadMicros;
+	}
+
+	public void setAverageLoadMicros(long averageLoadMicros) {
+		this.averageLoadMicros = averageLoadMicros;
+	}
+
+	public long getInvalidationsReceived() {
+		return invalidationsReceived;
+	}
+
+	public void setInvalidationsReceived(long invalidationsReceived) {
+		this.invalidationsReceived = invalidationsReceived;
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Snapshot of expiry wheel state.
+ */
+public class ExpiryMetrics {
+
+	private long tickMillis;
+	private int pending;
+	private long scheduled;
+	private long expired;
+
+	public long getTickMillis() {
+		return tickMillis;
+	}
+
+	public void setTickMillis(long tickMillis) {
+		this.tickMillis = tickMillis;
+	}
+
+	public int getPending() {
+		return pending;
+	}
+
+	public void setPending(int pending) {
+		this.pending = pending;
+	}
+
+	public long getScheduled() {
+		return scheduled;
+	}
+
+	public void setScheduled(long scheduled) {
+		this.scheduled = scheduled;
+	}
+
+	public long getExpired() {
+		return expired;
+	}
+
+	public void setExpired(long expired) {
+		this.expired = expired;
+	}
+
+}
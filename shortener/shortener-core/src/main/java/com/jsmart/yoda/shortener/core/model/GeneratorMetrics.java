@@ -0,0 +1,65 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Snapshot of short url generator state.
+ */
+public class GeneratorMetrics {
+
+	private String generatorType;
+	private int keyLength;
+	private long attempts;
+	private long collisions;
+	private double collisionRate;
+	private double estimatedOccupancy;
+
+	public String getGeneratorType() {
+		return generatorType;
+	}
+
+	public void setGeneratorType(String generatorType) {
+		this.generatorType = generatorType;
+	}
+
+	public int getKeyLength() {
+		return keyLength;
+	}
+
+	public void setKeyLength(int keyLength) {
+		this.keyLength = keyLength;
+	}
+
+	public long getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(long attempts) {
+		this.attempts = attempts;
+	}
+
+	public long getCollisions() {
+		return collisions;
+	}
+
+	public void setCollisions(long collisions) {
+		this.collisions = collisions;
+	}
+
+	public double getCollisionRate() {
+		return collisionRate;
+	}
+
+	public void setCollisionRate(double collisionRate) {
+		this.collisionRate = collisionRate;
+	}
+
+	public double getEstimatedOccupancy() {
+		return estimatedOccupancy;
+	}
+
+	public void setEstimatedOccupancy(double estimatedOccupancy) {
+		this.estimatedOccupancy = estimatedOccupancy;
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Short url with estimated amount of recent requests.
+ */
+public class HeavyHitter {
+
+	private String shortUrl;
+	private long count;
+	private boolean pinned;
+
+	public HeavyHitter() {
+	}
+
+	public HeavyHitter(String shortUrl, long count) {
+		this.shortUrl = shortUrl;
+		this.count = count;
+	}
+
+	public String getShortUrl() {
+		return shortUrl;
+	}
+
+	public void setShortUrl(String shortUrl) {
+		this.shortUrl = shortUrl;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public boolean isPinned() {
+		return pinned;
+	}
+
+	public void setPinned(boolean pinned) {
+		this.pinned = pinned;
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.jsmart.yoda.shortener.core.model;
+
+import java.util.List;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Snapshot of heavy hitter tracking and hot key pinning state.
+ */
+public class HotKeyMetrics {
+
+	private int capacity;
+	private long minHits;
+	private int pinned;
+	private long pinnedHits;
+	private long refreshes;
+	private long lastRefreshMillis;
+	private List<HeavyHitter> heavyHitters;
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public long getMinHits() {
+		return minHits;
+	}
+
+	public void setMinHits(long minHits) {
+		this.minHits = minHits;
+	}
+
+	public int getPinned() {
+		return pinned;
+	}
+
+	public void setPinned(int pinned) {
+		this.pinned = pinned;
+	}
+
+	public long getPinnedHits() {
+		return pinnedHits;
+	}
+
+	public void setPinnedHits(long pinnedHits) {
+		this.pinnedHits = pinnedHits;
+	}
+
+	public long getRefreshes() {
+		return refreshes;
+	}
+
+	public void setRefreshes(long refreshes) {
+		this.refreshes = refreshes;
+	}
+
+	public long getLastRefreshMillis() {
+		return lastRefreshMillis;
+	}
+
+	public void setLastRefreshMillis(long lastRefreshMillis) {
+		this.lastRefreshMillis = lastRefreshMillis;
+	}
+
+	public List<HeavyHitter> getHeavyHitters() {
+		return heavyHitters;
+	}
+
+	public void setHeavyHitters(List<HeavyHitter> heavyHitters) {
+		this.heavyHitters = heavyHitters;
+	}
+
+}
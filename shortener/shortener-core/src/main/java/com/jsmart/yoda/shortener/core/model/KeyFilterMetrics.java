@@ -0,0 +1,83 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Snapshot of negative lookup filter state.
+ */
+public class KeyFilterMetrics {
+
+	private boolean ready;
+	private long keys;
+	private int stages;
+	private long rejected;
+	private long passed;
+	private long falsePositives;
+	private long rebuilds;
+	private long lastRebuildMillis;
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	public void setReady(boolean ready) {
+		this.ready = ready;
+	}
+
+	public long getKeys() {
+		return keys;
+	}
+
+	public void setKeys(long keys) {
+		this.keys = keys;
+	}
+
+	public int getStages() {
+		return stages;
+	}
+
+	public void setStages(int stages) {
+		this.stages = stages;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+
+	public long getPassed() {
+		return passed;
+	}
+
+	public void setPassed(long passed) {
+		this.passed = passed;
+	}
+
+	public long getFalsePositives() {
+		return falsePositives;
+	}
+
+	public void setFalsePositives(long falsePositives) {
+		this.falsePositives = falsePositives;
+	}
+
+	public long getRebuilds() {
+		return rebuilds;
+	}
+
+	public void setRebuilds(long rebuilds) {
+		this.rebuilds = rebuilds;
+	}
+
+	public long getLastRebuildMillis() {
+		return lastRebuildMillis;
+	}
+
+	public void setLastRebuildMillis(long lastRebuildMillis) {
+		this.lastRebuildMillis = lastRebuildMillis;
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Snapshot of pre-generated short url key pool state.
+ */
+public class KeyPoolMetrics {
+
+	private int depth;
+	private int capacity;
+	private int lowWatermark;
+	private long served;
+	private long misses;
+	private long refills;
+	private long lastRefillMicros;
+	private long averageRefillMicros;
+	private long maxRefillMicros;
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public int getLowWatermark() {
+		return lowWatermark;
+	}
+
+	public void setLowWatermark(int lowWatermark) {
+		this.lowWatermark = lowWatermark;
+	}
+
+	public long getServed() {
+		return served;
+	}
+
+	public void setServed(long served) {
+		this.served = served;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public void setMisses(long misses) {
+		this.misses = misses;
+	}
+
+	public long getRefills() {
+		return refills;
+	}
+
+	public void setRefills(long refills) {
+		this.refills = refills;
+	}
+
+	public long getLastRefillMicros() {
+		return lastRefillMicros;
+	}
+
+	public void setLastRefillMicros(long lastRefillMicros) {
+		this.lastRefillMicros = lastRefillMicros;
+	}
+
+	public long getAverageRefillMicros() {
+		return averageRefillMicros;
+	}
+
+	public void setAverageRefillMicros(long averageRefillMicros) {
+		this.averageRefillMicros = averageRefillMicros;
+	}
+
+	public long getMaxRefillMicros() {
+		return maxRefillMicros;
+	}
+
+	public void setMaxRefillMicros(long maxRefillMicros) {
+		this.maxRefillMicros = maxRefillMicros;
+	}
+
+}
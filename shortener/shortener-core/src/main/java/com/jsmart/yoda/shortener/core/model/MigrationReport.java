@@ -0,0 +1,38 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Outcome of moving Urls from one storage layout into another.
+ */
+public class MigrationReport {
+
+	private long migrated;
+	private long conflicts;
+	private long elapsedMillis;
+
+	public long getMigrated() {
+		return migrated;
+	}
+
+	public void setMigrated(long migrated) {
+		this.migrated = migrated;
+	}
+
+	public long getConflicts() {
+		return conflicts;
+	}
+
+	public void setConflicts(long conflicts) {
+		this.conflicts = conflicts;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Snapshot of replica read routing.
+ */
+public class ReplicaMetrics {
+
+	private int replicas;
+	private boolean hedgedReads;
+	private long replicaReads;
+	private long primaryReads;
+	private long hedges;
+	private long hedgeWins;
+	private long failovers;
+	private long hedgeDelayMicros;
+	private long p99Micros;
+
+	public int getReplicas() {
+		return replicas;
+	}
+
+	public void setReplicas(int replicas) {
+		this.replicas = replicas;
+	}
+
+	public boolean isHedgedReads() {
+		return hedgedReads;
+	}
+
+	public void setHedgedReads(boolean hedgedReads) {
+		this.hedgedReads = hedgedReads;
+	}
+
+	public long getReplicaReads() {
+		return replicaReads;
+	}
+
+	public void setReplicaReads(long replicaReads) {
+		this.replicaReads = replicaReads;
+	}
+
+	/**
+	 * @return keys read from primary: recently written ones and replica
+	 *         misses.
+	 */
+	public long getPrimaryReads() {
+		return primaryReads;
+	}
+
+	public void setPrimaryReads(long primaryReads) {
+		this.primaryReads = primaryReads;
+	}
+
+	/**
+	 * @return reads sent to a second replica.
+	 */
+	public long getHedges() {
+		return hedges;
+	}
+
+	public void setHedges(long hedges) {
+		this.hedges = hedges;
+	}
+
+	/**
+	 * @return hedged reads answered by the second replica first.
+	 */
+	public long getHedgeWins() {
+		return hedgeWins;
+	}
+
+	public void setHedgeWins(long hedgeWins) {
+		this.hedgeWins = hedgeWins;
+	}
+
+	/**
+	 * @return replica reads which failed and were read from primary.
+	 */
+	public long getFailovers() {
+		return failovers;
+	}
+
+	public void setFailovers(long failovers) {
+		this.failovers = failovers;
+	}
+
+	public long getHedgeDelayMicros() {
+		return hedgeDelayMicros;
+	}
+
+	public void setHedgeDelayMicros(long hedgeDelayMicros) {
+		this.hedgeDelayMicros = hedgeDelayMicros;
+	}
+
+	public long getP99Micros() {
+		return p99Micros;
+	}
+
+	public void setP99Micros(long p99Micros) {
+		this.p99Micros = p99Micros;
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.jsmart.yoda.shortener.core.model;
+
+import java.util.Map;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Snapshot of sharded storage ring.
+ */
+public class ShardMetrics {
+
+	private int virtualNodes;
+	private Map<String, Double> shares;
+	private String rebalancing;
+
+	public int getVirtualNodes() {
+		return virtualNodes;
+	}
+
+	public void setVirtualNodes(int virtualNodes) {
+		this.virtualNodes = virtualNodes;
+	}
+
+	/**
+	 * @return share of keys every shard owns by endpoint.
+	 */
+	public Map<String, Double> getShares() {
+		return shares;
+	}
+
+	public void setShares(Map<String, Double> shares) {
+		this.shares = shares;
+	}
+
+	/**
+	 * @return shard being filled with its keys or null.
+	 */
+	public String getRebalancing() {
+		return rebalancing;
+	}
+
+	public void setRebalancing(String rebalancing) {
+		this.rebalancing = rebalancing;
+	}
+
+}
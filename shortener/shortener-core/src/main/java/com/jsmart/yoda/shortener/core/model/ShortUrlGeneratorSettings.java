@@ -8,6 +8,24 @@ public class ShortUrlGeneratorSettings {
 
 	private int shortUrlLenght;
 
+	private ShortUrlGeneratorType generatorType = ShortUrlGeneratorType.RANDOM;
+
+	private int sequenceBlockSize;
+
+	private int poolSize;
+
+	private int poolLowWatermark;
+
+	private int maxAttempts = 1;
+
+	private double randomMaxOccupancy = 1;
+
+	private long snowflakeNodeId;
+
+	private int snowflakeNodeBits;
+
+	private int snowflakeSequenceBits;
+
 	public int getShortUrlLenght() {
 		return shortUrlLenght;
 	}
@@ -16,4 +34,76 @@ public class ShortUrlGeneratorSettings {
 		this.shortUrlLenght = shortUrlLenght;
 	}
 
+	public ShortUrlGeneratorType getGeneratorType() {
+		return generatorType;
+	}
+
+	public void setGeneratorType(ShortUrlGeneratorType generatorType) {
+		this.generatorType = generatorType;
+	}
+
+	public int getSequenceBlockSize() {
+		return sequenceBlockSize;
+	}
+
+	public void setSequenceBlockSize(int sequenceBlockSize) {
+		this.sequenceBlockSize = sequenceBlockSize;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public int getPoolLowWatermark() {
+		return poolLowWatermark;
+	}
+
+	public void setPoolLowWatermark(int poolLowWatermark) {
+		this.poolLowWatermark = poolLowWatermark;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public double getRandomMaxOccupancy() {
+		return randomMaxOccupancy;
+	}
+
+	public void setRandomMaxOccupancy(double randomMaxOccupancy) {
+		this.randomMaxOccupancy = randomMaxOccupancy;
+	}
+
+	public long getSnowflakeNodeId() {
+		return snowflakeNodeId;
+	}
+
+	public void setSnowflakeNodeId(long snowflakeNodeId) {
+		this.snowflakeNodeId = snowflakeNodeId;
+	}
+
+	public int getSnowflakeNodeBits() {
+		return snowflakeNodeBits;
+	}
+
+	public void setSnowflakeNodeBits(int snowflakeNodeBits) {
+		this.snowflakeNodeBits = snowflakeNodeBits;
+	}
+
+	public int getSnowflakeSequenceBits() {
+		return snowflakeSequenceBits;
+	}
+
+	public void setSnowflakeSequenceBits(int snowflakeSequenceBits) {
+		this.snowflakeSequenceBits = snowflakeSequenceBits;
+	}
+
 }
@@ -0,0 +1,19 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Available short url generation strategies.
+ */
+public enum ShortUrlGeneratorType {
+
+	/** Random keys, uniqueness is checked by storage. */
+	RANDOM,
+
+	/** Base62 encoded numbers of leased cluster wide sequence blocks. */
+	SEQUENCE,
+
+	/** Time, node id and sequence bits, unique without coordination. */
+	SNOWFLAKE
+
+}
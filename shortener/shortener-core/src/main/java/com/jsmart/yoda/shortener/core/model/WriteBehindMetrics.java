@@ -0,0 +1,92 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Snapshot of write-behind buffer state.
+ */
+public class WriteBehindMetrics {
+
+	private WriteDurability durability;
+	private int pending;
+	private int capacity;
+	private long buffered;
+	private long coalesced;
+	private long flushed;
+	private long batches;
+	private long failures;
+	private long lastFlushMillis;
+
+	public WriteDurability getDurability() {
+		return durability;
+	}
+
+	public void setDurability(WriteDurability durability) {
+		this.durability = durability;
+	}
+
+	public int getPending() {
+		return pending;
+	}
+
+	public void setPending(int pending) {
+		this.pending = pending;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public long getBuffered() {
+		return buffered;
+	}
+
+	public void setBuffered(long buffered) {
+		this.buffered = buffered;
+	}
+
+	public long getCoalesced() {
+		return coalesced;
+	}
+
+	public void setCoalesced(long coalesced) {
+		this.coalesced = coalesced;
+	}
+
+	public long getFlushed() {
+		return flushed;
+	}
+
+	public void setFlushed(long flushed) {
+		this.flushed = flushed;
+	}
+
+	public long getBatches() {
+		return batches;
+	}
+
+	public void setBatches(long batches) {
+		this.batches = batches;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public void setFailures(long failures) {
+		this.failures = failures;
+	}
+
+	public long getLastFlushMillis() {
+		return lastFlushMillis;
+	}
+
+	public void setLastFlushMillis(long lastFlushMillis) {
+		this.lastFlushMillis = lastFlushMillis;
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.jsmart.yoda.shortener.core.model;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Moment write-behind buffer acknowledges a write.
+ */
+public enum WriteDurability {
+
+	/** As soon as write is buffered, it is lost if the node dies before flush. */
+	BUFFERED,
+
+	/** After flush carrying the write, concurrent writes share its round trip. */
+	FLUSHED
+
+}
@@ -0,0 +1,105 @@
+package com.jsmart.yoda.shortener.core.purge;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import com.jsmart.yoda.shortener.base.PurgeJob;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Runs removal of all stored Urls in background, one purge at a time.
+ *         A purge requested while another one runs joins the running one.
+ *         States of a few recent purges are kept for progress queries.
+ */
+@Component
+public class PurgeJobRunner {
+
+	static final int KEPT_JOBS = 16;
+
+	private static final Logger log = Logger.getLogger(PurgeJobRunner.class);
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor((runnable) -> {
+		Thread thread = new Thread(runnable, "url-purge");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final Map<String, PurgeJob> jobs = new LinkedHashMap<String, PurgeJob>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PurgeJob> eldest) {
+			return size() > KEPT_JOBS;
+		}
+	};
+
+	private PurgeJob running;
+
+	/**
+	 * This method starts purge unless one is already running.
+	 *
+	 * @param purge
+	 *            removes Urls reporting amount removed so far, returns total
+	 *            amount removed.
+	 *
+	 * @return started or already running purge.
+	 */
+	public synchronized PurgeJob submit(ToLongFunction<LongConsumer> purge) {
+		if (running != null) {
+			return running;
+		}
+		PurgeJob job = new PurgeJob(Long.toString(sequence.incrementAndGet()), System.currentTimeMillis());
+		jobs.put(job.getId(), job);
+		running = job;
+		executor.execute(() -> run(job, purge));
+		return job;
+	}
+
+	/**
+	 * @param id
+	 *            purge id.
+	 *
+	 * @return purge state or null if purge is unknown or too old.
+	 */
+	public synchronized PurgeJob get(String id) {
+		return jobs.get(id);
+	}
+
+	@PreDestroy
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private void run(PurgeJob job, ToLongFunction<LongConsumer> purge) {
+		log.info("Purge " + job.getId() + " started");
+		PurgeJob.Status status = PurgeJob.Status.FAILED;
+		try {
+			job.setRemoved(purge.applyAsLong(job::setRemoved));
+			status = PurgeJob.Status.COMPLETED;
+			log.info("Purge " + job.getId() + " removed " + job.getRemoved() + " Urls");
+		} catch (RuntimeException re) {
+			job.setError(re.toString());
+			log.error("Purge " + job.getId() + " failed: " + re);
+		} finally {
+			synchronized (this) {
+				job.setFinishedMillis(System.currentTimeMillis());
+				job.setStatus(status);
+				running = null;
+			}
+		}
+	}
+
+}
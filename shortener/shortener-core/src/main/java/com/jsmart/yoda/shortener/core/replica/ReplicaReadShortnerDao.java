@@ -0,0 +1,366 @@
+package com.jsmart.yoda.shortener.core.replica;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.log4j.Logger;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.ForwardingShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.model.ReplicaMetrics;
+import com.jsmart.yoda.shortener.core.support.LatencyHistogram;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         ShortnerDao decorator which sends lookups of Urls by key to Redis
+ *         replicas in turn and everything else to primary DAO it wraps. Key
+ *         written through this node or announced as written by another one is
+ *         read from primary for read-your-writes window, which should exceed
+ *         replication lag. Key replica misses is read from primary as well,
+ *         so a Url is never reported missing just because it hasn't reached
+ *         replica yet, and failed replica read falls back to primary. Keys
+ *         written through this node are announced to the other nodes by the
+ *         node itself, so read-your-writes holds whatever layers are enabled.
+ *
+ *         With hedged reads a lookup which isn't answered within recent
+ *         percentile of replica latency is sent to the next replica too and
+ *         the first answer wins, so a single slow replica doesn't stretch
+ *         tail latency.
+ */
+public class ReplicaReadShortnerDao extends ForwardingShortnerDao {
+
+	// reads are answered by the replica asked first until latency is known
+	static final int WARM_UP_SAMPLES = 100;
+
+	static final int DECAY_SAMPLES = 10000;
+
+	private static final int HEDGE_DELAY_REFRESH = 64;
+
+	private static final int MAX_RECENT_WRITES = 1000000;
+
+	private static final Logger log = Logger.getLogger(ReplicaReadShortnerDao.class);
+
+	private final List<ShortnerDao> replicas;
+	private final Cache<String, Boolean> recentWrites;
+	private final Consumer<String> writeAnnouncer;
+	private final double hedgePercentile;
+	private final ExecutorService executor;
+
+	private final LatencyHistogram latencies = new LatencyHistogram(DECAY_SAMPLES);
+	private volatile long hedgeDelayMicros;
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final LongAdder replicaReads = new LongAdder();
+	private final LongAdder primaryReads = new LongAdder();
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder hedgeWins = new LongAdder();
+	private final LongAdder failovers = new LongAdder();
+
+	/**
+	 * @param primary
+	 *            DAO of primary Redis.
+	 *
+	 * @param replicas
+	 *            DAOs of replicas of primary Redis.
+	 *
+	 * @param readYourWritesMillis
+	 *            milliseconds written key is read from primary.
+	 *
+	 * @param hedgePercentile
+	 *            percentile of replica latency after which lookup is sent to
+	 *            the next replica too, e.g. 0.95, 0 disables hedged reads.
+	 *
+	 * @param writeAnnouncer
+	 *            sends short urls written through this node, separated by
+	 *            RedisKeys.KEY_SEPARATOR, to all nodes.
+	 */
+	public ReplicaReadShortnerDao(ShortnerDao primary, List<ShortnerDao> replicas, long readYourWritesMillis,
+			double hedgePercentile, Consumer<String> writeAnnouncer) {
+		super(primary);
+		if (replicas.isEmpty()) {
+			throw new IllegalArgumentException("No replicas to read from");
+		}
+		this.replicas = new ArrayList<ShortnerDao>(replicas);
+		this.recentWrites = Caffeine.newBuilder().maximumSize(MAX_RECENT_WRITES)
+				.expireAfterWrite(readYourWritesMillis, TimeUnit.MILLISECONDS).build();
+		this.hedgePercentile = hedgePercentile;
+		this.writeAnnouncer = writeAnnouncer;
+		this.executor = hedgePercentile > 0 && replicas.size() > 1 ? Executors.newCachedThreadPool((runnable) -> {
+			Thread thread = new Thread(runnable, "replica-read");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
+	}
+
+	@Override
+	public Url get(String shortUrl) {
+		if (recentWrites.getIfPresent(shortUrl) == null) {
+			Url url = read((replica) -> replica.get(shortUrl));
+			if (url != null) {
+				return url;
+			}
+		}
+		primaryReads.increment();
+		return delegate.get(shortUrl);
+	}
+
+	/**
+	 * This method reads keys which weren't written recently from a replica
+	 * with one batch lookup and the rest together with replica misses from
+	 * primary with another one.
+	 *
+	 * @return Urls in the order of keys, null for not found ones.
+	 */
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		List<Url> urls = new ArrayList<Url>(Collections.nCopies(shortUrls.size(), (Url) null));
+		List<String> replicaKeys = new ArrayList<String>(shortUrls.size());
+		List<Integer> replicaIndexes = new ArrayList<Integer>(shortUrls.size());
+		for (int i = 0; i < shortUrls.size(); i++) {
+			if (recentWrites.getIfPresent(shortUrls.get(i)) == null) {
+				replicaKeys.add(shortUrls.get(i));
+				replicaIndexes.add(i);
+			}
+		}
+		if (!replicaKeys.isEmpty()) {
+			List<Url> found = read((replica) -> replica.getAll(replicaKeys));
+			if (found != null) {
+				for (int i = 0; i < replicaIndexes.size(); i++) {
+					urls.set(replicaIndexes.get(i), found.get(i));
+				}
+			}
+		}
+		List<String> primaryKeys = new ArrayList<String>();
+		List<Integer> primaryIndexes = new ArrayList<Integer>();
+		for (int i = 0; i < urls.size(); i++) {
+			if (urls.get(i) == null) {
+				primaryKeys.add(shortUrls.get(i));
+				primaryIndexes.add(i);
+			}
+		}
+		if (!primaryKeys.isEmpty()) {
+			primaryReads.add(primaryKeys.size());
+			List<Url> loaded = delegate.getAll(primaryKeys);
+			for (int i = 0; i < primaryIndexes.size(); i++) {
+				urls.set(primaryIndexes.get(i), loaded.get(i));
+			}
+		}
+		return urls;
+	}
+
+	@Override
+	public boolean create(Url url) {
+		written(url.getShortUrl());
+		boolean created = delegate.create(url);
+		if (created) {
+			writeAnnouncer.accept(url.getShortUrl());
+		}
+		return created;
+	}
+
+	@Override
+	public void save(Url url) {
+		written(url.getShortUrl());
+		delegate.save(url);
+		writeAnnouncer.accept(url.getShortUrl());
+	}
+
+	@Override
+	public List<Boolean> createAll(List<Url> urls) {
+		urls.forEach((url) -> written(url.getShortUrl()));
+		List<Boolean> created = delegate.createAll(urls);
+		List<Url> announced = new ArrayList<Url>(urls.size());
+		for (int i = 0; i < urls.size(); i++) {
+			if (created.get(i)) {
+				announced.add(urls.get(i));
+			}
+		}
+		announce(announced);
+		return created;
+	}
+
+	@Override
+	public void saveAll(List<Url> urls) {
+		urls.forEach((url) -> written(url.getShortUrl()));
+		delegate.saveAll(urls);
+		announce(urls);
+	}
+
+	@Override
+	public Url update(String shortUrl, String longUrl) {
+		written(shortUrl);
+		Url previous = delegate.update(shortUrl, longUrl);
+		writeAnnouncer.accept(shortUrl);
+		return previous;
+	}
+
+	@Override
+	public void remove(String shortUrl) {
+		written(shortUrl);
+		delegate.remove(shortUrl);
+		writeAnnouncer.accept(shortUrl);
+	}
+
+	@Override
+	public Url updateIfPresent(String shortUrl, String longUrl) {
+		written(shortUrl);
+		Url previous = delegate.updateIfPresent(shortUrl, longUrl);
+		if (previous != null) {
+			writeAnnouncer.accept(shortUrl);
+		}
+		return previous;
+	}
+
+	@Override
+	public Url removeIfPresent(String shortUrl) {
+		written(shortUrl);
+		Url removed = delegate.removeIfPresent(shortUrl);
+		if (removed != null) {
+			writeAnnouncer.accept(shortUrl);
+		}
+		return removed;
+	}
+
+	/**
+	 * This method counts redirect, Url removed by its last redirect is
+	 * announced to all nodes.
+	 */
+	@Override
+	public long click(String shortUrl) {
+		written(shortUrl);
+		long left = delegate.click(shortUrl);
+		if (left <= 0) {
+			writeAnnouncer.accept(shortUrl);
+		}
+		return left;
+	}
+
+	/**
+	 * This method learns keys written by other nodes from their write,
+	 * creation or invalidation message.
+	 *
+	 * @param message
+	 *            short urls separated by RedisKeys.KEY_SEPARATOR.
+	 */
+	public void onWritten(String message) {
+		for (String shortUrl : message.split(RedisKeys.KEY_SEPARATOR)) {
+			written(shortUrl);
+		}
+	}
+
+	public ReplicaMetrics getMetrics() {
+		ReplicaMetrics metrics = new ReplicaMetrics();
+		metrics.setReplicas(replicas.size());
+		metrics.setHedgedReads(executor != null);
+		metrics.setReplicaReads(replicaReads.sum());
+		metrics.setPrimaryReads(primaryReads.sum());
+		metrics.setHedges(hedges.sum());
+		metrics.setHedgeWins(hedgeWins.sum());
+		metrics.setFailovers(failovers.sum());
+		metrics.setHedgeDelayMicros(hedgeDelayMicros);
+		metrics.setP99Micros(latencies.percentile(0.99));
+		return metrics;
+	}
+
+	/**
+	 * This method stops hedged read threads.
+	 */
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	private void written(String shortUrl) {
+		recentWrites.put(shortUrl, Boolean.TRUE);
+	}
+
+	private void announce(List<Url> urls) {
+		if (!urls.isEmpty()) {
+			writeAnnouncer.accept(urls.stream().map(Url::getShortUrl)
+					.collect(Collectors.joining(RedisKeys.KEY_SEPARATOR)));
+		}
+	}
+
+	/**
+	 * @return answer of replicas or null if they failed.
+	 */
+	private <T> T read(Function<ShortnerDao, T> lookup) {
+		int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+		replicaReads.increment();
+		try {
+			if (executor == null || latencies.getRecorded() < WARM_UP_SAMPLES) {
+				return timed(lookup, replicas.get(first));
+			}
+			return hedged(lookup, first);
+		} catch (RuntimeException re) {
+			failovers.increment();
+			log.warn("Unable to read replica, reading primary: " + re);
+			return null;
+		}
+	}
+
+	private <T> T hedged(Function<ShortnerDao, T> lookup, int first) {
+		CompletableFuture<T> firstRead = CompletableFuture.supplyAsync(() -> timed(lookup, replicas.get(first)),
+				executor);
+		try {
+			return firstRead.get(hedgeDelayMicros, TimeUnit.MICROSECONDS);
+		} catch (TimeoutException te) {
+			hedges.increment();
+		} catch (ExecutionException ee) {
+			// the next replica is asked at once
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted replica read", ie);
+		}
+		CompletableFuture<T> hedgedRead = CompletableFuture
+				.supplyAsync(() -> timed(lookup, replicas.get((first + 1) % replicas.size())), executor);
+		CompletableFuture<T> answer = new CompletableFuture<T>();
+		AtomicInteger failed = new AtomicInteger();
+		firstRead.whenComplete((value, failure) -> {
+			if (failure == null) {
+				answer.complete(value);
+			} else if (failed.incrementAndGet() == 2) {
+				answer.completeExceptionally(failure);
+			}
+		});
+		hedgedRead.whenComplete((value, failure) -> {
+			if (failure == null) {
+				if (answer.complete(value)) {
+					hedgeWins.increment();
+				}
+			} else if (failed.incrementAndGet() == 2) {
+				answer.completeExceptionally(failure);
+			}
+		});
+		return answer.join();
+	}
+
+	private <T> T timed(Function<ShortnerDao, T> lookup, ShortnerDao replica) {
+		long started = System.nanoTime();
+		T answer = lookup.apply(replica);
+		latencies.record((System.nanoTime() - started) / 1000);
+		if (executor != null && latencies.getRecorded() % HEDGE_DELAY_REFRESH == 0) {
+			hedgeDelayMicros = latencies.percentile(hedgePercentile);
+		}
+		return answer;
+	}
+
+}
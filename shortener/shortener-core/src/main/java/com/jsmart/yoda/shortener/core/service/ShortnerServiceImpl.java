@@ -4,14 +4,33 @@ import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.jsmart.yoda.shortener.base.PurgeJob;
 import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlBatchItem;
+import com.jsmart.yoda.shortener.base.UrlPage;
 import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
 import com.jsmart.yoda.shortener.base.service.ShortnerService;
+import com.jsmart.yoda.shortener.core.dedup.LongUrlDeduplicator;
+import com.jsmart.yoda.shortener.core.expiry.UrlExpiryWheel;
+import com.jsmart.yoda.shortener.core.generator.ShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.generator.ShortUrlKeyPool;
+import com.jsmart.yoda.shortener.core.hotkey.HotUrlPinner;
 import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorSettings;
+import com.jsmart.yoda.shortener.core.purge.PurgeJobRunner;
+import com.jsmart.yoda.shortener.core.support.Locations;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.validator.routines.UrlValidator;
 
 /**
@@ -28,6 +47,24 @@ public class ShortnerServiceImpl implements ShortnerService {
 	@Autowired
 	private ShortUrlGeneratorSettings shortUrlGeneratorSettings;
 
+	@Autowired
+	private ShortUrlGenerator shortUrlGenerator;
+
+	@Autowired(required = false)
+	private ShortUrlKeyPool shortUrlKeyPool;
+
+	@Autowired(required = false)
+	private LongUrlDeduplicator longUrlDeduplicator;
+
+	@Autowired(required = false)
+	private HotUrlPinner hotUrlPinner;
+
+	@Autowired(required = false)
+	private UrlExpiryWheel urlExpiryWheel;
+
+	@Autowired
+	private PurgeJobRunner purgeJobRunner;
+
 	private static final Logger log = Logger.getLogger(ShortnerServiceImpl.class);
 
 	public ShortnerDao getUrlShortnerDao() {
@@ -42,20 +79,114 @@ public class ShortnerServiceImpl implements ShortnerService {
 		this.shortUrlGeneratorSettings = shortUrlGeneratorConfig;
 	}
 
+	public void setShortUrlGenerator(ShortUrlGenerator shortUrlGenerator) {
+		this.shortUrlGenerator = shortUrlGenerator;
+	}
+
+	public void setShortUrlKeyPool(ShortUrlKeyPool shortUrlKeyPool) {
+		this.shortUrlKeyPool = shortUrlKeyPool;
+	}
+
+	public void setLongUrlDeduplicator(LongUrlDeduplicator longUrlDeduplicator) {
+		this.longUrlDeduplicator = longUrlDeduplicator;
+	}
+
+	public void setHotUrlPinner(HotUrlPinner hotUrlPinner) {
+		this.hotUrlPinner = hotUrlPinner;
+	}
+
+	public void setUrlExpiryWheel(UrlExpiryWheel urlExpiryWheel) {
+		this.urlExpiryWheel = urlExpiryWheel;
+	}
+
+	public void setPurgeJobRunner(PurgeJobRunner purgeJobRunner) {
+		this.purgeJobRunner = purgeJobRunner;
+	}
+
 	/**
-	 * This method fetches stored Url - base on key (short url) from DAO.
+	 * This method fetches stored Url - base on key (short url) from DAO. With
+	 * hot keys enabled every request is counted and Urls of heavy hitters are
+	 * served from memory.
 	 * 
 	 * @param shortUrl
 	 *            Unique short letter string.
 	 * 
 	 * @see com.jsmart.yoda.shortener.base.Url.
 	 * 
-	 * @return stored Url or null if not found.
+	 * @return stored Url or null if not found or expired.
 	 */
 	@Override
 	public Url get(String shortUrl) {
 		log.info("Fetching Url with shortUrl " + shortUrl);
-		return urlShortnerDao.get(shortUrl);
+		Url url = hotUrlPinner != null ? hotUrlPinner.get(shortUrl) : null;
+		if (url == null) {
+			url = urlShortnerDao.get(shortUrl);
+		}
+		// local caches drop expired Url up to one wheel tick late
+		if (url != null && url.isExpiredAt(System.currentTimeMillis())) {
+			return null;
+		}
+		return url;
+	}
+
+	/**
+	 * This method fetches Url to redirect to. Redirect of click limited Url is
+	 * counted in storage, the last allowed one removes Url.
+	 * 
+	 * @param shortUrl
+	 *            Unique short letter string.
+	 * 
+	 * @return Url to redirect to or null if not found, expired or out of
+	 *         clicks.
+	 */
+	@Override
+	public Url redirect(String shortUrl) {
+		Url url = get(shortUrl);
+		if (url == null || url.getClicksLeft() == null) {
+			return url;
+		}
+		long left = urlShortnerDao.click(shortUrl);
+		if (left <= 0 && hotUrlPinner != null) {
+			hotUrlPinner.unpin(shortUrl);
+		}
+		return left < 0 ? null : url;
+	}
+
+	/**
+	 * This method is non-blocking counterpart of get: pinned hot Url is
+	 * answered at once, otherwise lookup is passed to DAO without holding
+	 * caller thread when storage has non-blocking client.
+	 * 
+	 * @return future of stored Url or null if not found or expired.
+	 */
+	@Override
+	public CompletableFuture<Url> getAsync(String shortUrl) {
+		log.info("Fetching Url with shortUrl " + shortUrl);
+		Url pinned = hotUrlPinner != null ? hotUrlPinner.get(shortUrl) : null;
+		CompletableFuture<Url> url = pinned != null ? CompletableFuture.completedFuture(pinned)
+				: urlShortnerDao.getAsync(shortUrl);
+		return url.thenApply((found) -> found != null && found.isExpiredAt(System.currentTimeMillis()) ? null : found);
+	}
+
+	/**
+	 * This method is non-blocking counterpart of redirect.
+	 * 
+	 * @return future of Url to redirect to or null if not found, expired or
+	 *         out of clicks.
+	 */
+	@Override
+	public CompletableFuture<Url> redirectAsync(String shortUrl) {
+		return getAsync(shortUrl).thenCompose((url) -> {
+			if (url == null || url.getClicksLeft() == null) {
+				return CompletableFuture.completedFuture(url);
+			}
+			return urlShortnerDao.clickAsync(shortUrl).thenApply((left) -> {
+				if (left <= 0 && hotUrlPinner != null) {
+					hotUrlPinner.unpin(shortUrl);
+				}
+				return left < 0 ? null : url;
+			});
+		});
 	}
 
 	/**
@@ -71,41 +202,295 @@ public class ShortnerServiceImpl implements ShortnerService {
 		return urlShortnerDao.getAll();
 	}
 
+	/**
+	 * This method fetches stored Urls for many keys (short urls) at once.
+	 * Pinned hot Urls are served from memory, the rest is fetched from DAO
+	 * with one call.
+	 * 
+	 * @param shortUrls
+	 *            keys to fetch.
+	 * 
+	 * @return Urls in the order of keys, null for not found ones.
+	 */
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		log.info("Fetching " + shortUrls.size() + " Urls");
+		List<Url> urls = new ArrayList<Url>(shortUrls.size());
+		List<String> misses = new ArrayList<String>();
+		for (String shortUrl : shortUrls) {
+			Url url = hotUrlPinner != null ? hotUrlPinner.get(shortUrl) : null;
+			if (url == null) {
+				misses.add(shortUrl);
+			}
+			urls.add(url);
+		}
+		if (!misses.isEmpty()) {
+			Iterator<Url> fetched = urlShortnerDao.getAll(misses).iterator();
+			for (int i = 0; i < urls.size(); i++) {
+				if (urls.get(i) == null) {
+					urls.set(i, fetched.next());
+				}
+			}
+		}
+		return urls;
+	}
+
+	/**
+	 * This method is non-blocking counterpart of getAll by keys.
+	 * 
+	 * @return future of Urls in the order of keys, null for not found ones.
+	 */
+	@Override
+	public CompletableFuture<List<Url>> getAllAsync(List<String> shortUrls) {
+		log.info("Fetching " + shortUrls.size() + " Urls");
+		List<Url> urls = new ArrayList<Url>(shortUrls.size());
+		List<String> misses = new ArrayList<String>();
+		for (String shortUrl : shortUrls) {
+			Url url = hotUrlPinner != null ? hotUrlPinner.get(shortUrl) : null;
+			if (url == null) {
+				misses.add(shortUrl);
+			}
+			urls.add(url);
+		}
+		if (misses.isEmpty()) {
+			return CompletableFuture.completedFuture(urls);
+		}
+		return urlShortnerDao.getAllAsync(misses).thenApply((fetched) -> {
+			Iterator<Url> iterator = fetched.iterator();
+			for (int i = 0; i < urls.size(); i++) {
+				if (urls.get(i) == null) {
+					urls.set(i, iterator.next());
+				}
+			}
+			return urls;
+		});
+	}
+
+	/**
+	 * This method fetches one page of stored Urls.
+	 * 
+	 * @param cursor
+	 *            cursor returned with previous page, "0" for the first page.
+	 * 
+	 * @param limit
+	 *            desired amount of Urls in the page.
+	 * 
+	 * @return page of Urls with cursor of the next page.
+	 */
+	@Override
+	public UrlPage getPage(String cursor, int limit) {
+		log.info("Fetching page of Urls from cursor " + cursor);
+		return urlShortnerDao.getPage(cursor, limit);
+	}
+
+	/**
+	 * This method streams all stored Urls as they are read from storage.
+	 * 
+	 * @return stream of stored Urls, to be closed after use.
+	 */
+	@Override
+	public Stream<Url> stream() {
+		log.info("Streaming all Urls");
+		return urlShortnerDao.stream();
+	}
+
 	/**
 	 * This method creates new instance of Url for new long url with unique key.
+	 * Taken keys are reported to generator and retried with fresh key up to
+	 * configured amount of attempts. Keys unique by construction are written
+	 * unconditionally. With deduplication enabled already shortened long url
+	 * gets its existing key back.
 	 * 
 	 * @param longUrl
 	 *            String url representation.
 	 * 
 	 * @see com.jsmart.yoda.shortener.base.Url.
 	 * 
-	 * @return new instance of Url.
+	 * @return new instance of Url or null if no free key was found.
 	 */
 	@Override
 	public Url create(String longUrl) {
+		return create(longUrl, 0, 0);
+	}
+
+	/**
+	 * This method creates new instance of Url which expires after given time
+	 * or amount of redirects, whichever comes first. Expiring Urls are never
+	 * deduplicated.
+	 * 
+	 * @param longUrl
+	 *            String url representation.
+	 * 
+	 * @param ttlSeconds
+	 *            seconds Url lives, 0 for no time limit.
+	 * 
+	 * @param maxClicks
+	 *            amount of redirects Url serves, 0 for no limit.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if limits are given while expiry is disabled.
+	 * 
+	 * @return new instance of Url or null if no free key was found.
+	 */
+	@Override
+	public Url create(String longUrl, long ttlSeconds, long maxClicks) {
 
 		log.info("Creating Url for " + longUrl);
-		
+
+		if (ttlSeconds < 0 || maxClicks < 0) {
+			throw new IllegalArgumentException("Illegal limits " + ttlSeconds + "s, " + maxClicks + " clicks");
+		}
+		boolean expiring = ttlSeconds > 0 || maxClicks > 0;
+		if (expiring && urlExpiryWheel == null) {
+			throw new UnsupportedOperationException("Expiring links are disabled");
+		}
+
 		longUrl = fixLongUrl(longUrl);
 
+		if (longUrlDeduplicator != null && !expiring) {
+			String shortUrl = longUrlDeduplicator.find(longUrl);
+			if (shortUrl != null) {
+				log.info("Url already shortened as " + shortUrl);
+				return new Url(shortUrl, longUrl);
+			}
+		}
+
 		Url url = new Url();
 		url.setLongUrl(longUrl);
+		if (ttlSeconds > 0) {
+			url.setExpiresAt(System.currentTimeMillis() + ttlSeconds * 1000);
+		}
+		if (maxClicks > 0) {
+			url.setClicksLeft(maxClicks);
+		}
 
-		String uuid = UUID.randomUUID().toString();
-		url.setShortUrl(uuid.substring(1, shortUrlGeneratorSettings.getShortUrlLenght() + 1));
+		// pool reports its keys to generator when it checks them
+		Set<String> pooled = new HashSet<String>();
+		if (shortUrlGenerator.isUnique()) {
+			url.setShortUrl(nextShortUrl(pooled));
+			urlShortnerDao.save(url);
+			onCreated(url, pooled);
+			return url;
+		}
+
+		int maxAttempts = Math.max(1, shortUrlGeneratorSettings.getMaxAttempts());
+		for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+			url.setShortUrl(nextShortUrl(pooled));
+			if (urlShortnerDao.create(url)) {
+				onCreated(url, pooled);
+				return url;
+			}
+			shortUrlGenerator.onCollision(url.getShortUrl());
+			log.info("Short url " + url.getShortUrl() + " is taken, attempt " + attempt + " of " + maxAttempts);
+		}
+		log.info("Url create fail");
+		return null;
+	}
+
+	/**
+	 * This method creates Urls for batch of long urls. Long urls are validated
+	 * in parallel, keys for the whole batch are allocated at once and written
+	 * with one pipelined round trip. Taken keys are retried with fresh keys
+	 * the same way as in create, all of them in one round trip per attempt.
+	 * With deduplication enabled already shortened long urls, and repeats
+	 * inside the batch, get existing key back.
+	 * 
+	 * @param longUrls
+	 *            String urls representation.
+	 * 
+	 * @return result for every long url in the same order.
+	 */
+	@Override
+	public List<UrlBatchItem> createAll(List<String> longUrls) {
 
-		if (urlShortnerDao.create(url)) {
-			log.info("Url created");
+		log.info("Creating batch of " + longUrls.size() + " Urls");
+
+		List<String> fixedUrls = longUrls.parallelStream()
+				.map((longUrl) -> longUrl == null || longUrl.trim().isEmpty() ? null : fixLongUrl(longUrl.trim()))
+				.collect(Collectors.toList());
+
+		UrlBatchItem[] items = new UrlBatchItem[fixedUrls.size()];
+		Map<String, UrlBatchItem> firstItems = new HashMap<String, UrlBatchItem>();
+		List<Url> pending = new ArrayList<Url>();
+		List<UrlBatchItem> pendingItems = new ArrayList<UrlBatchItem>();
+
+		for (int i = 0; i < items.length; i++) {
+			String longUrl = fixedUrls.get(i);
+			if (longUrl == null) {
+				items[i] = new UrlBatchItem(UrlBatchItem.Status.INVALID, null, longUrls.get(i));
+				continue;
+			}
+			if (longUrlDeduplicator != null) {
+				UrlBatchItem first = firstItems.get(LongUrlDeduplicator.normalize(longUrl));
+				if (first != null) {
+					items[i] = first;
+					continue;
+				}
+				String shortUrl = longUrlDeduplicator.find(longUrl);
+				if (shortUrl != null) {
+					items[i] = new UrlBatchItem(UrlBatchItem.Status.EXISTING, shortUrl, longUrl);
+					continue;
+				}
+			}
+			items[i] = new UrlBatchItem(UrlBatchItem.Status.FAILED, null, longUrl);
+			if (longUrlDeduplicator != null) {
+				firstItems.put(LongUrlDeduplicator.normalize(longUrl), items[i]);
+			}
+			pending.add(new Url(null, longUrl));
+			pendingItems.add(items[i]);
+		}
+
+		List<Url> created = new ArrayList<Url>(pending.size());
+		Set<String> pooled = new HashSet<String>();
+		if (shortUrlGenerator.isUnique()) {
+			assignShortUrls(pending, pooled);
+			urlShortnerDao.saveAll(pending);
+			for (int i = 0; i < pending.size(); i++) {
+				created(pendingItems.get(i), pending.get(i));
+			}
+			created.addAll(pending);
 		} else {
-			url = null;
-			log.info("Url create fail");
+			int maxAttempts = Math.max(1, shortUrlGeneratorSettings.getMaxAttempts());
+			for (int attempt = 1; attempt <= maxAttempts && !pending.isEmpty(); attempt++) {
+				assignShortUrls(pending, pooled);
+				List<Boolean> results = urlShortnerDao.createAll(pending);
+				List<Url> taken = new ArrayList<Url>();
+				List<UrlBatchItem> takenItems = new ArrayList<UrlBatchItem>();
+				for (int i = 0; i < pending.size(); i++) {
+					Url url = pending.get(i);
+					if (results.get(i)) {
+						created(pendingItems.get(i), url);
+						created.add(url);
+					} else {
+						shortUrlGenerator.onCollision(url.getShortUrl());
+						taken.add(url);
+						takenItems.add(pendingItems.get(i));
+					}
+				}
+				if (!taken.isEmpty()) {
+					log.info(taken.size() + " short urls are taken, attempt " + attempt + " of " + maxAttempts);
+				}
+				pending = taken;
+				pendingItems = takenItems;
+			}
 		}
-		return url;
+
+		for (Url url : created) {
+			if (!pooled.contains(url.getShortUrl())) {
+				shortUrlGenerator.onCreated(url.getShortUrl());
+			}
+		}
+		if (longUrlDeduplicator != null) {
+			longUrlDeduplicator.registerAll(created);
+		}
+		log.info(created.size() + " of " + items.length + " Urls created");
+		return Arrays.asList(items);
 	}
 
 	/**
 	 * This method updates stored Url - base on key (short url) value through
-	 * DAO.
+	 * DAO. Expiration of the Url is kept. With deduplication enabled the key
+	 * is looked up by its new long url instead of the old one.
 	 * 
 	 * @param shortUrl
 	 *            Key to be updated.
@@ -115,17 +500,27 @@ public class ShortnerServiceImpl implements ShortnerService {
 	 * 
 	 * @see com.jsmart.yoda.shortener.base.Url.
 	 * 
-	 * @return updated Url or null if not found
+	 * @return updated Url with its expiration or null if not found
 	 */
 	@Override
 	public Url update(String shortUrl, String longUrl) {
 
-		log.info("Fetching Url with shortUrl " + shortUrl);
-		
-		Url url = urlShortnerDao.get(shortUrl);
+		log.info("Updating Url with shortUrl " + shortUrl);
+
+		String fixedLongUrl = fixLongUrl(longUrl);
+		Url url = urlShortnerDao.updateIfPresent(shortUrl, fixedLongUrl);
 		if (Optional.ofNullable(url).isPresent()) {
-			longUrl = fixLongUrl(longUrl);
-			Url updatedUrl = urlShortnerDao.update(shortUrl, longUrl);
+			// update keeps expiration, so it is taken from the previous Url
+			Url updatedUrl = new Url(shortUrl, fixedLongUrl, url.getExpiresAt(), url.getClicksLeft());
+			if (hotUrlPinner != null) {
+				hotUrlPinner.unpin(shortUrl);
+			}
+			if (longUrlDeduplicator != null) {
+				longUrlDeduplicator.forget(url.getLongUrl(), shortUrl);
+				if (!url.expires()) {
+					longUrlDeduplicator.register(updatedUrl.getLongUrl(), shortUrl);
+				}
+			}
 			log.info("Url with shortUrl " + shortUrl + " updated");
 			return updatedUrl;
 		} else {
@@ -146,11 +541,16 @@ public class ShortnerServiceImpl implements ShortnerService {
 	@Override
 	public boolean remove(String shortUrl) {
 
-		log.info("Fetching and deleting Url with shortUrl " + shortUrl);
+		log.info("Deleting Url with shortUrl " + shortUrl);
 
-		Url url = urlShortnerDao.get(shortUrl);
+		Url url = urlShortnerDao.removeIfPresent(shortUrl);
 		if (Optional.ofNullable(url).isPresent()) {
-			urlShortnerDao.remove(shortUrl);
+			if (hotUrlPinner != null) {
+				hotUrlPinner.unpin(shortUrl);
+			}
+			if (longUrlDeduplicator != null) {
+				longUrlDeduplicator.forget(url.getLongUrl(), shortUrl);
+			}
 			log.info("Url removed");
 			return true;
 		} else {
@@ -167,6 +567,7 @@ public class ShortnerServiceImpl implements ShortnerService {
 	@Override
 	public boolean removeAll() {
 		log.info("Removing all Urls");
+		forgetAll();
 		if (urlShortnerDao.removeAll()) {
 			log.info("All Urls removed");
 			return true;
@@ -176,9 +577,109 @@ public class ShortnerServiceImpl implements ShortnerService {
 		}
 	}
 
+	/**
+	 * This method starts removal of all stored Urls in background and returns
+	 * at once. If removal is already running, running one is returned.
+	 * 
+	 * @return purge job to query progress of.
+	 */
+	@Override
+	public PurgeJob removeAllAsync() {
+		log.info("Starting removal of all Urls");
+		return purgeJobRunner.submit((progress) -> {
+			forgetAll();
+			return urlShortnerDao.removeAll(progress);
+		});
+	}
+
+	/**
+	 * This method fetches state of background removal of all Urls.
+	 * 
+	 * @param id
+	 *            purge job id.
+	 * 
+	 * @return purge job or null if not found.
+	 */
+	@Override
+	public PurgeJob getPurgeJob(String id) {
+		return purgeJobRunner.get(id);
+	}
+
+	private void forgetAll() {
+		if (longUrlDeduplicator != null) {
+			longUrlDeduplicator.clear();
+		}
+		if (hotUrlPinner != null) {
+			hotUrlPinner.clear();
+		}
+	}
+
+	private static void created(UrlBatchItem item, Url url) {
+		item.setStatus(UrlBatchItem.Status.CREATED);
+		item.setShortUrl(url.getShortUrl());
+	}
+
+	/**
+	 * This method gives fresh keys to batch of Urls: pre-generated keys from
+	 * pool first, the rest generated at once.
+	 * 
+	 * @param pooled
+	 *            collects keys taken from pool.
+	 */
+	private void assignShortUrls(List<Url> urls, Set<String> pooled) {
+		int assigned = 0;
+		if (shortUrlKeyPool != null) {
+			for (; assigned < urls.size(); assigned++) {
+				String shortUrl = shortUrlKeyPool.poll();
+				if (shortUrl == null) {
+					break;
+				}
+				urls.get(assigned).setShortUrl(shortUrl);
+				pooled.add(shortUrl);
+			}
+		}
+		if (assigned < urls.size()) {
+			List<String> shortUrls = shortUrlGenerator.next(urls.size() - assigned);
+			for (String shortUrl : shortUrls) {
+				urls.get(assigned++).setShortUrl(shortUrl);
+			}
+		}
+	}
+
+	private void onCreated(Url url, Set<String> pooled) {
+		if (!pooled.contains(url.getShortUrl())) {
+			shortUrlGenerator.onCreated(url.getShortUrl());
+		}
+		if (longUrlDeduplicator != null && !url.expires()) {
+			longUrlDeduplicator.register(url.getLongUrl(), url.getShortUrl());
+		}
+		log.info("Url created");
+	}
+
+	/**
+	 * This method takes key from pre-generated pool if it's enabled and not
+	 * drained, otherwise generates it in place.
+	 * 
+	 * @param pooled
+	 *            collects key taken from pool.
+	 * 
+	 * @return new short url key.
+	 */
+	private String nextShortUrl(Set<String> pooled) {
+		if (shortUrlKeyPool != null) {
+			String shortUrl = shortUrlKeyPool.poll();
+			if (shortUrl != null) {
+				pooled.add(shortUrl);
+				return shortUrl;
+			}
+		}
+		return shortUrlGenerator.next();
+	}
+
 	/**
 	 * This method validates long url. Long url should consists http or https
-	 * part for correct redirect.
+	 * part for correct redirect. Result is encoded to ASCII form ready to be
+	 * used as Location header of redirect.
 	 * 
 	 * @param longUrl
 	 *            Url string representation.
@@ -194,7 +695,7 @@ public class ShortnerServiceImpl implements ShortnerService {
 			log.info("Incoming Url " + longUrl + " is invalid and will concat with http://");
 			longUrl = "http://".concat(longUrl);
 		}
-		return longUrl;
+		return Locations.encode(longUrl);
 	}
 
 }
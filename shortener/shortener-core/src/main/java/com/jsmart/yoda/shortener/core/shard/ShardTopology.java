@@ -0,0 +1,76 @@
+package com.jsmart.yoda.shortener.core.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Shards of sharded storage shared by all nodes. Shards added after
+ *         startup are kept in Redis, so restarted nodes build the same ring,
+ *         and announced through Redis pub/sub, so running nodes route keys to
+ *         a new shard as soon as rebalancing onto it starts. Keys in Redis are
+ *         the source of truth, messages only make nodes apply changes sooner.
+ *
+ *         Message is the change followed by shard endpoint, e.g.
+ *         "rebalancing localhost:6380/0".
+ */
+public class ShardTopology {
+
+	static final String REBALANCING = "rebalancing";
+	static final String BALANCED = "balanced";
+
+	private final RedisTemplate<String, String> redisTemplate;
+
+	/**
+	 * @param redisTemplate
+	 *            template of Redis shared by all nodes.
+	 */
+	public ShardTopology(RedisTemplate<String, String> redisTemplate) {
+		this.redisTemplate = redisTemplate;
+	}
+
+	/**
+	 * @param configured
+	 *            shards given by configuration.
+	 *
+	 * @return configured shards followed by ones added later.
+	 */
+	public List<String> load(List<String> configured) {
+		List<String> endpoints = new ArrayList<String>(configured);
+		for (String endpoint : redisTemplate.opsForList().range(RedisKeys.SHARDS, 0, -1)) {
+			if (!endpoints.contains(endpoint)) {
+				endpoints.add(endpoint);
+			}
+		}
+		return endpoints;
+	}
+
+	/**
+	 * @return shard rebalancing onto which isn't finished or null.
+	 */
+	public String loadRebalancing() {
+		return redisTemplate.opsForValue().get(RedisKeys.SHARDS_REBALANCING);
+	}
+
+	/**
+	 * This method keeps rebalancing shard before adding it to shards, so a
+	 * node which reads shards and then rebalancing one never sees the new
+	 * shard as balanced.
+	 */
+	public void announceRebalancing(String endpoint) {
+		redisTemplate.opsForValue().set(RedisKeys.SHARDS_REBALANCING, endpoint);
+		redisTemplate.opsForList().rightPush(RedisKeys.SHARDS, endpoint);
+		redisTemplate.convertAndSend(RedisKeys.SHARD_CHANNEL, REBALANCING + " " + endpoint);
+	}
+
+	public void announceBalanced(String endpoint) {
+		redisTemplate.delete(RedisKeys.SHARDS_REBALANCING);
+		redisTemplate.convertAndSend(RedisKeys.SHARD_CHANNEL, BALANCED + " " + endpoint);
+	}
+
+}
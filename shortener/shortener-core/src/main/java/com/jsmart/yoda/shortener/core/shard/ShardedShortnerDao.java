@@ -0,0 +1,717 @@
+package com.jsmart.yoda.shortener.core.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlPage;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.ShortnerDaoImpl;
+import com.jsmart.yoda.shortener.core.model.MigrationReport;
+import com.jsmart.yoda.shortener.core.model.ShardMetrics;
+import com.jsmart.yoda.shortener.core.support.ConsistentHashRing;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         ShortnerDao spreading Urls over several Redis endpoints (shards) by
+ *         consistent hash of short url. Single key operations go straight to
+ *         the owning shard, multi key ones are split by shard and sent to all
+ *         of them in parallel, listings walk shards one after another.
+ *
+ *         Shard added online takes its keys from the others while serving:
+ *         until rebalancing is finished a key missing on its new shard is
+ *         looked up on the previous one, and conditional writes move the key
+ *         first. Every move writes Url to the new shard, if absent there,
+ *         before removing it from previous one, and removes it only if it is
+ *         unchanged since it was read, so a failed or raced move leaves Url
+ *         where it was. Listing during rebalancing may return a moved Url
+ *         twice.
+ *
+ *         Shards kept in Redis by shard topology are the source of truth:
+ *         changes are applied as they are announced, and topology is also
+ *         reloaded periodically and after pub/sub subscription is restored,
+ *         so a node which missed an announcement catches up.
+ */
+public class ShardedShortnerDao implements ShortnerDao {
+
+	static final int BATCH = 1000;
+
+	// passes after the first one move keys written by nodes which learned about the shard late
+	static final int MAX_PASSES = 5;
+
+	// reads of a Url changed on previous shard while it was moved
+	static final int MAX_MOVE_ATTEMPTS = 3;
+
+	private static final Pattern CURSOR_PATTERN = Pattern.compile("(\\d{1,4})\\.(\\d{1,20})");
+
+	private static final Logger log = Logger.getLogger(ShardedShortnerDao.class);
+
+	private static final class Topology {
+
+		final ConsistentHashRing ring;
+		// ring before rebalancing shard was added, null if balanced
+		final ConsistentHashRing previous;
+		final String rebalancing;
+		final Map<String, ShortnerDaoImpl> shards;
+
+		Topology(ConsistentHashRing ring, ConsistentHashRing previous, String rebalancing,
+				Map<String, ShortnerDaoImpl> shards) {
+			this.ring = ring;
+			this.previous = previous;
+			this.rebalancing = rebalancing;
+			this.shards = shards;
+		}
+
+		ShortnerDao owner(String shortUrl) {
+			return shards.get(ring.locate(shortUrl));
+		}
+
+		/**
+		 * @return shard which may still hold key moving to rebalancing shard
+		 *         or null.
+		 */
+		String previousOwner(String shortUrl) {
+			if (previous == null || !rebalancing.equals(ring.locate(shortUrl))) {
+				return null;
+			}
+			return previous.locate(shortUrl);
+		}
+	}
+
+	private final List<String> endpoints;
+	private final ShardTopology shardTopology;
+	private final Function<String, ShortnerDaoImpl> connector;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool((runnable) -> {
+		Thread thread = new Thread(runnable, "shard-fanout");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Object topologyLock = new Object();
+	private volatile Topology topology;
+
+	private volatile ScheduledExecutorService reloader;
+
+	/**
+	 * @param endpoints
+	 *            configured shards, shards added later are loaded from shard
+	 *            topology.
+	 *
+	 * @param virtualNodes
+	 *            points of every shard on hash ring.
+	 *
+	 * @param shardTopology
+	 *            shards shared by all nodes.
+	 *
+	 * @param connector
+	 *            creates DAO of shard endpoint.
+	 */
+	public ShardedShortnerDao(List<String> endpoints, int virtualNodes, ShardTopology shardTopology,
+			Function<String, ShortnerDaoImpl> connector) {
+		this.endpoints = new ArrayList<String>(endpoints);
+		this.shardTopology = shardTopology;
+		this.connector = connector;
+		List<String> shards = shardTopology.load(endpoints);
+		Map<String, ShortnerDaoImpl> daos = new LinkedHashMap<String, ShortnerDaoImpl>();
+		shards.forEach((endpoint) -> daos.put(endpoint, connector.apply(endpoint)));
+		ConsistentHashRing ring = new ConsistentHashRing(shards, virtualNodes);
+		String rebalancing = shardTopology.loadRebalancing();
+		if (rebalancing != null && shards.size() > 1 && shards.contains(rebalancing)) {
+			List<String> balanced = new ArrayList<String>(shards);
+			balanced.remove(rebalancing);
+			log.info("Rebalancing onto " + rebalancing + " is not finished");
+			topology = new Topology(ring, new ConsistentHashRing(balanced, virtualNodes), rebalancing, daos);
+		} else {
+			topology = new Topology(ring, null, null, daos);
+		}
+	}
+
+	@Override
+	public Url get(String shortUrl) {
+		Topology t = topology;
+		ShortnerDao owner = t.owner(shortUrl);
+		Url url = owner.get(shortUrl);
+		String previousOwner = url == null ? t.previousOwner(shortUrl) : null;
+		if (previousOwner != null) {
+			url = t.shards.get(previousOwner).get(shortUrl);
+			if (url == null) {
+				// Url could move between both reads
+				url = owner.get(shortUrl);
+			}
+		}
+		return url;
+	}
+
+	/**
+	 * This method fetches Urls from all shards owning the keys in parallel,
+	 * one batch lookup per shard.
+	 *
+	 * @return Urls in the order of keys, null for not found ones.
+	 */
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		Topology t = topology;
+		List<Url> urls = new ArrayList<Url>(Collections.nCopies(shortUrls.size(), (Url) null));
+		lookup(t, shortUrls, urls, t.ring::locate);
+		if (t.previous != null) {
+			lookup(t, shortUrls, urls, t::previousOwner);
+			lookup(t, shortUrls, urls, t.ring::locate);
+		}
+		return urls;
+	}
+
+	/**
+	 * This method looks up keys not found yet on shards given by route.
+	 */
+	private void lookup(Topology t, List<String> shortUrls, List<Url> urls, Function<String, String> route) {
+		Map<String, List<Integer>> groups = group(shortUrls, (i) -> urls.get(i) == null, route);
+		List<Supplier<List<Url>>> lookups = new ArrayList<Supplier<List<Url>>>(groups.size());
+		for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+			ShortnerDao shard = t.shards.get(group.getKey());
+			List<String> keys = group.getValue().stream().map(shortUrls::get).collect(Collectors.toList());
+			lookups.add(() -> shard.getAll(keys));
+		}
+		List<List<Url>> found = fanOut(lookups);
+		int next = 0;
+		for (List<Integer> indexes : groups.values()) {
+			List<Url> shardUrls = found.get(next++);
+			for (int i = 0; i < indexes.size(); i++) {
+				urls.set(indexes.get(i), shardUrls.get(i));
+			}
+		}
+	}
+
+	@Override
+	public List<Url> getAll() {
+		Topology t = topology;
+		List<Supplier<List<Url>>> lookups = new ArrayList<Supplier<List<Url>>>();
+		t.shards.values().forEach((shard) -> lookups.add(shard::getAll));
+		List<Url> urls = new ArrayList<Url>();
+		fanOut(lookups).forEach(urls::addAll);
+		return urls;
+	}
+
+	/**
+	 * This method streams Urls of all shards one after another. Stream holds
+	 * a connection of every shard until it is closed.
+	 *
+	 * @return stream of stored Urls, to be closed after use.
+	 */
+	@Override
+	public Stream<Url> stream() {
+		Stream<Url> urls = Stream.empty();
+		try {
+			for (ShortnerDao shard : topology.shards.values()) {
+				urls = Stream.concat(urls, shard.stream());
+			}
+		} catch (RuntimeException | Error e) {
+			urls.close();
+			throw e;
+		}
+		return urls;
+	}
+
+	/**
+	 * This method fetches one page of stored Urls from one shard. Cursor is
+	 * the index of the shard in the order shards were added and the cursor
+	 * within the shard, e.g. "1.2048".
+	 *
+	 * @param cursor
+	 *            cursor returned with previous page, "0" for the first page.
+	 *
+	 * @param limit
+	 *            desired amount of Urls in the page.
+	 *
+	 * @return page of Urls with cursor of the next page, "0" if there are no
+	 *         more pages.
+	 */
+	@Override
+	public UrlPage getPage(String cursor, int limit) {
+		Topology t = topology;
+		List<String> shards = t.ring.getNodes();
+		int shard = 0;
+		String shardCursor = UrlPage.FIRST;
+		if (!UrlPage.FIRST.equals(cursor)) {
+			Matcher matcher = CURSOR_PATTERN.matcher(cursor);
+			if (!matcher.matches() || Integer.parseInt(matcher.group(1)) >= shards.size()) {
+				throw new IllegalArgumentException("Illegal cursor " + cursor);
+			}
+			shard = Integer.parseInt(matcher.group(1));
+			shardCursor = matcher.group(2);
+		}
+		UrlPage page = t.shards.get(shards.get(shard)).getPage(shardCursor, limit);
+		if (!UrlPage.FIRST.equals(page.getCursor())) {
+			return new UrlPage(page.getUrls(), shard + "." + page.getCursor());
+		}
+		return new UrlPage(page.getUrls(), shard + 1 < shards.size() ? (shard + 1) + "." + UrlPage.FIRST : UrlPage.FIRST);
+	}
+
+	@Override
+	public void forEachKey(Consumer<String> action) {
+		topology.shards.values().forEach((shard) -> shard.forEachKey(action));
+	}
+
+	@Override
+	public boolean create(Url url) {
+		Topology t = topology;
+		moveIfRebalancing(t, url.getShortUrl());
+		return t.owner(url.getShortUrl()).create(url);
+	}
+
+	@Override
+	public void save(Url url) {
+		topology.owner(url.getShortUrl()).save(url);
+	}
+
+	/**
+	 * This method creates Urls on their shards in parallel, one batch create
+	 * per shard.
+	 *
+	 * @return for every Url in the same order true if it was created or false
+	 *         if its key was taken.
+	 */
+	@Override
+	public List<Boolean> createAll(List<Url> urls) {
+		Topology t = topology;
+		List<String> shortUrls = urls.stream().map(Url::getShortUrl).collect(Collectors.toList());
+		if (t.previous != null) {
+			shortUrls.forEach((shortUrl) -> moveIfRebalancing(t, shortUrl));
+		}
+		Map<String, List<Integer>> groups = group(shortUrls, (i) -> true, t.ring::locate);
+		List<Supplier<List<Boolean>>> creates = new ArrayList<Supplier<List<Boolean>>>(groups.size());
+		for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+			ShortnerDao shard = t.shards.get(group.getKey());
+			List<Url> shardUrls = group.getValue().stream().map(urls::get).collect(Collectors.toList());
+			creates.add(() -> shard.createAll(shardUrls));
+		}
+		List<List<Boolean>> results = fanOut(creates);
+		List<Boolean> created = new ArrayList<Boolean>(Collections.nCopies(urls.size(), Boolean.FALSE));
+		int next = 0;
+		for (List<Integer> indexes : groups.values()) {
+			List<Boolean> shardCreated = results.get(next++);
+			for (int i = 0; i < indexes.size(); i++) {
+				created.set(indexes.get(i), shardCreated.get(i));
+			}
+		}
+		return created;
+	}
+
+	/**
+	 * This method writes Urls to their shards in parallel, one batch write
+	 * per shard.
+	 */
+	@Override
+	public void saveAll(List<Url> urls) {
+		Topology t = topology;
+		List<String> shortUrls = urls.stream().map(Url::getShortUrl).collect(Collectors.toList());
+		List<Supplier<Void>> saves = new ArrayList<Supplier<Void>>();
+		for (Map.Entry<String, List<Integer>> group : group(shortUrls, (i) -> true, t.ring::locate).entrySet()) {
+			ShortnerDao shard = t.shards.get(group.getKey());
+			List<Url> shardUrls = group.getValue().stream().map(urls::get).collect(Collectors.toList());
+			saves.add(() -> {
+				shard.saveAll(shardUrls);
+				return null;
+			});
+		}
+		fanOut(saves);
+	}
+
+	@Override
+	public Url update(String shortUrl, String longUrl) {
+		return topology.owner(shortUrl).update(shortUrl, longUrl);
+	}
+
+	@Override
+	public void remove(String shortUrl) {
+		Topology t = topology;
+		t.owner(shortUrl).remove(shortUrl);
+		String previousOwner = t.previousOwner(shortUrl);
+		if (previousOwner != null) {
+			t.shards.get(previousOwner).remove(shortUrl);
+		}
+	}
+
+	@Override
+	public Url updateIfPresent(String shortUrl, String longUrl) {
+		Topology t = topology;
+		moveIfRebalancing(t, shortUrl);
+		return t.owner(shortUrl).updateIfPresent(shortUrl, longUrl);
+	}
+
+	@Override
+	public Url removeIfPresent(String shortUrl) {
+		Topology t = topology;
+		moveIfRebalancing(t, shortUrl);
+		return t.owner(shortUrl).removeIfPresent(shortUrl);
+	}
+
+	@Override
+	public long click(String shortUrl) {
+		Topology t = topology;
+		moveIfRebalancing(t, shortUrl);
+		return t.owner(shortUrl).click(shortUrl);
+	}
+
+	@Override
+	public boolean removeAll() {
+		List<Supplier<Boolean>> removals = new ArrayList<Supplier<Boolean>>();
+		topology.shards.values().forEach((shard) -> removals.add(shard::removeAll));
+		return fanOut(removals).contains(Boolean.TRUE);
+	}
+
+	/**
+	 * This method removes Urls of all shards one after another.
+	 *
+	 * @param progress
+	 *            receives amount of Urls removed from all shards after every
+	 *            batch.
+	 *
+	 * @return amount of removed Urls.
+	 */
+	@Override
+	public long removeAll(LongConsumer progress) {
+		long removed = 0;
+		for (ShortnerDao shard : topology.shards.values()) {
+			long before = removed;
+			removed += shard.removeAll((shardRemoved) -> progress.accept(before + shardRemoved));
+		}
+		return removed;
+	}
+
+	/**
+	 * This method adds shard to the ring of all nodes and moves its keys from
+	 * other shards. Running nodes learn about the shard through shard
+	 * topology before any key moves. Keys are read batch by batch from every
+	 * other shard, a key written on the new shard meanwhile wins and is
+	 * reported as conflict. Rebalancing may be interrupted and run again with
+	 * the same shard.
+	 *
+	 * @param endpoint
+	 *            endpoint of the new shard.
+	 *
+	 * @return amount of moved Urls and of conflicting ones.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if endpoint is illegal or already added.
+	 *
+	 * @throws IllegalStateException
+	 *             if rebalancing onto another shard is not finished.
+	 */
+	public synchronized MigrationReport addShard(String endpoint) {
+		Topology t = topology;
+		if (t.rebalancing != null && !t.rebalancing.equals(endpoint)) {
+			throw new IllegalStateException("Rebalancing onto " + t.rebalancing + " is not finished");
+		}
+		if (t.rebalancing == null) {
+			if (t.ring.contains(endpoint)) {
+				throw new IllegalArgumentException("Shard " + endpoint + " is already added");
+			}
+			join(endpoint);
+			shardTopology.announceRebalancing(endpoint);
+		}
+		log.info("Rebalancing Urls onto " + endpoint);
+		long started = System.currentTimeMillis();
+		MigrationReport report = new MigrationReport();
+		Topology rebalancing = topology;
+		for (int pass = 0; pass < MAX_PASSES; pass++) {
+			long moved = report.getMigrated() + report.getConflicts();
+			for (String shard : rebalancing.previous.getNodes()) {
+				migrate(rebalancing, rebalancing.shards.get(shard), report);
+			}
+			if (report.getMigrated() + report.getConflicts() == moved) {
+				break;
+			}
+		}
+		balanced(endpoint);
+		shardTopology.announceBalanced(endpoint);
+		report.setElapsedMillis(System.currentTimeMillis() - started);
+		log.info("Moved " + report.getMigrated() + " Urls onto " + endpoint + ", " + report.getConflicts() + " conflicts");
+		return report;
+	}
+
+	/**
+	 * This method applies shard change announced by any node, including this
+	 * one.
+	 *
+	 * @param message
+	 *            change followed by shard endpoint.
+	 */
+	public void onTopologyChange(String message) {
+		String[] change = message.split(" ", 2);
+		if (change.length == 2 && ShardTopology.REBALANCING.equals(change[0])) {
+			join(change[1]);
+		} else if (change.length == 2 && ShardTopology.BALANCED.equals(change[0])) {
+			balanced(change[1]);
+		} else {
+			log.warn("Unknown shard change: " + message);
+		}
+	}
+
+	/**
+	 * This method brings topology in line with shards kept in Redis: adds
+	 * shards this node doesn't know and starts or finishes rebalancing as
+	 * Redis tells. Rebalancing started by this node is kept until it is
+	 * announced.
+	 */
+	public void reload() {
+		List<String> shards = shardTopology.load(endpoints);
+		// read after shards, announcing node writes it before them
+		String rebalancing = shardTopology.loadRebalancing();
+		synchronized (topologyLock) {
+			Topology t = topology;
+			ConsistentHashRing ring = t.ring;
+			Map<String, ShortnerDaoImpl> daos = new LinkedHashMap<String, ShortnerDaoImpl>(t.shards);
+			for (String endpoint : shards) {
+				if (!ring.contains(endpoint)) {
+					log.info("Shard " + endpoint + " is loaded from shard topology");
+					daos.put(endpoint, connector.apply(endpoint));
+					ring = ring.withNode(endpoint);
+				}
+			}
+			if (rebalancing != null && shards.contains(rebalancing) && ring.getNodes().size() > 1) {
+				if (ring != t.ring || !rebalancing.equals(t.rebalancing)) {
+					log.info("Rebalancing onto " + rebalancing + " is loaded from shard topology");
+					List<String> balanced = new ArrayList<String>(ring.getNodes());
+					balanced.remove(rebalancing);
+					topology = new Topology(ring, new ConsistentHashRing(balanced, ring.getVirtualNodes()),
+							rebalancing, daos);
+				}
+			} else if (ring != t.ring || (t.rebalancing != null && shards.contains(t.rebalancing))) {
+				if (t.rebalancing != null) {
+					log.info("Rebalancing onto " + t.rebalancing + " is finished according to shard topology");
+				}
+				topology = new Topology(ring, null, null, daos);
+			}
+		}
+	}
+
+	/**
+	 * This method schedules periodic reload of topology.
+	 *
+	 * @param reloadIntervalSeconds
+	 *            period of reloads.
+	 */
+	public void start(long reloadIntervalSeconds) {
+		synchronized (topologyLock) {
+			if (reloader != null) {
+				return;
+			}
+			reloader = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+				Thread thread = new Thread(runnable, "shard-topology");
+				thread.setDaemon(true);
+				return thread;
+			});
+			reloader.scheduleWithFixedDelay(this::reloadLogged, reloadIntervalSeconds, reloadIntervalSeconds,
+					TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * This method reloads topology in background, shard changes announced
+	 * while pub/sub subscription was lost are never delivered.
+	 */
+	public void onResubscribed() {
+		ScheduledExecutorService current = reloader;
+		if (current != null) {
+			log.warn("Shard changes may have been missed, shard topology is reloaded");
+			current.execute(this::reloadLogged);
+		}
+	}
+
+	public ShardMetrics getMetrics() {
+		Topology t = topology;
+		ShardMetrics metrics = new ShardMetrics();
+		metrics.setVirtualNodes(t.ring.getVirtualNodes());
+		metrics.setShares(t.ring.getShares());
+		metrics.setRebalancing(t.rebalancing);
+		return metrics;
+	}
+
+	/**
+	 * This method stops fan-out and reload threads.
+	 */
+	public void close() {
+		executor.shutdownNow();
+		synchronized (topologyLock) {
+			if (reloader != null) {
+				reloader.shutdownNow();
+				reloader = null;
+			}
+		}
+	}
+
+	private void reloadLogged() {
+		try {
+			reload();
+		} catch (RuntimeException re) {
+			log.error("Unable to reload shard topology: " + re);
+		}
+	}
+
+	private void join(String endpoint) {
+		synchronized (topologyLock) {
+			Topology t = topology;
+			if (t.ring.contains(endpoint)) {
+				return;
+			}
+			if (t.rebalancing != null) {
+				log.error("Shard " + endpoint + " is added while rebalancing onto " + t.rebalancing + " is not finished");
+			}
+			Map<String, ShortnerDaoImpl> shards = new LinkedHashMap<String, ShortnerDaoImpl>(t.shards);
+			shards.put(endpoint, connector.apply(endpoint));
+			topology = new Topology(t.ring.withNode(endpoint), t.ring, endpoint, shards);
+		}
+	}
+
+	private void balanced(String endpoint) {
+		synchronized (topologyLock) {
+			Topology t = topology;
+			if (endpoint.equals(t.rebalancing)) {
+				topology = new Topology(t.ring, null, null, t.shards);
+			}
+		}
+	}
+
+	/**
+	 * This method moves keys of the source shard which belong to rebalancing
+	 * shard, batch by batch.
+	 */
+	private void migrate(Topology t, ShortnerDaoImpl source, MigrationReport report) {
+		ShortnerDaoImpl target = t.shards.get(t.rebalancing);
+		List<String> batch = new ArrayList<String>(BATCH);
+		source.forEachKey((shortUrl) -> {
+			if (t.rebalancing.equals(t.ring.locate(shortUrl))) {
+				batch.add(shortUrl);
+				if (batch.size() == BATCH) {
+					move(source, target, batch, report);
+					batch.clear();
+				}
+			}
+		});
+		if (!batch.isEmpty()) {
+			move(source, target, batch, report);
+		}
+	}
+
+	private void move(ShortnerDaoImpl source, ShortnerDaoImpl target, List<String> shortUrls,
+			MigrationReport report) {
+		for (Url url : source.getAll(shortUrls)) {
+			Boolean created = url != null ? move(source, target, url) : null;
+			if (Boolean.TRUE.equals(created)) {
+				report.setMigrated(report.getMigrated() + 1);
+			} else if (created != null) {
+				report.setConflicts(report.getConflicts() + 1);
+			}
+		}
+	}
+
+	/**
+	 * This method moves key to rebalancing shard before a conditional write,
+	 * so the write sees Url still kept on previous shard.
+	 */
+	private void moveIfRebalancing(Topology t, String shortUrl) {
+		String previousOwner = t.previousOwner(shortUrl);
+		if (previousOwner == null) {
+			return;
+		}
+		ShortnerDaoImpl source = t.shards.get(previousOwner);
+		Url url = source.get(shortUrl);
+		if (url != null) {
+			move(source, t.shards.get(t.rebalancing), url);
+		}
+	}
+
+	/**
+	 * This method writes Url to its new shard if it is absent there and then
+	 * removes it from previous shard if it is unchanged. Url gone from
+	 * previous shard meanwhile was moved by another node, one changed there
+	 * is taken off the new shard and moved again with its new value. Failed
+	 * write leaves Url on previous shard.
+	 *
+	 * @return true if Url was moved, false if the key was written to its new
+	 *         shard meanwhile, which wins, or null if another node moved it.
+	 */
+	private Boolean move(ShortnerDaoImpl source, ShortnerDaoImpl target, Url url) {
+		for (int attempt = 0; attempt < MAX_MOVE_ATTEMPTS; attempt++) {
+			boolean created = target.create(url);
+			if (source.removeIfUnchanged(url)) {
+				if (!created) {
+					log.warn("Short url " + url.getShortUrl() + " was written to its new shard meanwhile, kept");
+				}
+				return created;
+			}
+			Url current = source.get(url.getShortUrl());
+			if (current == null) {
+				return created ? Boolean.TRUE : null;
+			}
+			if (created) {
+				target.removeIfUnchanged(url);
+			}
+			url = current;
+		}
+		log.warn("Short url " + url.getShortUrl() + " keeps changing on its previous shard, left there");
+		return null;
+	}
+
+	/**
+	 * @return indexes of wanted keys grouped by shard given by route, keys
+	 *         without shard are skipped.
+	 */
+	private static Map<String, List<Integer>> group(List<String> shortUrls, IntPredicate wanted,
+			Function<String, String> route) {
+		Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < shortUrls.size(); i++) {
+			String shard = wanted.test(i) ? route.apply(shortUrls.get(i)) : null;
+			if (shard != null) {
+				groups.computeIfAbsent(shard, (key) -> new ArrayList<Integer>()).add(i);
+			}
+		}
+		return groups;
+	}
+
+	/**
+	 * This method runs tasks of different shards in parallel, single task in
+	 * the calling thread.
+	 *
+	 * @return results in the order of tasks.
+	 */
+	private <T> List<T> fanOut(List<Supplier<T>> tasks) {
+		if (tasks.size() <= 1) {
+			return tasks.stream().map(Supplier::get).collect(Collectors.toList());
+		}
+		List<CompletableFuture<T>> futures = tasks.stream().map((task) -> CompletableFuture.supplyAsync(task, executor))
+				.collect(Collectors.toList());
+		List<T> results = new ArrayList<T>(tasks.size());
+		for (CompletableFuture<T> future : futures) {
+			try {
+				results.add(future.join());
+			} catch (CompletionException ce) {
+				throw ce.getCause() instanceof RuntimeException ? (RuntimeException) ce.getCause() : ce;
+			}
+		}
+		return results;
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.jsmart.yoda.shortener.core.support;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Base62 ([0-9a-zA-Z]) encoding of non-negative numbers into short url
+ *         keys.
+ */
+public final class Base62 {
+
+	public static final int RADIX = 62;
+
+	/**
+	 * Largest key length whose keyspace (62^length) still fits into a signed
+	 * long with room for modular arithmetic.
+	 */
+	public static final int MAX_LENGTH = 10;
+
+	private static final char[] ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ"
+			.toCharArray();
+
+	private static final long[] POWERS = new long[MAX_LENGTH + 1];
+
+	static {
+		POWERS[0] = 1;
+		for (int i = 1; i <= MAX_LENGTH; i++) {
+			POWERS[i] = POWERS[i - 1] * RADIX;
+		}
+	}
+
+	private Base62() {
+	}
+
+	/**
+	 * This method returns the size of the keyspace for keys of given length.
+	 *
+	 * @param length
+	 *            key length, 0..MAX_LENGTH.
+	 *
+	 * @return 62^length.
+	 */
+	public static long keyspace(int length) {
+		if (length < 0 || length > MAX_LENGTH) {
+			throw new IllegalArgumentException("Unsupported key length " + length);
+		}
+		return POWERS[length];
+	}
+
+	/**
+	 * This method encodes value left padded with '0' up to given length. Longer
+	 * values are encoded with as many characters as they need.
+	 *
+	 * @param value
+	 *            non-negative number.
+	 *
+	 * @param length
+	 *            minimal length of result.
+	 *
+	 * @return base62 string representation.
+	 */
+	public static String encode(long value, int length) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative value " + value);
+		}
+		char[] buffer = new char[Math.max(length, 11)];
+		int position = buffer.length;
+		do {
+			buffer[--position] = ALPHABET[(int) (value % RADIX)];
+			value /= RADIX;
+		} while (value > 0);
+		while (buffer.length - position < length) {
+			buffer[--position] = ALPHABET[0];
+		}
+		return new String(buffer, position, buffer.length - position);
+	}
+
+	/**
+	 * This method decodes base62 string back to number.
+	 *
+	 * @param key
+	 *            base62 string.
+	 *
+	 * @return decoded value.
+	 */
+	public static long decode(String key) {
+		long value = 0;
+		for (int i = 0; i < key.length(); i++) {
+			value = value * RADIX + indexOf(key.charAt(i));
+		}
+		return value;
+	}
+
+	public static boolean isValid(String key) {
+		if (key == null || key.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (indexOf(key.charAt(i)) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a' + 10;
+		}
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A' + 36;
+		}
+		return -1;
+	}
+
+}
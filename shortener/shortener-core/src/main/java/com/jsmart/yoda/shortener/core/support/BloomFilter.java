@@ -0,0 +1,113 @@
+package com.jsmart.yoda.shortener.core.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Thread safe Bloom filter of strings. Membership test may answer a
+ *         false "maybe", but never a false "no" for an added element.
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+	private final LongAdder insertions = new LongAdder();
+
+	/**
+	 * @param expectedInsertions
+	 *            amount of elements filter is sized for.
+	 *
+	 * @param falsePositiveRate
+	 *            desired false positive probability at expected amount of
+	 *            elements.
+	 */
+	public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+		if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("Illegal Bloom filter sizing");
+		}
+		long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		this.bits = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) >>> 6));
+		this.bitCount = (long) bits.length() << 6;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+	}
+
+	/**
+	 * This method adds element to the filter.
+	 *
+	 * @param element
+	 *            string to add.
+	 *
+	 * @return true if filter changed, i.e. element was definitely not there.
+	 */
+	public boolean put(String element) {
+		long hash = Hashing.murmur64(element.getBytes(StandardCharsets.UTF_8));
+		long low = (int) hash;
+		long high = (int) (hash >>> 32);
+		boolean changed = false;
+		for (int i = 1; i <= hashCount; i++) {
+			long index = indexOf(low + i * high);
+			long mask = 1L << index;
+			int word = (int) (index >>> 6);
+			long current;
+			while (((current = bits.get(word)) & mask) == 0) {
+				if (bits.compareAndSet(word, current, current | mask)) {
+					changed = true;
+					break;
+				}
+			}
+		}
+		if (changed) {
+			insertions.increment();
+		}
+		return changed;
+	}
+
+	/**
+	 * @param element
+	 *            string to test.
+	 *
+	 * @return false if element was never added, true if it might have been.
+	 */
+	public boolean mightContain(String element) {
+		long hash = Hashing.murmur64(element.getBytes(StandardCharsets.UTF_8));
+		long low = (int) hash;
+		long high = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long index = indexOf(low + i * high);
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return amount of elements which changed the filter.
+	 */
+	public long getInsertions() {
+		return insertions.sum();
+	}
+
+	public long getBitCount() {
+		return bitCount;
+	}
+
+	/**
+	 * This method resets the filter.
+	 */
+	public void clear() {
+		for (int i = 0; i < bits.length(); i++) {
+			bits.set(i, 0);
+		}
+		insertions.reset();
+	}
+
+	private long indexOf(long combinedHash) {
+		return (combinedHash & Long.MAX_VALUE) % bitCount;
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.jsmart.yoda.shortener.core.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Consistent hash ring of named nodes. Every node is placed at many
+ *         points of 64 bit hash space (virtual nodes), key belongs to the node
+ *         of the first point at or after its hash. Placement depends only on
+ *         node names, so every process builds the same ring, and a node added
+ *         to the ring takes keys only from the others, about 1/n of them.
+ *
+ *         Immutable, adding a node makes a new ring.
+ */
+public final class ConsistentHashRing {
+
+	private static final double HASH_SPACE = 0x1p64;
+
+	private final int virtualNodes;
+	private final List<String> nodes;
+	private final long[] points;
+	private final int[] owners;
+
+	/**
+	 * @param nodes
+	 *            unique node names.
+	 *
+	 * @param virtualNodes
+	 *            points per node, more of them spread keys more evenly.
+	 */
+	public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+		if (nodes.isEmpty() || virtualNodes < 1) {
+			throw new IllegalArgumentException("Illegal ring of " + nodes.size() + " nodes x " + virtualNodes);
+		}
+		if (nodes.stream().distinct().count() < nodes.size()) {
+			throw new IllegalArgumentException("Duplicate ring nodes " + nodes);
+		}
+		this.virtualNodes = virtualNodes;
+		this.nodes = Collections.unmodifiableList(new ArrayList<String>(nodes));
+		// colliding points go to the node which is less by name on every process
+		List<String> sorted = new ArrayList<String>(nodes);
+		Collections.sort(sorted);
+		TreeMap<Long, Integer> ring = new TreeMap<Long, Integer>();
+		for (String node : sorted) {
+			for (int i = 0; i < virtualNodes; i++) {
+				ring.putIfAbsent(hash(node + "#" + i), nodes.indexOf(node));
+			}
+		}
+		this.points = new long[ring.size()];
+		this.owners = new int[ring.size()];
+		int i = 0;
+		for (Map.Entry<Long, Integer> point : ring.entrySet()) {
+			points[i] = point.getKey();
+			owners[i++] = point.getValue();
+		}
+	}
+
+	/**
+	 * @return ring with one more node, keys move only to it.
+	 */
+	public ConsistentHashRing withNode(String node) {
+		List<String> extended = new ArrayList<String>(nodes);
+		extended.add(node);
+		return new ConsistentHashRing(extended, virtualNodes);
+	}
+
+	/**
+	 * @return name of the node owning key.
+	 */
+	public String locate(String key) {
+		int index = Arrays.binarySearch(points, hash(key));
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return nodes.get(owners[index == points.length ? 0 : index]);
+	}
+
+	public boolean contains(String node) {
+		return nodes.contains(node);
+	}
+
+	/**
+	 * @return node names in the order they were added.
+	 */
+	public List<String> getNodes() {
+		return nodes;
+	}
+
+	public int getVirtualNodes() {
+		return virtualNodes;
+	}
+
+	/**
+	 * @return share of hash space owned by every node, in the order nodes
+	 *         were added.
+	 */
+	public Map<String, Double> getShares() {
+		double[] spans = new double[nodes.size()];
+		for (int i = 0; i < points.length; i++) {
+			// unsigned distance from the previous point, wrapping around
+			long span = points[i] - points[i == 0 ? points.length - 1 : i - 1];
+			spans[owners[i]] += points.length == 1 ? HASH_SPACE : (span >>> 1) * 2.0 + (span & 1);
+		}
+		Map<String, Double> shares = new LinkedHashMap<String, Double>();
+		for (int i = 0; i < nodes.size(); i++) {
+			shares.put(nodes.get(i), spans[i] / HASH_SPACE);
+		}
+		return shares;
+	}
+
+	private static long hash(String value) {
+		return Hashing.murmur64(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.jsmart.yoda.shortener.core.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Thread safe Count-Min sketch of string frequencies. Estimate never
+ *         falls below the true count and overshoots it by a small share of
+ *         all counted events.
+ */
+public class CountMinSketch {
+
+	private final AtomicLongArray counters;
+	private final int depth;
+	private final int width;
+	private final int mask;
+
+	/**
+	 * @param depth
+	 *            amount of rows, every row lowers chance of large overestimate.
+	 *
+	 * @param width
+	 *            counters per row, rounded up to power of two.
+	 */
+	public CountMinSketch(int depth, int width) {
+		if (depth < 1 || width < 1) {
+			throw new IllegalArgumentException("Illegal Count-Min sketch sizing");
+		}
+		this.depth = depth;
+		this.width = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+		this.mask = this.width - 1;
+		this.counters = new AtomicLongArray(depth * this.width);
+	}
+
+	/**
+	 * This method counts one occurrence of element.
+	 *
+	 * @param element
+	 *            string to count.
+	 *
+	 * @return estimated count of element including this occurrence.
+	 */
+	public long add(String element) {
+		long hash = Hashing.murmur64(element.getBytes(StandardCharsets.UTF_8));
+		int low = (int) hash;
+		int high = (int) (hash >>> 32);
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			long count = counters.incrementAndGet(row * width + ((low + row * high) & mask));
+			estimate = Math.min(estimate, count);
+		}
+		return estimate;
+	}
+
+	/**
+	 * @param element
+	 *            string to look up.
+	 *
+	 * @return estimated count of element.
+	 */
+	public long estimate(String element) {
+		long hash = Hashing.murmur64(element.getBytes(StandardCharsets.UTF_8));
+		int low = (int) hash;
+		int high = (int) (hash >>> 32);
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counters.get(row * width + ((low + row * high) & mask)));
+		}
+		return estimate;
+	}
+
+	/**
+	 * This method halves all counters, so that old occurrences weigh less than
+	 * recent ones.
+	 */
+	public void halve() {
+		for (int i = 0; i < counters.length(); i++) {
+			long current;
+			do {
+				current = counters.get(i);
+			} while (current != 0 && !counters.compareAndSet(i, current, current >>> 1));
+		}
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.jsmart.yoda.shortener.core.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Lock-free histogram of latencies with log-linear buckets: every
+ *         power of two range is split into 8 linear buckets, so percentiles
+ *         are reported about 12% above true value at most. Every given amount
+ *         of records halves all counts, so percentiles follow recent latencies
+ *         rather than the whole history.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong recorded = new AtomicLong();
+	private final long decaySamples;
+
+	/**
+	 * @param decaySamples
+	 *            amount of records after which counts are halved.
+	 */
+	public LatencyHistogram(long decaySamples) {
+		this.decaySamples = Math.max(1, decaySamples);
+	}
+
+	/**
+	 * This method records one latency, negative one is recorded as 0.
+	 */
+	public void record(long value) {
+		counts.incrementAndGet(index(Math.max(0, value)));
+		if (recorded.incrementAndGet() % decaySamples == 0) {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts.getAndUpdate(i, (count) -> count >>> 1);
+			}
+		}
+	}
+
+	/**
+	 * @return amount of latencies recorded ever.
+	 */
+	public long getRecorded() {
+		return recorded.get();
+	}
+
+	/**
+	 * @param quantile
+	 *            quantile from 0 to 1, e.g. 0.95.
+	 *
+	 * @return upper bound of the bucket holding the quantile, 0 if nothing is
+	 *         recorded.
+	 */
+	public long percentile(double quantile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen > 0 && seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return 0;
+	}
+
+	private static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+	}
+
+	private static long upperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.jsmart.yoda.shortener.core.support;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Encoding of long urls to the form which may be sent in Location
+ *         header of redirect as is.
+ */
+public final class Locations {
+
+	private Locations() {
+	}
+
+	/**
+	 * This method encodes url: non ASCII characters and characters illegal in
+	 * URI are percent encoded, already encoded ones are kept.
+	 *
+	 * @param url
+	 *            Url string representation.
+	 *
+	 * @return encoded url.
+	 */
+	public static String encode(String url) {
+		try {
+			return new URI(url).toASCIIString();
+		} catch (URISyntaxException urise) {
+			return UriComponentsBuilder.fromUriString(url).build().encode().toUri().toASCIIString();
+		}
+	}
+
+	/**
+	 * @param url
+	 *            Url string representation.
+	 *
+	 * @return true if url has no characters which should be encoded before
+	 *         it is written to header.
+	 */
+	public static boolean isAscii(String url) {
+		for (int i = 0; i < url.length(); i++) {
+			char c = url.charAt(i);
+			if (c > 0x7e || c <= 0x20) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
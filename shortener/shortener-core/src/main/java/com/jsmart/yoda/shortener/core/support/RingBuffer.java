@@ -0,0 +1,116 @@
+package com.jsmart.yoda.shortener.core.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Bounded lock-free multi-producer multi-consumer queue on top of a
+ *         ring of sequenced slots (D. Vyukov's algorithm). Neither offer nor
+ *         poll ever blocks, they just report a full or an empty buffer.
+ *
+ * @param <E>
+ *            element type.
+ */
+public final class RingBuffer<E> {
+
+	private final int mask;
+	private final Object[] elements;
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            requested capacity, rounded up to the next power of two.
+	 */
+	public RingBuffer(int capacity) {
+		if (capacity < 1 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Illegal ring buffer capacity " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.elements = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * This method appends element to the buffer.
+	 *
+	 * @param element
+	 *            non null element.
+	 *
+	 * @return true if element was added, false if buffer is full.
+	 */
+	public boolean offer(E element) {
+		if (element == null) {
+			throw new NullPointerException();
+		}
+		long position = tail.get();
+		while (true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					elements[index] = element;
+					// publishes element to consumers
+					sequences.lazySet(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * This method takes oldest element from the buffer.
+	 *
+	 * @return element or null if buffer is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long position = head.get();
+		while (true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (head.compareAndSet(position, position + 1)) {
+					E element = (E) elements[index];
+					elements[index] = null;
+					// releases slot to producers of the next lap
+					sequences.lazySet(index, position + mask + 1);
+					return element;
+				}
+				position = head.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = head.get();
+			}
+		}
+	}
+
+	/**
+	 * @return approximate amount of elements in the buffer.
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, capacity()));
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+}
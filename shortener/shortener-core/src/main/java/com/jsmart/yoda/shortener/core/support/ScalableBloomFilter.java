@@ -0,0 +1,99 @@
+package com.jsmart.yoda.shortener.core.support;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Bloom filter which grows with its content (Almeida et al. scalable
+ *         Bloom filter). Once a stage is filled up to its capacity a new stage
+ *         twice as large and with a tighter error rate is added, so overall
+ *         false positive rate stays below the configured one however many
+ *         elements are added.
+ */
+public class ScalableBloomFilter {
+
+	static final int GROWTH = 2;
+
+	static final double TIGHTENING = 0.5;
+
+	private final CopyOnWriteArrayList<Stage> stages = new CopyOnWriteArrayList<>();
+
+	private final long initialCapacity;
+
+	/**
+	 * @param initialCapacity
+	 *            capacity of the first stage.
+	 *
+	 * @param falsePositiveRate
+	 *            overall false positive rate bound.
+	 */
+	public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+		this.initialCapacity = initialCapacity;
+		// rates of stages form geometric series summing up to falsePositiveRate
+		stages.add(new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING)));
+	}
+
+	public boolean mightContain(String element) {
+		for (Stage stage : stages) {
+			if (stage.filter.mightContain(element)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void put(String element) {
+		if (mightContain(element)) {
+			return;
+		}
+		Stage stage = stages.get(stages.size() - 1);
+		if (stage.filter.getInsertions() >= stage.capacity) {
+			stage = grow(stage);
+		}
+		stage.filter.put(element);
+	}
+
+	public int getStages() {
+		return stages.size();
+	}
+
+	/**
+	 * @return approximate amount of distinct elements added.
+	 */
+	public long getInsertions() {
+		long insertions = 0;
+		for (Stage stage : stages) {
+			insertions += stage.filter.getInsertions();
+		}
+		return insertions;
+	}
+
+	public long getInitialCapacity() {
+		return initialCapacity;
+	}
+
+	private synchronized Stage grow(Stage full) {
+		Stage last = stages.get(stages.size() - 1);
+		if (last != full) {
+			return last;
+		}
+		Stage grown = new Stage(full.capacity * GROWTH, full.falsePositiveRate * TIGHTENING);
+		stages.add(grown);
+		return grown;
+	}
+
+	private static final class Stage {
+
+		private final long capacity;
+		private final double falsePositiveRate;
+		private final BloomFilter filter;
+
+		private Stage(long capacity, double falsePositiveRate) {
+			this.capacity = capacity;
+			this.falsePositiveRate = falsePositiveRate;
+			this.filter = new BloomFilter(capacity, falsePositiveRate);
+		}
+	}
+
+}
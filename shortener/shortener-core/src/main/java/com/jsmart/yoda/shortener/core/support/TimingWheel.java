@@ -0,0 +1,162 @@
+package com.jsmart.yoda.shortener.core.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Hierarchical timing wheel (Varghese and Lauck). Every level is a
+ *         ring of slots, a slot of level n spans wheel size^n ticks. Deadline
+ *         goes into the lowest level which reaches it and moves one level down
+ *         when time gets to its slot, so scheduling is O(1) and a tick touches
+ *         only entries which are due or cascade, never the whole set. Deadlines
+ *         beyond the top level wait in its farthest slot and are placed again
+ *         every time they cascade.
+ *
+ *         Not thread safe, callers synchronize.
+ *
+ * @param <K>
+ *            key type.
+ */
+public final class TimingWheel<K> {
+
+	private static final class Entry<K> {
+
+		final K key;
+		final long deadlineMillis;
+		final long tick;
+
+		Entry(K key, long deadlineMillis, long tick) {
+			this.key = key;
+			this.deadlineMillis = deadlineMillis;
+			this.tick = tick;
+		}
+	}
+
+	private final long tickMillis;
+	private final int bits;
+	private final int mask;
+	private final int levels;
+	private final List<List<Entry<K>>> slots;
+
+	private long currentTick;
+	private int size;
+
+	/**
+	 * @param tickMillis
+	 *            resolution of the wheel, entries fire up to one tick late.
+	 *
+	 * @param wheelSize
+	 *            slots per level, rounded up to the next power of two.
+	 *
+	 * @param levels
+	 *            amount of levels, wheel reaches tick * wheel size^levels
+	 *            ahead without placing entries again.
+	 *
+	 * @param nowMillis
+	 *            current time.
+	 */
+	public TimingWheel(long tickMillis, int wheelSize, int levels, long nowMillis) {
+		if (tickMillis < 1 || wheelSize < 2 || wheelSize > (1 << 16) || levels < 1) {
+			throw new IllegalArgumentException("Illegal timing wheel " + tickMillis + "ms x " + wheelSize + " x " + levels);
+		}
+		int size = Integer.highestOneBit(wheelSize);
+		if (size < wheelSize) {
+			size <<= 1;
+		}
+		this.bits = Integer.numberOfTrailingZeros(size);
+		if (bits * levels > 48) {
+			throw new IllegalArgumentException("Timing wheel of " + levels + " levels is too deep");
+		}
+		this.tickMillis = tickMillis;
+		this.mask = size - 1;
+		this.levels = levels;
+		this.slots = new ArrayList<List<Entry<K>>>(size * levels);
+		for (int i = 0; i < size * levels; i++) {
+			slots.add(new ArrayList<Entry<K>>());
+		}
+		this.currentTick = nowMillis / tickMillis;
+	}
+
+	/**
+	 * This method schedules key to fire at deadline. Deadline which already
+	 * passed fires with the next tick. Key scheduled twice fires twice.
+	 */
+	public void schedule(K key, long deadlineMillis) {
+		long tick = Math.max(ceilTick(deadlineMillis), currentTick + 1);
+		place(new Entry<K>(key, deadlineMillis, tick));
+		size++;
+	}
+
+	/**
+	 * This method moves the wheel up to given time and fires due keys.
+	 *
+	 * @param expired
+	 *            receives key and its deadline for every due entry.
+	 */
+	public void advance(long nowMillis, BiConsumer<K, Long> expired) {
+		long targetTick = nowMillis / tickMillis;
+		while (currentTick < targetTick) {
+			if (size == 0) {
+				currentTick = targetTick;
+				return;
+			}
+			currentTick++;
+			// higher levels first, they may cascade into lower slot due now
+			for (int level = levels - 1; level > 0; level--) {
+				if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+					for (Entry<K> entry : take(level, currentTick)) {
+						place(entry);
+					}
+				}
+			}
+			for (Entry<K> entry : take(0, currentTick)) {
+				if (entry.tick > currentTick) {
+					// single level wheel parks far deadlines in level 0
+					place(entry);
+					continue;
+				}
+				size--;
+				expired.accept(entry.key, entry.deadlineMillis);
+			}
+		}
+	}
+
+	/**
+	 * @return amount of scheduled entries which haven't fired yet.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public long getTickMillis() {
+		return tickMillis;
+	}
+
+	private long ceilTick(long millis) {
+		return millis / tickMillis + (millis % tickMillis == 0 ? 0 : 1);
+	}
+
+	private void place(Entry<K> entry) {
+		long delta = entry.tick - currentTick;
+		int level = 0;
+		while (level < levels - 1 && delta >= (1L << (bits * (level + 1)))) {
+			level++;
+		}
+		long tick = delta < (1L << (bits * levels)) ? entry.tick : currentTick + (1L << (bits * levels)) - 1;
+		slots.get(level * (mask + 1) + ((int) (tick >>> (bits * level)) & mask)).add(entry);
+	}
+
+	private List<Entry<K>> take(int level, long tick) {
+		int index = level * (mask + 1) + ((int) (tick >>> (bits * level)) & mask);
+		List<Entry<K>> slot = slots.get(index);
+		if (slot.isEmpty()) {
+			return slot;
+		}
+		slots.set(index, new ArrayList<Entry<K>>());
+		return slot;
+	}
+
+}
@@ -0,0 +1,307 @@
+package com.jsmart.yoda.shortener.core.writebehind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.model.WriteBehindMetrics;
+import com.jsmart.yoda.shortener.core.model.WriteDurability;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Bounded buffer of Url writes flushed to storage in groups. Pending
+ *         writes are kept per short url, so a key written again before flush
+ *         is stored once with its latest value. Flush happens every flush
+ *         interval or as soon as a batch worth of writes is pending, every
+ *         batch is written with one pipelined round trip. Writers which find
+ *         the buffer full flush it themselves and wait up to flush interval
+ *         for room, a write which gets none is rejected and not buffered.
+ *
+ *         Failed flush keeps writes pending and retries them with the next
+ *         one.
+ */
+public class WriteBehindBuffer {
+
+	private static final Logger log = Logger.getLogger(WriteBehindBuffer.class);
+
+	private final int capacity;
+	private final int batchSize;
+	private final long flushIntervalMillis;
+	private final WriteDurability durability;
+
+	private final ConcurrentMap<String, Url> pending = new ConcurrentHashMap<String, Url>();
+
+	// one permit per pending key, taken before the key is admitted
+	private final Semaphore room;
+
+	// completed by the flush which starts after it was taken
+	private volatile CompletableFuture<Void> nextFlush = new CompletableFuture<Void>();
+
+	private final Object wakeup = new Object();
+	private Consumer<List<Url>> writer;
+	private volatile Thread flusher;
+
+	private final LongAdder buffered = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder flushed = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private volatile long lastFlushMillis;
+
+	/**
+	 * @param capacity
+	 *            maximum amount of pending writes, writers which find that
+	 *            many flush themselves.
+	 *
+	 * @param batchSize
+	 *            amount of writes sent in one round trip, also amount of
+	 *            pending writes which triggers flush before interval elapses.
+	 *
+	 * @param flushIntervalMillis
+	 *            maximum time a write stays pending.
+	 *
+	 * @param durability
+	 *            moment writes are acknowledged.
+	 */
+	public WriteBehindBuffer(int capacity, int batchSize, long flushIntervalMillis, WriteDurability durability) {
+		this.capacity = Math.max(1, capacity);
+		this.room = new Semaphore(this.capacity);
+		this.batchSize = Math.max(1, batchSize);
+		this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+		this.durability = durability;
+	}
+
+	/**
+	 * This method starts background flushes.
+	 *
+	 * @param writer
+	 *            stores batch of Urls unconditionally.
+	 */
+	public synchronized void start(Consumer<List<Url>> writer) {
+		if (flusher != null) {
+			return;
+		}
+		this.writer = writer;
+		Thread thread = new Thread(this::flushLoop, "write-behind-flusher");
+		thread.setDaemon(true);
+		flusher = thread;
+		thread.start();
+	}
+
+	/**
+	 * This method stops background flushes and flushes pending writes.
+	 */
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			thread = flusher;
+			flusher = null;
+		}
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			flush();
+		}
+	}
+
+	/**
+	 * This method buffers write of the Url. With FLUSHED durability it returns
+	 * after the write reached storage.
+	 *
+	 * @throws IllegalStateException
+	 *             if buffer is full and no room was freed within flush
+	 *             interval, the write is not buffered. Also if write has to be
+	 *             acknowledged by a flush which failed, the write stays
+	 *             pending.
+	 */
+	public void put(Url url) {
+		String shortUrl = url.getShortUrl();
+		if (room.tryAcquire()) {
+			admit(url);
+		} else if (pending.replace(shortUrl, url) != null) {
+			// key is pending already, overwriting it takes no room
+			coalesced.increment();
+		} else {
+			reserve(shortUrl);
+			admit(url);
+		}
+		acknowledge(url);
+	}
+
+	/**
+	 * This method buffers write of the Url unless a write of the key is
+	 * pending already. It is acknowledged the same way as put.
+	 *
+	 * @return true if write was buffered, false if key is pending.
+	 *
+	 * @throws IllegalStateException
+	 *             on the same conditions as put.
+	 */
+	public boolean putIfAbsent(Url url) {
+		String shortUrl = url.getShortUrl();
+		if (pending.containsKey(shortUrl)) {
+			return false;
+		}
+		if (!room.tryAcquire()) {
+			reserve(shortUrl);
+		}
+		if (pending.putIfAbsent(shortUrl, url) != null) {
+			room.release();
+			return false;
+		}
+		acknowledge(url);
+		return true;
+	}
+
+	/**
+	 * @return pending Url or null if there is no pending write of the key.
+	 */
+	public Url get(String shortUrl) {
+		return pending.get(shortUrl);
+	}
+
+	public boolean isPending(String shortUrl) {
+		return pending.containsKey(shortUrl);
+	}
+
+	/**
+	 * This method writes all writes pending when it started, batch by batch.
+	 */
+	public synchronized void flush() {
+		CompletableFuture<Void> acknowledgement = nextFlush;
+		nextFlush = new CompletableFuture<Void>();
+		List<Url> batch = new ArrayList<Url>(Math.min(batchSize, pending.size()));
+		try {
+			for (Url url : pending.values()) {
+				batch.add(url);
+				if (batch.size() == batchSize) {
+					write(batch);
+					batch = new ArrayList<Url>(batchSize);
+				}
+			}
+			if (!batch.isEmpty()) {
+				write(batch);
+			}
+			acknowledgement.complete(null);
+		} catch (RuntimeException re) {
+			failures.increment();
+			acknowledgement.completeExceptionally(re);
+			throw re;
+		}
+	}
+
+	/**
+	 * This method drops pending writes, waiting for a flush in progress.
+	 */
+	public synchronized void clear() {
+		for (String shortUrl : pending.keySet()) {
+			if (pending.remove(shortUrl) != null) {
+				room.release();
+			}
+		}
+	}
+
+	public WriteBehindMetrics getMetrics() {
+		WriteBehindMetrics metrics = new WriteBehindMetrics();
+		metrics.setDurability(durability);
+		metrics.setPending(pending.size());
+		metrics.setCapacity(capacity);
+		metrics.setBuffered(buffered.sum());
+		metrics.setCoalesced(coalesced.sum());
+		metrics.setFlushed(flushed.sum());
+		metrics.setBatches(batches.sum());
+		metrics.setFailures(failures.sum());
+		metrics.setLastFlushMillis(lastFlushMillis);
+		return metrics;
+	}
+
+	private void admit(Url url) {
+		if (pending.put(url.getShortUrl(), url) != null) {
+			coalesced.increment();
+			room.release();
+		}
+	}
+
+	private void acknowledge(Url url) {
+		buffered.increment();
+		CompletableFuture<Void> acknowledgement = nextFlush;
+		if (pending.size() >= batchSize) {
+			synchronized (wakeup) {
+				wakeup.notifyAll();
+			}
+		}
+		if (durability == WriteDurability.FLUSHED) {
+			try {
+				acknowledgement.join();
+			} catch (CompletionException ce) {
+				throw new IllegalStateException("Write of " + url.getShortUrl() + " is not flushed", ce.getCause());
+			}
+		}
+	}
+
+	private void reserve(String shortUrl) {
+		RuntimeException failure = null;
+		try {
+			flush();
+		} catch (RuntimeException re) {
+			failure = re;
+		}
+		try {
+			if (room.tryAcquire(flushIntervalMillis, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		throw new IllegalStateException(
+				"Write of " + shortUrl + " is rejected, " + pending.size() + " writes are pending", failure);
+	}
+
+	private void write(List<Url> batch) {
+		writer.accept(batch);
+		for (Url url : batch) {
+			// a newer write of the key stays pending
+			if (pending.remove(url.getShortUrl(), url)) {
+				room.release();
+			}
+		}
+		flushed.add(batch.size());
+		batches.increment();
+		lastFlushMillis = System.currentTimeMillis();
+	}
+
+	private void flushLoop() {
+		while (flusher == Thread.currentThread()) {
+			try {
+				synchronized (wakeup) {
+					if (pending.size() < batchSize) {
+						wakeup.wait(flushIntervalMillis);
+					}
+				}
+			} catch (InterruptedException ie) {
+				return;
+			}
+			try {
+				flush();
+			} catch (RuntimeException re) {
+				log.error("Unable to flush " + pending.size() + " pending writes: " + re);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,269 @@
+package com.jsmart.yoda.shortener.core.writebehind;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlPage;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.ForwardingShortnerDao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         ShortnerDao decorator which buffers writes and flushes them to
+ *         underlying DAO in pipelined groups. Lookups see pending writes
+ *         first. Listings and removals flush the buffer before they reach
+ *         storage, so they never miss or resurrect a pending write.
+ *
+ *         Conditional writes (create and updateIfPresent) are buffered after
+ *         the key was looked up in pending writes and in storage, the lookup
+ *         is answered without Redis for unknown keys when key filter is
+ *         enabled. A key created by another node after the lookup is
+ *         overwritten by the flush, so keys which can collide with concurrent
+ *         creates of other nodes need a generator which does not issue them
+ *         twice, like sequence and snowflake ones. Stored keys of any
+ *         generator are detected.
+ *
+ *         Asynchronous click of a pending Url flushes the buffer on blocking
+ *         executor, since it may be issued on a thread which must not block.
+ */
+public class WriteBehindShortnerDao extends ForwardingShortnerDao {
+
+	private final WriteBehindBuffer buffer;
+	private final Executor blockingExecutor;
+
+	public WriteBehindShortnerDao(ShortnerDao delegate, WriteBehindBuffer buffer) {
+		this(delegate, buffer, Runnable::run);
+	}
+
+	/**
+	 * @param blockingExecutor
+	 *            flushes pending writes before asynchronous clicks.
+	 */
+	public WriteBehindShortnerDao(ShortnerDao delegate, WriteBehindBuffer buffer, Executor blockingExecutor) {
+		super(delegate);
+		this.buffer = buffer;
+		this.blockingExecutor = blockingExecutor;
+	}
+
+	@Override
+	public Url get(String shortUrl) {
+		Url url = buffer.get(shortUrl);
+		return url != null ? url : delegate.get(shortUrl);
+	}
+
+	@Override
+	public List<Url> getAll(List<String> shortUrls) {
+		List<Url> urls = new ArrayList<Url>(shortUrls.size());
+		List<String> misses = new ArrayList<String>();
+		for (String shortUrl : shortUrls) {
+			Url url = buffer.get(shortUrl);
+			if (url == null) {
+				misses.add(shortUrl);
+			}
+			urls.add(url);
+		}
+		if (misses.isEmpty()) {
+			return urls;
+		}
+		List<Url> loaded = delegate.getAll(misses);
+		for (int i = 0, miss = 0; i < urls.size(); i++) {
+			if (urls.get(i) == null) {
+				urls.set(i, loaded.get(miss++));
+			}
+		}
+		return urls;
+	}
+
+	@Override
+	public CompletableFuture<Url> getAsync(String shortUrl) {
+		Url url = buffer.get(shortUrl);
+		return url != null ? CompletableFuture.completedFuture(url) : delegate.getAsync(shortUrl);
+	}
+
+	@Override
+	public CompletableFuture<List<Url>> getAllAsync(List<String> shortUrls) {
+		List<Url> urls = new ArrayList<Url>(shortUrls.size());
+		List<String> misses = new ArrayList<String>();
+		for (String shortUrl : shortUrls) {
+			Url url = buffer.get(shortUrl);
+			if (url == null) {
+				misses.add(shortUrl);
+			}
+			urls.add(url);
+		}
+		if (misses.isEmpty()) {
+			return CompletableFuture.completedFuture(urls);
+		}
+		return delegate.getAllAsync(misses).thenApply((loaded) -> {
+			for (int i = 0, miss = 0; i < urls.size(); i++) {
+				if (urls.get(i) == null) {
+					urls.set(i, loaded.get(miss++));
+				}
+			}
+			return urls;
+		});
+	}
+
+	@Override
+	public List<Url> getAll() {
+		buffer.flush();
+		return delegate.getAll();
+	}
+
+	@Override
+	public Stream<Url> stream() {
+		buffer.flush();
+		return delegate.stream();
+	}
+
+	@Override
+	public UrlPage getPage(String cursor, int limit) {
+		buffer.flush();
+		return delegate.getPage(cursor, limit);
+	}
+
+	@Override
+	public void forEachKey(Consumer<String> action) {
+		buffer.flush();
+		delegate.forEachKey(action);
+	}
+
+	/**
+	 * This method buffers Url unless its key is pending or stored.
+	 */
+	@Override
+	public boolean create(Url url) {
+		if (buffer.isPending(url.getShortUrl()) || delegate.get(url.getShortUrl()) != null) {
+			return false;
+		}
+		return buffer.putIfAbsent(url);
+	}
+
+	/**
+	 * This method buffers Urls whose keys are neither pending nor stored,
+	 * stored ones are looked up with one call.
+	 */
+	@Override
+	public List<Boolean> createAll(List<Url> urls) {
+		List<Boolean> created = new ArrayList<Boolean>(urls.size());
+		List<String> free = new ArrayList<String>(urls.size());
+		for (Url url : urls) {
+			boolean taken = buffer.isPending(url.getShortUrl());
+			created.add(!taken);
+			if (!taken) {
+				free.add(url.getShortUrl());
+			}
+		}
+		if (free.isEmpty()) {
+			return created;
+		}
+		Iterator<Url> stored = delegate.getAll(free).iterator();
+		for (int i = 0; i < created.size(); i++) {
+			if (created.get(i)) {
+				created.set(i, stored.next() == null && buffer.putIfAbsent(urls.get(i)));
+			}
+		}
+		return created;
+	}
+
+	@Override
+	public void save(Url url) {
+		buffer.put(url);
+	}
+
+	@Override
+	public void saveAll(List<Url> urls) {
+		urls.forEach(buffer::put);
+	}
+
+	@Override
+	public Url update(String shortUrl, String longUrl) {
+		Url url = new Url(shortUrl, longUrl);
+		buffer.put(url);
+		return url;
+	}
+
+	/**
+	 * This method buffers update of a pending or stored Url. Stored expiring
+	 * Url is updated in storage at once, since rewriting it would restore
+	 * clicks counted after it was read.
+	 */
+	@Override
+	public Url updateIfPresent(String shortUrl, String longUrl) {
+		Url previous = buffer.get(shortUrl);
+		if (previous != null) {
+			buffer.put(new Url(shortUrl, longUrl, previous.getExpiresAt(), previous.getClicksLeft()));
+			return previous;
+		}
+		previous = delegate.get(shortUrl);
+		if (previous == null) {
+			return null;
+		}
+		if (previous.expires()) {
+			return delegate.updateIfPresent(shortUrl, longUrl);
+		}
+		buffer.put(new Url(shortUrl, longUrl));
+		return previous;
+	}
+
+	@Override
+	public Url removeIfPresent(String shortUrl) {
+		if (buffer.isPending(shortUrl)) {
+			buffer.flush();
+		}
+		return delegate.removeIfPresent(shortUrl);
+	}
+
+	@Override
+	public long click(String shortUrl) {
+		if (buffer.isPending(shortUrl)) {
+			buffer.flush();
+		}
+		return delegate.click(shortUrl);
+	}
+
+	@Override
+	public CompletableFuture<Long> clickAsync(String shortUrl) {
+		if (buffer.isPending(shortUrl)) {
+			return CompletableFuture.runAsync(buffer::flush, blockingExecutor)
+					.thenCompose((flushed) -> delegate.clickAsync(shortUrl));
+		}
+		return delegate.clickAsync(shortUrl);
+	}
+
+	@Override
+	public void remove(String shortUrl) {
+		if (buffer.isPending(shortUrl)) {
+			buffer.flush();
+		}
+		delegate.remove(shortUrl);
+	}
+
+	@Override
+	public boolean removeAll() {
+		buffer.clear();
+		return delegate.removeAll();
+	}
+
+	@Override
+	public long removeAll(LongConsumer progress) {
+		buffer.clear();
+		return delegate.removeAll(progress);
+	}
+
+	/**
+	 * This method stops background flushes and writes pending writes.
+	 */
+	public void close() {
+		buffer.close();
+	}
+
+}
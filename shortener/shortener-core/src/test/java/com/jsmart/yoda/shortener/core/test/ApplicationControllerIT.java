@@ -20,6 +20,7 @@ import org.springframework.web.context.WebApplicationContext;
 import com.jsmart.yoda.shortener.base.service.ShortnerService;
 import com.jsmart.yoda.shortener.core.config.TestApplicationControllerConfiguration;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -97,7 +98,7 @@ public class ApplicationControllerIT {
 
 		String longUrl = "http://ua.fm";
 		String shortUrl = create(longUrl);
-		mockMvc.perform(get(serviceUri + "/" + shortUrl))
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(serviceUri + "/" + shortUrl)).andReturn()))
 				.andExpect(status().isSeeOther())
 				.andExpect(MockMvcResultMatchers.header().string("Location", is(longUrl)))
 				.andExpect(content().string(""))
@@ -107,7 +108,7 @@ public class ApplicationControllerIT {
 
 	@Test
 	public void testGetNotSuccess() throws Exception {
-		mockMvc.perform(get(serviceUri + "/asdas"))
+		mockMvc.perform(asyncDispatch(mockMvc.perform(get(serviceUri + "/asdas")).andReturn()))
 				.andExpect(status().isNotFound())
 				.andExpect(content().string(""))
 				;
@@ -0,0 +1,174 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.cache.CachingShortnerDao;
+import com.jsmart.yoda.shortener.core.cache.UrlNearCache;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class CachingShortnerDaoTest {
+
+	private ShortnerDao mockUrlShortnerDao;
+	private UrlNearCache urlNearCache;
+	private List<String> published;
+	private CachingShortnerDao cachingShortnerDao;
+
+	@Before
+	public void setUp() {
+		mockUrlShortnerDao = mock(ShortnerDao.class);
+		urlNearCache = new UrlNearCache(100, 60);
+		published = new ArrayList<>();
+		cachingShortnerDao = new CachingShortnerDao(mockUrlShortnerDao, urlNearCache, published::add);
+	}
+
+	@Test
+	public void testGetIsServedFromCache() throws Exception {
+
+		Url url = new Url("asdas", "http://google.com");
+		when(mockUrlShortnerDao.get("asdas")).thenReturn(url);
+
+		assertEquals(cachingShortnerDao.get("asdas"), url);
+		assertEquals(cachingShortnerDao.get("asdas"), url);
+
+		verify(mockUrlShortnerDao, times(1)).get("asdas");
+		assertEquals(urlNearCache.getMetrics().getHitCount(), 1);
+		assertEquals(urlNearCache.getMetrics().getMissCount(), 1);
+	}
+
+	@Test
+	public void testAsyncGetIsCachedUnlessInvalidatedWhileLoading() throws Exception {
+
+		Url url = new Url("asdas", "http://google.com");
+		CompletableFuture<Url> loading = new CompletableFuture<Url>();
+		when(mockUrlShortnerDao.getAsync("asdas")).thenReturn(loading);
+
+		CompletableFuture<Url> lookup = cachingShortnerDao.getAsync("asdas");
+		assertFalse(lookup.isDone());
+		urlNearCache.onInvalidation("asdas");
+		loading.complete(url);
+		assertEquals(lookup.get(), url);
+		assertNull(urlNearCache.getIfPresent("asdas"));
+
+		when(mockUrlShortnerDao.getAsync("asdas")).thenReturn(CompletableFuture.completedFuture(url));
+		assertEquals(cachingShortnerDao.getAsync("asdas").get(), url);
+		CompletableFuture<Url> hit = cachingShortnerDao.getAsync("asdas");
+		assertTrue(hit.isDone());
+		assertEquals(hit.get(), url);
+		verify(mockUrlShortnerDao, times(2)).getAsync("asdas");
+	}
+
+	@Test
+	public void testLastClickInvalidatesUrl() throws Exception {
+
+		Url url = new Url("asdas", "http://google.com", null, 2L);
+		when(mockUrlShortnerDao.get("asdas")).thenReturn(url);
+		when(mockUrlShortnerDao.click("asdas")).thenReturn(1L, 0L);
+
+		cachingShortnerDao.get("asdas");
+		assertEquals(cachingShortnerDao.click("asdas"), 1);
+		assertNotNull(urlNearCache.getIfPresent("asdas"));
+		assertTrue(published.isEmpty());
+
+		assertEquals(cachingShortnerDao.click("asdas"), 0);
+		assertNull(urlNearCache.getIfPresent("asdas"));
+		assertEquals(published, Arrays.asList("asdas"));
+	}
+
+	@Test
+	public void testLastAsyncClickPublishesOnBlockingExecutor() throws Exception {
+
+		List<Runnable> blocking = new ArrayList<>();
+		cachingShortnerDao = new CachingShortnerDao(mockUrlShortnerDao, urlNearCache, published::add, blocking::add);
+		when(mockUrlShortnerDao.clickAsync("asdas")).thenReturn(CompletableFuture.completedFuture(1L))
+				.thenReturn(CompletableFuture.completedFuture(0L));
+
+		assertEquals(cachingShortnerDao.clickAsync("asdas").join(), Long.valueOf(1));
+		assertTrue(blocking.isEmpty());
+
+		CompletableFuture<Long> left = cachingShortnerDao.clickAsync("asdas");
+		assertFalse(left.isDone());
+		assertTrue(published.isEmpty());
+
+		blocking.forEach(Runnable::run);
+		assertEquals(left.join(), Long.valueOf(0));
+		assertEquals(published, Arrays.asList("asdas"));
+	}
+
+	@Test
+	public void testMissesAreNotCached() throws Exception {
+
+		assertNull(cachingShortnerDao.get("zxczx"));
+		assertNull(cachingShortnerDao.get("zxczx"));
+
+		verify(mockUrlShortnerDao, times(2)).get("zxczx");
+	}
+
+	@Test
+	public void testGetAllLoadsOnlyMisses() throws Exception {
+
+		Url cached = new Url("asdas", "http://google.com");
+		Url loaded = new Url("qwert", "http://ua.fm");
+		urlNearCache.put(cached);
+		when(mockUrlShortnerDao.getAll(Arrays.asList("qwert", "zxczx"))).thenReturn(Arrays.asList(loaded, null));
+
+		assertEquals(cachingShortnerDao.getAll(Arrays.asList("asdas", "qwert", "zxczx")),
+				Arrays.asList(cached, loaded, null));
+		assertEquals(cachingShortnerDao.get("qwert"), loaded);
+
+		verify(mockUrlShortnerDao, never()).get("qwert");
+	}
+
+	@Test
+	public void testUpdateInvalidatesAndPublishes() throws Exception {
+
+		when(mockUrlShortnerDao.get("asdas")).thenReturn(new Url("asdas", "http://google.com"),
+				new Url("asdas", "http://yahoo.com"));
+
+		cachingShortnerDao.get("asdas");
+		cachingShortnerDao.update("asdas", "http://yahoo.com");
+
+		assertEquals(cachingShortnerDao.get("asdas").getLongUrl(), "http://yahoo.com");
+		assertEquals(published.get(0), "asdas");
+	}
+
+	@Test
+	public void testRemoteInvalidation() throws Exception {
+
+		cachingShortnerDao.save(new Url("asdas", "http://google.com"));
+		assertNotNull(urlNearCache.getIfPresent("asdas"));
+
+		urlNearCache.onInvalidation(UrlNearCache.INVALIDATE_ALL);
+
+		assertNull(urlNearCache.getIfPresent("asdas"));
+		assertEquals(urlNearCache.getMetrics().getInvalidationsReceived(), 1);
+	}
+
+	@Test
+	public void testSaveAllInvalidatesOtherNodesInOneMessage() throws Exception {
+
+		cachingShortnerDao.saveAll(Arrays.asList(new Url("asdas", "http://google.com"), new Url("qwert", "http://ua.fm")));
+
+		assertEquals(urlNearCache.getIfPresent("qwert").getLongUrl(), "http://ua.fm");
+		assertEquals(published, Arrays.asList("asdas\nqwert"));
+
+		urlNearCache.onInvalidation(published.get(0));
+
+		assertNull(urlNearCache.getIfPresent("asdas"));
+		assertNull(urlNearCache.getIfPresent("qwert"));
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.core.support.ConsistentHashRing;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class ConsistentHashRingTest {
+
+	private static final int KEYS = 100000;
+
+	@Test
+	public void testKeysAreSpreadEvenly() throws Exception {
+
+		ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a:6379/0", "b:6379/0", "c:6379/0", "d:6379/0"),
+				160);
+		ConsistentHashRing reordered = new ConsistentHashRing(
+				Arrays.asList("d:6379/0", "b:6379/0", "a:6379/0", "c:6379/0"), 160);
+
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (int i = 0; i < KEYS; i++) {
+			String key = Integer.toString(i, 36);
+			assertEquals(reordered.locate(key), ring.locate(key));
+			counts.merge(ring.locate(key), 1, Integer::sum);
+		}
+
+		double shares = 0;
+		for (Map.Entry<String, Double> share : ring.getShares().entrySet()) {
+			assertTrue(share.getValue() > 0.2 && share.getValue() < 0.3);
+			assertTrue(Math.abs(counts.get(share.getKey()) / (double) KEYS - share.getValue()) < 0.01);
+			shares += share.getValue();
+		}
+		assertEquals(shares, 1.0, 1e-9);
+	}
+
+	@Test
+	public void testAddedNodeTakesKeysOnlyFromOthers() throws Exception {
+
+		ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a:6379/0", "b:6379/0", "c:6379/0", "d:6379/0"),
+				160);
+		ConsistentHashRing extended = ring.withNode("e:6379/0");
+		assertEquals(extended.getNodes().get(4), "e:6379/0");
+
+		int moved = 0;
+		for (int i = 0; i < KEYS; i++) {
+			String key = Integer.toString(i, 36);
+			if (!ring.locate(key).equals(extended.locate(key))) {
+				assertEquals(extended.locate(key), "e:6379/0");
+				moved++;
+			}
+		}
+		assertTrue(moved > KEYS * 0.15 && moved < KEYS * 0.25);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateNodeIsRejected() throws Exception {
+
+		new ConsistentHashRing(Arrays.asList("a:6379/0"), 160).withNode("a:6379/0");
+	}
+
+}
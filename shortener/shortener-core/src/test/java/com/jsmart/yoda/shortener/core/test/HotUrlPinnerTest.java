@@ -0,0 +1,87 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.hotkey.HeavyHitterTracker;
+import com.jsmart.yoda.shortener.core.hotkey.HotUrlPinner;
+import com.jsmart.yoda.shortener.core.model.HeavyHitter;
+import com.jsmart.yoda.shortener.core.model.HotKeyMetrics;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class HotUrlPinnerTest {
+
+	private final Function<String, Url> loader = (shortUrl) -> new Url(shortUrl, "http://" + shortUrl + ".com");
+
+	@Test
+	public void testTrackerFindsHeavyHitters() throws Exception {
+
+		HeavyHitterTracker tracker = new HeavyHitterTracker(4);
+		for (int i = 0; i < 10000; i++) {
+			tracker.record("cold" + i);
+			if (i % 2 == 0) {
+				tracker.record("hot1");
+			}
+			if (i % 5 == 0) {
+				tracker.record("hot2");
+			}
+		}
+
+		List<HeavyHitter> heavyHitters = tracker.getHeavyHitters();
+		assertEquals(heavyHitters.size(), 4);
+		assertEquals(heavyHitters.get(0).getShortUrl(), "hot1");
+		assertEquals(heavyHitters.get(1).getShortUrl(), "hot2");
+		assertTrue(heavyHitters.get(0).getCount() >= 5000);
+	}
+
+	@Test
+	public void testPinsAndUnpinsHotUrls() throws Exception {
+
+		HotUrlPinner pinner = new HotUrlPinner(new HeavyHitterTracker(4), 100);
+		for (int i = 0; i < 200; i++) {
+			assertNull(pinner.get("hot"));
+			pinner.get("cold" + i);
+		}
+		pinner.refresh(loader);
+
+		assertEquals(pinner.get("hot"), new Url("hot", "http://hot.com"));
+		assertNull(pinner.get("cold1"));
+
+		pinner.unpin("hot");
+		assertNull(pinner.get("hot"));
+	}
+
+	@Test
+	public void testCooledUrlsAreUnpinned() throws Exception {
+
+		AtomicInteger loads = new AtomicInteger();
+		HotUrlPinner pinner = new HotUrlPinner(new HeavyHitterTracker(4), 100);
+		for (int i = 0; i < 150; i++) {
+			pinner.get("hot");
+		}
+		pinner.refresh((shortUrl) -> {
+			loads.incrementAndGet();
+			return loader.apply(shortUrl);
+		});
+		assertNotNull(pinner.get("hot"));
+		assertEquals(loads.get(), 1);
+
+		pinner.refresh(loader);
+		assertNull(pinner.get("hot"));
+
+		HotKeyMetrics metrics = pinner.getMetrics();
+		assertEquals(metrics.getPinned(), 0);
+		assertEquals(metrics.getPinnedHits(), 1);
+		assertEquals(metrics.getRefreshes(), 2);
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.filter.KeyFilterShortnerDao;
+import com.jsmart.yoda.shortener.core.filter.UrlKeyFilter;
+import com.jsmart.yoda.shortener.core.support.ScalableBloomFilter;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class KeyFilterShortnerDaoTest {
+
+	private ShortnerDao mockUrlShortnerDao;
+	private UrlKeyFilter urlKeyFilter;
+	private List<String> published;
+	private KeyFilterShortnerDao keyFilterShortnerDao;
+
+	@Before
+	public void setUp() {
+		mockUrlShortnerDao = mock(ShortnerDao.class);
+		urlKeyFilter = new UrlKeyFilter(100, 0.01);
+		published = new ArrayList<>();
+		keyFilterShortnerDao = new KeyFilterShortnerDao(mockUrlShortnerDao, urlKeyFilter, published::add);
+	}
+
+	@Test
+	public void testLookupsPassUntilFilterIsLoaded() throws Exception {
+
+		keyFilterShortnerDao.get("asdas");
+
+		verify(mockUrlShortnerDao).get("asdas");
+	}
+
+	@Test
+	public void testUnknownKeysAreAnsweredFromFilter() throws Exception {
+
+		Url url = new Url("asdas", "http://google.com");
+		when(mockUrlShortnerDao.get("asdas")).thenReturn(url);
+		urlKeyFilter.rebuild((action) -> action.accept("asdas"));
+
+		assertEquals(keyFilterShortnerDao.get("asdas"), url);
+		assertNull(keyFilterShortnerDao.get("zxczx"));
+
+		verify(mockUrlShortnerDao, never()).get("zxczx");
+		assertEquals(urlKeyFilter.getMetrics().getRejected(), 1);
+	}
+
+	@Test
+	public void testGetAllFetchesOnlyKnownKeys() throws Exception {
+
+		Url url = new Url("asdas", "http://google.com");
+		when(mockUrlShortnerDao.getAll(Arrays.asList("asdas"))).thenReturn(Arrays.asList(url));
+		urlKeyFilter.rebuild((action) -> action.accept("asdas"));
+
+		assertEquals(keyFilterShortnerDao.getAll(Arrays.asList("zxczx", "asdas")), Arrays.asList(null, url));
+
+		verify(mockUrlShortnerDao).getAll(Arrays.asList("asdas"));
+	}
+
+	@Test
+	public void testCreatedKeysAreAddedAndPublished() throws Exception {
+
+		urlKeyFilter.rebuild((action) -> {
+		});
+		Url url = new Url("qwert", "http://google.com");
+		when(mockUrlShortnerDao.create(url)).thenReturn(true);
+		when(mockUrlShortnerDao.get("qwert")).thenReturn(url);
+
+		assertTrue(keyFilterShortnerDao.create(url));
+
+		assertEquals(keyFilterShortnerDao.get("qwert"), url);
+		assertEquals(published.get(0), "qwert");
+	}
+
+	@Test
+	public void testKeyAddedWhileRebuildingIsKept() throws Exception {
+
+		urlKeyFilter.rebuild((action) -> {
+			action.accept("asdas");
+			urlKeyFilter.add("qwert");
+		});
+
+		assertTrue(urlKeyFilter.mightContain("asdas"));
+		assertTrue(urlKeyFilter.mightContain("qwert"));
+		assertFalse(urlKeyFilter.mightContain("zxczx"));
+	}
+
+	@Test
+	public void testUnknownKeysAreLookedUpUntilFilterSettles() throws Exception {
+
+		urlKeyFilter = new UrlKeyFilter(100, 0.01, 60000);
+		keyFilterShortnerDao = new KeyFilterShortnerDao(mockUrlShortnerDao, urlKeyFilter, published::add);
+		urlKeyFilter.rebuild((action) -> action.accept("asdas"));
+
+		assertNull(keyFilterShortnerDao.get("zxczx"));
+
+		verify(mockUrlShortnerDao).get("zxczx");
+		assertEquals(urlKeyFilter.getMetrics().getRejected(), 0);
+	}
+
+	@Test
+	public void testUnknownKeysAreLookedUpAfterResubscribeUntilRebuild() throws Exception {
+
+		urlKeyFilter.rebuild((action) -> action.accept("asdas"));
+		urlKeyFilter.onResubscribed();
+
+		assertNull(keyFilterShortnerDao.get("zxczx"));
+		verify(mockUrlShortnerDao).get("zxczx");
+
+		urlKeyFilter.rebuild((action) -> action.accept("asdas"));
+
+		assertNull(keyFilterShortnerDao.get("zxczx"));
+		verify(mockUrlShortnerDao, times(1)).get("zxczx");
+	}
+
+	@Test
+	public void testFilterIsLoadedAfterLoadFailedWithError() throws Exception {
+
+		AtomicInteger loads = new AtomicInteger();
+		urlKeyFilter.start((action) -> {
+			if (loads.incrementAndGet() == 1) {
+				throw new NoSuchMethodError("scan");
+			}
+			action.accept("asdas");
+		}, 1);
+		try {
+			for (int i = 0; i < 50 && !urlKeyFilter.getMetrics().isReady(); i++) {
+				Thread.sleep(100);
+			}
+
+			assertTrue(urlKeyFilter.getMetrics().isReady());
+			assertFalse(urlKeyFilter.mightContain("zxczx"));
+		} finally {
+			urlKeyFilter.close();
+		}
+	}
+
+	@Test
+	public void testScalableBloomFilterGrows() throws Exception {
+
+		ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filter.put("key" + i);
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(filter.mightContain("key" + i));
+			if (filter.mightContain("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(filter.getStages() > 1);
+		assertTrue(falsePositives < 200);
+	}
+
+}
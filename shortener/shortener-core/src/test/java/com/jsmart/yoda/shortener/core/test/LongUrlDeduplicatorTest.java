@@ -0,0 +1,99 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.dao.LongUrlIndexDao;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.dedup.LongUrlDeduplicator;
+import com.jsmart.yoda.shortener.core.support.BloomFilter;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class LongUrlDeduplicatorTest {
+
+	private LongUrlIndexDao mockLongUrlIndexDao;
+	private LongUrlDeduplicator longUrlDeduplicator;
+
+	@Before
+	public void setUp() {
+		mockLongUrlIndexDao = mock(LongUrlIndexDao.class);
+		longUrlDeduplicator = new LongUrlDeduplicator(mockLongUrlIndexDao, new BloomFilter(1000, 0.01));
+		longUrlDeduplicator.rebuild();
+	}
+
+	@Test
+	public void testNormalize() throws Exception {
+
+		assertEquals(LongUrlDeduplicator.normalize("HTTP://Google.COM"), "http://google.com/");
+		assertEquals(LongUrlDeduplicator.normalize("http://google.com:80/a?b=C"), "http://google.com/a?b=C");
+		assertEquals(LongUrlDeduplicator.normalize("https://google.com:443/"), "https://google.com/");
+		assertEquals(LongUrlDeduplicator.normalize("https://google.com:8443/A"), "https://google.com:8443/A");
+	}
+
+	@Test
+	public void testUnknownUrlSkipsIndex() throws Exception {
+
+		assertNull(longUrlDeduplicator.find("http://google.com"));
+		verify(mockLongUrlIndexDao, never()).get(anyString());
+	}
+
+	@Test
+	public void testRegisteredUrlIsFound() throws Exception {
+
+		longUrlDeduplicator.register("http://google.com", "asdas");
+		when(mockLongUrlIndexDao.get(anyString())).thenReturn("asdas");
+
+		assertEquals(longUrlDeduplicator.find("http://GOOGLE.com/"), "asdas");
+		verify(mockLongUrlIndexDao).put(anyString(), eq("asdas"));
+	}
+
+	@Test
+	public void testRegistrationsAreAnnouncedToOtherNodes() throws Exception {
+
+		List<String> announced = new ArrayList<String>();
+		LongUrlDeduplicator announcing = new LongUrlDeduplicator(mockLongUrlIndexDao, new BloomFilter(1000, 0.01),
+				announced::add);
+		announcing.rebuild();
+		announcing.register("http://google.com", "asdas");
+		announcing.registerAll(Arrays.asList(new Url("qwert", "http://ua.fm"), new Url("zxczx", "http://yahoo.com")));
+
+		assertEquals(announced.size(), 2);
+		assertEquals(announced.get(1).split(RedisKeys.KEY_SEPARATOR).length, 2);
+
+		when(mockLongUrlIndexDao.get(anyString())).thenReturn("asdas");
+		longUrlDeduplicator.onAnnounced(announced.get(0));
+
+		assertEquals(longUrlDeduplicator.find("http://google.com"), "asdas");
+		assertNull(longUrlDeduplicator.find("http://ua.fm"));
+		verify(mockLongUrlIndexDao, times(1)).get(anyString());
+	}
+
+	@Test
+	public void testBloomFilter() throws Exception {
+
+		BloomFilter bloomFilter = new BloomFilter(10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			bloomFilter.put("key" + i);
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(bloomFilter.mightContain("key" + i));
+			if (bloomFilter.mightContain("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 300);
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.mapped.MappedUrlStore;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class MappedUrlStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MappedUrlStore store;
+
+	@Before
+	public void setUp() throws Exception {
+		store = MappedUrlStore.open(folder.getRoot().toPath());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		store.close();
+	}
+
+	@Test
+	public void testUrlRoutine() throws Exception {
+
+		assertTrue(store.create(new Url("abcde", "http://ua.fm")));
+		assertFalse(store.create(new Url("abcde", "http://google.com")));
+		assertEquals(store.get("abcde").getLongUrl(), "http://ua.fm");
+
+		store.save(new Url("abcde", "http://yahoo.com"));
+		assertEquals(store.get("abcde").getLongUrl(), "http://yahoo.com");
+		assertEquals(store.createAll(Arrays.asList(new Url("abcde", "http://ua.fm"), new Url("fghij", "http://ua.fm"))),
+				Arrays.asList(false, true));
+
+		List<Url> urls = store.getAll(Arrays.asList("fghij", "zzzzz", "abcde"));
+		assertEquals(urls.get(0).getLongUrl(), "http://ua.fm");
+		assertNull(urls.get(1));
+		assertEquals(urls.get(2).getLongUrl(), "http://yahoo.com");
+
+		assertNull(store.replace(new Url("zzzzz", "http://ua.fm")));
+		assertNull(store.get("zzzzz"));
+		assertEquals(store.replace(new Url("fghij", "http://google.com")).getLongUrl(), "http://ua.fm");
+		assertEquals(store.get("fghij").getLongUrl(), "http://google.com");
+		assertEquals(store.removeAndGet("fghij").getLongUrl(), "http://google.com");
+		assertNull(store.removeAndGet("fghij"));
+		store.save(new Url("fghij", "http://ua.fm"));
+
+		assertTrue(store.remove("abcde"));
+		assertFalse(store.remove("abcde"));
+		assertNull(store.get("abcde"));
+		assertEquals(store.size(), 1);
+
+		assertEquals(store.clear(), 1);
+		assertNull(store.get("fghij"));
+		assertEquals(store.size(), 0);
+	}
+
+	@Test
+	public void testReopenGrownStore() throws Exception {
+
+		for (int i = 0; i < 5000; i++) {
+			store.create(new Url("k" + i, "http://ua.fm/" + i));
+		}
+		for (int i = 0; i < 5000; i += 2) {
+			store.remove("k" + i);
+		}
+		store.close();
+		store = MappedUrlStore.open(folder.getRoot().toPath());
+
+		assertEquals(store.size(), 2500);
+		assertNull(store.get("k10"));
+		assertEquals(store.get("k11").getLongUrl(), "http://ua.fm/11");
+		assertEquals(page(store).size(), 2500);
+	}
+
+	@Test
+	public void testRecoveryDropsTornRecord() throws Exception {
+
+		for (int i = 0; i < 100; i++) {
+			store.create(new Url("k" + i, "http://ua.fm/" + i));
+		}
+		store.remove("k0");
+		store.save(new Url("k1", "http://google.com"));
+		store.create(new Url("torn", "http://yahoo.com"));
+		store.sync();
+
+		// copy of files of a running store is what a crash leaves behind
+		Path crashed = folder.newFolder("crashed").toPath();
+		for (String file : new String[] { "urls.dat", "urls.idx" }) {
+			Files.copy(folder.getRoot().toPath().resolve(file), crashed.resolve(file));
+		}
+		try (RandomAccessFile log = new RandomAccessFile(crashed.resolve("urls.dat").toFile(), "rw")) {
+			log.setLength(store.logSize() - 1);
+		}
+
+		try (MappedUrlStore recovered = MappedUrlStore.open(crashed)) {
+			assertEquals(recovered.size(), 99);
+			assertNull(recovered.get("k0"));
+			assertNull(recovered.get("torn"));
+			assertEquals(recovered.get("k1").getLongUrl(), "http://google.com");
+			assertEquals(recovered.get("k99").getLongUrl(), "http://ua.fm/99");
+
+			assertTrue(recovered.create(new Url("torn", "http://ua.fm")));
+		}
+		try (MappedUrlStore reopened = MappedUrlStore.open(crashed)) {
+			assertEquals(reopened.size(), 100);
+			assertEquals(reopened.get("torn").getLongUrl(), "http://ua.fm");
+		}
+	}
+
+	@Test
+	public void testCompactionKeepsLiveUrls() throws Exception {
+
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 100; i++) {
+				store.save(new Url("k" + i, "http://ua.fm/" + round));
+			}
+		}
+		store.remove("k0");
+		long logSize = store.logSize();
+		assertTrue(store.garbageRatio() > 0.9);
+
+		store.compact();
+
+		assertTrue(store.logSize() < logSize / 10);
+		assertEquals(store.garbageRatio(), 0, 0);
+		assertEquals(store.size(), 99);
+		assertNull(store.get("k0"));
+		assertEquals(store.get("k1").getLongUrl(), "http://ua.fm/19");
+
+		store.save(new Url("k0", "http://google.com"));
+		store.close();
+		store = MappedUrlStore.open(folder.getRoot().toPath());
+
+		assertEquals(store.size(), 100);
+		assertEquals(store.get("k0").getLongUrl(), "http://google.com");
+		assertEquals(folder.getRoot().listFiles((File dir, String name) -> name.endsWith(".next")).length, 0);
+	}
+
+	private static List<Url> page(MappedUrlStore store) {
+		List<Url> urls = new ArrayList<Url>();
+		int cursor = 0;
+		do {
+			cursor = store.page(cursor, 100, urls);
+		} while (cursor != 0);
+		return urls;
+	}
+
+}
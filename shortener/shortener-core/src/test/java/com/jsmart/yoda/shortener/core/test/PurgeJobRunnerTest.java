@@ -0,0 +1,76 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.PurgeJob;
+import com.jsmart.yoda.shortener.core.purge.PurgeJobRunner;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class PurgeJobRunnerTest {
+
+	private final PurgeJobRunner runner = new PurgeJobRunner();
+
+	@After
+	public void tearDown() throws Exception {
+		runner.close();
+	}
+
+	@Test
+	public void testRunningPurgeIsJoined() throws Exception {
+
+		CountDownLatch release = new CountDownLatch(1);
+		PurgeJob job = runner.submit((progress) -> {
+			progress.accept(1000);
+			await(release);
+			return 1500;
+		});
+		PurgeJob joined = runner.submit((progress) -> 0);
+
+		assertSame(joined, job);
+		assertEquals(job.getStatus(), PurgeJob.Status.RUNNING);
+
+		release.countDown();
+		waitFinished(job);
+
+		assertEquals(job.getStatus(), PurgeJob.Status.COMPLETED);
+		assertEquals(job.getRemoved(), 1500);
+		assertSame(runner.get(job.getId()), job);
+		assertNotSame(runner.submit((progress) -> 0), job);
+	}
+
+	@Test
+	public void testFailedPurge() throws Exception {
+
+		PurgeJob job = runner.submit((progress) -> {
+			throw new IllegalStateException("connection lost");
+		});
+		waitFinished(job);
+
+		assertEquals(job.getStatus(), PurgeJob.Status.FAILED);
+		assertTrue(job.getError().contains("connection lost"));
+		assertNull(runner.get("unknown"));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void waitFinished(PurgeJob job) throws InterruptedException {
+		for (int i = 0; i < 500 && job.getStatus() == PurgeJob.Status.RUNNING; i++) {
+			Thread.sleep(10);
+		}
+	}
+
+}
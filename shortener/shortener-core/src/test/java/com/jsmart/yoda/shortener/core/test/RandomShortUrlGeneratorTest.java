@@ -0,0 +1,80 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.core.generator.RandomShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.model.GeneratorMetrics;
+import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorSettings;
+import com.jsmart.yoda.shortener.core.support.Base62;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class RandomShortUrlGeneratorTest {
+
+	private ShortUrlGeneratorSettings shortUrlGeneratorSettings;
+
+	@Before
+	public void setUp() {
+		shortUrlGeneratorSettings = new ShortUrlGeneratorSettings();
+		shortUrlGeneratorSettings.setShortUrlLenght(5);
+		shortUrlGeneratorSettings.setRandomMaxOccupancy(0.1);
+	}
+
+	@Test
+	public void testKeysOfConfiguredLength() throws Exception {
+
+		RandomShortUrlGenerator generator = new RandomShortUrlGenerator(shortUrlGeneratorSettings);
+
+		for (int i = 0; i < 100; i++) {
+			String key = generator.next();
+			assertEquals(key.length(), 5);
+			assertTrue(Base62.isValid(key));
+		}
+	}
+
+	@Test
+	public void testLengthStaysWhileCollisionsAreRare() throws Exception {
+
+		RandomShortUrlGenerator generator = new RandomShortUrlGenerator(shortUrlGeneratorSettings);
+
+		for (int i = 0; i < 1000; i++) {
+			String key = generator.next();
+			if (i % 50 == 0) {
+				generator.onCollision(key);
+			} else {
+				generator.onCreated(key);
+			}
+		}
+
+		GeneratorMetrics metrics = generator.getMetrics();
+		assertEquals(generator.getLength(), 5);
+		assertEquals(metrics.getAttempts(), 1000);
+		assertEquals(metrics.getCollisions(), 20);
+		assertTrue(metrics.getEstimatedOccupancy() < 0.1);
+	}
+
+	@Test
+	public void testLengthGrowsWhenKeyspaceFills() throws Exception {
+
+		RandomShortUrlGenerator generator = new RandomShortUrlGenerator(shortUrlGeneratorSettings);
+
+		for (int i = 0; i < 1000 && generator.getLength() == 5; i++) {
+			String key = generator.next();
+			if (i % 2 == 0) {
+				generator.onCollision(key);
+			} else {
+				generator.onCreated(key);
+			}
+		}
+
+		assertEquals(generator.getLength(), 6);
+		assertEquals(generator.next().length(), 6);
+		assertEquals(generator.getMetrics().getEstimatedOccupancy(), 0, 0);
+	}
+
+}
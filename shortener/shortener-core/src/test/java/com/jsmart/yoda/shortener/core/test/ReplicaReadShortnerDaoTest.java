@@ -0,0 +1,141 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.model.ReplicaMetrics;
+import com.jsmart.yoda.shortener.core.replica.ReplicaReadShortnerDao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class ReplicaReadShortnerDaoTest {
+
+	private ShortnerDao mockPrimary;
+	private ShortnerDao mockReplica1;
+	private ShortnerDao mockReplica2;
+	private ReplicaReadShortnerDao replicaReadShortnerDao;
+	private List<String> announced;
+
+	@Before
+	public void setUp() {
+		mockPrimary = mock(ShortnerDao.class);
+		mockReplica1 = mock(ShortnerDao.class);
+		mockReplica2 = mock(ShortnerDao.class);
+		announced = new ArrayList<>();
+	}
+
+	@After
+	public void tearDown() {
+		replicaReadShortnerDao.close();
+	}
+
+	@Test
+	public void testWrittenKeysAreReadFromPrimary() throws Exception {
+
+		replicaReadShortnerDao = new ReplicaReadShortnerDao(mockPrimary, Arrays.asList(mockReplica1, mockReplica2),
+				60000, 0, announced::add);
+		Url stale = new Url("asdas", "http://google.com");
+		Url written = new Url("asdas", "http://yahoo.com");
+		when(mockReplica1.get("asdas")).thenReturn(stale);
+		when(mockReplica2.get("asdas")).thenReturn(stale);
+		when(mockPrimary.get("asdas")).thenReturn(written);
+
+		assertEquals(replicaReadShortnerDao.get("asdas"), stale);
+		assertEquals(replicaReadShortnerDao.get("asdas"), stale);
+		verify(mockReplica1).get("asdas");
+		verify(mockReplica2).get("asdas");
+
+		replicaReadShortnerDao.save(written);
+		assertEquals(replicaReadShortnerDao.get("asdas"), written);
+		verify(mockPrimary).save(written);
+		verify(mockPrimary).get("asdas");
+
+		replicaReadShortnerDao.onWritten("zxczx" + "\n" + "qwqwe");
+		when(mockReplica1.getAll(Arrays.asList("asdfg"))).thenReturn(Arrays.asList((Url) null));
+		when(mockPrimary.getAll(Arrays.asList("asdas", "asdfg", "zxczx")))
+				.thenReturn(Arrays.asList(written, null, null));
+		assertEquals(replicaReadShortnerDao.getAll(Arrays.asList("asdas", "asdfg", "zxczx")),
+				Arrays.asList(written, null, null));
+		verify(mockReplica1).getAll(Arrays.asList("asdfg"));
+
+		ReplicaMetrics metrics = replicaReadShortnerDao.getMetrics();
+		assertEquals(metrics.getReplicaReads(), 3);
+		assertEquals(metrics.getPrimaryReads(), 4);
+	}
+
+	@Test
+	public void testWritesAreAnnouncedToOtherNodes() throws Exception {
+
+		replicaReadShortnerDao = new ReplicaReadShortnerDao(mockPrimary, Arrays.asList(mockReplica1), 60000, 0,
+				announced::add);
+		Url url = new Url("asdas", "http://google.com");
+		Url taken = new Url("qwert", "http://ua.fm");
+		when(mockPrimary.createAll(Arrays.asList(url, taken))).thenReturn(Arrays.asList(true, false));
+		when(mockPrimary.updateIfPresent("zxczx", "http://ua.fm")).thenReturn(null);
+		when(mockPrimary.click("asdas")).thenReturn(1L, 0L);
+
+		replicaReadShortnerDao.createAll(Arrays.asList(url, taken));
+		replicaReadShortnerDao.saveAll(Arrays.asList(url, taken));
+		replicaReadShortnerDao.updateIfPresent("zxczx", "http://ua.fm");
+		replicaReadShortnerDao.click("asdas");
+		replicaReadShortnerDao.click("asdas");
+		replicaReadShortnerDao.remove("qwert");
+
+		assertEquals(announced, Arrays.asList("asdas", "asdas\nqwert", "asdas", "qwert"));
+	}
+
+	@Test
+	public void testFailedReplicaReadFallsBackToPrimary() throws Exception {
+
+		replicaReadShortnerDao = new ReplicaReadShortnerDao(mockPrimary, Arrays.asList(mockReplica1), 60000, 0,
+				announced::add);
+		Url url = new Url("asdas", "http://google.com");
+		when(mockReplica1.get("asdas")).thenThrow(new IllegalStateException("replica is down"));
+		when(mockPrimary.get("asdas")).thenReturn(url);
+
+		assertEquals(replicaReadShortnerDao.get("asdas"), url);
+		assertEquals(replicaReadShortnerDao.getMetrics().getFailovers(), 1);
+	}
+
+	@Test
+	public void testSlowReplicaReadIsHedged() throws Exception {
+
+		replicaReadShortnerDao = new ReplicaReadShortnerDao(mockPrimary, Arrays.asList(mockReplica1, mockReplica2),
+				60000, 0.95, announced::add);
+		Url url = new Url("asdas", "http://google.com");
+		when(mockReplica1.get("asdas")).thenReturn(url);
+		when(mockReplica2.get("asdas")).thenReturn(url);
+		for (int i = 0; i < 1000; i++) {
+			replicaReadShortnerDao.get("asdas");
+		}
+
+		when(mockReplica1.get("asdas")).thenAnswer((invocation) -> {
+			Thread.sleep(1000);
+			return url;
+		});
+		for (int i = 0; i < 10; i++) {
+			long started = System.currentTimeMillis();
+			assertEquals(replicaReadShortnerDao.get("asdas"), url);
+			assertTrue(System.currentTimeMillis() - started < 500);
+		}
+
+		ReplicaMetrics metrics = replicaReadShortnerDao.getMetrics();
+		assertTrue(metrics.isHedgedReads());
+		assertTrue(metrics.getHedges() >= 5);
+		assertTrue(metrics.getHedgeWins() >= 5);
+		verify(mockPrimary, never()).get("asdas");
+	}
+
+}
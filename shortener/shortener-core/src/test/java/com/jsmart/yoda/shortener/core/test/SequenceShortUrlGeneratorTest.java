@@ -0,0 +1,89 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.generator.SequenceShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.support.Base62;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class SequenceShortUrlGeneratorTest {
+
+	private RedisTemplate<String, String> mockRedisTemplate;
+	private ValueOperations<String, String> mockValueOperations;
+	private AtomicLong sequence;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		mockRedisTemplate = mock(RedisTemplate.class);
+		mockValueOperations = mock(ValueOperations.class);
+		sequence = new AtomicLong();
+
+		when(mockRedisTemplate.opsForValue()).thenReturn(mockValueOperations);
+		when(mockValueOperations.increment(eq(RedisKeys.SEQUENCE), anyLong()))
+				.thenAnswer(invocation -> sequence.addAndGet((Long) invocation.getArguments()[1]));
+	}
+
+	@Test
+	public void testKeysAreUniqueAndOfConfiguredLength() throws Exception {
+
+		SequenceShortUrlGenerator generator = new SequenceShortUrlGenerator(mockRedisTemplate, RedisKeys.SEQUENCE, 100, 5);
+
+		Set<String> keys = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			String key = generator.next();
+			assertEquals(key.length(), 5);
+			assertTrue(Base62.isValid(key));
+			assertTrue(keys.add(key));
+		}
+	}
+
+	@Test
+	public void testLeasesOneBlockPerBlockSizeKeys() throws Exception {
+
+		SequenceShortUrlGenerator generator = new SequenceShortUrlGenerator(mockRedisTemplate, RedisKeys.SEQUENCE, 100, 5);
+
+		for (int i = 0; i < 250; i++) {
+			generator.next();
+		}
+
+		verify(mockValueOperations, times(3)).increment(RedisKeys.SEQUENCE, 100L);
+	}
+
+	@Test
+	public void testKeysGrowWhenKeyspaceIsExhausted() throws Exception {
+
+		SequenceShortUrlGenerator generator = new SequenceShortUrlGenerator(mockRedisTemplate, RedisKeys.SEQUENCE, 10, 1);
+
+		Set<String> keys = new HashSet<>();
+		for (int i = 0; i < 200; i++) {
+			assertTrue(keys.add(generator.next()));
+		}
+		assertEquals(keys.stream().filter(key -> key.length() == 1).count(), 62);
+		assertEquals(keys.stream().filter(key -> key.length() == 2).count(), 138);
+	}
+
+	@Test
+	public void testBase62RoundTrip() throws Exception {
+
+		assertEquals(Base62.encode(0, 5), "00000");
+		assertEquals(Base62.encode(61, 1), "Z");
+		assertEquals(Base62.decode(Base62.encode(916132831L, 5)), 916132831L);
+		assertEquals(Base62.decode(Base62.encode(Long.MAX_VALUE, 1)), Long.MAX_VALUE);
+	}
+
+}
@@ -0,0 +1,184 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.dao.ShortnerDaoImpl;
+import com.jsmart.yoda.shortener.core.model.MigrationReport;
+import com.jsmart.yoda.shortener.core.shard.ShardTopology;
+import com.jsmart.yoda.shortener.core.shard.ShardedShortnerDao;
+import com.jsmart.yoda.shortener.core.support.ConsistentHashRing;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class ShardedShortnerDaoTest {
+
+	private ShardTopology mockShardTopology;
+	private ShortnerDaoImpl mockSource;
+	private ShortnerDaoImpl mockTarget;
+	private ShardedShortnerDao shardedShortnerDao;
+	private List<String> movingKeys;
+
+	@Before
+	public void setUp() {
+		mockShardTopology = mock(ShardTopology.class);
+		mockSource = mock(ShortnerDaoImpl.class);
+		mockTarget = mock(ShortnerDaoImpl.class);
+		when(mockShardTopology.load(anyListOf(String.class))).thenReturn(Collections.singletonList("s1"));
+		shardedShortnerDao = new ShardedShortnerDao(Collections.singletonList("s1"), 160, mockShardTopology,
+				(endpoint) -> "s1".equals(endpoint) ? mockSource : mockTarget);
+
+		ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("s1", "s2"), 160);
+		movingKeys = new ArrayList<String>();
+		for (int i = 0; movingKeys.size() < 2; i++) {
+			String key = "key" + i;
+			if ("s2".equals(ring.locate(key))) {
+				movingKeys.add(key);
+			}
+		}
+	}
+
+	@After
+	public void tearDown() {
+		shardedShortnerDao.close();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void keepOnSource(Url... urls) {
+		doAnswer((invocation) -> {
+			for (Url url : urls) {
+				((Consumer<String>) invocation.getArguments()[0]).accept(url.getShortUrl());
+			}
+			return null;
+		}).doNothing().when(mockSource).forEachKey(any(Consumer.class));
+		List<String> keys = new ArrayList<String>();
+		for (Url url : urls) {
+			keys.add(url.getShortUrl());
+		}
+		when(mockSource.getAll(keys)).thenReturn(Arrays.asList(urls));
+	}
+
+	@Test
+	public void testUrlIsKeptWhenTargetWriteFails() throws Exception {
+
+		Url moved = new Url(movingKeys.get(0), "http://google.com");
+		Url failed = new Url(movingKeys.get(1), "http://yahoo.com");
+		keepOnSource(moved, failed);
+		when(mockTarget.create(moved)).thenReturn(true);
+		when(mockTarget.create(failed)).thenThrow(new IllegalStateException("Connection reset")).thenReturn(true);
+		when(mockSource.removeIfUnchanged(any(Url.class))).thenReturn(true);
+
+		try {
+			shardedShortnerDao.addShard("s2");
+			fail("Failed write to new shard is not reported");
+		} catch (IllegalStateException ise) {
+			assertEquals(ise.getMessage(), "Connection reset");
+		}
+		verify(mockSource).removeIfUnchanged(moved);
+		verify(mockSource, never()).removeIfUnchanged(failed);
+		verify(mockSource, never()).removeIfPresent(anyString());
+		verify(mockSource, never()).remove(anyString());
+		verify(mockShardTopology, never()).announceBalanced("s2");
+
+		keepOnSource(failed);
+		MigrationReport report = shardedShortnerDao.addShard("s2");
+
+		assertEquals(report.getMigrated(), 1);
+		assertEquals(report.getConflicts(), 0);
+		verify(mockSource).removeIfUnchanged(failed);
+		verify(mockShardTopology).announceBalanced("s2");
+	}
+
+	@Test
+	public void testUrlChangedWhileMovedIsMovedWithNewValue() throws Exception {
+
+		Url read = new Url(movingKeys.get(0), "http://google.com");
+		Url changed = new Url(movingKeys.get(0), "http://yahoo.com");
+		keepOnSource(read);
+		when(mockTarget.create(any(Url.class))).thenReturn(true);
+		when(mockSource.removeIfUnchanged(read)).thenReturn(false);
+		when(mockSource.get(read.getShortUrl())).thenReturn(changed);
+		when(mockSource.removeIfUnchanged(changed)).thenReturn(true);
+
+		MigrationReport report = shardedShortnerDao.addShard("s2");
+
+		assertEquals(report.getMigrated(), 1);
+		verify(mockTarget).removeIfUnchanged(read);
+		verify(mockTarget).create(changed);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testConditionalWriteKeepsUrlWhenMoveFails() throws Exception {
+
+		Url kept = new Url(movingKeys.get(0), "http://google.com");
+		doThrow(new IllegalStateException("Interrupted")).when(mockSource).forEachKey(any(Consumer.class));
+		try {
+			shardedShortnerDao.addShard("s2");
+		} catch (IllegalStateException ise) {
+			// rebalancing stays unfinished
+		}
+		when(mockSource.get(kept.getShortUrl())).thenReturn(kept);
+		when(mockTarget.create(kept)).thenThrow(new IllegalStateException("Connection reset"));
+
+		try {
+			shardedShortnerDao.updateIfPresent(kept.getShortUrl(), "http://yahoo.com");
+			fail("Failed move is not reported");
+		} catch (IllegalStateException ise) {
+			assertEquals(ise.getMessage(), "Connection reset");
+		}
+		verify(mockSource, never()).removeIfUnchanged(any(Url.class));
+		verify(mockTarget, never()).updateIfPresent(anyString(), anyString());
+	}
+
+	@Test
+	public void testMissedShardChangesAreReloaded() throws Exception {
+
+		Url kept = new Url(movingKeys.get(0), "http://google.com");
+		when(mockShardTopology.load(anyListOf(String.class))).thenReturn(Arrays.asList("s1", "s2"));
+		when(mockShardTopology.loadRebalancing()).thenReturn("s2");
+		when(mockSource.get(kept.getShortUrl())).thenReturn(kept);
+
+		shardedShortnerDao.reload();
+
+		assertEquals(shardedShortnerDao.getMetrics().getRebalancing(), "s2");
+		assertEquals(shardedShortnerDao.get(kept.getShortUrl()), kept);
+		verify(mockTarget).get(kept.getShortUrl());
+
+		when(mockShardTopology.loadRebalancing()).thenReturn(null);
+
+		shardedShortnerDao.reload();
+
+		assertNull(shardedShortnerDao.getMetrics().getRebalancing());
+		assertEquals(shardedShortnerDao.getMetrics().getShares().keySet(),
+				new HashSet<String>(Arrays.asList("s1", "s2")));
+		assertNull(shardedShortnerDao.get(kept.getShortUrl()));
+	}
+
+	@Test
+	public void testShardBeingAnnouncedIsNotReloaded() throws Exception {
+
+		when(mockShardTopology.loadRebalancing()).thenReturn("s2");
+
+		shardedShortnerDao.reload();
+
+		assertNull(shardedShortnerDao.getMetrics().getRebalancing());
+		assertEquals(shardedShortnerDao.getMetrics().getShares().keySet(), Collections.singleton("s1"));
+	}
+
+}
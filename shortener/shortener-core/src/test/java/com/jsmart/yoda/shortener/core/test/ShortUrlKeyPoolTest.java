@@ -0,0 +1,134 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.core.generator.RandomShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.generator.ShortUrlKeyPool;
+import com.jsmart.yoda.shortener.core.model.KeyPoolMetrics;
+import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorSettings;
+import com.jsmart.yoda.shortener.core.support.RingBuffer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class ShortUrlKeyPoolTest {
+
+	@Test
+	public void testRingBufferBounds() throws Exception {
+
+		RingBuffer<String> buffer = new RingBuffer<>(3);
+
+		assertEquals(buffer.capacity(), 4);
+		assertNull(buffer.poll());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer("key" + i));
+		}
+		assertFalse(buffer.offer("overflow"));
+		assertEquals(buffer.size(), 4);
+		assertEquals(buffer.poll(), "key0");
+		assertTrue(buffer.offer("key4"));
+		assertEquals(buffer.poll(), "key1");
+	}
+
+	@Test
+	public void testRingBufferConcurrentConsumers() throws Exception {
+
+		RingBuffer<Integer> buffer = new RingBuffer<>(1024);
+		for (int i = 0; i < 1024; i++) {
+			buffer.offer(i);
+		}
+
+		Set<Integer> polled = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		CountDownLatch done = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			executor.execute(() -> {
+				Integer value;
+				while ((value = buffer.poll()) != null) {
+					assertTrue(polled.add(value));
+				}
+				done.countDown();
+			});
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertEquals(polled.size(), 1024);
+	}
+
+	@Test
+	public void testRefillSkipsUnavailableKeys() throws Exception {
+
+		AtomicInteger sequence = new AtomicInteger();
+		ShortUrlKeyPool pool = new ShortUrlKeyPool(() -> "k" + sequence.incrementAndGet(),
+				(key) -> !key.equals("k2"), 4, 1);
+
+		assertNull(pool.poll());
+		assertEquals(pool.refill(), 4);
+		assertEquals(pool.poll(), "k1");
+		assertEquals(pool.poll(), "k3");
+
+		KeyPoolMetrics metrics = pool.getMetrics();
+		assertEquals(metrics.getDepth(), 2);
+		assertEquals(metrics.getServed(), 2);
+		assertEquals(metrics.getMisses(), 1);
+		assertEquals(metrics.getRefills(), 1);
+	}
+
+	@Test
+	public void testRandomKeysGrowWhilePoolFindsTakenKeys() throws Exception {
+
+		ShortUrlGeneratorSettings settings = new ShortUrlGeneratorSettings();
+		settings.setShortUrlLenght(5);
+		settings.setRandomMaxOccupancy(0.1);
+		RandomShortUrlGenerator generator = new RandomShortUrlGenerator(settings);
+		AtomicInteger checks = new AtomicInteger();
+		// every other key of the initial length is taken
+		ShortUrlKeyPool pool = new ShortUrlKeyPool(generator,
+				(key) -> key.length() > 5 || checks.incrementAndGet() % 2 == 0, 1024, 0);
+
+		pool.refill();
+
+		assertEquals(generator.getLength(), 6);
+		assertTrue(generator.getMetrics().getCollisions() > 0);
+		String key = null;
+		for (String next = pool.poll(); next != null; next = pool.poll()) {
+			key = next;
+		}
+		assertEquals(key.length(), 6);
+	}
+
+	@Test
+	public void testBackgroundRefillAtLowWatermark() throws Exception {
+
+		AtomicInteger sequence = new AtomicInteger();
+		ShortUrlKeyPool pool = new ShortUrlKeyPool(() -> "k" + sequence.incrementAndGet(), (key) -> true, 8, 2);
+		pool.start();
+		try {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (pool.getMetrics().getDepth() < 8 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			for (int i = 0; i < 6; i++) {
+				assertNotNull(pool.poll());
+			}
+			while (pool.getMetrics().getDepth() < 8 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(pool.getMetrics().getDepth(), 8);
+		} finally {
+			pool.close();
+		}
+	}
+
+}
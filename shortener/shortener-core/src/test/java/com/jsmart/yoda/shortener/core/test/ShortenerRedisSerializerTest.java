@@ -0,0 +1,52 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.jsmart.yoda.shortener.core.codec.ShortenerRedisSerializer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class ShortenerRedisSerializerTest {
+
+	private final ShortenerRedisSerializer serializer = new ShortenerRedisSerializer();
+
+	@Test
+	public void testSameBytesAsStringSerializer() throws Exception {
+
+		StringRedisSerializer stringSerializer = new StringRedisSerializer();
+		for (String string : Arrays.asList("abcde", "http://ua.fm/path?q=1", "https://ua.fm/\u0439\u043e\u0434\u0430", "")) {
+			byte[] bytes = serializer.serialize(string);
+			assertArrayEquals(bytes, stringSerializer.serialize(string));
+			assertEquals(serializer.deserialize(bytes), string);
+		}
+		assertNull(serializer.serialize(null));
+		assertNull(serializer.deserialize(null));
+	}
+
+	@Test
+	public void testJdkSerializedStringsAreRead() throws Exception {
+
+		JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+		byte[] bytes = jdkSerializer.serialize("http://ua.fm/\u0439\u043e\u0434\u0430");
+		assertTrue(ShortenerRedisSerializer.isJdkSerialized(bytes));
+		assertEquals(serializer.deserialize(bytes), "http://ua.fm/\u0439\u043e\u0434\u0430");
+		assertFalse(ShortenerRedisSerializer.isJdkSerialized(serializer.serialize("http://ua.fm")));
+	}
+
+	@Test(expected = SerializationException.class)
+	public void testJdkSerializedObjectIsRejected() throws Exception {
+
+		serializer.deserialize(new JdkSerializationRedisSerializer().serialize(Long.valueOf(42)));
+	}
+
+}
@@ -5,14 +5,20 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InOrder;
 
 import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.UrlBatchItem;
+import com.jsmart.yoda.shortener.base.UrlPage;
 import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.dedup.LongUrlDeduplicator;
+import com.jsmart.yoda.shortener.core.expiry.UrlExpiryWheel;
+import com.jsmart.yoda.shortener.core.generator.RandomShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.generator.SnowflakeShortUrlGenerator;
 import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorSettings;
 import com.jsmart.yoda.shortener.core.service.ShortnerServiceImpl;
 
@@ -36,6 +42,7 @@ public class ShortnerServiceImplTest {
 		shortUrlGeneratorSettings = new ShortUrlGeneratorSettings();
 		shortUrlGeneratorSettings.setShortUrlLenght(5);
 		urlShortnerServiceImpl.setShortUrlGeneratorConfig(shortUrlGeneratorSettings);
+		urlShortnerServiceImpl.setShortUrlGenerator(new RandomShortUrlGenerator(shortUrlGeneratorSettings));
 	}
 
 	@Test
@@ -67,6 +74,58 @@ public class ShortnerServiceImplTest {
 		assertEquals(url, null);
 	}
 
+	@Test
+	public void testGetSkipsExpiredUrl() throws Exception {
+
+		when(mockUrlShortnerDao.get("asdas"))
+				.thenReturn(new Url("asdas", "http://google.com", System.currentTimeMillis() - 1, null));
+
+		assertNull(urlShortnerServiceImpl.get("asdas"));
+		assertNull(urlShortnerServiceImpl.redirect("asdas"));
+		verify(mockUrlShortnerDao, never()).click("asdas");
+	}
+
+	@Test
+	public void testRedirectCountsClicks() throws Exception {
+
+		Url url = new Url("asdas", "http://google.com", null, 2L);
+		when(mockUrlShortnerDao.get("asdas")).thenReturn(url);
+		when(mockUrlShortnerDao.click("asdas")).thenReturn(1L, 0L, -1L);
+
+		assertEquals(urlShortnerServiceImpl.redirect("asdas"), url);
+		assertEquals(urlShortnerServiceImpl.redirect("asdas"), url);
+		assertNull(urlShortnerServiceImpl.redirect("asdas"));
+		verify(mockUrlShortnerDao, times(3)).click("asdas");
+
+		when(mockUrlShortnerDao.get("zxczx")).thenReturn(new Url("zxczx", "http://google.com"));
+		assertNotNull(urlShortnerServiceImpl.redirect("zxczx"));
+		verify(mockUrlShortnerDao, never()).click("zxczx");
+	}
+
+	@Test
+	public void testCreateExpiringSuccess() throws Exception {
+
+		LongUrlDeduplicator mockLongUrlDeduplicator = mock(LongUrlDeduplicator.class);
+		urlShortnerServiceImpl.setLongUrlDeduplicator(mockLongUrlDeduplicator);
+		urlShortnerServiceImpl.setUrlExpiryWheel(new UrlExpiryWheel(100, 64));
+		when(mockUrlShortnerDao.create(anyObject())).thenReturn(true);
+
+		long now = System.currentTimeMillis();
+		Url url = urlShortnerServiceImpl.create("http://google.com", 60, 3);
+
+		assertTrue(url.getExpiresAt() >= now + 60000);
+		assertEquals(url.getClicksLeft(), Long.valueOf(3));
+		verify(mockUrlShortnerDao).create(url);
+		verify(mockLongUrlDeduplicator, never()).find(anyString());
+		verify(mockLongUrlDeduplicator, never()).register(anyString(), anyString());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testCreateExpiringNeedsExpiryEnabled() throws Exception {
+
+		urlShortnerServiceImpl.create("http://google.com", 60, 0);
+	}
+
 	@Test
 	public void testGetAllSuccess() throws Exception {
 
@@ -99,6 +158,30 @@ public class ShortnerServiceImplTest {
 		assertEquals(receivedUrls, null);
 	}
 
+	@Test
+	public void testGetAllByShortUrlsSuccess() throws Exception {
+
+		List<String> shortUrls = Arrays.asList("asdas", "zxczx");
+		Url url = new Url("asdas", "http://google.com");
+
+		when(mockUrlShortnerDao.getAll(shortUrls)).thenReturn(Arrays.asList(url, null));
+
+		assertEquals(urlShortnerServiceImpl.getAll(shortUrls), Arrays.asList(url, null));
+		verify(mockUrlShortnerDao).getAll(shortUrls);
+	}
+
+	@Test
+	public void testGetPageSuccess() throws Exception {
+
+		UrlPage page = new UrlPage(Arrays.asList(new Url("asdas", "http://google.com")), "17");
+		when(mockUrlShortnerDao.getPage("0", 100)).thenReturn(page);
+
+		UrlPage receivedPage = urlShortnerServiceImpl.getPage("0", 100);
+
+		verify(mockUrlShortnerDao).getPage("0", 100);
+		assertEquals(receivedPage, page);
+	}
+
 	@Test
 	public void testCreateSuccess() throws Exception {
 
@@ -127,41 +210,175 @@ public class ShortnerServiceImplTest {
 		assertEquals(url, null);
 	}
 
+	@Test
+	public void testCreateRetriesTakenKeys() throws Exception {
+
+		String longUrl = "https://google.com";
+		shortUrlGeneratorSettings.setMaxAttempts(3);
+
+		when(mockUrlShortnerDao.create(anyObject())).thenReturn(false, false, true);
+
+		Url url = urlShortnerServiceImpl.create(longUrl);
+
+		verify(mockUrlShortnerDao, times(3)).create(anyObject());
+		assertEquals(url.getLongUrl(), longUrl);
+	}
+
+	@Test
+	public void testCreateGivesUpAfterMaxAttempts() throws Exception {
+
+		String longUrl = "https://google.com";
+		shortUrlGeneratorSettings.setMaxAttempts(3);
+
+		when(mockUrlShortnerDao.create(anyObject())).thenReturn(false);
+
+		assertEquals(urlShortnerServiceImpl.create(longUrl), null);
+		verify(mockUrlShortnerDao, times(3)).create(anyObject());
+	}
+
+	@Test
+	public void testCreateWritesUniqueKeysUnconditionally() throws Exception {
+
+		String longUrl = "https://google.com";
+		urlShortnerServiceImpl.setShortUrlGenerator(new SnowflakeShortUrlGenerator(1, 8, 10));
+
+		Url url = urlShortnerServiceImpl.create(longUrl);
+
+		verify(mockUrlShortnerDao).save(url);
+		verify(mockUrlShortnerDao, never()).create(anyObject());
+		assertEquals(url.getLongUrl(), longUrl);
+	}
+
+	@Test
+	public void testCreateReturnsExistingUrlWhenDeduplicated() throws Exception {
+
+		String longUrl = "https://google.com";
+		LongUrlDeduplicator mockLongUrlDeduplicator = mock(LongUrlDeduplicator.class);
+		urlShortnerServiceImpl.setLongUrlDeduplicator(mockLongUrlDeduplicator);
+
+		when(mockLongUrlDeduplicator.find(longUrl)).thenReturn("asdas");
+
+		Url url = urlShortnerServiceImpl.create(longUrl);
+
+		verify(mockUrlShortnerDao, never()).create(anyObject());
+		assertEquals(url, new Url("asdas", longUrl));
+	}
+
+	@Test
+	public void testCreateAllRetriesTakenKeys() throws Exception {
+
+		shortUrlGeneratorSettings.setMaxAttempts(2);
+
+		when(mockUrlShortnerDao.createAll(anyObject())).thenReturn(Arrays.asList(true, false, false))
+				.thenReturn(Arrays.asList(true, false));
+
+		List<UrlBatchItem> items = urlShortnerServiceImpl
+				.createAll(Arrays.asList("https://google.com", " ", "https://ua.fm", "https://yahoo.com"));
+
+		verify(mockUrlShortnerDao, times(2)).createAll(anyObject());
+		assertEquals(items.size(), 4);
+		assertEquals(items.get(0).getStatus(), UrlBatchItem.Status.CREATED);
+		assertEquals(items.get(0).getShortUrl().length(), 5);
+		assertEquals(items.get(1).getStatus(), UrlBatchItem.Status.INVALID);
+		assertEquals(items.get(2).getStatus(), UrlBatchItem.Status.CREATED);
+		assertEquals(items.get(2).getLongUrl(), "https://ua.fm");
+		assertEquals(items.get(3).getStatus(), UrlBatchItem.Status.FAILED);
+		assertEquals(items.get(3).getShortUrl(), null);
+	}
+
+	@Test
+	public void testCreateAllWritesUniqueKeysUnconditionally() throws Exception {
+
+		urlShortnerServiceImpl.setShortUrlGenerator(new SnowflakeShortUrlGenerator(1, 8, 10));
+
+		List<UrlBatchItem> items = urlShortnerServiceImpl.createAll(Arrays.asList("google.com", "https://ua.fm"));
+
+		verify(mockUrlShortnerDao).saveAll(anyObject());
+		verify(mockUrlShortnerDao, never()).createAll(anyObject());
+		assertEquals(items.get(0).getStatus(), UrlBatchItem.Status.CREATED);
+		assertEquals(items.get(0).getLongUrl(), "http://google.com");
+		assertThat(items.get(1).getShortUrl(), not(items.get(0).getShortUrl()));
+	}
+
+	@Test
+	public void testCreateAllDeduplicatesRepeatedLongUrls() throws Exception {
+
+		LongUrlDeduplicator mockLongUrlDeduplicator = mock(LongUrlDeduplicator.class);
+		urlShortnerServiceImpl.setLongUrlDeduplicator(mockLongUrlDeduplicator);
+
+		when(mockLongUrlDeduplicator.find("https://google.com")).thenReturn("asdas");
+		when(mockUrlShortnerDao.createAll(anyObject())).thenReturn(Arrays.asList(true));
+
+		List<UrlBatchItem> items = urlShortnerServiceImpl
+				.createAll(Arrays.asList("https://google.com", "https://ua.fm", "https://UA.fm/"));
+
+		assertEquals(items.get(0).getStatus(), UrlBatchItem.Status.EXISTING);
+		assertEquals(items.get(0).getShortUrl(), "asdas");
+		assertEquals(items.get(1).getStatus(), UrlBatchItem.Status.CREATED);
+		assertEquals(items.get(2).getShortUrl(), items.get(1).getShortUrl());
+		verify(mockLongUrlDeduplicator).registerAll(anyObject());
+	}
+
 	@Test
 	public void testUpdateSuccess() throws Exception {
 
 		String shortUrl = "asdas";
 		String longUrl = "google.com";
 		Url testUrl = new Url(shortUrl, longUrl);
+		LongUrlDeduplicator mockLongUrlDeduplicator = mock(LongUrlDeduplicator.class);
+		urlShortnerServiceImpl.setLongUrlDeduplicator(mockLongUrlDeduplicator);
 
-		String longUrlChanged = "yahoo.com";
+		String longUrlChanged = urlShortnerServiceImpl.fixLongUrl("yahoo.com");
 		Url testUrlChanged = new Url(shortUrl, longUrlChanged);
 
-		longUrlChanged = urlShortnerServiceImpl.fixLongUrl(longUrlChanged);
-
-		when(mockUrlShortnerDao.get(shortUrl)).thenReturn(testUrl);
-		when(mockUrlShortnerDao.update(shortUrl, longUrlChanged)).thenReturn(testUrlChanged);
+		when(mockUrlShortnerDao.updateIfPresent(shortUrl, longUrlChanged)).thenReturn(testUrl);
 
 		assertEquals(urlShortnerServiceImpl.update(shortUrl, longUrlChanged), testUrlChanged);
 
-		InOrder order = inOrder(mockUrlShortnerDao);
-		order.verify(mockUrlShortnerDao).get(shortUrl);
-		order.verify(mockUrlShortnerDao).update(shortUrl, longUrlChanged);
+		verify(mockUrlShortnerDao).updateIfPresent(shortUrl, longUrlChanged);
+		verify(mockUrlShortnerDao, never()).get(shortUrl);
+		verify(mockLongUrlDeduplicator).forget(longUrl, shortUrl);
+		verify(mockLongUrlDeduplicator).register(longUrlChanged, shortUrl);
+	}
+
+	@Test
+	public void testUpdateKeepsExpiration() throws Exception {
+
+		String shortUrl = "asdas";
+		LongUrlDeduplicator mockLongUrlDeduplicator = mock(LongUrlDeduplicator.class);
+		urlShortnerServiceImpl.setLongUrlDeduplicator(mockLongUrlDeduplicator);
+
+		String longUrlChanged = urlShortnerServiceImpl.fixLongUrl("yahoo.com");
+
+		when(mockUrlShortnerDao.updateIfPresent(shortUrl, longUrlChanged))
+				.thenReturn(new Url(shortUrl, "google.com", 1000L, 2L));
+
+		Url updated = urlShortnerServiceImpl.update(shortUrl, longUrlChanged);
+
+		assertEquals(updated.getLongUrl(), longUrlChanged);
+		assertEquals(updated.getExpiresAt(), Long.valueOf(1000L));
+		assertEquals(updated.getClicksLeft(), Long.valueOf(2L));
+		verify(mockLongUrlDeduplicator).forget("google.com", shortUrl);
+		verify(mockLongUrlDeduplicator, never()).register(anyString(), anyString());
 	}
 
 	@Test
 	public void testUpdateNotSuccess() throws Exception {
 
 		String shortUrl = "asdas";
+		LongUrlDeduplicator mockLongUrlDeduplicator = mock(LongUrlDeduplicator.class);
+		urlShortnerServiceImpl.setLongUrlDeduplicator(mockLongUrlDeduplicator);
 
-		String longUrlChanged = "yahoo.com";
+		String longUrlChanged = urlShortnerServiceImpl.fixLongUrl("yahoo.com");
 
-		when(mockUrlShortnerDao.get(shortUrl)).thenReturn(null);
+		when(mockUrlShortnerDao.updateIfPresent(shortUrl, longUrlChanged)).thenReturn(null);
 
 		assertEquals(urlShortnerServiceImpl.update(shortUrl, longUrlChanged), null);
 
-		verify(mockUrlShortnerDao).get(shortUrl);
+		verify(mockUrlShortnerDao, never()).get(shortUrl);
 		verify(mockUrlShortnerDao, never()).update(shortUrl, longUrlChanged);
+		verify(mockLongUrlDeduplicator, never()).forget(anyString(), anyString());
+		verify(mockLongUrlDeduplicator, never()).register(anyString(), anyString());
 	}
 
 	@Test
@@ -170,27 +387,32 @@ public class ShortnerServiceImplTest {
 		String shortUrl = "asdas";
 		String longUrl = "google.com";
 		Url testUrl = new Url(shortUrl, longUrl);
+		LongUrlDeduplicator mockLongUrlDeduplicator = mock(LongUrlDeduplicator.class);
+		urlShortnerServiceImpl.setLongUrlDeduplicator(mockLongUrlDeduplicator);
 
-		when(mockUrlShortnerDao.get(shortUrl)).thenReturn(testUrl);
+		when(mockUrlShortnerDao.removeIfPresent(shortUrl)).thenReturn(testUrl);
 
 		assertEquals(urlShortnerServiceImpl.remove(shortUrl), true);
 
-		InOrder order = inOrder(mockUrlShortnerDao);
-		order.verify(mockUrlShortnerDao).get(shortUrl);
-		order.verify(mockUrlShortnerDao).remove(shortUrl);
+		verify(mockUrlShortnerDao).removeIfPresent(shortUrl);
+		verify(mockUrlShortnerDao, never()).get(shortUrl);
+		verify(mockLongUrlDeduplicator).forget(longUrl, shortUrl);
 	}
 
 	@Test
 	public void testRemoveNotSuccess() throws Exception {
 
 		String shortUrl = "zxczx";
+		LongUrlDeduplicator mockLongUrlDeduplicator = mock(LongUrlDeduplicator.class);
+		urlShortnerServiceImpl.setLongUrlDeduplicator(mockLongUrlDeduplicator);
 
-		when(mockUrlShortnerDao.get(shortUrl)).thenReturn(null);
+		when(mockUrlShortnerDao.removeIfPresent(shortUrl)).thenReturn(null);
 
 		assertEquals(urlShortnerServiceImpl.remove(shortUrl), false);
 
-		verify(mockUrlShortnerDao).get(shortUrl);
+		verify(mockUrlShortnerDao, never()).get(shortUrl);
 		verify(mockUrlShortnerDao, never()).remove(shortUrl);
+		verify(mockLongUrlDeduplicator, never()).forget(anyString(), anyString());
 	}
 
 	@Test
@@ -226,4 +448,14 @@ public class ShortnerServiceImplTest {
 		assertEquals(urlShortnerServiceImpl.fixLongUrl(longUrl), "http://".concat(longUrl));
 	}
 
+	@Test
+	public void testFixLongUrlEncodesLocation() throws Exception {
+
+		String longUrl = "https://example.com/search?q=a b";
+		assertEquals(urlShortnerServiceImpl.fixLongUrl(longUrl), "https://example.com/search?q=a%20b");
+
+		longUrl = "https://example.com/search?q=a%20b";
+		assertEquals(urlShortnerServiceImpl.fixLongUrl(longUrl), longUrl);
+	}
+
 }
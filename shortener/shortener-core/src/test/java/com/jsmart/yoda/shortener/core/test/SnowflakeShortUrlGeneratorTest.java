@@ -0,0 +1,68 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.core.generator.SnowflakeShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.support.Base62;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class SnowflakeShortUrlGeneratorTest {
+
+	private static final long NOW = (SnowflakeShortUrlGenerator.EPOCH_SECONDS + 25_000_000L) * 1000;
+
+	@Test
+	public void testKeyLayout() throws Exception {
+
+		SnowflakeShortUrlGenerator generator = new SnowflakeShortUrlGenerator(5, 8, 10, () -> NOW);
+
+		String key = generator.next();
+		long value = Base62.decode(key);
+
+		assertEquals(key.length(), 9);
+		assertEquals(value >>> 18, 25_000_000L);
+		assertEquals((value >>> 10) & 0xff, 5);
+		assertEquals(value & 0x3ff, 0);
+		assertTrue(generator.isUnique());
+	}
+
+	@Test
+	public void testNodesNeverShareKeys() throws Exception {
+
+		SnowflakeShortUrlGenerator first = new SnowflakeShortUrlGenerator(1, 8, 10, () -> NOW);
+		SnowflakeShortUrlGenerator second = new SnowflakeShortUrlGenerator(2, 8, 10, () -> NOW);
+
+		Set<String> keys = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(keys.add(first.next()));
+			assertTrue(keys.add(second.next()));
+		}
+	}
+
+	@Test
+	public void testWaitsForNextSecondWhenSequenceIsExhausted() throws Exception {
+
+		AtomicLong clock = new AtomicLong(NOW);
+		SnowflakeShortUrlGenerator generator = new SnowflakeShortUrlGenerator(0, 0, 2, () -> clock.addAndGet(100));
+
+		Set<String> keys = new HashSet<>();
+		for (int i = 0; i < 12; i++) {
+			assertTrue(keys.add(generator.next()));
+		}
+		assertTrue(generator.getWaits() > 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNodeIdMustFitIntoNodeBits() throws Exception {
+		new SnowflakeShortUrlGenerator(256, 8, 10);
+	}
+
+}
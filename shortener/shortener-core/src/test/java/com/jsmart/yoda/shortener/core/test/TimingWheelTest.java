@@ -0,0 +1,77 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.core.support.TimingWheel;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class TimingWheelTest {
+
+	@Test
+	public void testFiresWithFirstTickAfterDeadline() throws Exception {
+
+		TimingWheel<String> wheel = new TimingWheel<String>(10, 4, 3, 0);
+		wheel.schedule("past", 0);
+		wheel.schedule("first", 5);
+		wheel.schedule("level1", 35);
+		wheel.schedule("level2", 170);
+		wheel.schedule("beyond", 1000);
+		assertEquals(wheel.size(), 5);
+
+		Map<String, Long> fired = new HashMap<String, Long>();
+		for (long now = 10; now <= 1100; now += 10) {
+			long time = now;
+			wheel.advance(now, (key, deadline) -> assertNull(fired.put(key, time)));
+		}
+
+		assertEquals(fired.get("past"), Long.valueOf(10));
+		assertEquals(fired.get("first"), Long.valueOf(10));
+		assertEquals(fired.get("level1"), Long.valueOf(40));
+		assertEquals(fired.get("level2"), Long.valueOf(170));
+		assertEquals(fired.get("beyond"), Long.valueOf(1000));
+		assertEquals(wheel.size(), 0);
+	}
+
+	@Test
+	public void testRandomDeadlinesFireOnceAndInTime() throws Exception {
+
+		Random random = new Random(17);
+		TimingWheel<Integer> wheel = new TimingWheel<Integer>(1, 64, 2, 0);
+		long[] deadlines = new long[10000];
+		for (int i = 0; i < deadlines.length; i++) {
+			deadlines[i] = 1 + random.nextInt(100000);
+			wheel.schedule(i, deadlines[i]);
+		}
+
+		long[] fired = new long[deadlines.length];
+		long previous = 0;
+		long now = 0;
+		while (now < 100000) {
+			now = Math.min(100000, now + 1 + random.nextInt(200));
+			long time = now;
+			long after = previous;
+			wheel.advance(now, (key, deadline) -> {
+				assertEquals(fired[key], 0);
+				assertEquals(deadline.longValue(), deadlines[key]);
+				assertTrue(deadline <= time && deadline > after);
+				fired[key] = time;
+			});
+			previous = now;
+		}
+
+		for (int i = 0; i < deadlines.length; i++) {
+			assertTrue(fired[i] > 0);
+		}
+		assertEquals(wheel.size(), 0);
+	}
+
+}
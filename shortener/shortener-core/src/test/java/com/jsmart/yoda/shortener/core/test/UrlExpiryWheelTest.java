@@ -0,0 +1,90 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.cache.UrlNearCache;
+import com.jsmart.yoda.shortener.core.expiry.UrlExpiryWheel;
+import com.jsmart.yoda.shortener.core.hotkey.HeavyHitterTracker;
+import com.jsmart.yoda.shortener.core.hotkey.HotUrlPinner;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class UrlExpiryWheelTest {
+
+	private UrlExpiryWheel wheel;
+	private List<String> expired;
+	private long now;
+
+	@Before
+	public void setUp() {
+		wheel = new UrlExpiryWheel(10, 64);
+		expired = new ArrayList<>();
+		wheel.addListener(expired::add);
+		now = System.currentTimeMillis();
+	}
+
+	@Test
+	public void testNearCacheDropsExpiredUrls() throws Exception {
+
+		UrlNearCache urlNearCache = new UrlNearCache(100, 600);
+		urlNearCache.setUrlExpiryWheel(wheel);
+
+		urlNearCache.put(new Url("gone", "http://ua.fm", now - 1, null));
+		urlNearCache.put(new Url("alive", "http://ua.fm", now + 3600000, null));
+		urlNearCache.put(new Url("forever", "http://ua.fm"));
+		urlNearCache.get("loaded", (shortUrl) -> new Url(shortUrl, "http://ua.fm", now - 1, null));
+		assertNotNull(urlNearCache.getIfPresent("gone"));
+
+		wheel.advance(now + 100);
+
+		assertNull(urlNearCache.getIfPresent("gone"));
+		assertNull(urlNearCache.getIfPresent("loaded"));
+		assertNotNull(urlNearCache.getIfPresent("alive"));
+		assertNotNull(urlNearCache.getIfPresent("forever"));
+		assertEquals(wheel.getMetrics().getExpired(), 2);
+		assertEquals(wheel.getMetrics().getPending(), 1);
+	}
+
+	@Test
+	public void testPinnerUnpinsExpiredUrls() throws Exception {
+
+		HotUrlPinner pinner = new HotUrlPinner(new HeavyHitterTracker(4), 10);
+		pinner.setUrlExpiryWheel(wheel);
+		for (int i = 0; i < 20; i++) {
+			pinner.get("hot");
+		}
+		pinner.refresh((shortUrl) -> new Url(shortUrl, "http://ua.fm", now - 1, null));
+		assertNotNull(pinner.get("hot"));
+
+		wheel.advance(now + 100);
+
+		assertNull(pinner.get("hot"));
+	}
+
+	@Test
+	public void testRescheduledUrlFiresWithLatestDeadline() throws Exception {
+
+		wheel.schedule(new Url("moved", "http://ua.fm", now + 50, null));
+		wheel.schedule(new Url("moved", "http://ua.fm", now + 500, null));
+		wheel.schedule(new Url("moved", "http://ua.fm", now + 500, null));
+		wheel.schedule(new Url("forever", "http://ua.fm"));
+
+		wheel.advance(now + 100);
+		assertTrue(expired.isEmpty());
+
+		wheel.advance(now + 600);
+		assertEquals(expired.size(), 1);
+		assertEquals(expired.get(0), "moved");
+		assertEquals(wheel.getMetrics().getScheduled(), 2);
+	}
+
+}
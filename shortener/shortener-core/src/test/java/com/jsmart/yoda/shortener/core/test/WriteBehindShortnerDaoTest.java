@@ -0,0 +1,278 @@
+package com.jsmart.yoda.shortener.core.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.base.dao.ShortnerDao;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.core.generator.SequenceShortUrlGenerator;
+import com.jsmart.yoda.shortener.core.model.ShortUrlGeneratorSettings;
+import com.jsmart.yoda.shortener.core.model.WriteDurability;
+import com.jsmart.yoda.shortener.core.service.ShortnerServiceImpl;
+import com.jsmart.yoda.shortener.core.writebehind.WriteBehindBuffer;
+import com.jsmart.yoda.shortener.core.writebehind.WriteBehindShortnerDao;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class WriteBehindShortnerDaoTest {
+
+	private final ShortnerDao mockUrlShortnerDao = mock(ShortnerDao.class);
+	private WriteBehindBuffer buffer;
+	private WriteBehindShortnerDao writeBehindShortnerDao;
+
+	private void start(int batchSize, long flushInterval, WriteDurability durability) {
+		buffer = new WriteBehindBuffer(1000, batchSize, flushInterval, durability);
+		buffer.start(mockUrlShortnerDao::saveAll);
+		writeBehindShortnerDao = new WriteBehindShortnerDao(mockUrlShortnerDao, buffer);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		writeBehindShortnerDao.close();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testPendingWritesAreReadAndFlushedInBatches() throws Exception {
+
+		// flusher starts after reads, so they surely see pending writes
+		buffer = new WriteBehindBuffer(1000, 2, 60000, WriteDurability.BUFFERED);
+		writeBehindShortnerDao = new WriteBehindShortnerDao(mockUrlShortnerDao, buffer);
+		when(mockUrlShortnerDao.getAll(Arrays.asList("lkjhg"))).thenReturn(Arrays.asList((Url) null));
+		writeBehindShortnerDao.save(new Url("asdas", "http://google.com"));
+		writeBehindShortnerDao.save(new Url("qwert", "http://ua.fm"));
+		writeBehindShortnerDao.save(new Url("zxczx", "http://ua.fm"));
+		writeBehindShortnerDao.update("asdas", "http://yahoo.com");
+
+		assertEquals(writeBehindShortnerDao.get("asdas").getLongUrl(), "http://yahoo.com");
+		List<Url> urls = writeBehindShortnerDao.getAll(Arrays.asList("lkjhg", "qwert"));
+		assertNull(urls.get(0));
+		assertEquals(urls.get(1).getLongUrl(), "http://ua.fm");
+		verify(mockUrlShortnerDao, never()).get(anyString());
+
+		buffer.start(mockUrlShortnerDao::saveAll);
+		buffer.flush();
+
+		ArgumentCaptor<List<Url>> batches = ArgumentCaptor.forClass((Class<List<Url>>) (Class<?>) List.class);
+		verify(mockUrlShortnerDao, atLeast(2)).saveAll(batches.capture());
+		List<Url> written = new ArrayList<Url>();
+		for (List<Url> batch : batches.getAllValues()) {
+			assertTrue(batch.size() <= 2);
+			written.addAll(batch);
+		}
+		assertTrue(written.contains(new Url("qwert", "http://ua.fm")));
+		assertTrue(written.contains(new Url("zxczx", "http://ua.fm")));
+		assertTrue(written.contains(new Url("asdas", "http://yahoo.com")));
+		assertFalse(written.contains(new Url("asdas", "http://google.com")));
+		assertEquals(written.size(), 3);
+		assertEquals(buffer.getMetrics().getPending(), 0);
+		assertEquals(buffer.getMetrics().getBuffered(), 4);
+		assertEquals(buffer.getMetrics().getCoalesced(), 1);
+
+		writeBehindShortnerDao.get("asdas");
+		verify(mockUrlShortnerDao).get("asdas");
+	}
+
+	@Test
+	public void testFlushedWriteIsAcknowledgedAfterFlush() throws Exception {
+
+		start(1000, 10, WriteDurability.FLUSHED);
+		writeBehindShortnerDao.save(new Url("asdas", "http://google.com"));
+
+		verify(mockUrlShortnerDao).saveAll(Arrays.asList(new Url("asdas", "http://google.com")));
+		assertEquals(buffer.getMetrics().getPending(), 0);
+	}
+
+	@Test
+	public void testRemoveAndCreateSeePendingWrite() throws Exception {
+
+		start(1000, 60000, WriteDurability.BUFFERED);
+		writeBehindShortnerDao.save(new Url("asdas", "http://google.com"));
+
+		assertFalse(writeBehindShortnerDao.create(new Url("asdas", "http://ua.fm")));
+		verify(mockUrlShortnerDao, never()).create(anyObject());
+
+		writeBehindShortnerDao.remove("asdas");
+
+		InOrder inOrder = inOrder(mockUrlShortnerDao);
+		inOrder.verify(mockUrlShortnerDao).saveAll(Arrays.asList(new Url("asdas", "http://google.com")));
+		inOrder.verify(mockUrlShortnerDao).remove("asdas");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSequenceCreateIsBufferedAfterStorageLookup() throws Exception {
+
+		RedisTemplate<String, String> mockRedisTemplate = mock(RedisTemplate.class);
+		ValueOperations<String, String> mockValueOperations = mock(ValueOperations.class);
+		when(mockRedisTemplate.opsForValue()).thenReturn(mockValueOperations);
+		when(mockValueOperations.increment(RedisKeys.SEQUENCE, 100L)).thenReturn(100L);
+		// generators lease the same block, so keys of the second one are known
+		SequenceShortUrlGenerator generator = new SequenceShortUrlGenerator(mockRedisTemplate, RedisKeys.SEQUENCE, 100, 5);
+		String taken = generator.next();
+		String free = generator.next();
+		generator = new SequenceShortUrlGenerator(mockRedisTemplate, RedisKeys.SEQUENCE, 100, 5);
+
+		start(1000, 60000, WriteDurability.BUFFERED);
+		ShortUrlGeneratorSettings settings = new ShortUrlGeneratorSettings();
+		settings.setMaxAttempts(2);
+		ShortnerServiceImpl shortnerService = new ShortnerServiceImpl();
+		shortnerService.setUrlShortnerDao(writeBehindShortnerDao);
+		shortnerService.setShortUrlGeneratorConfig(settings);
+		shortnerService.setShortUrlGenerator(generator);
+		when(mockUrlShortnerDao.get(taken)).thenReturn(new Url(taken, "http://ua.fm"));
+
+		Url url = shortnerService.create("http://google.com");
+
+		assertEquals(url.getShortUrl(), free);
+		assertEquals(writeBehindShortnerDao.get(free), url);
+		assertEquals(generator.getMetrics().getCollisions(), 1);
+		verify(mockUrlShortnerDao, never()).create(anyObject());
+		verify(mockUrlShortnerDao, never()).saveAll(anyListOf(Url.class));
+
+		buffer.flush();
+
+		verify(mockUrlShortnerDao).saveAll(Arrays.asList(new Url(free, "http://google.com")));
+	}
+
+	@Test
+	public void testCreateAllBuffersOnlyFreeKeys() throws Exception {
+
+		start(1000, 60000, WriteDurability.BUFFERED);
+		writeBehindShortnerDao.save(new Url("asdas", "http://google.com"));
+		when(mockUrlShortnerDao.getAll(Arrays.asList("qwert", "zxczx")))
+				.thenReturn(Arrays.asList(new Url("qwert", "http://ua.fm"), null));
+
+		List<Boolean> created = writeBehindShortnerDao.createAll(Arrays.asList(new Url("asdas", "http://yahoo.com"),
+				new Url("qwert", "http://yahoo.com"), new Url("zxczx", "http://yahoo.com")));
+
+		assertEquals(created, Arrays.asList(false, false, true));
+		assertEquals(writeBehindShortnerDao.get("asdas").getLongUrl(), "http://google.com");
+		assertTrue(buffer.isPending("zxczx"));
+		assertFalse(buffer.isPending("qwert"));
+		verify(mockUrlShortnerDao, never()).createAll(anyListOf(Url.class));
+	}
+
+	@Test
+	public void testUpdateOfStoredUrlIsBuffered() throws Exception {
+
+		start(1000, 60000, WriteDurability.BUFFERED);
+		when(mockUrlShortnerDao.get("asdas")).thenReturn(new Url("asdas", "http://google.com"));
+		when(mockUrlShortnerDao.get("qwert")).thenReturn(new Url("qwert", "http://ua.fm", null, 3L));
+		when(mockUrlShortnerDao.updateIfPresent("qwert", "http://yahoo.com")).thenReturn(new Url("qwert", "http://ua.fm"));
+
+		assertEquals(writeBehindShortnerDao.updateIfPresent("asdas", "http://yahoo.com").getLongUrl(),
+				"http://google.com");
+		assertNull(writeBehindShortnerDao.updateIfPresent("lkjhg", "http://yahoo.com"));
+		assertEquals(writeBehindShortnerDao.updateIfPresent("qwert", "http://yahoo.com").getLongUrl(), "http://ua.fm");
+
+		assertEquals(writeBehindShortnerDao.get("asdas").getLongUrl(), "http://yahoo.com");
+		assertFalse(buffer.isPending("lkjhg"));
+		assertFalse(buffer.isPending("qwert"));
+		verify(mockUrlShortnerDao, never()).updateIfPresent(eq("asdas"), anyString());
+
+		buffer.flush();
+
+		verify(mockUrlShortnerDao).saveAll(Arrays.asList(new Url("asdas", "http://yahoo.com")));
+	}
+
+	@Test
+	public void testAsyncClickFlushesPendingWriteOnBlockingExecutor() throws Exception {
+
+		List<Runnable> blocking = new ArrayList<Runnable>();
+		buffer = new WriteBehindBuffer(1000, 1000, 60000, WriteDurability.BUFFERED);
+		buffer.start(mockUrlShortnerDao::saveAll);
+		writeBehindShortnerDao = new WriteBehindShortnerDao(mockUrlShortnerDao, buffer, blocking::add);
+		when(mockUrlShortnerDao.clickAsync("asdas")).thenReturn(CompletableFuture.completedFuture(0L));
+		writeBehindShortnerDao.save(new Url("asdas", "http://google.com", null, 1L));
+
+		CompletableFuture<Long> left = writeBehindShortnerDao.clickAsync("asdas");
+		assertFalse(left.isDone());
+		verify(mockUrlShortnerDao, never()).saveAll(anyListOf(Url.class));
+
+		blocking.forEach(Runnable::run);
+		assertEquals(left.join(), Long.valueOf(0));
+		InOrder inOrder = inOrder(mockUrlShortnerDao);
+		inOrder.verify(mockUrlShortnerDao).saveAll(Arrays.asList(new Url("asdas", "http://google.com", null, 1L)));
+		inOrder.verify(mockUrlShortnerDao).clickAsync("asdas");
+	}
+
+	@Test
+	public void testFailedFlushKeepsWritesPending() throws Exception {
+
+		start(1000, 60000, WriteDurability.BUFFERED);
+		doThrow(new IllegalStateException("connection lost")).doNothing().when(mockUrlShortnerDao)
+				.saveAll(anyListOf(Url.class));
+		writeBehindShortnerDao.save(new Url("asdas", "http://google.com"));
+
+		try {
+			buffer.flush();
+			fail();
+		} catch (IllegalStateException ise) {
+			assertEquals(ise.getMessage(), "connection lost");
+		}
+		assertEquals(writeBehindShortnerDao.get("asdas").getLongUrl(), "http://google.com");
+
+		buffer.flush();
+
+		assertEquals(buffer.getMetrics().getPending(), 0);
+		assertEquals(buffer.getMetrics().getFailures(), 1);
+		verify(mockUrlShortnerDao, times(2)).saveAll(Arrays.asList(new Url("asdas", "http://google.com")));
+	}
+
+	@Test
+	public void testWriteToFullBufferIsRejectedWhileStorageFails() throws Exception {
+
+		buffer = new WriteBehindBuffer(2, 1000, 10, WriteDurability.BUFFERED);
+		writeBehindShortnerDao = new WriteBehindShortnerDao(mockUrlShortnerDao, buffer);
+		// mock is not restubbed while flusher calls it
+		AtomicBoolean storageFails = new AtomicBoolean(true);
+		buffer.start((urls) -> {
+			if (storageFails.get()) {
+				throw new IllegalStateException("connection lost");
+			}
+			mockUrlShortnerDao.saveAll(urls);
+		});
+		writeBehindShortnerDao.save(new Url("asdas", "http://google.com"));
+		writeBehindShortnerDao.save(new Url("qwert", "http://ua.fm"));
+
+		try {
+			writeBehindShortnerDao.save(new Url("zxczx", "http://ua.fm"));
+			fail();
+		} catch (IllegalStateException ise) {
+			assertEquals(ise.getCause().getMessage(), "connection lost");
+		}
+		writeBehindShortnerDao.save(new Url("asdas", "http://yahoo.com"));
+
+		assertEquals(buffer.getMetrics().getPending(), 2);
+		assertFalse(buffer.isPending("zxczx"));
+		assertEquals(writeBehindShortnerDao.get("asdas").getLongUrl(), "http://yahoo.com");
+
+		storageFails.set(false);
+		writeBehindShortnerDao.save(new Url("zxczx", "http://ua.fm"));
+
+		buffer.flush();
+
+		assertEquals(buffer.getMetrics().getPending(), 0);
+		assertEquals(buffer.getMetrics().getFlushed(), 3);
+		assertEquals(buffer.getMetrics().getBuffered(), 4);
+	}
+
+}
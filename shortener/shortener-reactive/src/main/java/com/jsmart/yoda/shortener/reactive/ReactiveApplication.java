@@ -0,0 +1,153 @@
+package com.jsmart.yoda.shortener.reactive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.jsmart.yoda.shortener.core.codec.HostDictionary;
+import com.jsmart.yoda.shortener.core.codec.RedisHostDictionary;
+import com.jsmart.yoda.shortener.core.codec.SerializerRedisCodec;
+import com.jsmart.yoda.shortener.core.codec.ShortenerRedisSerializer;
+import com.jsmart.yoda.shortener.core.codec.UrlValueCodec;
+import com.jsmart.yoda.shortener.core.dao.BucketLayout;
+import com.jsmart.yoda.shortener.reactive.dao.LettuceBucketedReactiveShortnerDao;
+import com.jsmart.yoda.shortener.reactive.dao.LettuceReactiveShortnerDao;
+import com.jsmart.yoda.shortener.reactive.dao.ReactiveShortnerDao;
+import com.jsmart.yoda.shortener.reactive.handler.UrlHandler;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Alternative bootstrap which serves redirect and read only Url API on
+ *         Netty event loop with non-blocking Redis client, instead of
+ *         servlet threads of embedded Tomcat. Reads same application.properties
+ *         as shortener-bootstrap, any property may be overridden with -D
+ *         system property.
+ *
+ *         With shorturl.codec.enabled values are decoded with UrlValueCodec
+ *         and host dictionary App nodes share. The dictionary is loaded at
+ *         start, hosts added later are read from Redis with Jedis once, on
+ *         first value referring to them.
+ */
+public class ReactiveApplication {
+
+	private static final Logger log = Logger.getLogger(ReactiveApplication.class);
+
+	public static void main(String[] args) throws IOException {
+
+		Properties properties = loadProperties();
+		String contextPath = properties.getProperty("server.context-path", "");
+		int port = Integer.parseInt(properties.getProperty("server.port"));
+		int eventLoopThreads = Integer.parseInt(properties.getProperty("shorturl.reactive.event-loop-threads"));
+		RedisURI redisUri = RedisURI.create(properties.getProperty("redis.hostname", "localhost"),
+				Integer.parseInt(properties.getProperty("redis.port", "6379")));
+
+		JedisConnectionFactory jedisConnectionFactory = null;
+		RedisCodec<String, String> codec = StringCodec.UTF8;
+		if (Boolean.parseBoolean(properties.getProperty("shorturl.codec.enabled"))) {
+			jedisConnectionFactory = new JedisConnectionFactory();
+			jedisConnectionFactory.setHostName(redisUri.getHost());
+			jedisConnectionFactory.setPort(redisUri.getPort());
+			jedisConnectionFactory.afterPropertiesSet();
+			codec = redisCodec(properties, hostDictionary(properties, jedisConnectionFactory));
+		}
+
+		RedisClient redisClient = RedisClient.create(redisUri);
+		StatefulRedisConnection<String, String> connection = redisClient.connect(codec);
+		UrlHandler urlHandler = new UrlHandler(reactiveShortnerDao(properties, connection));
+
+		LoopResources loopResources = eventLoopThreads > 0
+				? LoopResources.create("shortener-http", eventLoopThreads, true)
+				: LoopResources.create("shortener-http");
+
+		DisposableServer server = HttpServer.create()
+				.port(port)
+				.tcpConfiguration(tcpServer -> tcpServer.runOn(loopResources))
+				.route(routes -> routes
+						.get(contextPath + "/service/{shortUrl}", urlHandler::redirect)
+						.get(contextPath + "/api/{shortUrl}", urlHandler::get)
+						.get(contextPath + "/api", urlHandler::getAll))
+				.bindNow();
+		log.info("Shortener is listening on port " + server.port());
+
+		JedisConnectionFactory dictionaryConnectionFactory = jedisConnectionFactory;
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.disposeNow();
+			loopResources.dispose();
+			connection.close();
+			redisClient.shutdown();
+			if (dictionaryConnectionFactory != null) {
+				dictionaryConnectionFactory.destroy();
+			}
+		}));
+		server.onDispose().block();
+	}
+
+	/**
+	 * This method creates codec reading values the way App writes them:
+	 * encoded with UrlValueCodec when shorturl.codec.enabled, plain strings
+	 * written before the codec was enabled included.
+	 *
+	 * @param hostDictionary
+	 *            dictionary of hosts shared by App nodes.
+	 *
+	 * @return codec of Lettuce connections.
+	 */
+	public static RedisCodec<String, String> redisCodec(Properties properties, HostDictionary hostDictionary) {
+		UrlValueCodec urlValueCodec = new UrlValueCodec(hostDictionary,
+				Integer.parseInt(properties.getProperty("shorturl.codec.compress-min-length")));
+		return new SerializerRedisCodec(new ShortenerRedisSerializer(), urlValueCodec);
+	}
+
+	private static RedisHostDictionary hostDictionary(Properties properties,
+			JedisConnectionFactory jedisConnectionFactory) {
+		ShortenerRedisSerializer serializer = new ShortenerRedisSerializer();
+		RedisTemplate<String, String> redisTemplate = new RedisTemplate<String, String>();
+		redisTemplate.setConnectionFactory(jedisConnectionFactory);
+		redisTemplate.setDefaultSerializer(serializer);
+		redisTemplate.setKeySerializer(serializer);
+		redisTemplate.setValueSerializer(serializer);
+		redisTemplate.setHashKeySerializer(serializer);
+		redisTemplate.setHashValueSerializer(serializer);
+		redisTemplate.afterPropertiesSet();
+		RedisHostDictionary hostDictionary = new RedisHostDictionary(redisTemplate,
+				Integer.parseInt(properties.getProperty("shorturl.codec.dictionary-size")));
+		hostDictionary.load();
+		return hostDictionary;
+	}
+
+	private static ReactiveShortnerDao reactiveShortnerDao(Properties properties,
+			StatefulRedisConnection<String, String> connection) {
+		if ("buckets".equals(properties.getProperty("shorturl.storage"))) {
+			BucketLayout layout = new BucketLayout(properties.getProperty("shorturl.storage.namespace"),
+					Integer.parseInt(properties.getProperty("shorturl.storage.bucket-count")));
+			return new LettuceBucketedReactiveShortnerDao(connection.reactive(), layout);
+		}
+		return new LettuceReactiveShortnerDao(connection.reactive());
+	}
+
+	private static Properties loadProperties() throws IOException {
+		Properties properties = new Properties();
+		try (InputStream in = ReactiveApplication.class.getResourceAsStream("/application.properties")) {
+			properties.load(in);
+		}
+		for (String name : System.getProperties().stringPropertyNames()) {
+			properties.setProperty(name, System.getProperty(name));
+		}
+		return properties;
+	}
+
+}
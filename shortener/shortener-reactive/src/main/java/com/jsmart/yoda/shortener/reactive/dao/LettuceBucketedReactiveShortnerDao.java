@@ -0,0 +1,65 @@
+package com.jsmart.yoda.shortener.reactive.dao;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.dao.BucketLayout;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanStream;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         ReactiveShortnerDao on top of Lettuce reactive commands for Urls
+ *         stored in the layout BucketedShortnerDao writes them: short urls
+ *         packed into hashes under own namespace.
+ */
+public class LettuceBucketedReactiveShortnerDao implements ReactiveShortnerDao {
+
+	static final int SCAN_BATCH = 100;
+
+	/** Buckets read at once while streaming. */
+	static final int READ_CONCURRENCY = 16;
+
+	private final RedisReactiveCommands<String, String> commands;
+	private final BucketLayout layout;
+
+	public LettuceBucketedReactiveShortnerDao(RedisReactiveCommands<String, String> commands, BucketLayout layout) {
+		this.commands = commands;
+		this.layout = layout;
+	}
+
+	/**
+	 * This method gets stored Url by short one from its bucket.
+	 *
+	 * @param shortUrl
+	 *            unique short url.
+	 *
+	 * @return Mono with stored Url or empty Mono if there is no such url.
+	 */
+	@Override
+	public Mono<Url> get(String shortUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return Mono.empty();
+		}
+		return commands.hget(layout.bucketKey(shortUrl), shortUrl).map(longUrl -> new Url(shortUrl, longUrl));
+	}
+
+	/**
+	 * This method streams all stored Urls. Buckets are walked with SCAN MATCH
+	 * and read with HGETALL, a few buckets at a time.
+	 *
+	 * @return Flux of all stored Urls.
+	 */
+	@Override
+	public Flux<Url> getAll() {
+		return ScanStream.scan(commands, ScanArgs.Builder.limit(SCAN_BATCH).match(layout.pattern()))
+				.flatMapSequential(bucket -> commands.hgetall(bucket), READ_CONCURRENCY)
+				.flatMapIterable(fields -> fields.entrySet())
+				.map(field -> new Url(field.getKey(), field.getValue()));
+	}
+
+}
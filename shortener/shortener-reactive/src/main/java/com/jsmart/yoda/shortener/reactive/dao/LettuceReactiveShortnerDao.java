@@ -0,0 +1,62 @@
+package com.jsmart.yoda.shortener.reactive.dao;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanStream;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         ReactiveShortnerDao on top of Lettuce reactive commands. Urls are
+ *         read in the same layout ShortnerDaoImpl writes them: short url as
+ *         key, long url as value in the form connection codec decodes.
+ */
+public class LettuceReactiveShortnerDao implements ReactiveShortnerDao {
+
+	static final int SCAN_BATCH = 1000;
+
+	private final RedisReactiveCommands<String, String> commands;
+
+	public LettuceReactiveShortnerDao(RedisReactiveCommands<String, String> commands) {
+		this.commands = commands;
+	}
+
+	/**
+	 * This method gets stored Url by short one.
+	 *
+	 * @param shortUrl
+	 *            unique short url.
+	 *
+	 * @return Mono with stored Url or empty Mono if there is no such url.
+	 */
+	@Override
+	public Mono<Url> get(String shortUrl) {
+		if (!RedisKeys.isUrlKey(shortUrl)) {
+			return Mono.empty();
+		}
+		return commands.get(shortUrl).map(longUrl -> new Url(shortUrl, longUrl));
+	}
+
+	/**
+	 * This method streams all stored Urls. Keys are walked with SCAN and
+	 * values are fetched with one MGET per scanned batch.
+	 *
+	 * @return Flux of all stored Urls.
+	 */
+	@Override
+	public Flux<Url> getAll() {
+		return ScanStream.scan(commands, ScanArgs.Builder.limit(SCAN_BATCH))
+				.filter(RedisKeys::isUrlKey)
+				.buffer(SCAN_BATCH)
+				.concatMap(keys -> commands.mget(keys.toArray(new String[keys.size()])))
+				.filter(KeyValue::hasValue)
+				.map(kv -> new Url(kv.getKey(), kv.getValue()));
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.jsmart.yoda.shortener.reactive.dao;
+
+import com.jsmart.yoda.shortener.base.Url;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         Non-blocking read access to stored Urls, the reactive counterpart of
+ *         ShortnerDao.
+ */
+public interface ReactiveShortnerDao {
+
+	public Mono<Url> get(String shortUrl);
+
+	public Flux<Url> getAll();
+
+}
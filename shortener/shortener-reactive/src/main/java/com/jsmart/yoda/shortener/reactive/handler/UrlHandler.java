@@ -0,0 +1,115 @@
+package com.jsmart.yoda.shortener.reactive.handler;
+
+import java.util.function.Function;
+
+import org.apache.log4j.Logger;
+import org.reactivestreams.Publisher;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.support.Locations;
+import com.jsmart.yoda.shortener.reactive.dao.ReactiveShortnerDao;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+/**
+ * @author Nick Koretskyy
+ *
+ *         This class serves redirect and read only part of Url REST API on
+ *         event loop threads. Responses repeat the ones of
+ *         ApplicationController and RestShortenerController.
+ */
+public class UrlHandler {
+
+	static final String APPLICATION_JSON_UTF8 = "application/json;charset=UTF-8";
+
+	private static final Logger log = Logger.getLogger(UrlHandler.class);
+
+	private final ReactiveShortnerDao reactiveShortnerDao;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	public UrlHandler(ReactiveShortnerDao reactiveShortnerDao) {
+		this.reactiveShortnerDao = reactiveShortnerDao;
+	}
+
+	/**
+	 * This method handles GET /service/{shortUrl} and redirects to long url
+	 * with 303 HTTP SEE_OTHER status.
+	 *
+	 * @return publisher completed when response is written.
+	 */
+	public Publisher<Void> redirect(HttpServerRequest request, HttpServerResponse response) {
+		return reactiveShortnerDao.get(request.param("shortUrl"))
+				.map(url -> seeOther(response, url))
+				.switchIfEmpty(Mono.fromSupplier(() -> notFound(response)))
+				.flatMap(Function.identity())
+				.onErrorResume(e -> failed(response, e));
+	}
+
+	/**
+	 * This method handles GET /api/{shortUrl} and returns stored Url as JSON.
+	 *
+	 * @return publisher completed when response is written.
+	 */
+	public Publisher<Void> get(HttpServerRequest request, HttpServerResponse response) {
+		return reactiveShortnerDao.get(request.param("shortUrl"))
+				.map(url -> json(response, url))
+				.switchIfEmpty(Mono.fromSupplier(() -> notFound(response)))
+				.flatMap(Function.identity())
+				.onErrorResume(e -> failed(response, e));
+	}
+
+	/**
+	 * This method handles GET /api and returns all stored Urls as JSON array.
+	 *
+	 * @return publisher completed when response is written.
+	 */
+	public Publisher<Void> getAll(HttpServerRequest request, HttpServerResponse response) {
+		return reactiveShortnerDao.getAll()
+				.collectList()
+				.flatMap(urls -> json(response, urls))
+				.onErrorResume(e -> failed(response, e));
+	}
+
+	// Empty Url is mapped to 404 before the response is written, since sent
+	// response completes empty as well and would trigger switchIfEmpty again.
+	private Mono<Void> seeOther(HttpServerResponse response, Url url) {
+		String location = url.getLongUrl();
+		if (!Locations.isAscii(location)) {
+			location = Locations.encode(location);
+		}
+		return response.status(HttpResponseStatus.SEE_OTHER)
+				.header(HttpHeaderNames.LOCATION, location)
+				.send()
+				.then();
+	}
+
+	private Mono<Void> notFound(HttpServerResponse response) {
+		return response.status(HttpResponseStatus.NOT_FOUND).send().then();
+	}
+
+	private Mono<Void> json(HttpServerResponse response, Object body) {
+		byte[] bytes;
+		try {
+			bytes = objectMapper.writeValueAsBytes(body);
+		} catch (JsonProcessingException jpe) {
+			return Mono.error(jpe);
+		}
+		return response.status(HttpResponseStatus.OK)
+				.header(HttpHeaderNames.CONTENT_TYPE, APPLICATION_JSON_UTF8)
+				.sendByteArray(Mono.just(bytes))
+				.then();
+	}
+
+	private Mono<Void> failed(HttpServerResponse response, Throwable e) {
+		log.error("Exception: " + e + " \n");
+		return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send().then();
+	}
+
+}
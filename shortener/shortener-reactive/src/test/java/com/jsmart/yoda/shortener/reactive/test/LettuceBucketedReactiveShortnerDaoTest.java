@@ -0,0 +1,51 @@
+package com.jsmart.yoda.shortener.reactive.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.dao.BucketLayout;
+import com.jsmart.yoda.shortener.reactive.dao.LettuceBucketedReactiveShortnerDao;
+
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class LettuceBucketedReactiveShortnerDaoTest {
+
+	private RedisReactiveCommands<String, String> mockCommands;
+
+	private BucketLayout layout = new BucketLayout("shortener:urls", 16);
+
+	private LettuceBucketedReactiveShortnerDao dao;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		mockCommands = mock(RedisReactiveCommands.class);
+		dao = new LettuceBucketedReactiveShortnerDao(mockCommands, layout);
+	}
+
+	@Test
+	public void testGetSuccess() throws Exception {
+
+		when(mockCommands.hget(layout.bucketKey("abcde"), "abcde")).thenReturn(Mono.just("http://google.com"));
+
+		assertEquals(dao.get("abcde").block(), new Url("abcde", "http://google.com"));
+	}
+
+	@Test
+	public void testGetNotSuccess() throws Exception {
+
+		when(mockCommands.hget(layout.bucketKey("abcde"), "abcde")).thenReturn(Mono.empty());
+
+		assertNull(dao.get("abcde").block());
+	}
+
+}
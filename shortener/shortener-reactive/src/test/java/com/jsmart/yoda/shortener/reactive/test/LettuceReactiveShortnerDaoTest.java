@@ -0,0 +1,60 @@
+package com.jsmart.yoda.shortener.reactive.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.core.dao.RedisKeys;
+import com.jsmart.yoda.shortener.reactive.dao.LettuceReactiveShortnerDao;
+
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class LettuceReactiveShortnerDaoTest {
+
+	private RedisReactiveCommands<String, String> mockCommands;
+
+	private LettuceReactiveShortnerDao dao;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		mockCommands = mock(RedisReactiveCommands.class);
+		dao = new LettuceReactiveShortnerDao(mockCommands);
+	}
+
+	@Test
+	public void testGetSuccess() throws Exception {
+
+		when(mockCommands.get("abcde")).thenReturn(Mono.just("http://google.com"));
+
+		assertEquals(dao.get("abcde").block(), new Url("abcde", "http://google.com"));
+	}
+
+	@Test
+	public void testGetNotSuccess() throws Exception {
+
+		when(mockCommands.get("abcde")).thenReturn(Mono.empty());
+
+		assertNull(dao.get("abcde").block());
+	}
+
+	@Test
+	public void testGetSkipsInternalKeys() throws Exception {
+
+		List<Url> urls = dao.get(RedisKeys.SEQUENCE).flux().collectList().block();
+
+		assertTrue(urls.isEmpty());
+		verifyZeroInteractions(mockCommands);
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.jsmart.yoda.shortener.reactive.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.core.codec.HostDictionary;
+import com.jsmart.yoda.shortener.core.codec.UrlValueCodec;
+import com.jsmart.yoda.shortener.reactive.ReactiveApplication;
+
+import io.lettuce.core.codec.RedisCodec;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class ReactiveApplicationTest {
+
+	private HostDictionary mockHostDictionary;
+
+	private RedisCodec<String, String> codec;
+
+	private UrlValueCodec urlValueCodec;
+
+	@Before
+	public void setUp() {
+		mockHostDictionary = mock(HostDictionary.class);
+		when(mockHostDictionary.idOf("google.com")).thenReturn(7);
+		when(mockHostDictionary.hostOf(7)).thenReturn("google.com");
+
+		Properties properties = new Properties();
+		properties.setProperty("shorturl.codec.compress-min-length", "32");
+		codec = ReactiveApplication.redisCodec(properties, mockHostDictionary);
+		urlValueCodec = new UrlValueCodec(mockHostDictionary, 32);
+	}
+
+	@Test
+	public void testEncodedValueIsRead() throws Exception {
+
+		byte[] value = urlValueCodec.serialize("https://google.com/search?q=yoda");
+
+		assertEquals(value[0] & 0xFF, 0xFF);
+		assertEquals(codec.decodeValue(ByteBuffer.wrap(value)), "https://google.com/search?q=yoda");
+	}
+
+	@Test
+	public void testDeflatedValueIsRead() throws Exception {
+
+		String longUrl = "https://google.com/search?q=yoda&utm_source=news&utm_medium=email&utm_campaign=spring";
+		byte[] value = urlValueCodec.serialize(longUrl);
+
+		assertTrue(value.length < longUrl.length());
+		assertEquals(codec.decodeValue(ByteBuffer.wrap(value)), longUrl);
+	}
+
+	@Test
+	public void testPlainValueIsRead() throws Exception {
+
+		byte[] value = "http://ua.fm".getBytes(StandardCharsets.UTF_8);
+
+		assertEquals(codec.decodeValue(ByteBuffer.wrap(value)), "http://ua.fm");
+		assertEquals(codec.decodeKey(ByteBuffer.wrap("abcde".getBytes(StandardCharsets.UTF_8))), "abcde");
+		verifyZeroInteractions(mockHostDictionary);
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.jsmart.yoda.shortener.reactive.test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jsmart.yoda.shortener.base.Url;
+import com.jsmart.yoda.shortener.reactive.dao.ReactiveShortnerDao;
+import com.jsmart.yoda.shortener.reactive.handler.UrlHandler;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * @author Nick Koretskyy
+ *
+ */
+public class UrlHandlerTest {
+
+	private ReactiveShortnerDao mockReactiveShortnerDao;
+
+	private DisposableServer server;
+
+	private HttpClient client;
+
+	@Before
+	public void setUp() {
+		mockReactiveShortnerDao = mock(ReactiveShortnerDao.class);
+		UrlHandler urlHandler = new UrlHandler(mockReactiveShortnerDao);
+		server = HttpServer.create()
+				.port(0)
+				.route(routes -> routes.get("/service/{shortUrl}", urlHandler::redirect))
+				.bindNow();
+		client = HttpClient.create().port(server.port()).followRedirect(false);
+	}
+
+	@After
+	public void tearDown() {
+		server.disposeNow();
+	}
+
+	@Test
+	public void testRedirectSuccess() throws Exception {
+
+		when(mockReactiveShortnerDao.get("abcde")).thenReturn(Mono.just(new Url("abcde", "http://google.com")));
+
+		HttpClientResponse response = client.get().uri("/service/abcde").response().block();
+
+		assertEquals(response.status(), HttpResponseStatus.SEE_OTHER);
+		assertEquals(response.responseHeaders().get(HttpHeaderNames.LOCATION), "http://google.com");
+	}
+
+	@Test
+	public void testRedirectNotSuccess() throws Exception {
+
+		when(mockReactiveShortnerDao.get("abcde")).thenReturn(Mono.empty());
+
+		HttpClientResponse response = client.get().uri("/service/abcde").response().block();
+
+		assertEquals(response.status(), HttpResponseStatus.NOT_FOUND);
+		assertNull(response.responseHeaders().get(HttpHeaderNames.LOCATION));
+	}
+
+}